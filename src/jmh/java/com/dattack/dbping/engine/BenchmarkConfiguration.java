@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.dattack.dbping.beans.DbpingParser;
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.jtoolbox.exceptions.DattackParserException;
+
+/**
+ * Loads the task used by the benchmarks from the <code>dbping-benchmark.xml</code> resource and the database it queries
+ * from the <code>sqlite.sql</code> test script.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class BenchmarkConfiguration {
+
+    private static final String RESOURCE = "/dbping-benchmark.xml";
+    private static final String SCRIPT_RESOURCE = "/sqlite.sql";
+
+    /**
+     * Creates the tables of the <code>sqlite.sql</code> test script.
+     */
+    static void loadDatabase(final Connection connection) throws IOException, SQLException {
+
+        try (InputStream input = BenchmarkConfiguration.class.getResourceAsStream(SCRIPT_RESOURCE)) {
+            if (input == null) {
+                throw new FileNotFoundException(String.format("Resource not found: %s", SCRIPT_RESOURCE));
+            }
+
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            try (Statement stmt = connection.createStatement()) {
+                final StringBuilder sql = new StringBuilder();
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    sql.append(line).append('\n');
+                    if (line.trim().endsWith(";")) {
+                        stmt.execute(sql.toString());
+                        sql.setLength(0);
+                    }
+                }
+            }
+        }
+    }
+
+    static PingTaskBean loadTask() throws IOException {
+
+        final File file = File.createTempFile("dbping-benchmark", ".xml");
+        try (InputStream input = BenchmarkConfiguration.class.getResourceAsStream(RESOURCE)) {
+            if (input == null) {
+                throw new FileNotFoundException(String.format("Resource not found: %s", RESOURCE));
+            }
+            Files.copy(input, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return DbpingParser.parse(file).getTaskList().get(0);
+        } catch (final DattackParserException e) {
+            throw new IOException(e);
+        } finally {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    private BenchmarkConfiguration() {
+        // static class
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.sql.SQLRecoverableException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+
+/**
+ * Measures the cost of building a log entry, as done by each thread of a ping job after every execution. Each thread
+ * reuses its own builder, like {@link PingJob}.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LogEntryBuilderBenchmark {
+
+    private static final String[] LABELS = { "deptno10", "deptno20", "deptno30", "mgr" };
+
+    private final LogEntryBuilder builder = new LogEntryBuilder(10) //
+            .withTaskName("emp_test") //
+            .withThreadName("emp_test@Thread-0");
+
+    private final SQLRecoverableException exception = new SQLRecoverableException("IO error: connection reset",
+            "08006", 17002);
+
+    private long iteration;
+
+    @Benchmark
+    public LogEntry build() {
+        final long current = iteration++;
+        builder.init() //
+                .withSqlLabel(LABELS[(int) (current % LABELS.length)]) //
+                .withIteration(current);
+        builder.connect();
+        return builder.build();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public LogEntry buildConcurrent() {
+        return build();
+    }
+
+    @Benchmark
+    public LogEntry buildFailed() {
+        final long current = iteration++;
+        builder.init() //
+                .withSqlLabel(LABELS[(int) (current % LABELS.length)]) //
+                .withIteration(current);
+        builder.connect();
+        return builder.withException(exception).build();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteDataSource;
+
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.log.CSVFileLogWriter;
+import com.dattack.dbping.log.LogWriter;
+
+/**
+ * Runs the <code>emp</code> task of <code>dbping-benchmark.xml</code> against a SQLite database loaded from the
+ * <code>sqlite.sql</code> test script, with several threads sharing the command provider and the log writer like the
+ * threads of a task do. The database is local so most of the measured time is spent by dbping and the JDBC driver.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PingJobBenchmark {
+
+    @Param({ "1", "4", "8" })
+    private int threads;
+
+    @Param({ "com.dattack.dbping.engine.SqlCommandRoundRobinProvider",
+        "com.dattack.dbping.engine.SqlCommandWeightedRandomProvider" })
+    private String providerClass;
+
+    private File databaseFile;
+    private File logFile;
+    private SQLiteDataSource dataSource;
+    private PingTaskBean pingTaskBean;
+    private SqlCommandProvider provider;
+    private LogWriter logWriter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException, ReflectiveOperationException {
+
+        databaseFile = File.createTempFile("dbping-benchmark", ".sqlite");
+        dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + databaseFile.getPath());
+        try (Connection connection = dataSource.getConnection()) {
+            BenchmarkConfiguration.loadDatabase(connection);
+        }
+
+        pingTaskBean = BenchmarkConfiguration.loadTask();
+        provider = (SqlCommandProvider) Class.forName(providerClass).newInstance();
+        provider.setSentences(pingTaskBean.getSqlStatementList());
+
+        logFile = File.createTempFile("dbping-benchmark", ".log");
+        logWriter = new CSVFileLogWriter(logFile.getPath());
+    }
+
+    /**
+     * Truncates the log so its size doesn't grow without limit between iterations.
+     */
+    @Setup(Level.Iteration)
+    public void truncate() throws IOException {
+        new FileOutputStream(logFile).close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (final File file : new File[] { databaseFile, logFile }) {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    @Benchmark
+    public void run() throws InterruptedException {
+
+        final TaskMetrics taskMetrics = new TaskMetrics(pingTaskBean.getName(), threads);
+        final Thread[] threadArray = new Thread[threads];
+        for (int i = 0; i < threadArray.length; i++) {
+            threadArray[i] = new Thread(new PingJob(pingTaskBean, dataSource, provider, logWriter, taskMetrics),
+                    pingTaskBean.getName() + "@Thread-" + i);
+            threadArray[i].start();
+        }
+        for (final Thread thread : threadArray) {
+            thread.join();
+        }
+    }
+}
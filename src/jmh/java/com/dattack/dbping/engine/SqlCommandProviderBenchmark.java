@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dattack.dbping.beans.SqlCommandBean;
+
+/**
+ * Measures the selection of the next command by each {@link SqlCommandProvider}. The provider is shared by all the
+ * threads of a task, so the contended case shows the cost of its synchronization.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SqlCommandProviderBenchmark {
+
+    @Param({ "com.dattack.dbping.engine.SqlCommandRoundRobinProvider",
+        "com.dattack.dbping.engine.SqlCommandRandomProvider",
+        "com.dattack.dbping.engine.SqlCommandWeightedRandomProvider" })
+    private String providerClass;
+
+    private SqlCommandProvider provider;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ReflectiveOperationException {
+        provider = (SqlCommandProvider) Class.forName(providerClass).newInstance();
+        provider.setSentences(BenchmarkConfiguration.loadTask().getSqlStatementList());
+    }
+
+    @Benchmark
+    public SqlCommandBean nextSql() {
+        return provider.nextSql();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public SqlCommandBean nextSqlConcurrent() {
+        return provider.nextSql();
+    }
+}
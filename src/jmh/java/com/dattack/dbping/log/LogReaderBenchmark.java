@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.dattack.dbping.engine.LogEntry;
+import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+
+/**
+ * Compares the generic {@link CSVFileLogReader} with the specialized {@link CSVFileFastLogReader} reading the same
+ * log file.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LogReaderBenchmark {
+
+    private static final String[] LABELS = { "deptno10", "deptno20", "deptno30", "mgr" };
+    private static final int THREADS = 8;
+
+    @Param({ "100000" })
+    private int entries;
+
+    private File logFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        logFile = File.createTempFile("dbping-benchmark", ".log");
+
+        final LogWriter logWriter = new CSVFileLogWriter(logFile.getPath());
+        final LogEntryBuilder builder = new LogEntryBuilder();
+        final long baseTime = System.currentTimeMillis();
+        for (int i = 0; i < entries; i++) {
+            logWriter.write(builder.init() //
+                    .withEventTime(baseTime + i * 7L) //
+                    .withTaskName("emp_test") //
+                    .withThreadName("emp_test@Thread-" + (i % THREADS)) //
+                    .withIteration(i / THREADS) //
+                    .withSqlLabel(LABELS[i % LABELS.length]) //
+                    .withRows(i % 15) //
+                    .withConnectionTime(i % 3) //
+                    .withFirstRowTime(5 + i % 11) //
+                    .withTotalTime(9 + i % 37) //
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (!logFile.delete()) {
+            logFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public long csvFileLogReader(final Blackhole blackhole) throws IOException {
+        try (CSVFileLogReader reader = new CSVFileLogReader(logFile)) {
+            return consume(reader, blackhole);
+        }
+    }
+
+    @Benchmark
+    public long csvFileFastLogReader(final Blackhole blackhole) throws IOException {
+        try (CSVFileFastLogReader reader = new CSVFileFastLogReader(logFile)) {
+            return consume(reader, blackhole);
+        }
+    }
+
+    private static long consume(final LogReader reader, final Blackhole blackhole) throws IOException {
+
+        try {
+            long count = 0;
+            for (LogEntry entry = reader.next(); entry != null; entry = reader.next()) {
+                blackhole.consume(entry);
+                count++;
+            }
+            return count;
+        } catch (final ParseException e) {
+            throw new IOException(e);
+        }
+    }
+}
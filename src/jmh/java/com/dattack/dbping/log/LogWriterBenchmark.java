@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.SQLRecoverableException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dattack.dbping.engine.LogEntry;
+import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+
+/**
+ * Measures the cost of formatting and appending a log entry with {@link CSVFileLogWriter}, the writer shared by all
+ * the threads of a task.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LogWriterBenchmark {
+
+    private File logFile;
+    private LogWriter logWriter;
+    private LogEntry successEntry;
+    private LogEntry failedEntry;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        logFile = File.createTempFile("dbping-benchmark", ".log");
+        logWriter = new CSVFileLogWriter(logFile.getPath());
+
+        final LogEntryBuilder builder = new LogEntryBuilder();
+        successEntry = builder.init() //
+                .withTaskName("emp_test") //
+                .withThreadName("emp_test@Thread-0") //
+                .withIteration(1234) //
+                .withSqlLabel("deptno10") //
+                .withRows(3) //
+                .withConnectionTime(1) //
+                .withFirstRowTime(7) //
+                .withTotalTime(12) //
+                .build();
+        failedEntry = builder.init() //
+                .withTaskName("emp_test") //
+                .withThreadName("emp_test@Thread-0") //
+                .withIteration(1235) //
+                .withSqlLabel("deptno10") //
+                .withConnectionTime(1) //
+                .withTotalTime(30) //
+                .withException(new SQLRecoverableException("IO error: connection reset", "08006", 17002)) //
+                .build();
+    }
+
+    /**
+     * Truncates the log so its size doesn't grow without limit between iterations.
+     */
+    @Setup(Level.Iteration)
+    public void truncate() throws IOException {
+        new FileOutputStream(logFile).close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (!logFile.delete()) {
+            logFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public void write() {
+        logWriter.write(successEntry);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void writeConcurrent() {
+        logWriter.write(successEntry);
+    }
+
+    @Benchmark
+    public void writeFailed() {
+        logWriter.write(failedEntry);
+    }
+}
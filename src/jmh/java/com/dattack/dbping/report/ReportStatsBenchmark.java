@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.dattack.dbping.engine.LogEntry;
+import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+
+/**
+ * Measures the aggregation of the log entries in time buckets done by the analyzer, with a 2% of failed executions.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReportStatsBenchmark {
+
+    private static final String[] LABELS = { "deptno10", "deptno20", "deptno30", "mgr" };
+    private static final String[] ERROR_CLASSES = { "java.sql.SQLRecoverableException",
+        "java.sql.SQLTimeoutException" };
+    private static final int THREADS = 8;
+    private static final int FAILURE_PERIOD = 50;
+
+    @Param({ "100000" })
+    private int entries;
+
+    // the span of the time buckets in milliseconds, zero for a bucket per distinct event time
+    @Param({ "0", "1000" })
+    private long timeSpan;
+
+    private LogEntry[] logEntries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        logEntries = new LogEntry[entries];
+        final LogEntryBuilder builder = new LogEntryBuilder();
+        final long baseTime = System.currentTimeMillis();
+        for (int i = 0; i < entries; i++) {
+            builder.init() //
+                    .withEventTime(baseTime + i * 7L) //
+                    .withTaskName("emp_test") //
+                    .withThreadName("emp_test@Thread-" + (i % THREADS)) //
+                    .withIteration(i / THREADS) //
+                    .withSqlLabel(LABELS[i % LABELS.length]) //
+                    .withConnectionTime(i % 3) //
+                    .withTotalTime(9 + i % 37);
+            if (i % FAILURE_PERIOD == 0) {
+                builder.withSqlState("08006") //
+                        .withErrorCode(17002) //
+                        .withErrorClass(ERROR_CLASSES[(i / FAILURE_PERIOD) % ERROR_CLASSES.length]);
+            } else {
+                builder.withRows(i % 15) //
+                        .withFirstRowTime(5 + i % 11);
+            }
+            logEntries[i] = builder.build();
+        }
+    }
+
+    @Benchmark
+    public ReportStats add(final Blackhole blackhole) {
+
+        final ReportContext context = new ReportContext();
+        context.setTimeSpan(timeSpan);
+        final ReportStats reportStats = new ReportStats(context);
+        for (final LogEntry logEntry : logEntries) {
+            blackhole.consume(reportStats.add(logEntry));
+        }
+        blackhole.consume(reportStats.flush());
+        return reportStats;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.beans;
+
+import java.io.Serializable;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlValue;
+
+/**
+ * A performance assertion of a task, checked at the end of the run (e.g. <code>p99(total) &lt; 20ms</code>).
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public class AssertBean implements Serializable {
+
+    private static final long serialVersionUID = 2286710544218419035L;
+
+    @XmlAttribute(name = "label", required = false)
+    private String label;
+
+    @XmlValue
+    private String expression;
+
+    /**
+     * @return the expression of the assertion
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return the label of the executions checked or <code>null</code> to check all the executions of the task
+     */
+    public String getLabel() {
+        return label;
+    }
+}
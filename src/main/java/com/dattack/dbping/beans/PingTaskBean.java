@@ -16,6 +16,7 @@
 package com.dattack.dbping.beans;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAttribute;
@@ -42,22 +43,72 @@ public class PingTaskBean implements Serializable {
     @XmlAttribute(name = "timeBetweenExecutions", required = true)
     private int timeBetweenExecutions;
 
+    @XmlAttribute(name = "thinkTime", required = false)
+    private String thinkTime;
+
     @XmlAttribute(name = "datasource", required = true)
     private String datasource;
 
     @XmlAttribute(name = "maxRowsToDump", required = false)
     private int maxRowsToDump;
 
+    @XmlAttribute(name = "checksum", required = false)
+    private Boolean checksum;
+
+    @XmlAttribute(name = "phaseTimes", required = false)
+    private Boolean phaseTimes;
+
     @XmlElements({ @XmlElement(name = "query", type = SqlStatementBean.class),
         @XmlElement(name = "script", type = SqlScriptBean.class) })
     private List<SqlCommandBean> sqlStatementList;
 
+    @XmlElement(name = "connection-init", type = String.class)
+    private List<String> connectionInitList;
+
+    @XmlElement(name = "assert", type = AssertBean.class)
+    private List<AssertBean> assertList;
+
     @XmlElement(name = "log-file", type = String.class)
     private String logFile;
 
     @XmlElement(name = "command-provider", type = String.class)
     private String commandProvider;
 
+    @XmlElement(name = "replay", type = ReplayBean.class)
+    private ReplayBean replay;
+
+    public PingTaskBean() {
+        // used by JAXB
+    }
+
+    private PingTaskBean(final PingTaskBean other) {
+        this.name = other.name;
+        this.threads = other.threads;
+        this.executions = other.executions;
+        this.timeBetweenExecutions = other.timeBetweenExecutions;
+        this.thinkTime = other.thinkTime;
+        this.datasource = other.datasource;
+        this.maxRowsToDump = other.maxRowsToDump;
+        this.checksum = other.checksum;
+        this.phaseTimes = other.phaseTimes;
+        this.sqlStatementList = other.sqlStatementList;
+        this.connectionInitList = other.connectionInitList;
+        this.assertList = other.assertList;
+        this.logFile = other.logFile;
+        this.commandProvider = other.commandProvider;
+        this.replay = other.replay;
+    }
+
+    /**
+     * @return the performance assertions checked at the end of the run
+     */
+    public List<AssertBean> getAssertList() {
+        if (assertList == null) {
+            return Collections.emptyList();
+        }
+        return assertList;
+    }
+
     /**
      * @return the commandProvider
      */
@@ -65,6 +116,16 @@ public class PingTaskBean implements Serializable {
         return commandProvider;
     }
 
+    /**
+     * @return the statements executed once on each physical connection, before its first use by the task
+     */
+    public List<String> getConnectionInitList() {
+        if (connectionInitList == null) {
+            return Collections.emptyList();
+        }
+        return connectionInitList;
+    }
+
     /**
      * @return the datasource
      */
@@ -100,6 +161,13 @@ public class PingTaskBean implements Serializable {
         return name;
     }
 
+    /**
+     * @return the trace replayed by the task or <code>null</code> if the task executes its commands
+     */
+    public ReplayBean getReplay() {
+        return replay;
+    }
+
     /**
      * @return the sqlStatementList
      */
@@ -114,10 +182,46 @@ public class PingTaskBean implements Serializable {
         return threads;
     }
 
+    /**
+     * @return the distribution of the time between executions or <code>null</code> to use the fixed
+     *         timeBetweenExecutions
+     */
+    public String getThinkTime() {
+        return thinkTime;
+    }
+
     /**
      * @return the timeBetweenExecutions
      */
     public int getTimeBetweenExecutions() {
         return timeBetweenExecutions;
     }
+
+    /**
+     * @return <code>true</code> if the checksum of the result sets is logged and their rows are dumped only when the
+     *         checksum changes
+     */
+    public boolean isChecksum() {
+        return checksum != null && checksum;
+    }
+
+    /**
+     * @return <code>true</code> if the JDBC calls are instrumented to log the time of each phase of the executions
+     */
+    public boolean isPhaseTimes() {
+        return phaseTimes != null && phaseTimes;
+    }
+
+    /**
+     * Returns a copy of this task with another number of threads.
+     *
+     * @param value
+     *            the number of threads of the copy
+     * @return the copy
+     */
+    public PingTaskBean withThreads(final int value) {
+        final PingTaskBean copy = new PingTaskBean(this);
+        copy.threads = value;
+        return copy;
+    }
 }
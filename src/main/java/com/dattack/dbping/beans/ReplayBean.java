@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.beans;
+
+import java.io.Serializable;
+
+import javax.xml.bind.annotation.XmlAttribute;
+
+/**
+ * The trace replayed by a task instead of its commands.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public class ReplayBean implements Serializable {
+
+    private static final long serialVersionUID = -6127334187093513471L;
+
+    @XmlAttribute(name = "file", required = true)
+    private String file;
+
+    @XmlAttribute(name = "speed", required = false)
+    private Float speed;
+
+    /**
+     * @return the file
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * @return the speed factor of the replay (e.g. 2 to replay the trace in half the original time), 1 by default
+     */
+    public float getSpeed() {
+        return speed == null || speed <= 0 ? 1 : speed;
+    }
+}
@@ -30,8 +30,24 @@ public interface SqlCommandBean extends Serializable {
      */
     String getLabel();
 
+    /**
+     * @return the transitions to the next commands of a session, as <code>label:probability</code> pairs, or
+     *         <code>null</code> if the command ends the session
+     */
+    String getNext();
+
+    /**
+     * @return the distribution of the time to wait after the command or <code>null</code> to use the one of the task
+     */
+    String getThinkTime();
+
     /**
      * @return the weight
      */
     float getWeight();
+
+    /**
+     * @return <code>false</code> if the command must not be executed
+     */
+    boolean isEnabled();
 }
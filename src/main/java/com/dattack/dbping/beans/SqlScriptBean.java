@@ -34,6 +34,15 @@ public class SqlScriptBean implements SqlCommandBean {
     @XmlAttribute(name = "weight", required = false)
     private float weight;
 
+    @XmlAttribute(name = "enabled", required = false)
+    private Boolean enabled;
+
+    @XmlAttribute(name = "thinkTime", required = false)
+    private String thinkTime;
+
+    @XmlAttribute(name = "next", required = false)
+    private String next;
+
     @XmlElement(name = "query", required = true, type = SqlStatementBean.class)
     private List<SqlStatementBean> statementList;
 
@@ -50,6 +59,14 @@ public class SqlScriptBean implements SqlCommandBean {
         return label;
     }
 
+    /**
+     * @return the next
+     */
+    @Override
+    public String getNext() {
+        return next;
+    }
+
     /**
      * @return the statementList
      */
@@ -57,6 +74,14 @@ public class SqlScriptBean implements SqlCommandBean {
         return statementList;
     }
 
+    /**
+     * @return the thinkTime
+     */
+    @Override
+    public String getThinkTime() {
+        return thinkTime;
+    }
+
     /**
      * @return the weight
      */
@@ -64,4 +89,12 @@ public class SqlScriptBean implements SqlCommandBean {
     public float getWeight() {
         return weight;
     }
+
+    /**
+     * @return the enabled flag, <code>true</code> by default
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled == null || enabled;
+    }
 }
@@ -35,6 +35,15 @@ public class SqlStatementBean implements SqlCommandBean {
     @XmlAttribute(name = "weight", required = false)
     private float weight;
 
+    @XmlAttribute(name = "enabled", required = false)
+    private Boolean enabled;
+
+    @XmlAttribute(name = "thinkTime", required = false)
+    private String thinkTime;
+
+    @XmlAttribute(name = "next", required = false)
+    private String next;
+
     @Override
     public void accept(final SqlCommandVisitor visitor) {
         visitor.visite(this);
@@ -48,6 +57,14 @@ public class SqlStatementBean implements SqlCommandBean {
         return label;
     }
 
+    /**
+     * @return the next
+     */
+    @Override
+    public String getNext() {
+        return next;
+    }
+
     /**
      * @return the sql
      */
@@ -55,6 +72,14 @@ public class SqlStatementBean implements SqlCommandBean {
         return sql;
     }
 
+    /**
+     * @return the thinkTime
+     */
+    @Override
+    public String getThinkTime() {
+        return thinkTime;
+    }
+
     /**
      * @return the weight
      */
@@ -62,4 +87,12 @@ public class SqlStatementBean implements SqlCommandBean {
     public float getWeight() {
         return weight;
     }
+
+    /**
+     * @return the enabled flag, <code>true</code> by default
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled == null || enabled;
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.cli;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.dattack.dbping.cluster.PingAgent;
+import com.dattack.dbping.engine.PingEngine;
+import com.dattack.jtoolbox.util.TimeUtils;
+
+/**
+ * Starts a dbping agent that runs the tasks sent by a controller (see {@link PingControllerCli}).
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class PingAgentCli {
+
+    private static final String PORT_OPTION = "p";
+    private static final String LONG_PORT_OPTION = "port";
+    private static final String BIND_OPTION = "b";
+    private static final String LONG_BIND_OPTION = "bind";
+    private static final String TOKEN_OPTION = "k";
+    private static final String LONG_TOKEN_OPTION = "token";
+    private static final String PROGRESS_OPTION = "r";
+    private static final String LONG_PROGRESS_OPTION = "progress";
+    private static final String TELEMETRY_OPTION = "m";
+    private static final String LONG_TELEMETRY_OPTION = "telemetry";
+
+    private static Options createOptions() {
+
+        final Options options = new Options();
+
+        options.addOption(Option.builder(PORT_OPTION) //
+                .required(true) //
+                .longOpt(LONG_PORT_OPTION) //
+                .hasArg(true) //
+                .argName("PORT") //
+                .desc("the port where the agent listens to the controller") //
+                .build());
+
+        options.addOption(Option.builder(BIND_OPTION) //
+                .required(false) //
+                .longOpt(LONG_BIND_OPTION) //
+                .hasArg(true) //
+                .argName("ADDRESS") //
+                .desc("the address where the agent listens to the controller (default: the loopback interface)") //
+                .build());
+
+        options.addOption(Option.builder(TOKEN_OPTION) //
+                .required(true) //
+                .longOpt(LONG_TOKEN_OPTION) //
+                .hasArg(true) //
+                .argName("TOKEN") //
+                .desc("the secret shared with the controller; other connections are rejected") //
+                .build());
+
+        options.addOption(Option.builder(PROGRESS_OPTION) //
+                .required(false) //
+                .longOpt(LONG_PROGRESS_OPTION) //
+                .hasArg(true) //
+                .argName("TIME_SPAN") //
+                .desc("the period of time between progress messages with the throughput of each task (disabled "
+                        + "by default)") //
+                .build());
+
+        options.addOption(Option.builder(TELEMETRY_OPTION) //
+                .required(false) //
+                .longOpt(LONG_TELEMETRY_OPTION) //
+                .hasArg(true) //
+                .optionalArg(true) //
+                .argName("TIME_SPAN") //
+                .desc("writes to the logs the CPU samples of the client, every TIME_SPAN (1s by default), along "
+                        + "with the GC pauses and stalls of the JVM (disabled by default)") //
+                .build());
+
+        return options;
+    }
+
+    /**
+     * The <code>main</code> method.
+     *
+     * @param args
+     *            the program arguments
+     */
+    public static void main(final String[] args) {
+
+        final Options options = createOptions();
+
+        try {
+            final CommandLineParser parser = new DefaultParser();
+            final CommandLine cmd = parser.parse(options, args);
+
+            long progressMillis = PingEngine.DEFAULT_PROGRESS_MILLIS;
+            if (cmd.hasOption(PROGRESS_OPTION)) {
+                final Long value = TimeUtils.parseTimeSpanMillis(cmd.getOptionValue(PROGRESS_OPTION));
+                progressMillis = value == null ? 0 : value;
+            }
+
+            long telemetryMillis = PingEngine.DEFAULT_TELEMETRY_MILLIS;
+            if (cmd.hasOption(TELEMETRY_OPTION)) {
+                final String period = cmd.getOptionValue(TELEMETRY_OPTION);
+                if (period == null) {
+                    telemetryMillis = PingEngine.TELEMETRY_PERIOD_MILLIS;
+                } else {
+                    final Long value = TimeUtils.parseTimeSpanMillis(period);
+                    telemetryMillis = value == null ? 0 : value;
+                }
+            }
+
+            InetAddress bindAddress = null;
+            if (cmd.hasOption(BIND_OPTION)) {
+                bindAddress = InetAddress.getByName(cmd.getOptionValue(BIND_OPTION));
+            }
+
+            final int port = Integer.parseInt(cmd.getOptionValue(PORT_OPTION));
+            new PingAgent(bindAddress, port, cmd.getOptionValue(TOKEN_OPTION), progressMillis, telemetryMillis).run();
+
+        } catch (@SuppressWarnings("unused") final ParseException | IllegalArgumentException e) {
+            showUsage(options);
+        } catch (final IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    private static void showUsage(final Options options) {
+        final HelpFormatter formatter = new HelpFormatter();
+        final int descPadding = 5;
+        final int leftPadding = 4;
+        formatter.setDescPadding(descPadding);
+        formatter.setLeftPadding(leftPadding);
+        final String header = "\n";
+        final String footer = "\nPlease report issues at https://github.com/dattack/dbtools/issues";
+        formatter.printHelp("dbping-agent ", header, options, footer, true);
+    }
+}
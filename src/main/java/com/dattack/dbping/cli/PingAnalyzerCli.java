@@ -18,16 +18,23 @@ package com.dattack.dbping.cli;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.configuration.ConfigurationException;
 
+import com.dattack.dbping.log.LogIndex;
+import com.dattack.dbping.report.LogComparator;
 import com.dattack.dbping.report.MetricName;
 import com.dattack.dbping.report.ReportContext;
+import com.dattack.dbping.report.ReportFormat;
 import com.dattack.dbping.report.Reporter;
 import com.dattack.jtoolbox.util.TimeUtils;
 
@@ -44,6 +51,31 @@ public final class PingAnalyzerCli {
     private static final String DATA_FILE_OPTION = "file";
     private static final String MAX_VALUE_OPTION = "max";
     private static final String MIN_VALUE_OPTION = "min";
+    private static final String MAX_POINTS_OPTION = "max_points";
+    private static final String FOLLOW_OPTION = "follow";
+    private static final String REFRESH_OPTION = "refresh";
+    private static final String CHECKPOINT_OPTION = "checkpoint";
+    private static final String INDEX_OPTION = "index";
+    private static final String BASELINE_OPTION = "baseline";
+    private static final String CANDIDATE_OPTION = "candidate";
+    private static final String MAX_REGRESSION_OPTION = "max_regression";
+    private static final String ALPHA_OPTION = "alpha";
+    private static final String FORMAT_OPTION = "format";
+    private static final String MERGE_OPTION = "merge";
+    private static final String MAX_LATENESS_OPTION = "max_lateness";
+
+    private static final int REGRESSION_EXIT_STATUS = 1;
+    private static final int ERROR_EXIT_STATUS = 2;
+
+    private static final FilenameFilter LOG_FILE_FILTER = new FilenameFilter() {
+
+        @Override
+        public boolean accept(final File dir, final String name) {
+            return name.toLowerCase().endsWith(".log");
+        }
+    };
+
+    private static final long DEFAULT_REFRESH_MILLIS = 10000;
 
     /**
      * The <code>main</code> method.
@@ -63,9 +95,39 @@ public final class PingAnalyzerCli {
             options.addOption(END_DATE_OPTION, true, "the date for an analysis run to finish");
             options.addOption(SPAN_OPTION, true, "the period of time between points");
             options.addOption(DATA_FILE_OPTION, true, "the data file to analyze");
-            options.addOption(METRIC_OPTION, true, "the metric to analyze");
+            options.addOption(METRIC_OPTION, true,
+                    "the metric to analyze (task:label:metric, wildcards '*' and '?' are allowed)");
             options.addOption(MAX_VALUE_OPTION, true, "the maximum value to use");
             options.addOption(MIN_VALUE_OPTION, true, "the minimum value to use");
+            options.addOption(FORMAT_OPTION, true,
+                    "the format of the report: 'html' (a single file, the default) or 'vis' (requires Internet "
+                            + "access)");
+            options.addOption(MAX_POINTS_OPTION, true,
+                    "the maximum number of points to draw for each metric (ignored in follow mode)");
+            options.addOption(MAX_LATENESS_OPTION, true,
+                    "the maximum time that an entry can be written behind the newest one and still be added to its "
+                            + "point (default " + ReportContext.DEFAULT_MAX_LATENESS + " ms)");
+            options.addOption(Option.builder(FOLLOW_OPTION).longOpt(FOLLOW_OPTION)
+                    .desc("keeps the data file open and updates the report as new entries are written").build());
+            options.addOption(REFRESH_OPTION, true, "the period of time between updates in follow mode");
+            options.addOption(CHECKPOINT_OPTION, true, "the file used to resume the analysis in follow mode");
+            options.addOption(Option.builder(INDEX_OPTION).hasArg().optionalArg(true).argName("entries")
+                    .desc("builds the time index of the data files before the analysis, with a block every N entries"
+                            + " (default " + LogIndex.DEFAULT_INTERVAL + ")")
+                    .build());
+            options.addOption(Option.builder(MERGE_OPTION)
+                    .desc("merges all the data files by time in a single report (e.g. the log shards of a task)")
+                    .build());
+            options.addOption(Option.builder(BASELINE_OPTION).hasArgs()
+                    .desc("the data files (or directories) of the baseline to compare").build());
+            options.addOption(Option.builder(CANDIDATE_OPTION).hasArgs()
+                    .desc("the data files (or directories) of the candidate to compare").build());
+            options.addOption(MAX_REGRESSION_OPTION, true,
+                    "the maximum growth of a percentile, in percent, before a metric is considered a regression "
+                            + "(default " + LogComparator.DEFAULT_MAX_REGRESSION * 100 + ")");
+            options.addOption(ALPHA_OPTION, true,
+                    "the significance level of the comparison tests (default "
+                            + LogComparator.DEFAULT_SIGNIFICANCE_LEVEL + ")");
 
             final CommandLineParser parser = new DefaultParser();
             final CommandLine cmd = parser.parse(options, args);
@@ -76,19 +138,170 @@ public final class PingAnalyzerCli {
             context.setTimeSpan(TimeUtils.parseTimeSpanMillis(cmd.getOptionValue(SPAN_OPTION)));
             context.setMaxValue(parseLong(cmd.getOptionValue(MAX_VALUE_OPTION)));
             context.setMinValue(parseLong(cmd.getOptionValue(MIN_VALUE_OPTION)));
+            context.setMaxLateness(TimeUtils.parseTimeSpanMillis(cmd.getOptionValue(MAX_LATENESS_OPTION)));
+            final Long maxPoints = parseLong(cmd.getOptionValue(MAX_POINTS_OPTION));
+            if (maxPoints != null && maxPoints > 0) {
+                context.setMaxPoints(maxPoints.intValue());
+            }
+            if (cmd.hasOption(FORMAT_OPTION)) {
+                try {
+                    context.setFormat(
+                            ReportFormat.valueOf(cmd.getOptionValue(FORMAT_OPTION).trim().toUpperCase(Locale.ENGLISH)));
+                } catch (final IllegalArgumentException e) {
+                    throw new ParseException(
+                            String.format("Unknown report format: %s", cmd.getOptionValue(FORMAT_OPTION)));
+                }
+            }
             if (cmd.hasOption(METRIC_OPTION)) {
                 for (final String metricName : cmd.getOptionValues(METRIC_OPTION)) {
                     context.addMetricNameFilter(MetricName.parse(metricName));
                 }
             }
 
-            final PingAnalyzerCli ping = new PingAnalyzerCli();
+            if (cmd.hasOption(BASELINE_OPTION) || cmd.hasOption(CANDIDATE_OPTION)) {
+                final int status = compare(cmd, context);
+                if (status != 0) {
+                    System.exit(status);
+                }
+                return;
+            }
+
+            if (cmd.hasOption(FOLLOW_OPTION)) {
+                Long refreshMillis = TimeUtils.parseTimeSpanMillis(cmd.getOptionValue(REFRESH_OPTION));
+                if (refreshMillis == null || refreshMillis <= 0) {
+                    refreshMillis = DEFAULT_REFRESH_MILLIS;
+                }
+                final String checkpoint = cmd.getOptionValue(CHECKPOINT_OPTION);
+                Reporter.follow(new File(cmd.getOptionValue(DATA_FILE_OPTION)), context, refreshMillis,
+                        checkpoint == null ? null : new File(checkpoint));
+                return;
+            }
+
+            int indexInterval = 0;
+            if (cmd.hasOption(INDEX_OPTION)) {
+                final Long value = parseLong(cmd.getOptionValue(INDEX_OPTION));
+                indexInterval = value != null && value > 0 ? value.intValue() : LogIndex.DEFAULT_INTERVAL;
+            }
+
+            final PingAnalyzerCli ping = new PingAnalyzerCli(indexInterval);
+            if (cmd.hasOption(MERGE_OPTION)) {
+                ping.merge(listLogFiles(cmd.getOptionValues(DATA_FILE_OPTION)), context);
+                return;
+            }
+
             for (final String file : cmd.getOptionValues(DATA_FILE_OPTION)) {
                 ping.execute(new File(file), context);
             }
 
-        } catch (final ParseException | ConfigurationException e) {
+        } catch (final ParseException | ConfigurationException | IOException e) {
             System.err.println(e.getMessage());
+            System.exit(ERROR_EXIT_STATUS);
+        }
+    }
+
+    private static int compare(final CommandLine cmd, final ReportContext context) throws ParseException {
+
+        if (!cmd.hasOption(BASELINE_OPTION) || !cmd.hasOption(CANDIDATE_OPTION)) {
+            throw new ParseException(String.format("The options -%s and -%s must be used together", BASELINE_OPTION,
+                    CANDIDATE_OPTION));
+        }
+
+        final LogComparator comparator = createComparator(context, cmd.getOptionValue(MAX_REGRESSION_OPTION),
+                cmd.getOptionValue(ALPHA_OPTION));
+        final List<File> baselineFiles = listDataFiles(BASELINE_OPTION, cmd.getOptionValues(BASELINE_OPTION));
+        final List<File> candidateFiles = listDataFiles(CANDIDATE_OPTION, cmd.getOptionValues(CANDIDATE_OPTION));
+
+        try {
+            final int regressions = comparator.execute(baselineFiles, candidateFiles, System.out);
+            return regressions > 0 ? REGRESSION_EXIT_STATUS : 0;
+        } catch (final IOException e) {
+            System.err.println(e.getMessage());
+            return ERROR_EXIT_STATUS;
+        }
+    }
+
+    /**
+     * Creates the comparator of a baseline and a candidate from the values of the thresholds.
+     *
+     * @param context
+     *            the report context with the metric filters
+     * @param maxRegression
+     *            the maximum growth of a percentile in percent, or <code>null</code> to use the default
+     * @param alpha
+     *            the significance level, or <code>null</code> to use the default
+     * @return the comparator
+     * @throws ParseException
+     *             if a threshold isn't a number or is out of its range
+     */
+    static LogComparator createComparator(final ReportContext context, final String maxRegression,
+            final String alpha) throws ParseException {
+
+        final Double maxRegressionValue = parseDouble(MAX_REGRESSION_OPTION, maxRegression);
+        if (maxRegressionValue != null && (!(maxRegressionValue >= 0) || maxRegressionValue.isInfinite())) {
+            throw new ParseException(String.format("The value of -%s must be a positive percentage: %s",
+                    MAX_REGRESSION_OPTION, maxRegression));
+        }
+
+        final Double alphaValue = parseDouble(ALPHA_OPTION, alpha);
+        if (alphaValue != null && !(alphaValue > 0 && alphaValue < 1)) {
+            throw new ParseException(
+                    String.format("The value of -%s must be between 0 and 1: %s", ALPHA_OPTION, alpha));
+        }
+
+        return new LogComparator(context, //
+                maxRegressionValue == null ? LogComparator.DEFAULT_MAX_REGRESSION : maxRegressionValue / 100, //
+                alphaValue == null ? LogComparator.DEFAULT_SIGNIFICANCE_LEVEL : alphaValue);
+    }
+
+    /**
+     * Lists the data files of one side of a comparison, failing when there is none.
+     *
+     * @param option
+     *            the option with the paths
+     * @param paths
+     *            the data files or directories
+     * @return the data files
+     * @throws ParseException
+     *             if the paths contain no data file
+     */
+    static List<File> listDataFiles(final String option, final String[] paths) throws ParseException {
+
+        final List<File> fileList = paths == null ? new ArrayList<File>() : listLogFiles(paths);
+        if (fileList.isEmpty()) {
+            throw new ParseException(String.format("No data files found for -%s", option));
+        }
+        return fileList;
+    }
+
+    private static List<File> listLogFiles(final String[] paths) {
+
+        final List<File> fileList = new ArrayList<File>();
+        for (final String path : paths) {
+            final File file = new File(path);
+            if (file.isDirectory()) {
+                final File[] children = file.listFiles(LOG_FILE_FILTER);
+                if (children != null) {
+                    for (final File child : children) {
+                        fileList.add(child);
+                    }
+                }
+            } else {
+                fileList.add(file);
+            }
+        }
+        return fileList;
+    }
+
+    private static Double parseDouble(final String option, final String txt) throws ParseException {
+
+        if (txt == null) {
+            return null;
+        }
+
+        try {
+            return Double.valueOf(txt.trim());
+        } catch (final NumberFormatException e) {
+            throw new ParseException(String.format("The value of -%s isn't a number: %s", option, txt));
         }
     }
 
@@ -105,26 +318,24 @@ public final class PingAnalyzerCli {
         return null;
     }
 
-    private PingAnalyzerCli() {
+    private final int indexInterval;
+
+    private PingAnalyzerCli(final int indexInterval) {
+        this.indexInterval = indexInterval;
     }
 
     private void execute(final File file, final ReportContext context) throws ConfigurationException {
 
         if (file.isDirectory()) {
 
-            final FilenameFilter filter = new FilenameFilter() {
-
-                @Override
-                public boolean accept(final File dir, final String name) {
-                    return name.toLowerCase().endsWith(".log");
-                }
-            };
-
-            execute(file.listFiles(filter), context);
+            execute(file.listFiles(LOG_FILE_FILTER), context);
 
         } else {
 
             try {
+                if (indexInterval > 0) {
+                    LogIndex.build(file, indexInterval).write(file);
+                }
                 Reporter.execute(file, context);
             } catch (final IOException e) {
                 e.printStackTrace();
@@ -132,6 +343,20 @@ public final class PingAnalyzerCli {
         }
     }
 
+    private void merge(final List<File> files, final ReportContext context) throws IOException {
+
+        if (files.isEmpty()) {
+            return;
+        }
+
+        if (indexInterval > 0) {
+            for (final File file : files) {
+                LogIndex.build(file, indexInterval).write(file);
+            }
+        }
+        Reporter.execute(files, context);
+    }
+
     private void execute(final File[] files, final ReportContext context) throws ConfigurationException {
 
         if (files == null) {
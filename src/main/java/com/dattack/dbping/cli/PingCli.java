@@ -15,8 +15,13 @@
  */
 package com.dattack.dbping.cli;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -28,6 +33,9 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.configuration.ConfigurationException;
 
 import com.dattack.dbping.engine.PingEngine;
+import com.dattack.dbping.engine.SloAssertion;
+import com.dattack.dbping.engine.SloReport;
+import com.dattack.jtoolbox.util.TimeUtils;
 import com.dattack.jtoolbox.exceptions.DattackParserException;
 
 /**
@@ -40,6 +48,21 @@ public final class PingCli {
     private static final String LONG_FILE_OPTION = "file";
     private static final String TASK_NAME_OPTION = "t";
     private static final String LONG_TASK_NAME_OPTION = "task";
+    private static final String PROGRESS_OPTION = "p";
+    private static final String LONG_PROGRESS_OPTION = "progress";
+    private static final String TELEMETRY_OPTION = "m";
+    private static final String LONG_TELEMETRY_OPTION = "telemetry";
+    private static final String WATCH_OPTION = "w";
+    private static final String LONG_WATCH_OPTION = "watch";
+    private static final String SHARD_OPTION = "s";
+    private static final String LONG_SHARD_OPTION = "shard";
+    private static final String ASSERT_OPTION = "a";
+    private static final String LONG_ASSERT_OPTION = "assert";
+    private static final String JUNIT_OPTION = "j";
+    private static final String LONG_JUNIT_OPTION = "junit";
+
+    private static final int FAILURE_EXIT_STATUS = 1;
+    private static final int ERROR_EXIT_STATUS = 2;
 
     private static Options createOptions() {
 
@@ -61,9 +84,93 @@ public final class PingCli {
                 .desc("the name of the task to execute") //
                 .build());
 
+        options.addOption(Option.builder(PROGRESS_OPTION) //
+                .required(false) //
+                .longOpt(LONG_PROGRESS_OPTION) //
+                .hasArg(true) //
+                .argName("TIME_SPAN") //
+                .desc("the period of time between progress messages with the throughput of each task (disabled "
+                        + "by default)") //
+                .build());
+
+        options.addOption(Option.builder(TELEMETRY_OPTION) //
+                .required(false) //
+                .longOpt(LONG_TELEMETRY_OPTION) //
+                .hasArg(true) //
+                .optionalArg(true) //
+                .argName("TIME_SPAN") //
+                .desc("writes to the logs the CPU samples of the client, every TIME_SPAN (1s by default), along "
+                        + "with the GC pauses and stalls of the JVM (disabled by default)") //
+                .build());
+
+        options.addOption(Option.builder(WATCH_OPTION) //
+                .required(false) //
+                .longOpt(LONG_WATCH_OPTION) //
+                .hasArg(false) //
+                .desc("applies the changes of the configuration files to the running tasks: threads, pacing, "
+                        + "executions and the weight and enabled flag of each query") //
+                .build());
+
+        options.addOption(Option.builder(SHARD_OPTION) //
+                .required(false) //
+                .longOpt(LONG_SHARD_OPTION) //
+                .hasArg(false) //
+                .desc("writes the entries of each thread to its own log shard (use the -merge option of the "
+                        + "analyzer to read them together)") //
+                .build());
+
+        options.addOption(Option.builder(ASSERT_OPTION) //
+                .required(false) //
+                .longOpt(LONG_ASSERT_OPTION) //
+                .hasArgs() //
+                .argName("ASSERTION") //
+                .desc("a performance assertion checked when the tasks finish, with the syntax "
+                        + "task[:label]:expression (e.g. '*:p99(total) < 20ms', 'sales:errorRate < 0.1%' or "
+                        + "'sales:login:throughput > 3000/s'); the exit status is 1 when any assertion fails") //
+                .build());
+
+        options.addOption(Option.builder(JUNIT_OPTION) //
+                .required(false) //
+                .longOpt(LONG_JUNIT_OPTION) //
+                .hasArg(true) //
+                .argName("FILE") //
+                .desc("writes the results of the assertions as a JUnit XML report") //
+                .build());
+
         return options;
     }
 
+    private static List<SloAssertion> parseAssertions(final String[] values) throws ConfigurationException {
+
+        final List<SloAssertion> list = new ArrayList<>();
+        if (values != null) {
+            for (final String value : values) {
+                try {
+                    list.add(SloAssertion.parse(value));
+                } catch (final IllegalArgumentException e) {
+                    throw new ConfigurationException(e.getMessage(), e);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Prints the results of the assertions and returns the exit status.
+     */
+    static int report(final SloReport report, final String junitFile, final PrintStream out) throws IOException {
+
+        if (report.isEmpty()) {
+            return 0;
+        }
+
+        report.print(out);
+        if (junitFile != null) {
+            report.writeJUnit(new File(junitFile));
+        }
+        return report.getFailures() == 0 ? 0 : FAILURE_EXIT_STATUS;
+    }
+
     /**
      * The <code>main</code> method.
      *
@@ -85,13 +192,45 @@ public final class PingCli {
                 hs = new HashSet<>(Arrays.asList(taskNames));
             }
 
-            final PingEngine ping = new PingEngine();
+            long progressMillis = PingEngine.DEFAULT_PROGRESS_MILLIS;
+            if (cmd.hasOption(PROGRESS_OPTION)) {
+                final Long value = TimeUtils.parseTimeSpanMillis(cmd.getOptionValue(PROGRESS_OPTION));
+                progressMillis = value == null ? 0 : value;
+            }
+
+            long telemetryMillis = PingEngine.DEFAULT_TELEMETRY_MILLIS;
+            if (cmd.hasOption(TELEMETRY_OPTION)) {
+                final String period = cmd.getOptionValue(TELEMETRY_OPTION);
+                if (period == null) {
+                    telemetryMillis = PingEngine.TELEMETRY_PERIOD_MILLIS;
+                } else {
+                    final Long value = TimeUtils.parseTimeSpanMillis(period);
+                    telemetryMillis = value == null ? 0 : value;
+                }
+            }
+
+            final List<SloAssertion> assertionList = parseAssertions(cmd.getOptionValues(ASSERT_OPTION));
+
+            final PingEngine ping = new PingEngine(progressMillis, telemetryMillis, cmd.hasOption(WATCH_OPTION),
+                    cmd.hasOption(SHARD_OPTION));
             ping.execute(filenames, hs);
 
+            // the assertions are checked against the summaries of the engine once all the tasks have finished
+            ping.awaitTermination();
+            final int status = report(ping.checkAssertions(assertionList), cmd.getOptionValue(JUNIT_OPTION),
+                    System.out);
+            if (status != 0) {
+                System.exit(status);
+            }
+
         } catch (@SuppressWarnings("unused") final ParseException e) {
             showUsage(options);
-        } catch (final ConfigurationException | DattackParserException e) {
+            System.exit(ERROR_EXIT_STATUS);
+        } catch (final ConfigurationException | DattackParserException | IOException e) {
             System.err.println(e.getMessage());
+            System.exit(ERROR_EXIT_STATUS);
+        } catch (@SuppressWarnings("unused") final InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.cluster;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.dattack.dbping.beans.DbpingBean;
+
+/**
+ * The work sent by the controller to an agent: the whole configuration and the position of the agent among the
+ * others, from which the agent computes its share of the threads of each task.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class AgentAssignment implements Serializable {
+
+    private static final long serialVersionUID = -6302851520467930175L;
+
+    private final DbpingBean dbpingBean;
+    private final Set<String> taskNames;
+    private final int agentIndex;
+    private final int agentCount;
+
+    AgentAssignment(final DbpingBean dbpingBean, final Set<String> taskNames, final int agentIndex,
+            final int agentCount) {
+        this.dbpingBean = dbpingBean;
+        this.taskNames = taskNames == null ? null : new HashSet<>(taskNames);
+        this.agentIndex = agentIndex;
+        this.agentCount = agentCount;
+    }
+
+    String getAgentId() {
+        return "agent-" + agentIndex;
+    }
+
+    DbpingBean getDbpingBean() {
+        return dbpingBean;
+    }
+
+    Set<String> getTaskNames() {
+        return taskNames;
+    }
+
+    /**
+     * Returns the share of this agent of a number of threads. The threads are spread as evenly as possible and the
+     * shares of all the agents add up to the total.
+     *
+     * @param threads
+     *            the number of threads of the task
+     * @return the number of threads run by this agent
+     */
+    int getThreads(final int threads) {
+        return (int) ((long) threads * (agentIndex + 1) / agentCount - (long) threads * agentIndex / agentCount);
+    }
+}
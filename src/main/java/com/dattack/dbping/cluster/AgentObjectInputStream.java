@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.cluster;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import com.dattack.dbping.beans.AssertBean;
+import com.dattack.dbping.beans.DbpingBean;
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.beans.ReplayBean;
+import com.dattack.dbping.beans.SqlScriptBean;
+import com.dattack.dbping.beans.SqlStatementBean;
+import com.dattack.dbping.engine.LatencySketch;
+
+/**
+ * The stream used to read the messages exchanged by the controller and the agents. It only resolves the classes of
+ * the protocol and the JDK types they contain, so a peer can't make the process instantiate any other serializable
+ * class of the classpath.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class AgentObjectInputStream extends ObjectInputStream {
+
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList( //
+            AgentAssignment.class.getName(), //
+            AgentResult.class.getName(), //
+            AgentSignal.class.getName(), //
+            LatencySketch.class.getName(), //
+            DbpingBean.class.getName(), //
+            PingTaskBean.class.getName(), //
+            SqlStatementBean.class.getName(), //
+            SqlScriptBean.class.getName(), //
+            AssertBean.class.getName(), //
+            ReplayBean.class.getName(), //
+            String.class.getName(), //
+            Boolean.class.getName(), //
+            Float.class.getName(), //
+            Number.class.getName(), //
+            Enum.class.getName(), //
+            ArrayList.class.getName(), //
+            HashSet.class.getName(), //
+            HashMap.class.getName(), //
+            LinkedHashMap.class.getName(), //
+            long[].class.getName()));
+
+    AgentObjectInputStream(final InputStream input) throws IOException {
+        super(input);
+    }
+
+    @Override
+    protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+
+        if (!ALLOWED_CLASSES.contains(desc.getName())) {
+            throw new InvalidClassException(desc.getName(), "Class not allowed in the agent protocol");
+        }
+        return super.resolveClass(desc);
+    }
+
+    @Override
+    protected Class<?> resolveProxyClass(final String[] interfaces) throws IOException {
+        throw new InvalidClassException("Proxy classes are not allowed in the agent protocol");
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.cluster;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.dattack.dbping.engine.LatencySketch;
+
+/**
+ * The results of an agent sent back to the controller: the number of executions and the latency histograms of each
+ * metric, which the controller merges with those of the other agents.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class AgentResult implements Serializable {
+
+    private static final long serialVersionUID = 4460950913283470474L;
+
+    private final String agentId;
+    private final String error;
+    private final Map<String, LatencySketch> sketchMap;
+    private long startTime;
+    private long endTime;
+    private long executions;
+    private long errors;
+
+    static AgentResult failed(final String agentId, final String error) {
+        return new AgentResult(agentId, error);
+    }
+
+    private AgentResult(final String agentId, final String error) {
+        this.agentId = agentId;
+        this.error = error;
+        this.sketchMap = new LinkedHashMap<>();
+    }
+
+    AgentResult(final String agentId) {
+        this(agentId, null);
+    }
+
+    void addExecution(final boolean failed) {
+        executions++;
+        if (failed) {
+            errors++;
+        }
+    }
+
+    String getAgentId() {
+        return agentId;
+    }
+
+    long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Returns the reason the agent couldn't run its assignment.
+     *
+     * @return the error message or <code>null</code> if the agent ran it
+     */
+    String getError() {
+        return error;
+    }
+
+    long getErrors() {
+        return errors;
+    }
+
+    long getExecutions() {
+        return executions;
+    }
+
+    /**
+     * Returns the histogram of a metric, creating it if needed.
+     */
+    LatencySketch getSketch(final String metricName) {
+        LatencySketch sketch = sketchMap.get(metricName);
+        if (sketch == null) {
+            sketch = new LatencySketch();
+            sketchMap.put(metricName, sketch);
+        }
+        return sketch;
+    }
+
+    Map<String, LatencySketch> getSketchMap() {
+        return sketchMap;
+    }
+
+    long getStartTime() {
+        return startTime;
+    }
+
+    void setTimes(final long startTime, final long endTime) {
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+}
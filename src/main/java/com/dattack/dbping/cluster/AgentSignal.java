@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.cluster;
+
+/**
+ * The signals exchanged by the controller and the agents to start the tasks at the same time: each agent answers
+ * {@link #READY} to its assignment and the controller sends {@link #START} to all of them once all are ready.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+enum AgentSignal {
+    READY, START
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.cluster;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.engine.LogEntry;
+import com.dattack.dbping.engine.PingEngine;
+import com.dattack.dbping.log.CSVFileFastLogReader;
+import com.dattack.dbping.report.MetricName;
+
+/**
+ * A dbping process that runs its share of the tasks sent by a {@link PingController}. The agent serves one controller
+ * at a time: it checks the token sent by the controller, receives the assignment, answers {@link AgentSignal#READY},
+ * waits for {@link AgentSignal#START}, runs the tasks and sends back the histograms of its logs.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class PingAgent {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PingAgent.class);
+
+    private static final int BACKLOG = 1;
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 10000;
+
+    private final InetAddress bindAddress;
+    private final int port;
+    private final byte[] token;
+    private final long progressMillis;
+    private final long telemetryMillis;
+
+    private static void add(final AgentResult result, final LogEntry logEntry) {
+
+        result.addExecution(logEntry.isFailed());
+        if (logEntry.isFailed()) {
+            result.getSketch(new MetricName(logEntry.getTaskName(), logEntry.getSqlLabel(),
+                    MetricName.FAILED_TIME_KEY).toString()).add(logEntry.getTotalTime());
+            return;
+        }
+
+        result.getSketch(new MetricName(logEntry.getTaskName(), logEntry.getSqlLabel(),
+                MetricName.CONNECTION_TIME_KEY).toString()).add(logEntry.getConnectionTime());
+        result.getSketch(new MetricName(logEntry.getTaskName(), logEntry.getSqlLabel(),
+                MetricName.FIRST_ROW_TIME_KEY).toString()).add(logEntry.getFirstRowTime());
+        result.getSketch(new MetricName(logEntry.getTaskName(), logEntry.getSqlLabel(),
+                MetricName.EXECUTION_TIME_KEY).toString()).add(logEntry.getTotalTime());
+    }
+
+    /**
+     * Creates a new agent.
+     *
+     * @param bindAddress
+     *            the address where the agent listens to the controller or <code>null</code> to listen only on the
+     *            loopback interface
+     * @param port
+     *            the port where the agent listens to the controller
+     * @param token
+     *            the secret shared with the controller; the sessions that don't start with it are rejected
+     * @param progressMillis
+     *            the period of time between progress messages, or zero to disable them
+     * @param telemetryMillis
+     *            the period of time between the CPU samples written to the logs, or zero to disable the telemetry
+     */
+    public PingAgent(final InetAddress bindAddress, final int port, final String token, final long progressMillis,
+            final long telemetryMillis) {
+
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("The agent requires a token");
+        }
+        this.bindAddress = bindAddress == null ? InetAddress.getLoopbackAddress() : bindAddress;
+        this.port = port;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.progressMillis = progressMillis;
+        this.telemetryMillis = telemetryMillis;
+    }
+
+    /**
+     * Reads the entries written to the logs since the start of the tasks.
+     */
+    private AgentResult collect(final String agentId, final PingEngine engine, final long startTime,
+            final long endTime) throws IOException {
+
+        final AgentResult result = new AgentResult(agentId);
+        result.setTimes(startTime, endTime);
+        for (final File logFile : engine.getLogFiles()) {
+            try (CSVFileFastLogReader logReader = new CSVFileFastLogReader(logFile)) {
+                while (true) {
+                    final LogEntry logEntry = logReader.next();
+                    if (logEntry == null) {
+                        break;
+                    }
+                    // the logs may keep the entries of previous executions
+                    if (logEntry.getEventTime() >= startTime) {
+                        add(result, logEntry);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Serves the controllers until the thread is interrupted.
+     *
+     * @throws IOException
+     *             if the port can't be opened
+     */
+    public void run() throws IOException {
+
+        try (ServerSocket serverSocket = new ServerSocket(port, BACKLOG, bindAddress)) {
+            LOGGER.info("Agent listening on {}:{}", bindAddress.getHostAddress(), serverSocket.getLocalPort());
+            serve(serverSocket);
+        }
+    }
+
+    /**
+     * Serves the controllers that connect to a socket until the thread is interrupted or the socket is closed.
+     */
+    void serve(final ServerSocket serverSocket) {
+
+        while (!Thread.currentThread().isInterrupted() && !serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                serve(socket);
+            } catch (final IOException | ClassNotFoundException e) {
+                if (!serverSocket.isClosed()) {
+                    LOGGER.warn("Controller session aborted: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(final Socket socket) throws IOException, ClassNotFoundException {
+
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+        final ObjectOutputStream output = new ObjectOutputStream(socket.getOutputStream());
+        output.flush();
+        final ObjectInputStream input = new AgentObjectInputStream(socket.getInputStream());
+
+        final Object handshake = input.readObject();
+        if (!(handshake instanceof String)
+                || !MessageDigest.isEqual(token, ((String) handshake).getBytes(StandardCharsets.UTF_8))) {
+            throw new IOException(String.format("Invalid token from %s", socket.getRemoteSocketAddress()));
+        }
+
+        final Object message = input.readObject();
+        if (!(message instanceof AgentAssignment)) {
+            throw new IOException("Unexpected message from the controller");
+        }
+        socket.setSoTimeout(0);
+        final AgentAssignment assignment = (AgentAssignment) message;
+        final String agentId = assignment.getAgentId();
+        LOGGER.info("Assignment received from {} as {}", socket.getRemoteSocketAddress(), agentId);
+        final List<PingTaskBean> taskList = assignment.getDbpingBean().getTaskList();
+        for (int i = 0; i < taskList.size(); i++) {
+            taskList.set(i, taskList.get(i).withThreads(assignment.getThreads(taskList.get(i).getThreads())));
+        }
+
+        output.writeObject(AgentSignal.READY);
+        output.flush();
+        if (input.readObject() != AgentSignal.START) {
+            throw new IOException("Unexpected message from the controller");
+        }
+
+        AgentResult result;
+        try {
+            final PingEngine engine = new PingEngine(progressMillis, telemetryMillis, false, false);
+            final long startTime = System.currentTimeMillis();
+            engine.execute(assignment.getDbpingBean(), assignment.getTaskNames(), agentId);
+            engine.awaitTermination();
+            result = collect(agentId, engine, startTime, System.currentTimeMillis());
+        } catch (final ConfigurationException | IOException e) {
+            result = AgentResult.failed(agentId, e.getMessage());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = AgentResult.failed(agentId, "Agent interrupted");
+        }
+
+        output.writeObject(result);
+        output.flush();
+        LOGGER.info("Results of {} sent: {} executions", agentId, result.getExecutions());
+    }
+}
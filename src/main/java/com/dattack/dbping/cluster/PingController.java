@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.cluster;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.dattack.dbping.beans.DbpingBean;
+import com.dattack.dbping.engine.LatencySketch;
+
+/**
+ * Runs a configuration in several {@link PingAgent}s at the same time, to generate more load than a single process
+ * can. Each agent runs an even share of the threads of each task. The controller waits until all the agents are
+ * ready before starting any of them and merges their histograms in a single report.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class PingController {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+
+    private final List<InetSocketAddress> agentList;
+    private final String token;
+
+    /**
+     * The connection with an agent.
+     */
+    private static final class AgentSession {
+
+        private final Socket socket;
+        private final ObjectOutputStream output;
+        private final ObjectInputStream input;
+
+        AgentSession(final InetSocketAddress address, final String token) throws IOException {
+            this.socket = new Socket();
+            socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+            this.output = new ObjectOutputStream(socket.getOutputStream());
+            output.flush();
+            this.input = new AgentObjectInputStream(socket.getInputStream());
+            write(token);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (@SuppressWarnings("unused") final IOException e) {
+                // ignore
+            }
+        }
+
+        Object read() throws IOException {
+            try {
+                return input.readObject();
+            } catch (final ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+
+        void write(final Object message) throws IOException {
+            output.writeObject(message);
+            output.flush();
+        }
+    }
+
+    /**
+     * Parses the address of an agent.
+     *
+     * @param text
+     *            the address (<code>host:port</code>)
+     * @return the address
+     */
+    public static InetSocketAddress parseAddress(final String text) {
+
+        final int separator = text.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid agent address: %s", text));
+        }
+        return new InetSocketAddress(text.substring(0, separator), Integer.parseInt(text.substring(separator + 1)));
+    }
+
+    /**
+     * Creates a new controller.
+     *
+     * @param agentList
+     *            the addresses of the agents
+     * @param token
+     *            the secret shared with the agents
+     */
+    public PingController(final List<InetSocketAddress> agentList, final String token) {
+        this.agentList = new ArrayList<>(agentList);
+        this.token = token;
+    }
+
+    /**
+     * Runs the tasks of a configuration in the agents and prints the merged results.
+     *
+     * @param dbpingBean
+     *            the configuration
+     * @param taskNames
+     *            the names of the tasks to execute or <code>null</code> to execute all of them
+     * @param out
+     *            the stream where the results are printed
+     * @return the number of agents that failed
+     * @throws IOException
+     *             if an agent can't be reached
+     */
+    public int execute(final DbpingBean dbpingBean, final Set<String> taskNames, final PrintStream out)
+            throws IOException {
+
+        final List<AgentSession> sessionList = new ArrayList<>();
+        try {
+            for (int i = 0; i < agentList.size(); i++) {
+                final AgentSession session = new AgentSession(agentList.get(i), token);
+                sessionList.add(session);
+                session.write(new AgentAssignment(dbpingBean, taskNames, i, agentList.size()));
+            }
+
+            for (final AgentSession session : sessionList) {
+                if (session.read() != AgentSignal.READY) {
+                    throw new IOException(
+                            String.format("Agent %s isn't ready", session.socket.getRemoteSocketAddress()));
+                }
+            }
+
+            // all the agents are ready: the start signals are sent back to back
+            for (final AgentSession session : sessionList) {
+                session.write(AgentSignal.START);
+            }
+
+            final List<AgentResult> resultList = new ArrayList<>();
+            for (final AgentSession session : sessionList) {
+                final Object result = session.read();
+                if (!(result instanceof AgentResult)) {
+                    throw new IOException(
+                            String.format("Unexpected message from %s", session.socket.getRemoteSocketAddress()));
+                }
+                resultList.add((AgentResult) result);
+            }
+            return print(resultList, out);
+
+        } finally {
+            for (final AgentSession session : sessionList) {
+                session.close();
+            }
+        }
+    }
+
+    private static int print(final List<AgentResult> resultList, final PrintStream out) {
+
+        int failures = 0;
+        long startTime = Long.MAX_VALUE;
+        long endTime = Long.MIN_VALUE;
+        long executions = 0;
+        long errors = 0;
+        final Map<String, LatencySketch> sketchMap = new TreeMap<>();
+
+        out.format("%-10s %12s %10s %10s %10s  %s%n", "Agent", "Executions", "Errors", "Time (ms)", "Exec/s",
+                "Status");
+        for (final AgentResult result : resultList) {
+
+            if (result.getError() != null) {
+                failures++;
+                out.format("%-10s %12s %10s %10s %10s  %s%n", result.getAgentId(), "-", "-", "-", "-",
+                        result.getError());
+                continue;
+            }
+
+            final long elapsed = Math.max(1, result.getEndTime() - result.getStartTime());
+            out.format("%-10s %12d %10d %10d %10.1f  OK%n", result.getAgentId(), result.getExecutions(),
+                    result.getErrors(), elapsed, result.getExecutions() * 1000D / elapsed);
+
+            startTime = Math.min(startTime, result.getStartTime());
+            endTime = Math.max(endTime, result.getEndTime());
+            executions += result.getExecutions();
+            errors += result.getErrors();
+            for (final Map.Entry<String, LatencySketch> entry : result.getSketchMap().entrySet()) {
+                LatencySketch sketch = sketchMap.get(entry.getKey());
+                if (sketch == null) {
+                    sketch = new LatencySketch();
+                    sketchMap.put(entry.getKey(), sketch);
+                }
+                sketch.merge(entry.getValue());
+            }
+        }
+
+        if (executions > 0) {
+            final long elapsed = Math.max(1, endTime - startTime);
+            out.format("%-10s %12d %10d %10d %10.1f%n", "Total", executions, errors, elapsed,
+                    executions * 1000D / elapsed);
+        }
+
+        out.format("%n%10s %10s %8s %8s %8s %8s  %s%n", "Count", "Mean", "p50", "p90", "p99", "Max", "Metric");
+        for (final Map.Entry<String, LatencySketch> entry : sketchMap.entrySet()) {
+            final LatencySketch sketch = entry.getValue();
+            out.format("%10d %10.2f %8d %8d %8d %8d  %s%n", sketch.getCount(), sketch.getMean(),
+                    sketch.getPercentile(50), sketch.getPercentile(90), sketch.getPercentile(99), sketch.getMax(),
+                    entry.getKey());
+        }
+        return failures;
+    }
+}
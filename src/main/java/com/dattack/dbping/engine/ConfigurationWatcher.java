@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dattack.dbping.beans.DbpingBean;
+import com.dattack.dbping.beans.DbpingParser;
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.jtoolbox.exceptions.DattackParserException;
+
+/**
+ * Watches the configuration files of the running tasks and applies their changes in place. The editors usually write
+ * a file in several steps, so the files are reloaded once they haven't changed for a short period of time; a file that
+ * can't be parsed is ignored and the tasks keep their configuration.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class ConfigurationWatcher implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationWatcher.class);
+
+    private static final long QUIET_MILLIS = 500;
+
+    private final WatchService watchService;
+    private final Map<Path, List<RunningTask>> taskMap;
+
+    private static Path normalize(final Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    ConfigurationWatcher() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.taskMap = new HashMap<>();
+    }
+
+    /**
+     * Adds the watched files changed to the set.
+     *
+     * @return <code>true</code> if any watched file changed
+     */
+    private synchronized boolean collect(final WatchKey key, final Set<Path> changedFiles) {
+
+        boolean changed = false;
+        final Path dir = (Path) key.watchable();
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // the events are lost so all the files of the directory are reloaded
+                for (final Path file : taskMap.keySet()) {
+                    if (file.startsWith(dir)) {
+                        changedFiles.add(file);
+                        changed = true;
+                    }
+                }
+                continue;
+            }
+            final Path file = normalize(dir.resolve((Path) event.context()));
+            if (taskMap.containsKey(file)) {
+                changedFiles.add(file);
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private synchronized List<RunningTask> getTasks(final Path file) {
+        return new ArrayList<>(taskMap.get(file));
+    }
+
+    /**
+     * Registers a task to be reconfigured when its configuration file changes.
+     *
+     * @param file
+     *            the configuration file of the task
+     * @param task
+     *            the running task
+     * @throws IOException
+     *             if the directory of the file can't be watched
+     */
+    synchronized void register(final File file, final RunningTask task) throws IOException {
+
+        final Path path = normalize(file.toPath());
+        List<RunningTask> list = taskMap.get(path);
+        if (list == null) {
+            path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            list = new ArrayList<>();
+            taskMap.put(path, list);
+        }
+        list.add(task);
+    }
+
+    private void reload(final Path file) {
+
+        final DbpingBean dbpingBean;
+        try {
+            dbpingBean = DbpingParser.parse(file.toFile());
+        } catch (final DattackParserException e) {
+            LOGGER.warn("Configuration file '{}' ignored: {}", file, e.getMessage());
+            return;
+        }
+
+        for (final RunningTask task : getTasks(file)) {
+            PingTaskBean newConfiguration = null;
+            for (final PingTaskBean pingTaskBean : dbpingBean.getTaskList()) {
+                if (pingTaskBean.getName().equals(task.getName())) {
+                    newConfiguration = pingTaskBean;
+                    break;
+                }
+            }
+
+            if (newConfiguration == null) {
+                LOGGER.warn("Task '{}' not found in '{}', it keeps its configuration", task.getName(), file);
+            } else {
+                task.apply(newConfiguration);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+
+        try {
+            while (true) {
+                final Set<Path> changedFiles = new LinkedHashSet<>();
+                while (!collect(watchService.take(), changedFiles)) {
+                    // other files of the same directories, like the logs
+                }
+
+                // waits until the watched files stop changing
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(QUIET_MILLIS);
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    final WatchKey key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (key != null && collect(key, changedFiles)) {
+                        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(QUIET_MILLIS);
+                    }
+                }
+
+                for (final Path file : changedFiles) {
+                    reload(file);
+                }
+            }
+        } catch (@SuppressWarnings("unused") final InterruptedException | ClosedWatchServiceException e) {
+            // the engine is shutting down
+        }
+    }
+
+    /**
+     * Starts watching the files in a daemon thread.
+     */
+    void start() {
+        final Thread thread = new Thread(this, "dbping-config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.PooledConnection;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+import com.dattack.dbping.log.LogWriter;
+import com.dattack.jtoolbox.jdbc.JDBCUtils;
+
+/**
+ * Runs the <code>connection-init</code> statements of a task once on each physical connection, the first time the
+ * task uses it. The cost of the initialization is logged as an entry of its own and excluded from the execution that
+ * triggered it.
+ * <p>
+ * The connections of a pool are wrappers, usually a new one each time a connection is borrowed, so the physical
+ * connection is located under them: the underlying connection of the proxies that implement
+ * <code>javax.sql.PooledConnection</code> (Tomcat JDBC), the innermost delegate of the DBCP connections (only when the
+ * pool allows the access to the underlying connection) and the result of <code>unwrap(Connection.class)</code> for the
+ * pools that unwrap their proxies to the driver connection (e.g. HikariCP). The physical connections are tracked with
+ * weak references and forgotten when the pool discards them.
+ * <p>
+ * When the physical connection can't be located (e.g. DBCP without <code>accessToUnderlyingConnectionAllowed</code>)
+ * the statements run each time a connection is borrowed, and a warning is logged once.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class ConnectionInitializer {
+
+    /**
+     * The label of the log entries with the cost of the initialization of a connection.
+     */
+    static final String INIT_LABEL = "@connection-init";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionInitializer.class);
+
+    // the wrappers unwrapped at most to locate a physical connection
+    private static final int MAX_WRAPPERS = 8;
+
+    // the method of the DBCP connections that returns the driver connection, looked up in a public type
+    private static final ClassValue<Method> INNERMOST_DELEGATE = new ClassValue<Method>() {
+
+        @Override
+        protected Method computeValue(final Class<?> type) {
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                if (Modifier.isPublic(current.getModifiers())) {
+                    try {
+                        final Method method = current.getMethod("getInnermostDelegate");
+                        return Connection.class.isAssignableFrom(method.getReturnType()) ? method : null;
+                    } catch (final NoSuchMethodException e) {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+    };
+
+    private final List<String> sqlList;
+    private final Map<Connection, Boolean> initializedMap;
+    private final AtomicBoolean unidentified;
+
+    ConnectionInitializer(final PingTaskBean configuration) {
+        this.sqlList = configuration.getConnectionInitList();
+        this.initializedMap = Collections.synchronizedMap(new WeakHashMap<Connection, Boolean>());
+        this.unidentified = new AtomicBoolean(false);
+    }
+
+    /**
+     * Returns the physical connection under the wrappers of a pool, or the connection itself when it isn't a wrapper
+     * or the physical connection can't be located.
+     */
+    static Connection getPhysicalConnection(final Connection connection) {
+
+        Connection current = connection;
+        for (int i = 0; i < MAX_WRAPPERS; i++) {
+            final Connection wrapped = getWrappedConnection(current);
+            if (wrapped == null || wrapped == current) {
+                break;
+            }
+            current = wrapped;
+        }
+        return current;
+    }
+
+    private static Connection getWrappedConnection(final Connection connection) {
+
+        try {
+            if (connection instanceof PooledConnection) {
+                return ((PooledConnection) connection).getConnection();
+            }
+
+            final Method innermostDelegate = INNERMOST_DELEGATE.get(connection.getClass());
+            if (innermostDelegate != null) {
+                // null when the pool doesn't allow the access to the underlying connection
+                final Connection delegate = (Connection) innermostDelegate.invoke(connection);
+                if (delegate != null) {
+                    return delegate;
+                }
+            }
+
+            if (connection.isWrapperFor(Connection.class)) {
+                return connection.unwrap(Connection.class);
+            }
+        } catch (final SQLException | ReflectiveOperationException e) {
+            // the connection doesn't expose the wrapped one
+        }
+        return null;
+    }
+
+    private static boolean isWrapper(final Connection connection) {
+        try {
+            return connection.isWrapperFor(Connection.class);
+        } catch (final SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Initializes a connection if its physical connection hasn't been initialized yet and logs the cost of the
+     * initialization. A failed initialization isn't logged here: the exception fails the execution that needed the
+     * connection.
+     *
+     * @param connection
+     *            the connection obtained from the data source
+     * @param logEntryBuilder
+     *            the builder of the initialization entries
+     * @param logWriter
+     *            the log of the task
+     * @return the time spent in the initialization, in milliseconds, or zero if the connection was already
+     *         initialized
+     * @throws SQLException
+     *             if an initialization statement fails; the connection is closed so it isn't used uninitialized
+     */
+    long initialize(final Connection connection, final LogEntryBuilder logEntryBuilder, final LogWriter logWriter)
+            throws SQLException {
+
+        if (sqlList.isEmpty()) {
+            return 0;
+        }
+
+        final Connection physicalConnection = getPhysicalConnection(connection);
+        if (initializedMap.containsKey(physicalConnection)) {
+            return 0;
+        }
+
+        if (physicalConnection == connection && isWrapper(connection) && unidentified.compareAndSet(false, true)) {
+            LOGGER.warn("Unable to locate the physical connection under {}: the connection-init statements will run "
+                    + "each time a connection is borrowed from the pool", connection.getClass().getName());
+        }
+
+        logEntryBuilder.init().withSqlLabel(INIT_LABEL).withIteration(initializedMap.size()).withConnectionTime(0);
+        long statements = 0;
+        try {
+            for (final String sql : sqlList) {
+                if (StringUtils.isNotBlank(sql)) {
+                    try (Statement stmt = connection.createStatement()) {
+                        stmt.execute(sql.trim());
+                    }
+                    statements++;
+                }
+            }
+        } catch (final SQLException e) {
+            JDBCUtils.closeQuietly(connection);
+            throw e;
+        }
+
+        final LogEntry logEntry = logEntryBuilder.withRows(statements).build();
+        logWriter.write(logEntry);
+        initializedMap.put(physicalConnection, Boolean.TRUE);
+        return logEntry.getTotalTime();
+    }
+}
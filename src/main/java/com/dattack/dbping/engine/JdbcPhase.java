@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+/**
+ * The phases of an execution timed by the instrumented JDBC objects of a task. The time of each phase is the sum of
+ * the driver calls that belong to it.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public enum JdbcPhase {
+
+    /** Getting the connection from the data source, including the wait for a pooled one. */
+    ACQUIRE, //
+    /** Creating or preparing the statement. */
+    PREPARE, //
+    /** Executing the statement until the driver returns the result. */
+    EXECUTE, //
+    /** The first call to <code>ResultSet.next()</code>. */
+    FIRST_FETCH, //
+    /** The remaining calls to <code>ResultSet.next()</code>. */
+    FETCH, //
+    /** Closing the result set and the statement and returning the connection to the pool. */
+    CLOSE
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The aggregates of the executions of a label kept in memory while a task runs: the number of executions and errors,
+ * the latencies of the successful ones and the time span they cover. A summary isn't thread-safe; each thread updates
+ * its own and they are merged once the jobs have finished.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class LabelSummary {
+
+    /**
+     * The latencies of a log entry.
+     */
+    public enum Latency {
+        CONNECTION("connection"), //
+        FIRST_ROW("firstRow"), //
+        TOTAL("total");
+
+        private final String name;
+
+        Latency(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the latency with the given name, ignoring the case.
+         *
+         * @param name
+         *            the name of the latency (<code>connection</code>, <code>firstRow</code> or <code>total</code>)
+         * @return the latency or <code>null</code> if the name is unknown
+         */
+        public static Latency parse(final String name) {
+            for (final Latency latency : values()) {
+                if (latency.name.equalsIgnoreCase(name)) {
+                    return latency;
+                }
+            }
+            return null;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final LatencySketch[] sketches;
+    private long executions;
+    private long errors;
+    private long startTime;
+    private long endTime;
+
+    LabelSummary() {
+        this.sketches = new LatencySketch[Latency.values().length];
+        for (int i = 0; i < sketches.length; i++) {
+            sketches[i] = new LatencySketch();
+        }
+        this.startTime = Long.MAX_VALUE;
+        this.endTime = Long.MIN_VALUE;
+    }
+
+    void add(final LogEntry logEntry) {
+
+        executions++;
+        startTime = Math.min(startTime, logEntry.getEventTime());
+        endTime = Math.max(endTime, logEntry.getEventTime() + Math.max(0, logEntry.getTotalTime()));
+        if (logEntry.isFailed()) {
+            errors++;
+        } else {
+            sketches[Latency.CONNECTION.ordinal()].add(logEntry.getConnectionTime());
+            sketches[Latency.FIRST_ROW.ordinal()].add(logEntry.getFirstRowTime());
+            sketches[Latency.TOTAL.ordinal()].add(logEntry.getTotalTime());
+        }
+    }
+
+    void merge(final LabelSummary other) {
+
+        executions += other.executions;
+        errors += other.errors;
+        startTime = Math.min(startTime, other.startTime);
+        endTime = Math.max(endTime, other.endTime);
+        for (int i = 0; i < sketches.length; i++) {
+            sketches[i].merge(other.sketches[i]);
+        }
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the fraction of the executions that failed.
+     *
+     * @return the error rate, in the range [0, 1]
+     */
+    public double getErrorRate() {
+        return executions == 0 ? 0 : (double) errors / executions;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    /**
+     * Returns the latencies of the successful executions, in milliseconds.
+     *
+     * @param latency
+     *            the latency
+     * @return the sketch of the latency
+     */
+    public LatencySketch getSketch(final Latency latency) {
+        return sketches[latency.ordinal()];
+    }
+
+    /**
+     * Returns the number of executions per second, from the start of the first one to the end of the last one.
+     *
+     * @return the throughput
+     */
+    public double getThroughput() {
+        if (executions == 0) {
+            return 0;
+        }
+        return executions * (double) TimeUnit.SECONDS.toMillis(1) / Math.max(1, endTime - startTime);
+    }
+}
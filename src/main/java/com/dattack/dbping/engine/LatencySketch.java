@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Compact log-linear histogram of non-negative values. Values lower than 32 are counted exactly and the rest are
+ * grouped in 32 buckets per power of two, so the relative error of any percentile is lower than 3.2%. The count, the
+ * sum, the minimum and the maximum are exact. Two sketches can be merged without loss.
+ * <p>
+ * The buckets are only allocated when a second distinct value is added, and then only up to the highest value, so a
+ * sketch of a single value (e.g. the short buckets of a report) takes a few bytes.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public class LatencySketch implements Serializable {
+
+    private static final long serialVersionUID = -3520914457062624466L;
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // null while all the values are the same
+    private long[] counts;
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+
+    private static int indexOf(final long value) {
+
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long lowerBound(final int index) {
+
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+    }
+
+    public LatencySketch() {
+        clear();
+    }
+
+    /**
+     * Adds a new value to this sketch. Negative values are recorded as zero.
+     *
+     * @param value
+     *            the value to add
+     */
+    public void add(final long value) {
+        add(Math.max(0, value), 1);
+    }
+
+    private void add(final long value, final long times) {
+
+        if (counts == null && count > 0 && value != min) {
+            ensureBuckets(0);
+        }
+        if (counts != null) {
+            final int index = indexOf(value);
+            ensureBuckets(index + 1);
+            counts[index] += times;
+        }
+        count += times;
+        sum += value * times;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    private void ensureBuckets(final int length) {
+
+        if (counts == null) {
+            // the values added so far, all the same, are moved to their bucket
+            final int index = count == 0 ? -1 : indexOf(min);
+            counts = new long[Math.max(length, index + 1)];
+            if (index >= 0) {
+                counts[index] = count;
+            }
+        } else if (length > counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(length, counts.length + counts.length / 2));
+        }
+    }
+
+    /**
+     * Removes all the values from this sketch, keeping the allocated buckets.
+     */
+    public final void clear() {
+        if (counts != null) {
+            Arrays.fill(counts, 0);
+        }
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Returns an estimation of the value under which the given percentage of the values falls.
+     *
+     * @param percentile
+     *            the percentile, in the range [0, 100]
+     * @return the estimated value
+     */
+    public long getPercentile(final double percentile) {
+
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        if (rank >= count || counts == null) {
+            return max;
+        }
+
+        long accumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            accumulated += counts[i];
+            if (accumulated >= rank) {
+                final long lower = lowerBound(i);
+                final long upper = lowerBound(i + 1) - 1;
+                return Math.min(max, Math.max(min, lower + (upper - lower) / 2));
+            }
+        }
+        return max;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Adds all the values of other sketch to this one.
+     *
+     * @param other
+     *            the sketch to merge
+     */
+    public void merge(final LatencySketch other) {
+
+        if (other.count == 0) {
+            return;
+        }
+
+        if (other.counts == null) {
+            add(other.min, other.count);
+            return;
+        }
+
+        ensureBuckets(other.counts.length);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+}
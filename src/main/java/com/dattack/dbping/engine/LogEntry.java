@@ -19,7 +19,10 @@ import java.io.Serializable;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.dattack.jtoolbox.patterns.Builder;
 
@@ -32,12 +35,18 @@ public class LogEntry implements Serializable {
     private static final long serialVersionUID = 9149270318492709877L;
 
     private final long connectionTime;
+    private final Long checksum;
 
     private final Exception exception;
+    private final String sqlState;
+    private final int errorCode;
+    private final String errorClass;
     private final long executionTime;
     private final long firstRowTime;
     private final long iteration;
+    private final long[] phaseTimes;
     private final long rows;
+    private final long scheduleLag;
     private final String sqlLabel;
     private final long startTime;
     private final String taskName;
@@ -50,14 +59,31 @@ public class LogEntry implements Serializable {
 
         private static final long UNKNOWN = -1;
 
+        // FNV-1a, 64 bits
+        private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+        private static final long FNV_PRIME = 0x100000001b3L;
+        private static final char NULL_MARK = '\u0000';
+        private static final char COLUMN_MARK = '\u001f';
+        private static final char ROW_MARK = '\u001e';
+
         private long connectionTime;
+        private final boolean checksumEnabled;
+        private long checksum;
+        private boolean checksummed;
         private Exception exception;
+        private String sqlState;
+        private int errorCode;
+        private String errorClass;
         private long totalTime;
         private long firstRowTime;
         private long iteration;
+        private long[] phaseNanos;
+        private boolean phaseTimed;
         private long rows;
+        private long scheduleLag;
         private String sqlLabel;
         private long eventTime;
+        private long excludedTime;
         private String taskName;
         private String threadName;
         private final long maxRowsToDump;
@@ -69,6 +95,20 @@ public class LogEntry implements Serializable {
         }
 
         public LogEntryBuilder(final long maxRowsToDump) {
+            this(maxRowsToDump, false);
+        }
+
+        /**
+         * Creates a new builder.
+         *
+         * @param maxRowsToDump
+         *            the maximum number of rows of each result set kept in the log entries
+         * @param checksumEnabled
+         *            <code>true</code> to compute the checksum of the result sets: the values of each column are
+         *            read as text and hashed while the rows are iterated, and the rows dumped are those texts
+         */
+        public LogEntryBuilder(final long maxRowsToDump, final boolean checksumEnabled) {
+            this.checksumEnabled = checksumEnabled;
             init();
             this.maxRowsToDump = Math.max(0, maxRowsToDump);
         }
@@ -84,7 +124,9 @@ public class LogEntry implements Serializable {
         public void addRow(final ResultSet resultSet) throws SQLException {
 
             incrRows();
-            if (maxRowsToDump > rows) {
+            if (checksumEnabled) {
+                addChecksumRow(resultSet);
+            } else if (maxRowsToDump > rows) {
                 final int columnCount = resultSet.getMetaData().getColumnCount();
                 final DataRow dataRow = new DataRow(columnCount);
                 for (int i = 1; i <= columnCount; i++) {
@@ -94,6 +136,82 @@ public class LogEntry implements Serializable {
             }
         }
 
+        private void addChecksumRow(final ResultSet resultSet) throws SQLException {
+
+            final int columnCount = resultSet.getMetaData().getColumnCount();
+            final DataRow dataRow = maxRowsToDump > rows ? new DataRow(columnCount) : null;
+            long hash = checksummed ? checksum : FNV_OFFSET_BASIS;
+            for (int i = 1; i <= columnCount; i++) {
+                final String value = resultSet.getString(i);
+                if (value == null) {
+                    hash = hash(hash, NULL_MARK);
+                } else {
+                    for (int j = 0; j < value.length(); j++) {
+                        hash = hash(hash, value.charAt(j));
+                    }
+                }
+                hash = hash(hash, COLUMN_MARK);
+                if (dataRow != null) {
+                    dataRow.add(value);
+                }
+            }
+            this.checksum = hash(hash, ROW_MARK);
+            this.checksummed = true;
+            if (dataRow != null) {
+                this.rowList.add(dataRow);
+            }
+        }
+
+        private static long hash(final long hash, final char value) {
+            return ((hash ^ (value >>> 8)) * FNV_PRIME ^ (value & 0xff)) * FNV_PRIME;
+        }
+
+        /**
+         * Adds the time of a driver call to its phase.
+         *
+         * @param phase
+         *            the phase of the call
+         * @param nanos
+         *            the time of the call in nanoseconds
+         */
+        public void addPhaseTime(final JdbcPhase phase, final long nanos) {
+            if (phaseNanos == null) {
+                this.phaseNanos = new long[JdbcPhase.values().length];
+            }
+            if (!phaseTimed) {
+                Arrays.fill(phaseNanos, 0);
+                this.phaseTimed = true;
+            }
+            phaseNanos[phase.ordinal()] += nanos;
+        }
+
+        /**
+         * Marks the end of a result set. When the checksum is enabled, a result set without rows has the checksum of
+         * the empty input.
+         */
+        public void endResultSet() {
+            if (checksumEnabled && !checksummed) {
+                this.checksum = FNV_OFFSET_BASIS;
+                this.checksummed = true;
+            }
+        }
+
+        /**
+         * Discards the rows kept for the entry being built.
+         */
+        public void discardRows() {
+            rowList.clear();
+        }
+
+        /**
+         * Returns the checksum of the result set of the entry being built.
+         *
+         * @return the checksum or <code>null</code> if it wasn't computed
+         */
+        public Long getChecksum() {
+            return checksummed ? checksum : null;
+        }
+
         @Override
         public LogEntry build() {
 
@@ -101,7 +219,7 @@ public class LogEntry implements Serializable {
                 this.totalTime = computeRelativeTime();
             }
 
-            if (exception == null && firstRowTime == UNKNOWN) {
+            if (errorClass == null && rows == 0 && firstRowTime == UNKNOWN) {
                 // empty resultset
                 this.firstRowTime = totalTime;
             }
@@ -111,7 +229,25 @@ public class LogEntry implements Serializable {
         }
 
         private long computeRelativeTime() {
-            return System.currentTimeMillis() - eventTime;
+            return System.currentTimeMillis() - eventTime - excludedTime;
+        }
+
+        /**
+         * Sets the total time, before the JDBC objects of the execution are closed.
+         */
+        public void complete() {
+            this.totalTime = computeRelativeTime();
+        }
+
+        /**
+         * Excludes a work that isn't part of the execution (e.g. the initialization of the connection) from the times
+         * measured after it. The event time doesn't change.
+         *
+         * @param millis
+         *            the time to exclude in milliseconds
+         */
+        public void excludeTime(final long millis) {
+            this.excludedTime += millis;
         }
 
         /**
@@ -138,11 +274,18 @@ public class LogEntry implements Serializable {
          */
         public LogEntryBuilder init() {
             this.eventTime = System.currentTimeMillis();
+            this.excludedTime = 0;
             this.connectionTime = UNKNOWN;
+            this.checksummed = false;
             this.exception = null;
+            this.sqlState = null;
+            this.errorCode = 0;
+            this.errorClass = null;
             this.firstRowTime = UNKNOWN;
             this.iteration = UNKNOWN;
+            this.phaseTimed = false;
             this.rows = 0;
+            this.scheduleLag = UNKNOWN;
             this.sqlLabel = null;
             this.totalTime = UNKNOWN;
             if (this.rowList == null) {
@@ -153,18 +296,49 @@ public class LogEntry implements Serializable {
             return this;
         }
 
+        public LogEntryBuilder withChecksum(final long value) {
+            this.checksum = value;
+            this.checksummed = true;
+            return this;
+        }
+
         public LogEntryBuilder withConnectionTime(final long value) {
             this.connectionTime = value;
             return this;
         }
 
+        public LogEntryBuilder withErrorClass(final String value) {
+            this.errorClass = value;
+            return this;
+        }
+
+        public LogEntryBuilder withErrorCode(final int value) {
+            this.errorCode = value;
+            return this;
+        }
+
         public LogEntryBuilder withEventTime(final long value) {
             this.eventTime = value;
             return this;
         }
 
+        /**
+         * Sets the exception thrown by the execution and the error columns derived from it: the exception class
+         * and, for a <code>SQLException</code>, the SQLState and the vendor error code.
+         *
+         * @param value
+         *            the exception
+         * @return self object
+         */
         public LogEntryBuilder withException(final Exception value) {
             this.exception = value;
+            if (value != null) {
+                this.errorClass = value.getClass().getName();
+                if (value instanceof SQLException) {
+                    this.sqlState = ((SQLException) value).getSQLState();
+                    this.errorCode = ((SQLException) value).getErrorCode();
+                }
+            }
             return this;
         }
 
@@ -178,16 +352,49 @@ public class LogEntry implements Serializable {
             return this;
         }
 
+        /**
+         * Sets the time of a phase, when it is read from a log.
+         *
+         * @param phase
+         *            the phase
+         * @param value
+         *            the time in microseconds or a negative value if it's unknown
+         * @return self object
+         */
+        public LogEntryBuilder withPhaseTime(final JdbcPhase phase, final long value) {
+            if (value >= 0) {
+                addPhaseTime(phase, TimeUnit.MICROSECONDS.toNanos(value));
+            }
+            return this;
+        }
+
         public LogEntryBuilder withRows(final long value) {
             this.rows = value;
             return this;
         }
 
+        /**
+         * Sets the time that the execution started behind its schedule, when it replays a trace.
+         *
+         * @param value
+         *            the lag in milliseconds
+         * @return self object
+         */
+        public LogEntryBuilder withScheduleLag(final long value) {
+            this.scheduleLag = value;
+            return this;
+        }
+
         public LogEntryBuilder withSqlLabel(final String value) {
             this.sqlLabel = value;
             return this;
         }
 
+        public LogEntryBuilder withSqlState(final String value) {
+            this.sqlState = value;
+            return this;
+        }
+
         public LogEntryBuilder withTaskName(final String value) {
             this.taskName = value;
             return this;
@@ -208,14 +415,37 @@ public class LogEntry implements Serializable {
         this.taskName = builder.taskName;
         this.threadName = builder.threadName;
         this.iteration = builder.iteration;
+        if (builder.phaseTimed) {
+            this.phaseTimes = new long[builder.phaseNanos.length];
+            for (int i = 0; i < phaseTimes.length; i++) {
+                phaseTimes[i] = TimeUnit.NANOSECONDS.toMicros(builder.phaseNanos[i]);
+            }
+        } else {
+            this.phaseTimes = null;
+        }
         this.sqlLabel = builder.sqlLabel;
         this.rows = builder.rows;
+        this.scheduleLag = builder.scheduleLag;
         this.startTime = builder.eventTime;
         this.connectionTime = builder.connectionTime;
+        this.checksum = builder.getChecksum();
         this.firstRowTime = builder.firstRowTime;
         this.executionTime = builder.totalTime;
         this.exception = builder.exception;
-        this.rowList = new ArrayList<>(builder.rowList);
+        this.sqlState = builder.sqlState;
+        this.errorCode = builder.errorCode;
+        this.errorClass = builder.errorClass;
+        this.rowList = builder.rowList.isEmpty() ? Collections.<DataRow>emptyList()
+                : new ArrayList<>(builder.rowList);
+    }
+
+    /**
+     * Returns the checksum of the rows returned by the execution.
+     *
+     * @return the checksum or <code>null</code> if it wasn't computed
+     */
+    public Long getChecksum() {
+        return checksum;
     }
 
     public long getConnectionTime() {
@@ -226,6 +456,19 @@ public class LogEntry implements Serializable {
         return startTime;
     }
 
+    /**
+     * Returns the name of the class of the exception thrown by a failed execution.
+     *
+     * @return the class name or <code>null</code> if the execution succeeded
+     */
+    public String getErrorClass() {
+        return errorClass;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
     public Exception getException() {
         return exception;
     }
@@ -238,6 +481,17 @@ public class LogEntry implements Serializable {
         return iteration;
     }
 
+    /**
+     * Returns the time spent by the driver calls of a phase, when the JDBC objects were instrumented.
+     *
+     * @param phase
+     *            the phase
+     * @return the time in microseconds or a negative value if it wasn't measured
+     */
+    public long getPhaseTime(final JdbcPhase phase) {
+        return phaseTimes == null ? -1 : phaseTimes[phase.ordinal()];
+    }
+
     public List<DataRow> getRowList() {
         return rowList;
     }
@@ -246,10 +500,23 @@ public class LogEntry implements Serializable {
         return rows;
     }
 
+    /**
+     * Returns the time that the execution started behind its schedule.
+     *
+     * @return the lag in milliseconds or a negative value if the execution wasn't scheduled
+     */
+    public long getScheduleLag() {
+        return scheduleLag;
+    }
+
     public String getSqlLabel() {
         return sqlLabel;
     }
 
+    public String getSqlState() {
+        return sqlState;
+    }
+
     public String getTaskName() {
         return taskName;
     }
@@ -261,4 +528,12 @@ public class LogEntry implements Serializable {
     public long getTotalTime() {
         return executionTime;
     }
+
+    public boolean hasPhaseTimes() {
+        return phaseTimes != null;
+    }
+
+    public boolean isFailed() {
+        return errorClass != null;
+    }
 }
@@ -16,23 +16,31 @@
 package com.dattack.dbping.engine;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
 import org.apache.commons.configuration.CompositeConfiguration;
 import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.dattack.dbping.beans.AssertBean;
 import com.dattack.dbping.beans.DbpingBean;
 import com.dattack.dbping.beans.DbpingParser;
 import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.beans.SqlCommandBean;
 import com.dattack.dbping.log.CSVFileLogWriter;
 import com.dattack.dbping.log.LogHeader;
 import com.dattack.dbping.log.LogWriter;
+import com.dattack.dbping.log.ShardedLogWriter;
 import com.dattack.jtoolbox.commons.configuration.ConfigurationUtil;
 import com.dattack.jtoolbox.exceptions.DattackParserException;
 import com.dattack.jtoolbox.io.FilesystemUtils;
@@ -46,23 +54,25 @@ public final class PingEngine {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PingEngine.class);
 
-    private final ThreadPool pool;
+    public static final long DEFAULT_PROGRESS_MILLIS = 0;
+    public static final long DEFAULT_TELEMETRY_MILLIS = 0;
+    /** The period of the telemetry when it's enabled without a period. */
+    public static final long TELEMETRY_PERIOD_MILLIS = 1000;
+    public static final String AGENT_ID_PROPERTY = "agent.id";
 
-    private class ThreadPool {
-
-        private final List<Thread> threadList;
-
-        public ThreadPool() {
-            this.threadList = new ArrayList<>();
-        }
-
-        public void submit(final Runnable task, final String threadName) {
-
-            final Thread thread = new Thread(task, threadName);
-            thread.start();
-            threadList.add(thread);
-        }
-    }
+    private final List<RunningTask> taskList;
+    private final List<ReplayTask> replayList;
+    private final List<File> logFileList;
+    private final List<TaskMetrics> metricsList;
+    private final List<SloAssertion> assertionList;
+    private final long progressMillis;
+    private final ProgressReporter progressReporter;
+    private ScheduledExecutorService progressScheduler;
+    private final long telemetryMillis;
+    private TelemetrySampler telemetrySampler;
+    private final boolean watchConfiguration;
+    private final boolean shardLogs;
+    private ConfigurationWatcher configurationWatcher;
 
     private static SqlCommandProvider getSentenceProvider(final String clazzname) {
 
@@ -84,7 +94,266 @@ public final class PingEngine {
     }
 
     public PingEngine() {
-        pool = new ThreadPool();
+        this(DEFAULT_PROGRESS_MILLIS, DEFAULT_TELEMETRY_MILLIS, false, false);
+    }
+
+    /**
+     * Creates a new engine.
+     *
+     * @param progressMillis
+     *            the period of time between the progress messages with the throughput of each task, or zero to
+     *            disable them
+     * @param telemetryMillis
+     *            the period of time between the CPU samples written to the logs, or zero to disable the telemetry of
+     *            the client
+     * @param watchConfiguration
+     *            <code>true</code> to apply the changes of the configuration files to the running tasks
+     * @param shardLogs
+     *            <code>true</code> to write the entries of each thread to its own log shard
+     */
+    public PingEngine(final long progressMillis, final long telemetryMillis, final boolean watchConfiguration,
+            final boolean shardLogs) {
+        this.taskList = new ArrayList<>();
+        this.replayList = new ArrayList<>();
+        this.logFileList = new ArrayList<>();
+        this.metricsList = new ArrayList<>();
+        this.assertionList = new ArrayList<>();
+        this.progressMillis = progressMillis;
+        this.progressReporter = new ProgressReporter();
+        this.telemetryMillis = telemetryMillis;
+        this.watchConfiguration = watchConfiguration;
+        this.shardLogs = shardLogs;
+    }
+
+    private synchronized void addTelemetry(final LogWriter logWriter) {
+
+        if (telemetryMillis <= 0) {
+            return;
+        }
+
+        if (telemetrySampler == null) {
+            telemetrySampler = new TelemetrySampler(telemetryMillis);
+            telemetrySampler.add(logWriter);
+            telemetrySampler.start();
+        } else {
+            telemetrySampler.add(logWriter);
+        }
+    }
+
+    /**
+     * Adds the performance assertions of a task, checked by {@link #checkAssertions(List)}.
+     */
+    private synchronized void addAssertions(final PingTaskBean pingTaskBean) throws ConfigurationException {
+
+        final List<SloAssertion> list = new ArrayList<>();
+        for (final AssertBean assertBean : pingTaskBean.getAssertList()) {
+            try {
+                list.add(new SloAssertion(pingTaskBean.getName(), assertBean.getLabel(),
+                        StringUtils.defaultString(assertBean.getExpression())));
+            } catch (final IllegalArgumentException e) {
+                throw new ConfigurationException(
+                        String.format("Task '%s': %s", pingTaskBean.getName(), e.getMessage()), e);
+            }
+        }
+        assertionList.addAll(list);
+    }
+
+    /**
+     * Checks the performance assertions of the tasks started by this engine, along with other ones, against the
+     * summaries kept in memory. It must be invoked once the tasks have finished.
+     *
+     * @param otherAssertions
+     *            the assertions given by other means (e.g. the command line)
+     * @return the results of the assertions
+     */
+    public synchronized SloReport checkAssertions(final List<SloAssertion> otherAssertions) {
+
+        final List<SloAssertion> list = new ArrayList<>(assertionList);
+        list.addAll(otherAssertions);
+
+        final List<SloAssertion.Result> resultList = new ArrayList<>();
+        for (final SloAssertion assertion : list) {
+            boolean found = false;
+            for (final TaskMetrics taskMetrics : metricsList) {
+                if (assertion.getTaskName() == null || assertion.getTaskName().equals(taskMetrics.getTaskName())) {
+                    resultList.add(assertion.evaluate(taskMetrics));
+                    found = true;
+                }
+            }
+            if (!found) {
+                resultList.add(assertion.missing(assertion.getTaskName() == null ? "*" : assertion.getTaskName()));
+            }
+        }
+        return new SloReport(resultList);
+    }
+
+    /**
+     * Waits until all the tasks started by this engine finish.
+     *
+     * @throws InterruptedException
+     *             if the current thread is interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+
+        final List<RunningTask> list;
+        final List<ReplayTask> replays;
+        synchronized (this) {
+            list = new ArrayList<>(taskList);
+            replays = new ArrayList<>(replayList);
+        }
+        for (final RunningTask task : list) {
+            task.join();
+        }
+        for (final ReplayTask replay : replays) {
+            replay.join();
+        }
+    }
+
+    /**
+     * Returns the log files of the tasks started by this engine.
+     */
+    public synchronized List<File> getLogFiles() {
+        return new ArrayList<>(logFileList);
+    }
+
+    /**
+     * Starts the jobs of a task.
+     *
+     * @return the running task or <code>null</code> if the task can't be started
+     */
+    private RunningTask start(final PingTaskBean pingTaskBean, final String agentId) throws ConfigurationException {
+
+        if (pingTaskBean.getReplay() != null) {
+            // the replays can't be reconfigured
+            startReplay(pingTaskBean, agentId);
+            return null;
+        }
+
+        final List<SqlCommandBean> commandList = RunningTask.getEnabledCommands(pingTaskBean);
+        if (commandList.isEmpty()) {
+            LOGGER.warn("Task '{}' ignored: it has no enabled commands", pingTaskBean.getName());
+            return null;
+        }
+
+        try {
+            ThinkTime.check(pingTaskBean);
+        } catch (final IllegalArgumentException e) {
+            throw new ConfigurationException(String.format("Task '%s': %s", pingTaskBean.getName(), e.getMessage()),
+                    e);
+        }
+        addAssertions(pingTaskBean);
+
+        final DataSource dataSource = new JNDIDataSource(pingTaskBean.getDatasource());
+
+        final SqlCommandProvider sentenceProvider = getSentenceProvider(pingTaskBean.getCommandProvider());
+        sentenceProvider.setSentences(commandList);
+
+        final String logFile = getLogFile(pingTaskBean, agentId);
+        final LogWriter logWriter = shardLogs ? new ShardedLogWriter(logFile) : new CSVFileLogWriter(logFile);
+
+        final LogHeader logHeader = new LogHeader(pingTaskBean);
+        logWriter.write(logHeader);
+        addTelemetry(logWriter);
+
+        // the jobs are registered by the task as they start
+        final TaskMetrics taskMetrics = createTaskMetrics(pingTaskBean.getName(), 0);
+        final RunningTask task = new RunningTask(pingTaskBean, dataSource, sentenceProvider, logWriter, taskMetrics);
+        synchronized (this) {
+            taskList.add(task);
+            logFileList.add(new File(logFile));
+        }
+        task.start();
+        return task;
+    }
+
+    /**
+     * Starts the replay of the trace of a task.
+     */
+    private void startReplay(final PingTaskBean pingTaskBean, final String agentId) throws ConfigurationException {
+
+        final File traceFile = new File(ConfigurationUtil.interpolate(pingTaskBean.getReplay().getFile(),
+                createConfiguration(pingTaskBean, agentId)));
+        if (!traceFile.isFile()) {
+            throw new ConfigurationException(
+                    String.format("Task '%s': trace file not found: %s", pingTaskBean.getName(), traceFile));
+        }
+
+        addAssertions(pingTaskBean);
+
+        final String logFile = getLogFile(pingTaskBean, agentId);
+        final LogWriter logWriter = shardLogs ? new ShardedLogWriter(logFile) : new CSVFileLogWriter(logFile);
+        logWriter.write(new LogHeader(pingTaskBean));
+        addTelemetry(logWriter);
+
+        final ReplayTask replay = new ReplayTask(pingTaskBean, traceFile,
+                new JNDIDataSource(pingTaskBean.getDatasource()), logWriter,
+                createTaskMetrics(pingTaskBean.getName(), 0));
+        synchronized (this) {
+            replayList.add(replay);
+            logFileList.add(new File(logFile));
+        }
+        replay.start();
+    }
+
+    private synchronized void watch(final File file, final RunningTask task) {
+
+        if (!watchConfiguration) {
+            return;
+        }
+
+        try {
+            if (configurationWatcher == null) {
+                configurationWatcher = new ConfigurationWatcher();
+                configurationWatcher.start();
+            }
+            configurationWatcher.register(file, task);
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to watch the configuration file '{}': {}", file, e.getMessage());
+        }
+    }
+
+    private synchronized TaskMetrics createTaskMetrics(final String taskName, final int jobs) {
+
+        final TaskMetrics taskMetrics = new TaskMetrics(taskName, jobs);
+        progressReporter.add(taskMetrics);
+        metricsList.add(taskMetrics);
+
+        if (progressScheduler == null && progressMillis > 0) {
+            progressScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "dbping-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            progressScheduler.scheduleAtFixedRate(progressReporter, progressMillis, progressMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        return taskMetrics;
+    }
+
+    private static CompositeConfiguration createConfiguration(final PingTaskBean pingTaskBean, final String agentId) {
+
+        final CompositeConfiguration conf = new CompositeConfiguration();
+        conf.setProperty("task.name", pingTaskBean.getName());
+        if (agentId != null) {
+            conf.setProperty(AGENT_ID_PROPERTY, agentId);
+        }
+        conf.addConfiguration(ConfigurationUtil.createEnvSystemConfiguration());
+        return conf;
+    }
+
+    private static String getLogFile(final PingTaskBean pingTaskBean, final String agentId)
+            throws ConfigurationException {
+
+        final String logFile = ConfigurationUtil.interpolate(pingTaskBean.getLogFile(),
+                createConfiguration(pingTaskBean, agentId));
+        if (agentId == null || pingTaskBean.getLogFile().contains("${" + AGENT_ID_PROPERTY + "}")) {
+            return logFile;
+        }
+        return ShardedLogWriter.addSuffix(logFile, "-" + agentId);
+    }
+
+    private static boolean isSelected(final PingTaskBean pingTaskBean, final Set<String> taskNames) {
+        return taskNames == null || taskNames.isEmpty() || taskNames.contains(pingTaskBean.getName());
     }
 
     private void execute(final File file, final Set<String> taskNames)
@@ -104,29 +373,36 @@ public final class PingEngine {
             final DbpingBean dbpingBean = DbpingParser.parse(file);
             for (final PingTaskBean pingTaskBean : dbpingBean.getTaskList()) {
 
-                if (taskNames != null && !taskNames.isEmpty() && !taskNames.contains(pingTaskBean.getName())) {
-                    continue;
+                if (isSelected(pingTaskBean, taskNames)) {
+                    final RunningTask task = start(pingTaskBean, null);
+                    if (task != null) {
+                        watch(file, task);
+                    }
                 }
+            }
+        }
+    }
 
-                final CompositeConfiguration conf = new CompositeConfiguration();
-                conf.setProperty("task.name", pingTaskBean.getName());
-                conf.addConfiguration(ConfigurationUtil.createEnvSystemConfiguration());
-
-                final DataSource dataSource = new JNDIDataSource(pingTaskBean.getDatasource());
-
-                final SqlCommandProvider sentenceProvider = getSentenceProvider(pingTaskBean.getCommandProvider());
-                sentenceProvider.setSentences(pingTaskBean.getSqlStatementList());
-
-                final LogWriter logWriter = new CSVFileLogWriter(
-                        ConfigurationUtil.interpolate(pingTaskBean.getLogFile(), conf));
-
-                final LogHeader logHeader = new LogHeader(pingTaskBean);
-                logWriter.write(logHeader);
+    /**
+     * Executes the tasks of a configuration received from a controller.
+     *
+     * @param dbpingBean
+     *            the configuration
+     * @param taskNames
+     *            the names of the tasks to execute or <code>null</code> to execute all of them
+     * @param agentId
+     *            the identifier of the agent, available as <code>${agent.id}</code> in the name of the log files.
+     *            When the name doesn't use it, the identifier is appended to the name so the agents running in the
+     *            same host don't share the logs
+     * @throws ConfigurationException
+     *             if the name of a log file can't be resolved
+     */
+    public void execute(final DbpingBean dbpingBean, final Set<String> taskNames, final String agentId)
+            throws ConfigurationException {
 
-                for (int i = 0; i < pingTaskBean.getThreads(); i++) {
-                    pool.submit(new PingJob(pingTaskBean, dataSource, sentenceProvider, logWriter),
-                            pingTaskBean.getName() + "@Thread-" + i);
-                }
+        for (final PingTaskBean pingTaskBean : dbpingBean.getTaskList()) {
+            if (isSelected(pingTaskBean, taskNames)) {
+                start(pingTaskBean, agentId);
             }
         }
     }
@@ -19,6 +19,11 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.sql.DataSource;
 
@@ -31,6 +36,8 @@ import com.dattack.dbping.beans.SqlCommandVisitor;
 import com.dattack.dbping.beans.SqlScriptBean;
 import com.dattack.dbping.beans.SqlStatementBean;
 import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+import com.dattack.dbping.engine.TaskMetrics.Phase;
+import com.dattack.dbping.log.LogFooter;
 import com.dattack.dbping.log.LogWriter;
 import com.dattack.jtoolbox.jdbc.JDBCUtils;
 
@@ -44,37 +51,109 @@ class PingJob implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PingJob.class);
 
-    private final PingTaskBean pingTaskBean;
+    private volatile PingTaskBean pingTaskBean;
+    private volatile boolean stopped;
     private final DataSource dataSource;
     private final SqlCommandProvider sentenceProvider;
     private final LogWriter logWriter;
+    private final TaskMetrics taskMetrics;
+    private final Map<String, ThinkTime> thinkTimeMap;
+    // the last checksum of each label, shared by the jobs of the task
+    private final Map<String, Long> checksumMap;
+    private final ConnectionInitializer connectionInitializer;
+    private LogEntryBuilder initEntryBuilder;
+    // the statistics of the current session when the provider groups the commands in sessions
+    private final SqlSessionProvider sessionProvider;
+    private long sessionStartTime;
+    private long sessionStatements;
+    private long sessionConnectionTime;
+    private long sessionTotalTime;
+    private Exception sessionException;
+    private volatile Thread thread;
+    // the executions started, including those of the job it replaces; negative (-count - 1) once stopped
+    private final AtomicLong iterations;
+
+    /**
+     * Creates the summary of a task with the time spent by dbping in each phase, in total, per execution and relative
+     * to the time spent by the executions.
+     */
+    static LogFooter createLogFooter(final TaskMetrics taskMetrics) {
+
+        final long executions = Math.max(1, taskMetrics.getExecutions());
+        final long executionNanos = Math.max(1, taskMetrics.getExecutionNanos());
+        final double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+
+        final LogFooter logFooter = new LogFooter() //
+                .put("executions", Long.toString(taskMetrics.getExecutions())) //
+                .put("errors", Long.toString(taskMetrics.getErrors())) //
+                .put("execution time", String.format("%.3f ms", executionNanos / nanosPerMilli));
+        for (final Phase phase : Phase.values()) {
+            final long nanos = taskMetrics.getOverheadNanos(phase);
+            logFooter.put("overhead (" + phase.getLabel() + ")",
+                    String.format("%.3f ms, %.2f us/exec, %.3f%%", nanos / nanosPerMilli, nanos / 1000D / executions,
+                            nanos * 100D / executionNanos));
+        }
+        final long nanos = taskMetrics.getOverheadNanos();
+        logFooter.put("overhead (total)", String.format("%.3f ms, %.2f us/exec, %.3f%%", nanos / nanosPerMilli,
+                nanos / 1000D / executions, nanos * 100D / executionNanos));
+        return logFooter;
+    }
 
     public PingJob(final PingTaskBean configuration, final DataSource dataSource,
-            final SqlCommandProvider sentenceProvider, final LogWriter logWriter) {
+            final SqlCommandProvider sentenceProvider, final LogWriter logWriter, final TaskMetrics taskMetrics) {
+        this(configuration, dataSource, sentenceProvider, logWriter, taskMetrics, new ConcurrentHashMap<>(),
+                new ConnectionInitializer(configuration), 0);
+    }
+
+    PingJob(final PingTaskBean configuration, final DataSource dataSource, final SqlCommandProvider sentenceProvider,
+            final LogWriter logWriter, final TaskMetrics taskMetrics, final Map<String, Long> checksumMap,
+            final ConnectionInitializer connectionInitializer, final long firstIteration) {
 
         this.pingTaskBean = configuration;
+        this.iterations = new AtomicLong(firstIteration);
+        this.checksumMap = checksumMap;
+        this.connectionInitializer = connectionInitializer;
         this.dataSource = dataSource;
         this.sentenceProvider = sentenceProvider;
         this.logWriter = logWriter;
+        this.taskMetrics = taskMetrics;
+        this.thinkTimeMap = new ConcurrentHashMap<>();
+        this.sessionProvider = sentenceProvider instanceof SqlSessionProvider ? (SqlSessionProvider) sentenceProvider
+                : null;
     }
 
     @Override
     public void run() {
 
-        final String threadName = Thread.currentThread().getName();
+        thread = Thread.currentThread();
+        final String threadName = thread.getName();
 
         LOGGER.info("Running job '{}' at thread '{}'", pingTaskBean.getName(), threadName);
 
-        long iter = 0;
+        long iter;
 
-        final LogEntryBuilder logEntryBuilder = new LogEntryBuilder(pingTaskBean.getMaxRowsToDump()) //
+        final LogEntryBuilder logEntryBuilder = new LogEntryBuilder(pingTaskBean.getMaxRowsToDump(),
+                pingTaskBean.isChecksum()) //
                 .withTaskName(pingTaskBean.getName()) //
                 .withThreadName(threadName);
+        final LogEntryBuilder sessionEntryBuilder = new LogEntryBuilder() //
+                .withTaskName(pingTaskBean.getName()) //
+                .withThreadName(threadName);
+        initEntryBuilder = new LogEntryBuilder() //
+                .withTaskName(pingTaskBean.getName()) //
+                .withThreadName(threadName);
+        long sessions = 0;
 
-        while (testLoop(iter)) {
+        while ((iter = claimIteration()) >= 0) {
             final long currentIteration = iter++;
             // retrieve the SQL to be executed
+            final long providerStart = System.nanoTime();
             final SqlCommandBean sqlSentence = sentenceProvider.nextSql();
+            taskMetrics.addOverhead(Phase.PROVIDER, System.nanoTime() - providerStart);
+
+            if (sessionProvider != null && sessionProvider.isSessionStart()) {
+                startSession();
+            }
 
             logEntryBuilder.init().withSqlLabel(sqlSentence.getLabel()) //
                     .withIteration(iter);
@@ -100,7 +179,9 @@ class PingJob implements Runnable {
                 @Override
                 public void visite(final SqlStatementBean command) {
 
-                    try (Connection connection = dataSource.getConnection()) {
+                    final long start = taskMetrics.begin();
+                    boolean failed = true;
+                    try (Connection connection = getConnection(logEntryBuilder)) {
                         try (Statement stmt = connection.createStatement()) {
                             ResultSet resultSet = null;
                             try {
@@ -108,41 +189,242 @@ class PingJob implements Runnable {
                                 final boolean executeResult = stmt.execute(command.getSql());
                                 if (executeResult) {
                                     resultSet = stmt.getResultSet();
+                                    long rowCaptureNanos = 0;
                                     while (resultSet.next()) {
+                                        final long rowStart = System.nanoTime();
                                         logEntryBuilder.addRow(resultSet);
+                                        rowCaptureNanos += System.nanoTime() - rowStart;
                                     }
+                                    logEntryBuilder.endResultSet();
+                                    discardUnchangedRows(logEntryBuilder, command.getLabel());
+                                    taskMetrics.addOverhead(Phase.ROW_CAPTURE, rowCaptureNanos);
                                 } else {
                                     // not a ResultSet
                                 }
 
-                                // sets the total time
-                                logWriter.write(logEntryBuilder.build());
+                                // sets the total time; the entry is written once the close times are known
+                                logEntryBuilder.complete();
+                                failed = false;
                             } finally {
                                 JDBCUtils.closeQuietly(resultSet);
                             }
                         }
                     } catch (final SQLException e) {
-                        logWriter.write(logEntryBuilder.withException(e).build());
+                        logEntryBuilder.withException(e);
+                        failed = true;
                         LOGGER.warn("Job error (job-name: '{}', thread: '{}'): {}", pingTaskBean.getName(), threadName,
                                 e.getMessage());
+                    } finally {
+                        taskMetrics.end(start, failed);
                     }
+                    write(logEntryBuilder.build());
                 }
             });
 
-            if (testLoop(iter) && pingTaskBean.getTimeBetweenExecutions() > 0) {
-                synchronized (this) {
-                    try {
-                        wait(pingTaskBean.getTimeBetweenExecutions());
-                    } catch (final InterruptedException e) {
-                        LOGGER.warn(e.getMessage());
-                    }
-                }
+            if (sessionProvider != null && sessionProvider.isSessionEnd()) {
+                writeSession(sessionEntryBuilder, sessions++);
             }
+
+            if (testLoop(iter)) {
+                pause(sqlSentence);
+            }
+        }
+
+        if (taskMetrics.jobFinished()) {
+            logWriter.write(createLogFooter(taskMetrics));
         }
 
         LOGGER.info("Job finished (job-name: '{}', thread: '{}')", pingTaskBean.getName(), threadName);
     }
 
+    /**
+     * Returns the think time after a command: the one of the command, the one of the task or the fixed time between
+     * executions.
+     */
+    private ThinkTime getThinkTime(final PingTaskBean configuration, final SqlCommandBean command) {
+
+        String definition = command.getThinkTime();
+        if (definition == null) {
+            definition = configuration.getThinkTime();
+        }
+        if (definition == null) {
+            definition = Integer.toString(configuration.getTimeBetweenExecutions());
+        }
+
+        ThinkTime thinkTime = thinkTimeMap.get(definition);
+        if (thinkTime == null) {
+            thinkTime = ThinkTime.parse(definition);
+            thinkTimeMap.put(definition, thinkTime);
+        }
+        return thinkTime;
+    }
+
+    /**
+     * Waits the think time after a command. The thread is parked until the deadline, without holding any monitor; a
+     * new configuration draws a new think time, counted from the start of the current wait.
+     */
+    private void pause(final SqlCommandBean command) {
+
+        final long start = System.nanoTime();
+        PingTaskBean configuration = pingTaskBean;
+        long nanos = getThinkTime(configuration, command).nextNanos();
+        while (!stopped) {
+            if (configuration != pingTaskBean) {
+                configuration = pingTaskBean;
+                nanos = getThinkTime(configuration, command).nextNanos();
+            }
+            final long remaining = start + nanos - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                LOGGER.warn("Job '{}' interrupted while waiting", configuration.getName());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Replaces the configuration of the job. The pacing and the number of executions apply from the next execution.
+     *
+     * @param configuration
+     *            the new configuration of the task
+     */
+    void reconfigure(final PingTaskBean configuration) {
+        this.pingTaskBean = configuration;
+        // the empirical distributions are read again
+        thinkTimeMap.clear();
+        wakeUp();
+    }
+
+    /**
+     * Claims the next execution of the job.
+     *
+     * @return the number of executions started before it, or -1 if the job was stopped or has completed its executions
+     */
+    private long claimIteration() {
+
+        while (true) {
+            final long started = iterations.get();
+            if (started < 0 || !testLoop(started)) {
+                return -1;
+            }
+            if (iterations.compareAndSet(started, started + 1)) {
+                return started;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of executions started by the job, including those of the job it replaces. Once the job is
+     * stopped the number is final.
+     */
+    long getIterations() {
+        final long started = iterations.get();
+        return started < 0 ? -started - 1 : started;
+    }
+
+    /**
+     * Asks the job to finish after the current execution.
+     */
+    void stop() {
+        this.stopped = true;
+        // no execution can be started from now on
+        iterations.getAndUpdate(started -> started < 0 ? started : -started - 1);
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        final Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    /**
+     * Returns a connection of the data source, initialized the first time it's used and instrumented to time the
+     * phases of the execution when the task requires it. The initialization isn't part of the execution.
+     */
+    private Connection getConnection(final LogEntryBuilder logEntryBuilder) throws SQLException {
+
+        final long start = System.nanoTime();
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+        } finally {
+            if (pingTaskBean.isPhaseTimes()) {
+                logEntryBuilder.addPhaseTime(JdbcPhase.ACQUIRE, System.nanoTime() - start);
+            }
+        }
+
+        logEntryBuilder.excludeTime(connectionInitializer.initialize(connection, initEntryBuilder, logWriter));
+
+        if (pingTaskBean.isPhaseTimes()) {
+            return TimedJdbc.wrap(connection, logEntryBuilder);
+        }
+        return connection;
+    }
+
+    /**
+     * Keeps the rows of the entry only when the checksum of the result set differs from the previous one of the label.
+     */
+    private void discardUnchangedRows(final LogEntryBuilder logEntryBuilder, final String label) {
+
+        final Long checksum = logEntryBuilder.getChecksum();
+        if (checksum == null) {
+            return;
+        }
+
+        final Long previous = checksumMap.put(label, checksum);
+        if (checksum.equals(previous)) {
+            logEntryBuilder.discardRows();
+        }
+    }
+
+    private void startSession() {
+        sessionStartTime = System.currentTimeMillis();
+        sessionStatements = 0;
+        sessionConnectionTime = 0;
+        sessionTotalTime = 0;
+        sessionException = null;
+    }
+
+    private void write(final LogEntry logEntry) {
+
+        final long start = System.nanoTime();
+        logWriter.write(logEntry);
+        taskMetrics.record(logEntry);
+        if (sessionProvider != null) {
+            sessionStatements++;
+            sessionConnectionTime += Math.max(0, logEntry.getConnectionTime());
+            sessionTotalTime += Math.max(0, logEntry.getTotalTime());
+            if (sessionException == null && logEntry.isFailed()) {
+                sessionException = logEntry.getException();
+            }
+        }
+        taskMetrics.addOverhead(Phase.LOG_WRITE, System.nanoTime() - start);
+    }
+
+    /**
+     * Writes the statistics of the session that has just finished: the number of statements and the sum of their
+     * connection and total times. A session has no first row of its own, so that time is left unknown.
+     */
+    private void writeSession(final LogEntryBuilder sessionEntryBuilder, final long session) {
+
+        final long start = System.nanoTime();
+        logWriter.write(sessionEntryBuilder.init() //
+                .withEventTime(sessionStartTime) //
+                .withSqlLabel(SqlSessionProvider.SESSION_LABEL) //
+                .withIteration(session) //
+                .withRows(sessionStatements) //
+                .withConnectionTime(sessionConnectionTime) //
+                .withTotalTime(sessionTotalTime) //
+                .withException(sessionException) //
+                .build());
+        taskMetrics.addOverhead(Phase.LOG_WRITE, System.nanoTime() - start);
+    }
+
     private boolean testLoop(final long iteration) {
         return pingTaskBean.getExecutions() <= 0 || iteration < pingTaskBean.getExecutions();
     }
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically logs the throughput, the concurrency and the overhead of dbping of the running tasks.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+class ProgressReporter implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProgressReporter.class);
+
+    // the counters of each task at the previous report
+    private final Map<TaskMetrics, long[]> lastValues;
+    private long lastTime;
+
+    ProgressReporter() {
+        this.lastValues = new ConcurrentHashMap<>();
+        this.lastTime = System.nanoTime();
+    }
+
+    void add(final TaskMetrics taskMetrics) {
+        lastValues.put(taskMetrics, new long[4]);
+    }
+
+    @Override
+    public void run() {
+
+        final long now = System.nanoTime();
+        final double seconds = Math.max(1, now - lastTime) / (double) TimeUnit.SECONDS.toNanos(1);
+        lastTime = now;
+
+        for (final Map.Entry<TaskMetrics, long[]> entry : lastValues.entrySet()) {
+
+            final TaskMetrics taskMetrics = entry.getKey();
+            final long[] values = { taskMetrics.getExecutions(), taskMetrics.getErrors(),
+                taskMetrics.getExecutionNanos(), taskMetrics.getOverheadNanos() };
+            final long[] last = entry.getValue();
+            final long executions = values[0] - last[0];
+            final long errors = values[1] - last[1];
+            final long executionNanos = values[2] - last[2];
+            final long overheadNanos = values[3] - last[3];
+            System.arraycopy(values, 0, last, 0, values.length);
+
+            LOGGER.info("Task '{}': {} exec/s, {} errors/s, in-flight: {} (max: {}), overhead: {} us/exec ({}%)",
+                    taskMetrics.getTaskName(), String.format("%.1f", executions / seconds),
+                    String.format("%.1f", errors / seconds), taskMetrics.getInFlight(),
+                    taskMetrics.getThenResetMaxInFlight(),
+                    String.format("%.1f", overheadNanos / 1000D / Math.max(1, executions)),
+                    String.format("%.2f", overheadNanos * 100D / Math.max(1, executionNanos)));
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+import com.dattack.dbping.engine.TaskMetrics.Phase;
+import com.dattack.dbping.engine.TraceReader.TraceStatement;
+import com.dattack.dbping.log.LogFooter;
+import com.dattack.dbping.log.LogWriter;
+import com.dattack.jtoolbox.jdbc.JDBCUtils;
+
+/**
+ * Replays a SQL trace with its original timing, or scaled by the speed factor of the task. A dispatcher streams the
+ * trace from disk and hands each statement, at its scheduled time, to the worker of its session: the sessions of the
+ * trace are mapped onto the threads of the task by their identifier, so the statements of a session are executed in
+ * order and through the same connection. The time that each statement starts behind its schedule is logged as its
+ * lag.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class ReplayTask {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplayTask.class);
+
+    // the statements waiting for a busy worker; the dispatcher blocks when the queue is full
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final PingTaskBean configuration;
+    private final File traceFile;
+    private final DataSource dataSource;
+    private final LogWriter logWriter;
+    private final TaskMetrics taskMetrics;
+    private final ConnectionInitializer connectionInitializer;
+    private final List<Worker> workerList;
+    private final List<Thread> threadList;
+    private final AtomicLong maxLagNanos;
+    private final AtomicLong totalLagNanos;
+
+    /**
+     * A statement and the time, as given by <code>System.nanoTime()</code>, it's scheduled for.
+     */
+    private static final class Scheduled {
+
+        private static final Scheduled END = new Scheduled(null, 0);
+
+        private final TraceStatement statement;
+        private final long nanos;
+
+        Scheduled(final TraceStatement statement, final long nanos) {
+            this.statement = statement;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Executes the statements of the sessions mapped to a thread.
+     */
+    private final class Worker implements Runnable {
+
+        private final BlockingQueue<Scheduled> queue;
+        private Connection connection;
+        private LogEntryBuilder initEntryBuilder;
+
+        Worker() {
+            this.queue = new ArrayBlockingQueue<Scheduled>(QUEUE_CAPACITY);
+        }
+
+        private void execute(final LogEntryBuilder logEntryBuilder, final Scheduled scheduled) {
+
+            final long lagNanos = Math.max(0, System.nanoTime() - scheduled.nanos);
+            maxLagNanos.accumulateAndGet(lagNanos, Math::max);
+            totalLagNanos.addAndGet(lagNanos);
+
+            logEntryBuilder.init() //
+                    .withSqlLabel(scheduled.statement.getLabel()) //
+                    .withIteration(scheduled.statement.getLineNumber()) //
+                    .withScheduleLag((long) (lagNanos / NANOS_PER_MILLI));
+
+            final long start = taskMetrics.begin();
+            boolean failed = true;
+            try {
+                if (connection == null) {
+                    connection = dataSource.getConnection();
+                    logEntryBuilder.excludeTime(
+                            connectionInitializer.initialize(connection, initEntryBuilder, logWriter));
+                }
+                logEntryBuilder.connect();
+
+                try (Statement stmt = connection.createStatement()) {
+                    ResultSet resultSet = null;
+                    try {
+                        if (stmt.execute(scheduled.statement.getSql())) {
+                            resultSet = stmt.getResultSet();
+                            long rowCaptureNanos = 0;
+                            while (resultSet.next()) {
+                                final long rowStart = System.nanoTime();
+                                logEntryBuilder.addRow(resultSet);
+                                rowCaptureNanos += System.nanoTime() - rowStart;
+                            }
+                            taskMetrics.addOverhead(Phase.ROW_CAPTURE, rowCaptureNanos);
+                        }
+                        write(logEntryBuilder.build());
+                        failed = false;
+                    } finally {
+                        JDBCUtils.closeQuietly(resultSet);
+                    }
+                }
+            } catch (final SQLException e) {
+                write(logEntryBuilder.withException(e).build());
+                LOGGER.warn("Replay error (task: '{}', trace line: {}): {}", configuration.getName(),
+                        scheduled.statement.getLineNumber(), e.getMessage());
+                releaseBrokenConnection();
+            } finally {
+                taskMetrics.end(start, failed);
+            }
+        }
+
+        // keeps the connection of the sessions unless the error has broken it
+        private void releaseBrokenConnection() {
+
+            boolean valid = false;
+            try {
+                valid = connection != null && connection.isValid(1);
+            } catch (final SQLException e) {
+                // the connection is closed below
+            }
+            if (!valid) {
+                JDBCUtils.closeQuietly(connection);
+                connection = null;
+            }
+        }
+
+        @Override
+        public void run() {
+
+            final LogEntryBuilder logEntryBuilder = new LogEntryBuilder(configuration.getMaxRowsToDump()) //
+                    .withTaskName(configuration.getName()) //
+                    .withThreadName(Thread.currentThread().getName());
+            initEntryBuilder = new LogEntryBuilder() //
+                    .withTaskName(configuration.getName()) //
+                    .withThreadName(Thread.currentThread().getName());
+            try {
+                while (true) {
+                    final Scheduled scheduled = queue.take();
+                    if (scheduled == Scheduled.END) {
+                        break;
+                    }
+                    execute(logEntryBuilder, scheduled);
+                }
+            } catch (final InterruptedException e) {
+                LOGGER.warn("Replay worker interrupted (task: '{}')", configuration.getName());
+                Thread.currentThread().interrupt();
+            } finally {
+                JDBCUtils.closeQuietly(connection);
+                if (taskMetrics.jobFinished()) {
+                    writeFooter();
+                }
+            }
+        }
+    }
+
+    ReplayTask(final PingTaskBean configuration, final File traceFile, final DataSource dataSource,
+            final LogWriter logWriter, final TaskMetrics taskMetrics) {
+        this.configuration = configuration;
+        this.traceFile = traceFile;
+        this.dataSource = dataSource;
+        this.logWriter = logWriter;
+        this.taskMetrics = taskMetrics;
+        this.connectionInitializer = new ConnectionInitializer(configuration);
+        this.workerList = new ArrayList<>();
+        this.threadList = new ArrayList<>();
+        this.maxLagNanos = new AtomicLong();
+        this.totalLagNanos = new AtomicLong();
+    }
+
+    /**
+     * Reads the trace and hands each statement to its worker at the scheduled time.
+     */
+    private void dispatch() {
+
+        final double nanosPerTraceMilli = NANOS_PER_MILLI / configuration.getReplay().getSpeed();
+        try (TraceReader reader = new TraceReader(traceFile)) {
+
+            final long startNanos = System.nanoTime();
+            long origin = Long.MIN_VALUE;
+            TraceStatement statement;
+            while ((statement = reader.next()) != null) {
+
+                if (origin == Long.MIN_VALUE) {
+                    origin = statement.getTime();
+                }
+                final long scheduledNanos = startNanos + (long) ((statement.getTime() - origin) * nanosPerTraceMilli);
+                parkUntil(scheduledNanos);
+
+                final Worker worker = workerList.get(Math.floorMod(statement.getSession().hashCode(),
+                        workerList.size()));
+                worker.queue.put(new Scheduled(statement, scheduledNanos));
+            }
+
+        } catch (final IOException e) {
+            LOGGER.error("Unable to read the trace '{}': {}", traceFile, e.getMessage());
+        } catch (final InterruptedException e) {
+            LOGGER.warn("Replay interrupted (task: '{}')", configuration.getName());
+            Thread.currentThread().interrupt();
+        } finally {
+            for (final Worker worker : workerList) {
+                try {
+                    worker.queue.put(Scheduled.END);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the task.
+     */
+    String getName() {
+        return configuration.getName();
+    }
+
+    /**
+     * Waits until all the statements of the trace have been executed.
+     *
+     * @throws InterruptedException
+     *             if the current thread is interrupted while waiting
+     */
+    void join() throws InterruptedException {
+        for (final Thread thread : threadList) {
+            thread.join();
+        }
+    }
+
+    private static void parkUntil(final long deadlineNanos) throws InterruptedException {
+
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Starts the workers and the dispatcher.
+     */
+    void start() {
+
+        final int workers = Math.max(1, configuration.getThreads());
+        for (int i = 0; i < workers; i++) {
+            taskMetrics.jobStarted();
+        }
+
+        for (int i = 0; i < workers; i++) {
+            final Worker worker = new Worker();
+            workerList.add(worker);
+            threadList.add(new Thread(worker, configuration.getName() + "@Thread-" + i));
+        }
+        threadList.add(new Thread(this::dispatch, configuration.getName() + "@dispatcher"));
+
+        LOGGER.info("Replaying '{}' with {} thread(s) at speed {} (task: '{}')", traceFile, workers,
+                configuration.getReplay().getSpeed(), configuration.getName());
+        for (final Thread thread : threadList) {
+            thread.start();
+        }
+    }
+
+    private void write(final LogEntry logEntry) {
+        final long start = System.nanoTime();
+        logWriter.write(logEntry);
+        taskMetrics.record(logEntry);
+        taskMetrics.addOverhead(Phase.LOG_WRITE, System.nanoTime() - start);
+    }
+
+    private void writeFooter() {
+
+        final LogFooter logFooter = PingJob.createLogFooter(taskMetrics) //
+                .put("schedule lag (max)", String.format("%.3f ms", maxLagNanos.get() / NANOS_PER_MILLI)) //
+                .put("schedule lag (mean)", String.format("%.3f ms",
+                        totalLagNanos.get() / NANOS_PER_MILLI / Math.max(1, taskMetrics.getExecutions())));
+        logWriter.write(logFooter);
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.beans.SqlCommandBean;
+import com.dattack.dbping.log.LogAnnotation;
+import com.dattack.dbping.log.LogWriter;
+
+/**
+ * A task being executed: its jobs and the resources they share. The configuration of the task can be replaced while
+ * it runs; the jobs, their connections and the metrics of the task are kept and each change is written to the log as a
+ * {@link LogAnnotation#CONFIG config} annotation.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class RunningTask {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RunningTask.class);
+
+    private final DataSource dataSource;
+    private final SqlCommandProvider sentenceProvider;
+    private final LogWriter logWriter;
+    private final TaskMetrics taskMetrics;
+    private final List<PingJob> jobList;
+    private final List<Thread> startedThreadList;
+    // the jobs removed from the task, whose executions are resumed by the jobs added later
+    private final Deque<PingJob> removedJobList;
+    private final Map<String, Long> checksumMap;
+    private final ConnectionInitializer connectionInitializer;
+    private PingTaskBean configuration;
+    private int threadCounter;
+
+    /**
+     * Returns the commands of a task that are enabled.
+     */
+    static List<SqlCommandBean> getEnabledCommands(final PingTaskBean configuration) {
+
+        final List<SqlCommandBean> list = new ArrayList<>();
+        if (configuration.getSqlStatementList() != null) {
+            for (final SqlCommandBean command : configuration.getSqlStatementList()) {
+                if (command.isEnabled()) {
+                    list.add(command);
+                }
+            }
+        }
+        return list;
+    }
+
+    private static Map<String, SqlCommandBean> mapByLabel(final List<SqlCommandBean> commandList) {
+
+        final Map<String, SqlCommandBean> map = new LinkedHashMap<>();
+        for (final SqlCommandBean command : commandList) {
+            map.put(command.getLabel(), command);
+        }
+        return map;
+    }
+
+    RunningTask(final PingTaskBean configuration, final DataSource dataSource,
+            final SqlCommandProvider sentenceProvider, final LogWriter logWriter, final TaskMetrics taskMetrics) {
+        this.configuration = configuration;
+        this.dataSource = dataSource;
+        this.sentenceProvider = sentenceProvider;
+        this.logWriter = logWriter;
+        this.taskMetrics = taskMetrics;
+        this.jobList = new ArrayList<>();
+        this.startedThreadList = new ArrayList<>();
+        this.removedJobList = new ArrayDeque<>();
+        this.checksumMap = new ConcurrentHashMap<>();
+        this.connectionInitializer = new ConnectionInitializer(configuration);
+        this.threadCounter = 0;
+    }
+
+    private void addChange(final List<String[]> changeList, final String property, final Object oldValue,
+            final Object newValue) {
+
+        if (!Objects.equals(oldValue, newValue)) {
+            changeList.add(new String[] { property, String.valueOf(oldValue), String.valueOf(newValue) });
+        }
+    }
+
+    /**
+     * Applies a new configuration to the task: the number of threads, the pacing and think times, the number of
+     * executions and the weights, transitions and enabled flags of the commands. The other properties (data source,
+     * log file, rows to dump, checksum, connection initialization) can't be changed without restarting the task and
+     * are ignored.
+     *
+     * @param newConfiguration
+     *            the new configuration of the task
+     */
+    synchronized void apply(final PingTaskBean newConfiguration) {
+
+        try {
+            ThinkTime.check(newConfiguration);
+        } catch (final IllegalArgumentException e) {
+            LOGGER.warn("Configuration of task '{}' ignored: {}", newConfiguration.getName(), e.getMessage());
+            return;
+        }
+
+        final List<String[]> changeList = new ArrayList<>();
+        addChange(changeList, "threads", configuration.getThreads(), newConfiguration.getThreads());
+        addChange(changeList, "executions", configuration.getExecutions(), newConfiguration.getExecutions());
+        addChange(changeList, "timeBetweenExecutions", configuration.getTimeBetweenExecutions(),
+                newConfiguration.getTimeBetweenExecutions());
+        addChange(changeList, "thinkTime", configuration.getThinkTime(), newConfiguration.getThinkTime());
+
+        final List<SqlCommandBean> enabledList = getEnabledCommands(newConfiguration);
+        final Map<String, SqlCommandBean> oldCommands = mapByLabel(getEnabledCommands(configuration));
+        final Map<String, SqlCommandBean> newCommands = mapByLabel(enabledList);
+        final int commandChanges = changeList.size();
+        for (final Map.Entry<String, SqlCommandBean> entry : oldCommands.entrySet()) {
+            final SqlCommandBean newCommand = newCommands.get(entry.getKey());
+            if (newCommand == null) {
+                addChange(changeList, "enabled[" + entry.getKey() + "]", true, false);
+            } else {
+                addChange(changeList, "weight[" + entry.getKey() + "]", entry.getValue().getWeight(),
+                        newCommand.getWeight());
+                addChange(changeList, "thinkTime[" + entry.getKey() + "]", entry.getValue().getThinkTime(),
+                        newCommand.getThinkTime());
+                addChange(changeList, "next[" + entry.getKey() + "]", entry.getValue().getNext(),
+                        newCommand.getNext());
+            }
+        }
+        for (final String label : newCommands.keySet()) {
+            if (!oldCommands.containsKey(label)) {
+                addChange(changeList, "enabled[" + label + "]", false, true);
+            }
+        }
+
+        if (changeList.isEmpty()) {
+            return;
+        }
+
+        if (changeList.size() > commandChanges || !newCommands.keySet().equals(oldCommands.keySet())) {
+            if (enabledList.isEmpty()) {
+                LOGGER.warn("Task '{}' has no enabled commands, the changes of the commands are ignored",
+                        configuration.getName());
+            } else {
+                sentenceProvider.setSentences(enabledList);
+            }
+        }
+
+        final long now = System.currentTimeMillis();
+        for (final String[] change : changeList) {
+            LOGGER.info("Task '{}' reconfigured: {} {} -> {}", configuration.getName(), change[0], change[1],
+                    change[2]);
+            logWriter.write(new LogAnnotation(LogAnnotation.CONFIG, now, change));
+        }
+
+        configuration = newConfiguration;
+        for (final PingJob job : jobList) {
+            job.reconfigure(newConfiguration);
+        }
+        resize(newConfiguration.getThreads());
+    }
+
+    /**
+     * Returns the name of the task.
+     */
+    synchronized String getName() {
+        return configuration.getName();
+    }
+
+    /**
+     * Waits until all the jobs of the task finish.
+     *
+     * @throws InterruptedException
+     *             if the current thread is interrupted while waiting
+     */
+    void join() throws InterruptedException {
+
+        int joined = 0;
+        while (true) {
+            final Thread thread;
+            synchronized (this) {
+                // the jobs added while waiting must be waited for too
+                if (joined == startedThreadList.size()) {
+                    return;
+                }
+                thread = startedThreadList.get(joined);
+            }
+            thread.join();
+            joined++;
+        }
+    }
+
+    /**
+     * Starts or stops jobs until the task has the given number of jobs. The jobs that completed their executions still
+     * count, so they aren't started again, and a job added after others were removed resumes the executions of one of
+     * them. Once all the jobs of the task have finished no job can be added.
+     */
+    private void resize(final int threads) {
+
+        while (jobList.size() > threads) {
+            final PingJob job = jobList.remove(jobList.size() - 1);
+            job.stop();
+            removedJobList.push(job);
+        }
+
+        if (jobList.size() == threads) {
+            return;
+        }
+
+        // all the new jobs are registered before any of them can finish
+        if (!taskMetrics.jobStarted()) {
+            LOGGER.warn("Task '{}' has finished, its jobs aren't started again", configuration.getName());
+            return;
+        }
+        for (int i = jobList.size() + 1; i < threads; i++) {
+            taskMetrics.jobStarted();
+        }
+
+        while (jobList.size() < threads) {
+            final PingJob removedJob = removedJobList.poll();
+            final PingJob job = new PingJob(configuration, dataSource, sentenceProvider, logWriter, taskMetrics,
+                    checksumMap, connectionInitializer, removedJob == null ? 0 : removedJob.getIterations());
+            final Thread thread = new Thread(job, configuration.getName() + "@Thread-" + threadCounter++);
+            jobList.add(job);
+            startedThreadList.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Starts the jobs of the task.
+     */
+    synchronized void start() {
+        resize(configuration.getThreads());
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.dattack.dbping.engine.LabelSummary.Latency;
+
+/**
+ * A performance assertion checked against the summaries of a task at the end of the run, e.g.
+ * <code>p99(total) &lt; 20ms</code>, <code>errorRate &lt; 0.1%</code> or <code>throughput &gt; 3000/s</code>. The
+ * statistics are a percentile (<code>p50</code>, <code>p99.9</code>, ...), <code>mean</code>, <code>min</code> or
+ * <code>max</code> of a latency (<code>connection</code>, <code>firstRow</code> or <code>total</code>) of the
+ * successful executions, <code>errorRate</code>, <code>errors</code>, <code>executions</code> and
+ * <code>throughput</code>. The latencies are in milliseconds unless the threshold has the unit <code>us</code> or
+ * <code>s</code>; the error rate is a fraction unless it ends with <code>%</code> and the throughput is per second
+ * unless it ends with <code>/min</code>.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class SloAssertion {
+
+    private static final Pattern EXPRESSION_PATTERN = Pattern.compile(
+            "\\s*(?:(p(\\d+(?:\\.\\d+)?)|mean|min|max)\\s*\\(\\s*(\\w+)\\s*\\)"
+                    + "|(errorRate|errors|executions|throughput))"
+                    + "\\s*(<=|>=|<|>)\\s*(\\d*\\.?\\d+)\\s*(ms|us|s|%|/s|/min)?\\s*",
+            Pattern.CASE_INSENSITIVE);
+
+    private final String taskName;
+    private final String label;
+    private final String expression;
+    private final String statistic;
+    private final double percentile;
+    private final Latency latency;
+    private final String operator;
+    private final double threshold;
+
+    /**
+     * The outcome of an assertion for a task.
+     */
+    public static final class Result {
+
+        private final SloAssertion assertion;
+        private final String taskName;
+        private final double actual;
+        private final boolean passed;
+
+        Result(final SloAssertion assertion, final String taskName, final double actual) {
+            this.assertion = assertion;
+            this.taskName = taskName;
+            this.actual = actual;
+            this.passed = assertion.test(actual);
+        }
+
+        /**
+         * Returns the value measured: milliseconds for the latencies, executions per second for the throughput and a
+         * fraction for the error rate.
+         *
+         * @return the value or NaN if the task or the label have no executions
+         */
+        public double getActual() {
+            return actual;
+        }
+
+        public SloAssertion getAssertion() {
+            return assertion;
+        }
+
+        public String getTaskName() {
+            return taskName;
+        }
+
+        public boolean isPassed() {
+            return passed;
+        }
+    }
+
+    /**
+     * Parses an assertion of the command line, with the syntax <code>task[:label]:expression</code>. The task
+     * <code>*</code> applies the assertion to every task. The task ends at the first colon and the expression starts
+     * after the last one, so the label may contain colons.
+     *
+     * @param text
+     *            the text of the assertion
+     * @return the assertion
+     * @throws IllegalArgumentException
+     *             if the text isn't a valid assertion
+     */
+    public static SloAssertion parse(final String text) {
+
+        final int taskEnd = text.indexOf(':');
+        final int expressionStart = text.lastIndexOf(':') + 1;
+        if (taskEnd <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid assertion '%s', the syntax is task[:label]:expression", text));
+        }
+
+        final String taskName = text.substring(0, taskEnd).trim();
+        final String label = expressionStart > taskEnd + 1 ? text.substring(taskEnd + 1, expressionStart - 1) : null;
+        return new SloAssertion("*".equals(taskName) ? null : taskName, label, text.substring(expressionStart));
+    }
+
+    /**
+     * Creates a new assertion.
+     *
+     * @param taskName
+     *            the name of the task or <code>null</code> to apply it to every task
+     * @param label
+     *            the label of the executions or <code>null</code> to check all the executions of the task
+     * @param expression
+     *            the expression, e.g. <code>p99(total) &lt; 20ms</code>
+     * @throws IllegalArgumentException
+     *             if the expression isn't valid
+     */
+    public SloAssertion(final String taskName, final String label, final String expression) {
+
+        final Matcher matcher = EXPRESSION_PATTERN.matcher(expression);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(String.format("Invalid assertion '%s'", expression));
+        }
+
+        this.taskName = taskName;
+        this.label = label == null || label.trim().isEmpty() ? null : label.trim();
+        this.expression = expression.trim();
+        this.operator = matcher.group(5);
+
+        final String unit = matcher.group(7) == null ? "" : matcher.group(7).toLowerCase(Locale.ENGLISH);
+        final double value = Double.parseDouble(matcher.group(6));
+        if (matcher.group(4) == null) {
+            this.statistic = matcher.group(2) == null ? matcher.group(1).toLowerCase(Locale.ENGLISH) : "p";
+            this.percentile = matcher.group(2) == null ? Double.NaN : Double.parseDouble(matcher.group(2));
+            if (percentile > 100) {
+                throw new IllegalArgumentException(String.format("Invalid percentile in '%s'", expression));
+            }
+            this.latency = Latency.parse(matcher.group(3));
+            if (latency == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Unknown latency '%s' in '%s' (connection, firstRow or total)", matcher.group(3), expression));
+            }
+            this.threshold = toMillis(value, unit);
+        } else {
+            this.statistic = matcher.group(4).toLowerCase(Locale.ENGLISH);
+            this.percentile = Double.NaN;
+            this.latency = null;
+            this.threshold = toCount(value, unit);
+        }
+    }
+
+    private double toCount(final double value, final String unit) {
+
+        switch (statistic) {
+        case "errorrate":
+            if (unit.isEmpty() || "%".equals(unit)) {
+                return unit.isEmpty() ? value : value / 100;
+            }
+            break;
+        case "throughput":
+            if (unit.isEmpty() || "/s".equals(unit) || "/min".equals(unit)) {
+                return "/min".equals(unit) ? value / 60 : value;
+            }
+            break;
+        default:
+            if (unit.isEmpty()) {
+                return value;
+            }
+            break;
+        }
+        throw new IllegalArgumentException(String.format("Invalid unit '%s' in '%s'", unit, expression));
+    }
+
+    private double toMillis(final double value, final String unit) {
+
+        switch (unit) {
+        case "":
+        case "ms":
+            return value;
+        case "us":
+            return value / 1000;
+        case "s":
+            return value * 1000;
+        default:
+            throw new IllegalArgumentException(String.format("Invalid unit '%s' in '%s'", unit, expression));
+        }
+    }
+
+    /**
+     * Checks the assertion against the summaries of a task.
+     *
+     * @param taskMetrics
+     *            the metrics of the task, once its jobs have finished
+     * @return the result
+     */
+    public Result evaluate(final TaskMetrics taskMetrics) {
+
+        final LabelSummary summary = label == null ? taskMetrics.getTaskSummary()
+                : taskMetrics.getSummaries().get(label);
+        return new Result(this, taskMetrics.getTaskName(), summary == null ? Double.NaN : measure(summary));
+    }
+
+    /**
+     * Returns the result of the assertion for a task that didn't run.
+     *
+     * @param taskName
+     *            the name of the task
+     * @return the failed result
+     */
+    public Result missing(final String taskName) {
+        return new Result(this, taskName, Double.NaN);
+    }
+
+    /**
+     * Formats a value measured by this assertion with its unit.
+     *
+     * @param value
+     *            the value
+     * @return the text of the value
+     */
+    public String format(final double value) {
+
+        if (Double.isNaN(value)) {
+            return "no data";
+        }
+        if (latency != null) {
+            return String.format(Locale.ENGLISH, "%.3fms", value);
+        }
+        switch (statistic) {
+        case "errorrate":
+            return String.format(Locale.ENGLISH, "%.4f%%", value * 100);
+        case "throughput":
+            return String.format(Locale.ENGLISH, "%.1f/s", value);
+        default:
+            return String.format(Locale.ENGLISH, "%.0f", value);
+        }
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return the label of the executions checked or <code>null</code> if all the executions of the task are checked
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the name of the task checked or <code>null</code> if the assertion applies to every task
+     */
+    public String getTaskName() {
+        return taskName;
+    }
+
+    private double measure(final LabelSummary summary) {
+
+        if (summary.getExecutions() == 0) {
+            return Double.NaN;
+        }
+
+        if (latency != null && summary.getSketch(latency).getCount() == 0) {
+            // all the executions failed
+            return Double.NaN;
+        }
+
+        switch (statistic) {
+        case "p":
+            return summary.getSketch(latency).getPercentile(percentile);
+        case "mean":
+            return summary.getSketch(latency).getMean();
+        case "min":
+            return summary.getSketch(latency).getMin();
+        case "max":
+            return summary.getSketch(latency).getMax();
+        case "errorrate":
+            return summary.getErrorRate();
+        case "errors":
+            return summary.getErrors();
+        case "executions":
+            return summary.getExecutions();
+        default:
+            return summary.getThroughput();
+        }
+    }
+
+    private boolean test(final double value) {
+
+        if (Double.isNaN(value)) {
+            return false;
+        }
+
+        switch (operator) {
+        case "<":
+            return value < threshold;
+        case "<=":
+            return value <= threshold;
+        case ">":
+            return value > threshold;
+        default:
+            return value >= threshold;
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(taskName == null ? "*" : taskName);
+        if (label != null) {
+            builder.append(':').append(label);
+        }
+        return builder.append(':').append(expression).toString();
+    }
+}
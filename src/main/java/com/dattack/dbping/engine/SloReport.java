@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringEscapeUtils;
+
+/**
+ * The results of the performance assertions of a run. The summary is printed as tab-separated lines, one per result,
+ * and can also be written as a JUnit XML report, with a test case per result, for the CI servers.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class SloReport {
+
+    private static final String PASSED = "PASS";
+    private static final String FAILED = "FAIL";
+
+    private final List<SloAssertion.Result> resultList;
+
+    SloReport(final List<SloAssertion.Result> resultList) {
+        this.resultList = new ArrayList<>(resultList);
+    }
+
+    private static String getName(final SloAssertion.Result result) {
+        final String label = result.getAssertion().getLabel();
+        final String expression = result.getAssertion().getExpression();
+        return label == null ? expression : label + ": " + expression;
+    }
+
+    /**
+     * Returns the number of assertions that failed.
+     *
+     * @return the number of failures
+     */
+    public int getFailures() {
+        int failures = 0;
+        for (final SloAssertion.Result result : resultList) {
+            if (!result.isPassed()) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    public List<SloAssertion.Result> getResults() {
+        return Collections.unmodifiableList(resultList);
+    }
+
+    public boolean isEmpty() {
+        return resultList.isEmpty();
+    }
+
+    /**
+     * Prints the results: the verdict, the task, the label (<code>*</code> for the whole task), the expression and the
+     * value measured, separated by tabs, and a last line with the totals.
+     *
+     * @param out
+     *            the stream where the results are printed
+     */
+    public void print(final PrintStream out) {
+
+        for (final SloAssertion.Result result : resultList) {
+            final SloAssertion assertion = result.getAssertion();
+            out.format("%s\t%s\t%s\t%s\t%s%n", result.isPassed() ? PASSED : FAILED, result.getTaskName(),
+                    assertion.getLabel() == null ? "*" : assertion.getLabel(), assertion.getExpression(),
+                    assertion.format(result.getActual()));
+        }
+        out.format("%s\t%d assertion(s), %d failure(s)%n", getFailures() == 0 ? PASSED : FAILED, resultList.size(),
+                getFailures());
+    }
+
+    /**
+     * Writes the results as a JUnit XML report.
+     *
+     * @param file
+     *            the report file
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public void writeJUnit(final File file) throws IOException {
+
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            writer.println(String.format("<testsuite name=\"dbping\" tests=\"%d\" failures=\"%d\">", resultList.size(),
+                    getFailures()));
+            for (final SloAssertion.Result result : resultList) {
+                writer.print(String.format("  <testcase classname=\"%s\" name=\"%s\"",
+                        StringEscapeUtils.escapeXml(result.getTaskName()),
+                        StringEscapeUtils.escapeXml(getName(result))));
+                if (result.isPassed()) {
+                    writer.println("/>");
+                } else {
+                    writer.println(">");
+                    writer.println(String.format("    <failure message=\"%s\"/>",
+                            StringEscapeUtils.escapeXml(String.format("expected %s, actual %s",
+                                    result.getAssertion().getExpression(),
+                                    result.getAssertion().format(result.getActual())))));
+                    writer.println("  </testcase>");
+                }
+            }
+            writer.println("</testsuite>");
+        }
+    }
+}
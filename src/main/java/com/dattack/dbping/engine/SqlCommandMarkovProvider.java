@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dattack.dbping.beans.SqlCommandBean;
+
+/**
+ * Executes the commands as the steps of user sessions described by a Markov chain. Each session starts with the first
+ * command of the task and continues with the transitions of the <code>next</code> attribute of the current command, a
+ * list of <code>label:probability</code> pairs (e.g. <code>next="search:0.7, detail:0.2"</code>). The probability not
+ * assigned to any transition ends the session: the labels without a probability share it and a command without
+ * transitions always ends the session. The probabilities are normalized when their sum is greater than one.
+ * <p>
+ * The state of the session is kept per thread, so the threads of a task simulate independent users.
+ * </p>
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public class SqlCommandMarkovProvider implements SqlSessionProvider {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqlCommandMarkovProvider.class);
+
+    private static final int END = -1;
+
+    // the commands and their transitions are replaced together so the running jobs always see a consistent chain
+    private volatile Chain chain;
+    private final ThreadLocal<State> stateHolder;
+
+    /**
+     * The commands and the cumulative probabilities of the transitions of each one.
+     */
+    private static final class Chain {
+
+        private final List<SqlCommandBean> commandList;
+        private final Map<String, Integer> indexMap;
+        private final int[][] targets;
+        private final double[][] cumulative;
+
+        Chain(final List<SqlCommandBean> commandList) {
+
+            this.commandList = commandList;
+            this.indexMap = new HashMap<String, Integer>();
+            for (int i = 0; i < commandList.size(); i++) {
+                indexMap.put(commandList.get(i).getLabel(), i);
+            }
+
+            this.targets = new int[commandList.size()][];
+            this.cumulative = new double[commandList.size()][];
+            for (int i = 0; i < commandList.size(); i++) {
+                parse(i, commandList.get(i));
+            }
+        }
+
+        private void parse(final int index, final SqlCommandBean command) {
+
+            final List<Integer> targetList = new ArrayList<Integer>();
+            final List<Double> probabilityList = new ArrayList<Double>();
+            double assigned = 0;
+            int unassigned = 0;
+            for (final String token : StringUtils.trimToEmpty(command.getNext()).split("[,;\\s]+")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+
+                final int separator = token.lastIndexOf(':');
+                final String label = separator < 0 ? token : token.substring(0, separator);
+                final Integer target = indexMap.get(label);
+                if (target == null) {
+                    LOGGER.warn("Transition ignored: command '{}' not found (from '{}')", label, command.getLabel());
+                    continue;
+                }
+
+                Double probability = null;
+                if (separator >= 0) {
+                    try {
+                        probability = Math.max(0, Double.parseDouble(token.substring(separator + 1)));
+                    } catch (final NumberFormatException e) {
+                        LOGGER.warn("Transition ignored: invalid probability '{}' (from '{}')", token,
+                                command.getLabel());
+                        continue;
+                    }
+                    assigned += probability;
+                } else {
+                    unassigned++;
+                }
+                targetList.add(target);
+                probabilityList.add(probability);
+            }
+
+            // the labels without probability share the rest, the sum is normalized when it exceeds one
+            final double share = unassigned == 0 ? 0 : Math.max(0, 1 - assigned) / unassigned;
+            final double total = Math.max(1, assigned + share * unassigned);
+
+            targets[index] = new int[targetList.size()];
+            cumulative[index] = new double[targetList.size()];
+            double sum = 0;
+            for (int i = 0; i < targetList.size(); i++) {
+                final Double probability = probabilityList.get(i);
+                sum += (probability == null ? share : probability) / total;
+                targets[index][i] = targetList.get(i);
+                cumulative[index][i] = sum;
+            }
+        }
+
+        int next(final int index, final double random) {
+            for (int i = 0; i < cumulative[index].length; i++) {
+                if (cumulative[index][i] > random) {
+                    return targets[index][i];
+                }
+            }
+            return END;
+        }
+    }
+
+    /**
+     * The session of a thread.
+     */
+    private static final class State {
+
+        // the label of the next command or null to start a new session
+        private String nextLabel;
+        private boolean sessionStart;
+        private boolean sessionEnd;
+    }
+
+    public SqlCommandMarkovProvider() {
+        this.stateHolder = new ThreadLocal<State>() {
+
+            @Override
+            protected State initialValue() {
+                return new State();
+            }
+        };
+    }
+
+    @Override
+    public boolean isSessionEnd() {
+        return stateHolder.get().sessionEnd;
+    }
+
+    @Override
+    public boolean isSessionStart() {
+        return stateHolder.get().sessionStart;
+    }
+
+    @Override
+    public SqlCommandBean nextSql() {
+
+        final Chain current = chain;
+        if (current == null || current.commandList.isEmpty()) {
+            throw new IllegalArgumentException("The sentence list must not be null or empty");
+        }
+
+        // the session is restarted when the next command has been removed by a new configuration
+        final State state = stateHolder.get();
+        final Integer index = state.nextLabel == null ? null : current.indexMap.get(state.nextLabel);
+        final int command = index == null ? 0 : index;
+        final int next = current.next(command, ThreadLocalRandom.current().nextDouble());
+
+        state.sessionStart = index == null;
+        state.sessionEnd = next == END;
+        state.nextLabel = next == END ? null : current.commandList.get(next).getLabel();
+        return current.commandList.get(command);
+    }
+
+    @Override
+    public void setSentences(final List<SqlCommandBean> sqlList) {
+        this.chain = sqlList == null ? null : new Chain(sqlList);
+    }
+}
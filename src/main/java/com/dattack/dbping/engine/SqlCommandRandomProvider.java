@@ -28,7 +28,7 @@ import com.dattack.dbping.beans.SqlCommandBean;
  */
 public class SqlCommandRandomProvider implements SqlCommandProvider {
 
-    private List<SqlCommandBean> sentenceList;
+    private volatile List<SqlCommandBean> sentenceList;
     private final Random randomGenerator;
 
     public SqlCommandRandomProvider() {
@@ -38,12 +38,13 @@ public class SqlCommandRandomProvider implements SqlCommandProvider {
     @Override
     public SqlCommandBean nextSql() {
 
-        if (sentenceList == null || sentenceList.isEmpty()) {
+        final List<SqlCommandBean> list = sentenceList;
+        if (list == null || list.isEmpty()) {
             throw new IllegalArgumentException("The sentence list must not be null or empty");
         }
 
-        final int index = randomGenerator.nextInt(sentenceList.size());
-        return sentenceList.get(index);
+        final int index = randomGenerator.nextInt(list.size());
+        return list.get(index);
     }
 
     @Override
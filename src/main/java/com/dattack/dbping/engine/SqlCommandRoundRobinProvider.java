@@ -49,7 +49,10 @@ public class SqlCommandRoundRobinProvider implements SqlCommandProvider {
     }
 
     @Override
-    public void setSentences(final List<SqlCommandBean> sqlList) {
+    public synchronized void setSentences(final List<SqlCommandBean> sqlList) {
         this.sentenceList = sqlList;
+        if (sqlList == null || index >= sqlList.size()) {
+            index = 0;
+        }
     }
 }
@@ -28,9 +28,20 @@ import com.dattack.dbping.beans.SqlCommandBean;
  */
 public class SqlCommandWeightedRandomProvider implements SqlCommandProvider {
 
-    private List<SqlCommandBean> sentenceList;
+    // the list and its weights are replaced together so the running jobs always see a consistent pair
+    private volatile Selection selection;
     private final Random randomGenerator;
-    private float[] cumulativeWeight;
+
+    private static final class Selection {
+
+        private final List<SqlCommandBean> sentenceList;
+        private final float[] cumulativeWeight;
+
+        Selection(final List<SqlCommandBean> sentenceList) {
+            this.sentenceList = sentenceList;
+            this.cumulativeWeight = cdf(sentenceList);
+        }
+    }
 
     private static float norm(final float weight, final float sumWeight) {
         return weight / sumWeight;
@@ -41,7 +52,7 @@ public class SqlCommandWeightedRandomProvider implements SqlCommandProvider {
     }
 
     // the cumulative density function
-    private float[] cdf() {
+    private static float[] cdf(final List<SqlCommandBean> sentenceList) {
 
         float totalWeight = 0;
         for (final SqlCommandBean sentence : sentenceList) {
@@ -64,22 +75,22 @@ public class SqlCommandWeightedRandomProvider implements SqlCommandProvider {
     @Override
     public SqlCommandBean nextSql() {
 
-        if (sentenceList == null || sentenceList.isEmpty()) {
+        final Selection current = selection;
+        if (current == null || current.sentenceList.isEmpty()) {
             throw new IllegalArgumentException("The sentence list must not be null or empty");
         }
 
         final float randomWeight = randomGenerator.nextFloat();
-        for (int i = 0; i < cumulativeWeight.length; i++) {
-            if (cumulativeWeight[i] > randomWeight) {
-                return sentenceList.get(i);
+        for (int i = 0; i < current.cumulativeWeight.length; i++) {
+            if (current.cumulativeWeight[i] > randomWeight) {
+                return current.sentenceList.get(i);
             }
         }
-        return sentenceList.get(sentenceList.size() - 1);
+        return current.sentenceList.get(current.sentenceList.size() - 1);
     }
 
     @Override
     public void setSentences(final List<SqlCommandBean> sqlList) {
-        this.sentenceList = sqlList;
-        this.cumulativeWeight = cdf();
+        this.selection = sqlList == null ? null : new Selection(sqlList);
     }
 }
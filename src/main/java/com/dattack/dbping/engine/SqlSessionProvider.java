@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+/**
+ * A provider that groups the commands in sessions, the sequences of commands executed by a simulated user. The
+ * session of each thread is independent; the job asks, after each command returned by {@link #nextSql()}, whether
+ * it starts or ends the session of the current thread, and records the statistics of the whole session.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public interface SqlSessionProvider extends SqlCommandProvider {
+
+    /**
+     * The label of the log entries with the statistics of the sessions: the start time of the session, the number of
+     * statements executed (as the rows), the sum of their connection times and the sum of their total times, the
+     * latency of the session without the think times. A session fails when any of its statements fails.
+     */
+    String SESSION_LABEL = "@session";
+
+    /**
+     * @return <code>true</code> if the last command returned to the current thread starts a new session
+     */
+    boolean isSessionStart();
+
+    /**
+     * @return <code>true</code> if the last command returned to the current thread ends its session
+     */
+    boolean isSessionEnd();
+}
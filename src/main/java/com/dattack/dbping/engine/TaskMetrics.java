@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of a task, shared by all its threads: the executions, the errors, the time spent by the executions and
+ * by the bookkeeping of dbping itself, and the number of executions in flight. The counters are updated without locks
+ * so the measured threads aren't serialized. The summaries of the labels are kept per thread and merged on demand.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class TaskMetrics {
+
+    /**
+     * The work done by dbping around the JDBC calls.
+     */
+    public enum Phase {
+        PROVIDER("provider selection"), //
+        ROW_CAPTURE("row capture"), //
+        LOG_WRITE("log write");
+
+        private final String label;
+
+        Phase(final String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // the number of active jobs once the last one has finished
+    private static final int FINISHED = -1;
+
+    private final String taskName;
+    private final LongAdder executions;
+    private final LongAdder errors;
+    private final LongAdder executionNanos;
+    private final LongAdder[] overheadNanos;
+    private final AtomicInteger inFlight;
+    private final AtomicInteger maxInFlight;
+    private final AtomicInteger activeJobs;
+    private final Queue<Map<String, LabelSummary>> summaryMapQueue;
+    private final ThreadLocal<Map<String, LabelSummary>> localSummaryMap;
+
+    /**
+     * Creates the counters of a task.
+     *
+     * @param taskName
+     *            the name of the task
+     * @param jobs
+     *            the number of jobs (threads) of the task, not counting those registered later with
+     *            {@link #jobStarted()}
+     */
+    public TaskMetrics(final String taskName, final int jobs) {
+        this.taskName = taskName;
+        this.executions = new LongAdder();
+        this.errors = new LongAdder();
+        this.executionNanos = new LongAdder();
+        this.overheadNanos = new LongAdder[Phase.values().length];
+        for (int i = 0; i < overheadNanos.length; i++) {
+            overheadNanos[i] = new LongAdder();
+        }
+        this.inFlight = new AtomicInteger();
+        this.maxInFlight = new AtomicInteger();
+        this.activeJobs = new AtomicInteger(jobs);
+        this.summaryMapQueue = new ConcurrentLinkedQueue<>();
+        this.localSummaryMap = ThreadLocal.withInitial(() -> {
+            final Map<String, LabelSummary> map = new HashMap<>();
+            summaryMapQueue.add(map);
+            return map;
+        });
+    }
+
+    /**
+     * Adds the time spent by dbping in one of its phases.
+     *
+     * @param phase
+     *            the phase
+     * @param nanos
+     *            the time spent, in nanoseconds
+     */
+    public void addOverhead(final Phase phase, final long nanos) {
+        overheadNanos[phase.ordinal()].add(nanos);
+    }
+
+    /**
+     * Registers the beginning of an execution.
+     *
+     * @return the value of {@link System#nanoTime()} at the beginning of the execution
+     */
+    public long begin() {
+        final int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        return System.nanoTime();
+    }
+
+    /**
+     * Registers the end of an execution.
+     *
+     * @param startNanos
+     *            the value returned by {@link #begin()}
+     * @param failed
+     *            <code>true</code> if the execution failed
+     */
+    public void end(final long startNanos, final boolean failed) {
+        executionNanos.add(System.nanoTime() - startNanos);
+        inFlight.decrementAndGet();
+        executions.increment();
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Returns the number of failed executions.
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Returns the time spent by the executions, in nanoseconds.
+     */
+    public long getExecutionNanos() {
+        return executionNanos.sum();
+    }
+
+    /**
+     * Returns the number of executions finished.
+     */
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Returns the time spent by dbping in a phase, in nanoseconds.
+     */
+    public long getOverheadNanos(final Phase phase) {
+        return overheadNanos[phase.ordinal()].sum();
+    }
+
+    /**
+     * Returns the time spent by dbping in all the phases, in nanoseconds.
+     */
+    public long getOverheadNanos() {
+        long total = 0;
+        for (final LongAdder adder : overheadNanos) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the summaries of the labels of the task, merging those of all its threads. It must be invoked once the
+     * jobs have finished.
+     *
+     * @return the summaries by label
+     */
+    public Map<String, LabelSummary> getSummaries() {
+
+        final Map<String, LabelSummary> result = new TreeMap<>();
+        for (final Map<String, LabelSummary> map : summaryMapQueue) {
+            for (final Map.Entry<String, LabelSummary> entry : map.entrySet()) {
+                result.computeIfAbsent(entry.getKey(), key -> new LabelSummary()).merge(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the summary of all the executions of the task. It must be invoked once the jobs have finished.
+     *
+     * @return the summary of the task
+     */
+    public LabelSummary getTaskSummary() {
+
+        final LabelSummary result = new LabelSummary();
+        for (final LabelSummary summary : getSummaries().values()) {
+            result.merge(summary);
+        }
+        return result;
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+
+    /**
+     * Returns the maximum number of executions in flight since the last invocation of this method.
+     */
+    public int getThenResetMaxInFlight() {
+        return maxInFlight.getAndSet(inFlight.get());
+    }
+
+    /**
+     * Adds a log entry to the summary of its label kept by the current thread.
+     *
+     * @param logEntry
+     *            the entry of an execution
+     */
+    public void record(final LogEntry logEntry) {
+        localSummaryMap.get().computeIfAbsent(logEntry.getSqlLabel(), key -> new LabelSummary()).add(logEntry);
+    }
+
+    /**
+     * Registers a job added to the task. No job can be added once the last running job has finished, since the task
+     * has already written its summary.
+     *
+     * @return <code>true</code> if the job was registered, <code>false</code> if the task has finished
+     */
+    public boolean jobStarted() {
+
+        while (true) {
+            final int jobs = activeJobs.get();
+            if (jobs == FINISHED) {
+                return false;
+            }
+            if (activeJobs.compareAndSet(jobs, jobs + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Registers the end of a job of the task.
+     *
+     * @return <code>true</code> if it was the last running job of the task
+     */
+    public boolean jobFinished() {
+
+        while (true) {
+            final int jobs = activeJobs.get();
+            final int next = jobs == 1 ? FINISHED : jobs - 1;
+            if (activeJobs.compareAndSet(jobs, next)) {
+                return next == FINISHED;
+            }
+        }
+    }
+}
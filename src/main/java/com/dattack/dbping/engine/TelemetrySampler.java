@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dattack.dbping.log.LogAnnotation;
+import com.dattack.dbping.log.LogWriter;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Samples the health of the client JVM and writes it to the logs of the running tasks as
+ * {@link LogAnnotation#TELEMETRY telemetry} annotations, so the analyzer can tell the latency outliers caused by the
+ * client from those caused by the database:
+ * <ul>
+ * <li>the garbage collection pauses, notified by the {@link GarbageCollectorMXBean}s;</li>
+ * <li>the stalls of the whole JVM (safepoints, swapping, CPU starvation): a thread that wakes up every few
+ * milliseconds reports the times it wakes up much later than expected;</li>
+ * <li>the process and system CPU load and the number of threads, sampled periodically.</li>
+ * </ul>
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+class TelemetrySampler implements Runnable, NotificationListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TelemetrySampler.class);
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long PAUSE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final List<LogWriter> logWriterList;
+    private final long sampleMillis;
+    private final long jvmStartTime;
+
+    private static String formatLoad(final double load) {
+        return load < 0 ? "-1" : String.format(Locale.ENGLISH, "%.1f", load * 100);
+    }
+
+    /**
+     * Creates a new sampler.
+     *
+     * @param sampleMillis
+     *            the period of time between CPU samples
+     */
+    TelemetrySampler(final long sampleMillis) {
+        this.logWriterList = new CopyOnWriteArrayList<>();
+        this.sampleMillis = sampleMillis;
+        this.jvmStartTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    void add(final LogWriter logWriter) {
+        logWriterList.add(logWriter);
+    }
+
+    @Override
+    public void handleNotification(final Notification notification, final Object handback) {
+
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+
+        final GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                .from((CompositeData) notification.getUserData());
+        if (info.getGcName().toLowerCase(Locale.ENGLISH).contains("concurrent")) {
+            // the concurrent cycles don't stop the application threads
+            return;
+        }
+        write(new LogAnnotation(LogAnnotation.TELEMETRY, jvmStartTime + info.getGcInfo().getStartTime(), "gc",
+                Long.toString(info.getGcInfo().getDuration()), info.getGcName(), info.getGcCause()));
+    }
+
+    @Override
+    public void run() {
+
+        final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final long sampleNanos = TimeUnit.MILLISECONDS.toNanos(sampleMillis);
+
+        long nextSample = System.nanoTime() + sampleNanos;
+        while (!Thread.currentThread().isInterrupted()) {
+
+            final long expected = System.nanoTime() + TICK_NANOS;
+            LockSupport.parkNanos(TICK_NANOS);
+            final long now = System.nanoTime();
+
+            final long delay = now - expected;
+            if (delay >= PAUSE_THRESHOLD_NANOS) {
+                write(new LogAnnotation(LogAnnotation.TELEMETRY,
+                        System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(delay), "pause",
+                        Long.toString(TimeUnit.NANOSECONDS.toMillis(delay))));
+            }
+
+            if (now >= nextSample) {
+                nextSample = now + sampleNanos;
+                double processLoad = -1;
+                double systemLoad = -1;
+                if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+                    processLoad = ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuLoad();
+                    systemLoad = ((com.sun.management.OperatingSystemMXBean) osBean).getSystemCpuLoad();
+                }
+                write(new LogAnnotation(LogAnnotation.TELEMETRY, System.currentTimeMillis(), "cpu",
+                        formatLoad(processLoad), formatLoad(systemLoad),
+                        Integer.toString(threadBean.getThreadCount())));
+            }
+        }
+    }
+
+    /**
+     * Subscribes to the notifications of the garbage collectors and starts the sampling thread.
+     */
+    void start() {
+
+        for (final GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                ((NotificationEmitter) gcBean).addNotificationListener(this, null, null);
+            } else {
+                LOGGER.warn("The garbage collector '{}' doesn't send notifications", gcBean.getName());
+            }
+        }
+
+        final Thread thread = new Thread(this, "dbping-telemetry");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void write(final LogAnnotation annotation) {
+        for (final LogWriter logWriter : logWriterList) {
+            logWriter.write(annotation);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.beans.SqlCommandBean;
+
+/**
+ * The distribution of the time that a job waits between two executions. A fixed pause makes the threads started at
+ * the same time run in lock-step waves, so the pause can be drawn from a distribution instead. The distributions are
+ * written as <code>name(arguments)</code>, with the times in milliseconds:
+ * <ul>
+ * <li><code>100</code> or <code>fixed(100)</code>: always the same time.</li>
+ * <li><code>exponential(100)</code>: exponential with the given mean, the arrivals of a Poisson process.</li>
+ * <li><code>uniform(50,150)</code>: uniform between the minimum and the maximum.</li>
+ * <li><code>normal(100,20)</code>: normal with the given mean and standard deviation, truncated at zero.</li>
+ * <li><code>empirical(file)</code>: the values of a file, one per line with an optional weight
+ * (<code>value[,weight]</code>). Empty lines and lines starting with '#' are ignored.</li>
+ * </ul>
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+abstract class ThinkTime {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Creates a distribution that always returns the same time.
+     *
+     * @param millis
+     *            the time in milliseconds
+     * @return the distribution
+     */
+    static ThinkTime fixed(final double millis) {
+
+        final long nanos = toNanos(millis);
+        return new ThinkTime() {
+
+            @Override
+            long nextNanos() {
+                return nanos;
+            }
+        };
+    }
+
+    private static ThinkTime exponential(final double mean) {
+
+        return new ThinkTime() {
+
+            @Override
+            long nextNanos() {
+                return toNanos(-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+            }
+        };
+    }
+
+    private static ThinkTime uniform(final double min, final double max) {
+
+        if (max < min) {
+            throw new IllegalArgumentException(String.format("Invalid uniform range: %s > %s", min, max));
+        }
+        return new ThinkTime() {
+
+            @Override
+            long nextNanos() {
+                return toNanos(min + (max - min) * ThreadLocalRandom.current().nextDouble());
+            }
+        };
+    }
+
+    private static ThinkTime normal(final double mean, final double deviation) {
+
+        return new ThinkTime() {
+
+            @Override
+            long nextNanos() {
+                return toNanos(mean + deviation * ThreadLocalRandom.current().nextGaussian());
+            }
+        };
+    }
+
+    private static ThinkTime empirical(final String filename) {
+
+        final List<double[]> valueList = new ArrayList<double[]>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                final String[] tokens = line.split("[,;\\s]+");
+                final double weight = tokens.length > 1 ? Double.parseDouble(tokens[1]) : 1;
+                if (weight > 0) {
+                    valueList.add(new double[] { Double.parseDouble(tokens[0]), weight });
+                }
+            }
+        } catch (final IOException e) {
+            throw new IllegalArgumentException(
+                    String.format("Unable to read the think times of '%s': %s", filename, e.getMessage()), e);
+        }
+
+        if (valueList.isEmpty()) {
+            throw new IllegalArgumentException(String.format("No think times found in '%s'", filename));
+        }
+
+        // cumulative weights, searched with a random number between 0 and the total weight
+        final long[] values = new long[valueList.size()];
+        final double[] cumulative = new double[valueList.size()];
+        double total = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = toNanos(valueList.get(i)[0]);
+            total += valueList.get(i)[1];
+            cumulative[i] = total;
+        }
+        final double totalWeight = total;
+
+        return new ThinkTime() {
+
+            @Override
+            long nextNanos() {
+                final int index = Arrays.binarySearch(cumulative,
+                        ThreadLocalRandom.current().nextDouble() * totalWeight);
+                return values[Math.min(values.length - 1, index < 0 ? -index - 1 : index + 1)];
+            }
+        };
+    }
+
+    /**
+     * Checks the think times of a task and its commands.
+     *
+     * @param pingTaskBean
+     *            the task
+     * @throws IllegalArgumentException
+     *             if any of the think times isn't valid
+     */
+    static void check(final PingTaskBean pingTaskBean) {
+
+        if (pingTaskBean.getThinkTime() != null) {
+            parse(pingTaskBean.getThinkTime());
+        }
+        if (pingTaskBean.getSqlStatementList() != null) {
+            for (final SqlCommandBean command : pingTaskBean.getSqlStatementList()) {
+                if (command.getThinkTime() != null) {
+                    parse(command.getThinkTime());
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the definition of a distribution.
+     *
+     * @param text
+     *            the definition (e.g. <code>exponential(100)</code>)
+     * @return the distribution
+     * @throws IllegalArgumentException
+     *             if the definition isn't valid
+     */
+    static ThinkTime parse(final String text) {
+
+        final String definition = StringUtils.trimToEmpty(text);
+        final int open = definition.indexOf('(');
+        if (open < 0) {
+            return fixed(parseMillis(definition, definition));
+        }
+
+        if (!definition.endsWith(")")) {
+            throw new IllegalArgumentException(String.format("Invalid think time: %s", text));
+        }
+
+        final String name = definition.substring(0, open).trim().toLowerCase(Locale.ENGLISH);
+        final String arguments = definition.substring(open + 1, definition.length() - 1).trim();
+        if ("empirical".equals(name)) {
+            return empirical(arguments);
+        }
+
+        final String[] tokens = arguments.split("\\s*,\\s*");
+        final double[] values = new double[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            values[i] = parseMillis(tokens[i], text);
+        }
+
+        switch (name) {
+        case "fixed":
+            checkArguments(text, values, 1);
+            return fixed(values[0]);
+        case "exponential":
+            checkArguments(text, values, 1);
+            return exponential(values[0]);
+        case "uniform":
+            checkArguments(text, values, 2);
+            return uniform(values[0], values[1]);
+        case "normal":
+            checkArguments(text, values, 2);
+            return normal(values[0], values[1]);
+        default:
+            throw new IllegalArgumentException(String.format("Unknown think time distribution: %s", text));
+        }
+    }
+
+    private static void checkArguments(final String text, final double[] values, final int expected) {
+        if (values.length != expected) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid think time: %s (expected %d argument(s))", text, expected));
+        }
+    }
+
+    private static double parseMillis(final String value, final String text) {
+
+        try {
+            final double millis = Double.parseDouble(value);
+            if (millis < 0 || Double.isNaN(millis) || Double.isInfinite(millis)) {
+                throw new IllegalArgumentException(String.format("Invalid think time: %s", text));
+            }
+            return millis;
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid think time: %s", text), e);
+        }
+    }
+
+    private static long toNanos(final double millis) {
+        return Math.max(0, Math.round(millis * NANOS_PER_MILLI));
+    }
+
+    /**
+     * Returns the next think time.
+     *
+     * @return the time to wait, in nanoseconds
+     */
+    abstract long nextNanos();
+}
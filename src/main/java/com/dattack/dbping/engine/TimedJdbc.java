@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+
+/**
+ * Wraps the JDBC objects of an execution with dynamic proxies that add the time of each driver call to its
+ * {@link JdbcPhase} in the log entry being built. Only the calls that can reach the server or the pool are timed;
+ * the getters of the result set are delegated as they are.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class TimedJdbc {
+
+    private TimedJdbc() {
+        // static class
+    }
+
+    /**
+     * Wraps a connection so that it and the statements and result sets created from it time their driver calls.
+     *
+     * @param connection
+     *            the connection to wrap
+     * @param logEntryBuilder
+     *            the builder of the entry of the execution
+     * @return the instrumented connection
+     */
+    static Connection wrap(final Connection connection, final LogEntryBuilder logEntryBuilder) {
+        return newProxy(Connection.class, new ConnectionHandler(connection, logEntryBuilder));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newProxy(final Class<T> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(TimedJdbc.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    /**
+     * Delegates the calls to the wrapped object, timing the ones that belong to a phase.
+     */
+    private abstract static class TimedHandler implements InvocationHandler {
+
+        private final Object target;
+        final LogEntryBuilder logEntryBuilder;
+
+        TimedHandler(final Object target, final LogEntryBuilder logEntryBuilder) {
+            this.target = target;
+            this.logEntryBuilder = logEntryBuilder;
+        }
+
+        /**
+         * Returns the phase of a method.
+         *
+         * @return the phase or <code>null</code> if the method isn't timed
+         */
+        abstract JdbcPhase getPhase(Method method);
+
+        /**
+         * Wraps the result of a method, when it's another JDBC object that must be instrumented.
+         */
+        Object wrapResult(final Object proxy, final Method method, final Object result) {
+            return result;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                break;
+            }
+
+            final JdbcPhase phase = getPhase(method);
+            final long start = phase == null ? 0 : System.nanoTime();
+            try {
+                final Object result = method.invoke(target, args);
+                return result == null ? null : wrapResult(proxy, method, result);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (phase != null) {
+                    logEntryBuilder.addPhaseTime(phase, System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    private static final class ConnectionHandler extends TimedHandler {
+
+        ConnectionHandler(final Connection target, final LogEntryBuilder logEntryBuilder) {
+            super(target, logEntryBuilder);
+        }
+
+        @Override
+        JdbcPhase getPhase(final Method method) {
+            switch (method.getName()) {
+            case "createStatement":
+            case "prepareStatement":
+            case "prepareCall":
+                return JdbcPhase.PREPARE;
+            case "close":
+                return JdbcPhase.CLOSE;
+            default:
+                return null;
+            }
+        }
+
+        @Override
+        Object wrapResult(final Object proxy, final Method method, final Object result) {
+            if (result instanceof Statement) {
+                return newProxy(method.getReturnType(),
+                        new StatementHandler((Statement) result, (Connection) proxy, logEntryBuilder));
+            }
+            return result;
+        }
+    }
+
+    private static final class StatementHandler extends TimedHandler {
+
+        private final Connection connection;
+
+        StatementHandler(final Statement target, final Connection connection,
+                final LogEntryBuilder logEntryBuilder) {
+            super(target, logEntryBuilder);
+            this.connection = connection;
+        }
+
+        @Override
+        JdbcPhase getPhase(final Method method) {
+            if (method.getName().startsWith("execute") || "getResultSet".equals(method.getName())
+                    || "getMoreResults".equals(method.getName())) {
+                return JdbcPhase.EXECUTE;
+            }
+            if ("close".equals(method.getName())) {
+                return JdbcPhase.CLOSE;
+            }
+            return null;
+        }
+
+        @Override
+        Object wrapResult(final Object proxy, final Method method, final Object result) {
+            if (result instanceof ResultSet) {
+                return newProxy(ResultSet.class, new ResultSetHandler((ResultSet) result, (Statement) proxy,
+                        logEntryBuilder));
+            }
+            if ("getConnection".equals(method.getName())) {
+                return connection;
+            }
+            return result;
+        }
+    }
+
+    private static final class ResultSetHandler extends TimedHandler {
+
+        private final Statement statement;
+        private boolean fetched;
+
+        ResultSetHandler(final ResultSet target, final Statement statement, final LogEntryBuilder logEntryBuilder) {
+            super(target, logEntryBuilder);
+            this.statement = statement;
+            this.fetched = false;
+        }
+
+        @Override
+        JdbcPhase getPhase(final Method method) {
+            switch (method.getName()) {
+            case "next":
+                if (fetched) {
+                    return JdbcPhase.FETCH;
+                }
+                fetched = true;
+                return JdbcPhase.FIRST_FETCH;
+            case "close":
+                return JdbcPhase.CLOSE;
+            default:
+                return null;
+            }
+        }
+
+        @Override
+        Object wrapResult(final Object proxy, final Method method, final Object result) {
+            if ("getStatement".equals(method.getName())) {
+                return statement;
+            }
+            return result;
+        }
+    }
+}
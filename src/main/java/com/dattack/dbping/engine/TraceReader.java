@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a SQL trace line by line. Each line contains the time of the statement, the identifier of the session that
+ * executed it and the SQL text, separated by tabs: <code>timestamp&lt;TAB&gt;session&lt;TAB&gt;sql</code>. The time
+ * is the number of milliseconds since the epoch or a date with the format <code>yyyy-MM-dd HH:mm:ss[.SSS]</code>.
+ * Empty lines and lines starting with '#' are ignored, as well as the malformed ones. The statements are expected in
+ * time order.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class TraceReader implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceReader.class);
+
+    private static final String DEFAULT_LABEL = "sql";
+
+    private final BufferedReader reader;
+    private final SimpleDateFormat millisFormat;
+    private final SimpleDateFormat secondsFormat;
+    private long lineNumber;
+
+    /**
+     * A statement of the trace.
+     */
+    static final class TraceStatement {
+
+        private final long lineNumber;
+        private final long time;
+        private final String session;
+        private final String sql;
+
+        TraceStatement(final long lineNumber, final long time, final String session, final String sql) {
+            this.lineNumber = lineNumber;
+            this.time = time;
+            this.session = session;
+            this.sql = sql;
+        }
+
+        /**
+         * Returns the label of the statement: its first keyword in lower case (e.g. <code>select</code>).
+         */
+        String getLabel() {
+
+            int start = 0;
+            while (start < sql.length() && !Character.isLetter(sql.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+                end++;
+            }
+            return end > start ? sql.substring(start, end).toLowerCase(Locale.ENGLISH) : DEFAULT_LABEL;
+        }
+
+        long getLineNumber() {
+            return lineNumber;
+        }
+
+        String getSession() {
+            return session;
+        }
+
+        String getSql() {
+            return sql;
+        }
+
+        long getTime() {
+            return time;
+        }
+    }
+
+    TraceReader(final File file) throws IOException {
+        this.reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+        this.millisFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        this.secondsFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        this.lineNumber = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Returns the next statement of the trace.
+     *
+     * @return the statement or <code>null</code> at the end of the trace
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    TraceStatement next() throws IOException {
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            final String[] tokens = line.split("\t", 3);
+            if (tokens.length < 3 || tokens[2].trim().isEmpty()) {
+                LOGGER.warn("Malformed trace line {}: {}", lineNumber, line);
+                continue;
+            }
+
+            try {
+                return new TraceStatement(lineNumber, parseTime(tokens[0].trim()), tokens[1].trim(),
+                        tokens[2].trim());
+            } catch (final ParseException | NumberFormatException e) {
+                LOGGER.warn("Invalid time at trace line {}: {}", lineNumber, tokens[0]);
+            }
+        }
+        return null;
+    }
+
+    private long parseTime(final String text) throws ParseException {
+
+        boolean numeric = !text.isEmpty();
+        for (int i = 0; i < text.length() && numeric; i++) {
+            numeric = Character.isDigit(text.charAt(i));
+        }
+        if (numeric) {
+            return Long.parseLong(text);
+        }
+        return (text.indexOf('.') < 0 ? secondsFormat : millisFormat).parse(text).getTime();
+    }
+}
@@ -0,0 +1,684 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dattack.dbping.engine.LogEntry;
+import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+import com.dattack.formats.csv.CSVConfiguration;
+
+/**
+ * Specialized reader for the log files written by {@link CSVFileLogWriter}. The fields are parsed directly from a
+ * byte buffer: the timestamp is decoded arithmetically, the task name, thread name and label are resolved through a
+ * {@link SymbolTable} and the comment lines (dumped rows, properties) are skipped without being decoded, except the
+ * header that lists the {@link LogColumn columns} of the log and the {@link LogAnnotation annotations}, when a
+ * {@link LogAnnotationListener} is set. Timestamps that don't match the layout
+ * <code>yyyy-MM-dd HH:mm:ss[.SSS]</code> are parsed with the configured date format.
+ * <p>
+ * In <i>follow</i> mode, a line without terminator at the end of the file is considered incomplete: it is kept in the
+ * buffer until the writer completes it and the next invocation of {@link #next()} continues from that point.
+ * <p>
+ * The reading can start at any line with {@link #seek(long, LogColumn[])} and stop before a given offset with
+ * {@link #setLimit(long)}, as done by the analyzer when a {@link LogIndex} is available. The header may be before the
+ * new position, so the layout of the lines at that position, as returned by {@link #getColumns()} when the reader was
+ * there, must be given.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public class CSVFileFastLogReader implements LogReader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CSVFileFastLogReader.class);
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte COMMENT = '#';
+    private static final byte SEPARATOR = '\t';
+    private static final byte QUOTE = '"';
+    private static final byte EOL = '\n';
+    private static final byte CR = '\r';
+    private static final byte ANNOTATION = LogAnnotation.PREFIX;
+    private static final byte[] HEADER_PREFIX = LogColumn.DATE.getHeader().getBytes(StandardCharsets.US_ASCII);
+
+    private static final int MILLIS_PER_SECOND = 1000;
+    private static final int SECONDS_PER_MINUTE = 60;
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final long MILLIS_PER_DAY = 24L * MINUTES_PER_HOUR * SECONDS_PER_MINUTE * MILLIS_PER_SECOND;
+    // the maximum offset of a time zone, 18 hours
+    private static final long MAX_OFFSET_MILLIS = 18L * MINUTES_PER_HOUR * SECONDS_PER_MINUTE * MILLIS_PER_SECOND;
+
+    private final FileChannel channel;
+    private final CSVConfiguration configuration;
+    private final Charset charset;
+    private final SymbolTable symbolTable;
+    private final LogEntryBuilder builder;
+    private final ZoneRules zoneRules;
+    private final Calendar calendar;
+    private final boolean follow;
+    private LogAnnotationListener annotationListener;
+
+    // the layout of the lines, taken from the last header read
+    private LogColumn[] columns;
+    private int requiredLength;
+
+    private byte[] data;
+    private ByteBuffer byteBuffer;
+    private long bufferOffset;
+    private long endOffset;
+    private int position;
+    private int limit;
+    private boolean skipping;
+
+    // the current field
+    private int cursor;
+    private int lineEnd;
+    private int fieldStart;
+    private int fieldEnd;
+    private boolean malformed;
+
+    // the last day decoded: its midnight as if it were UTC and its offset, unless the offset changes during the day
+    private int cachedDayKey;
+    private long cachedMidnight;
+    private long cachedOffset;
+    private boolean cachedFixedOffset;
+
+    private static boolean isDigit(final byte value) {
+        return value >= '0' && value <= '9';
+    }
+
+    public CSVFileFastLogReader(final File dataFile) throws IOException {
+        this(dataFile, false);
+    }
+
+    public CSVFileFastLogReader(final File dataFile, final boolean follow) throws IOException {
+        this(dataFile, DEFAULT_BUFFER_SIZE, follow);
+    }
+
+    public CSVFileFastLogReader(final File dataFile, final int bufferSize, final boolean follow) throws IOException {
+        this.channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ);
+        this.configuration = new CSVConfigurationFactory().create();
+        this.charset = Charset.defaultCharset();
+        this.symbolTable = new SymbolTable(charset);
+        this.builder = new LogEntryBuilder();
+        final TimeZone timeZone = TimeZone.getDefault();
+        this.zoneRules = timeZone.toZoneId().getRules();
+        this.calendar = Calendar.getInstance(timeZone);
+        this.data = new byte[Math.max(bufferSize, 1)];
+        this.byteBuffer = ByteBuffer.wrap(data);
+        this.position = 0;
+        this.limit = 0;
+        this.bufferOffset = 0;
+        this.endOffset = Long.MAX_VALUE;
+        this.cachedDayKey = -1;
+        this.follow = follow;
+        setColumns(LogColumn.values());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads more data from the file, compacting the buffer first and growing it when a single line doesn't fit.
+     *
+     * @return <code>false</code> when the end of file has been reached
+     */
+    private boolean fill() throws IOException {
+
+        if (position > 0) {
+            System.arraycopy(data, position, data, 0, limit - position);
+            bufferOffset += position;
+            limit -= position;
+            position = 0;
+        } else if (limit == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+            byteBuffer = ByteBuffer.wrap(data);
+        }
+
+        byteBuffer.limit(data.length);
+        byteBuffer.position(limit);
+        final int read = channel.read(byteBuffer);
+        if (read <= 0) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Returns the columns of the lines at the current position, taken from the last header read.
+     *
+     * @return the columns, with <code>null</code> for the unknown ones
+     */
+    public synchronized LogColumn[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * Returns the offset in the file of the first byte that hasn't been consumed yet. This offset is always the
+     * beginning of a line and can be used to resume the reading with {@link #seek(long, LogColumn[])}.
+     *
+     * @return the offset of the next line
+     */
+    public synchronized long getPosition() {
+        return bufferOffset + position;
+    }
+
+    private int indexOf(final byte value, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String decode(final int start, final int end) {
+        return new String(data, start, end - start, charset);
+    }
+
+    @Override
+    public synchronized LogEntry next() throws IOException {
+
+        while (true) {
+
+            final int eol = nextLineEnd();
+            if (eol < 0 || bufferOffset + position >= endOffset) {
+                return null;
+            }
+
+            final int start = position;
+            int end = eol;
+            position = Math.min(eol + 1, limit);
+
+            if (end > start && data[end - 1] == CR) {
+                end--;
+            }
+
+            if (end > start) {
+                final LogEntry logEntry = parseLine(start, end);
+                if (logEntry != null) {
+                    return logEntry;
+                }
+            }
+        }
+    }
+
+    /**
+     * Locates the end of the next data line, skipping the comment lines. The returned index is relative to the
+     * current buffer and the line starts at <code>position</code>.
+     *
+     * @return the index of the end of the line or -1 when there are no more lines
+     */
+    private int nextLineEnd() throws IOException {
+
+        while (true) {
+
+            if (position >= limit && !fill()) {
+                return -1;
+            }
+
+            if (skipping || data[position] == COMMENT) {
+                final int eol = indexOf(EOL, position, limit);
+                if (eol < 0) {
+                    if (!skipping && position > 0 && fill()) {
+                        // reads the rest of the comment, it may be a header
+                        continue;
+                    }
+                    // the comment continues in the next block: discard the whole buffer
+                    skipping = true;
+                    position = limit;
+                } else {
+                    if (!skipping) {
+                        parseComment(position, eol);
+                    }
+                    skipping = false;
+                    position = eol + 1;
+                }
+                continue;
+            }
+
+            int scan = position;
+            while (true) {
+                final int eol = indexOf(EOL, scan, limit);
+                if (eol >= 0) {
+                    return eol;
+                }
+
+                scan = limit - position;
+                if (!fill()) {
+                    // last line without line terminator
+                    return follow ? -1 : limit;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the reader to the given offset of the file, that must be the beginning of a line.
+     *
+     * @param offset
+     *            the new position
+     * @param layout
+     *            the columns of the lines at the new position
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public synchronized void seek(final long offset, final LogColumn[] layout) throws IOException {
+        setColumns(layout.clone());
+        channel.position(offset);
+        bufferOffset = offset;
+        position = 0;
+        limit = 0;
+        skipping = false;
+    }
+
+    /**
+     * Sets the listener of the annotations found in the log.
+     *
+     * @param listener
+     *            the listener or <code>null</code> to ignore the annotations
+     */
+    public synchronized void setAnnotationListener(final LogAnnotationListener listener) {
+        annotationListener = listener;
+    }
+
+    private void setColumns(final LogColumn[] value) {
+        columns = value;
+        requiredLength = LogColumn.requiredLength(value);
+    }
+
+    /**
+     * Sets the offset at which the reading ends: the lines starting at or after this offset are not returned.
+     *
+     * @param offset
+     *            the end offset or <code>Long.MAX_VALUE</code> to read until the end of the file
+     */
+    public synchronized void setLimit(final long offset) {
+        endOffset = offset;
+    }
+
+    private boolean nextField() {
+
+        if (cursor > lineEnd) {
+            malformed = true;
+            return false;
+        }
+
+        fieldStart = cursor;
+        final int separator = indexOf(SEPARATOR, cursor, lineEnd);
+        fieldEnd = separator < 0 ? lineEnd : separator;
+        cursor = fieldEnd + 1;
+
+        if (fieldEnd - fieldStart >= 2 && data[fieldStart] == QUOTE && data[fieldEnd - 1] == QUOTE) {
+            fieldStart++;
+            fieldEnd--;
+        }
+        return true;
+    }
+
+    private int nextInt() {
+
+        if (!nextField() || fieldStart == fieldEnd) {
+            return 0;
+        }
+
+        final long value = nextLongValue();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            malformed = true;
+            return 0;
+        }
+        return (int) value;
+    }
+
+    private long nextLong() {
+
+        if (!nextField() || fieldStart == fieldEnd) {
+            malformed = true;
+            return 0;
+        }
+        return nextLongValue();
+    }
+
+    // parses the current field
+    private long nextLongValue() {
+
+        int index = fieldStart;
+        boolean negative = false;
+        if (data[index] == '-') {
+            negative = true;
+            index++;
+        }
+
+        if (index == fieldEnd) {
+            malformed = true;
+            return 0;
+        }
+
+        long value = 0;
+        for (; index < fieldEnd; index++) {
+            final byte digit = data[index];
+            if (!isDigit(digit)) {
+                malformed = true;
+                return 0;
+            }
+            value = value * 10 + (digit - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private long parseChecksum(final String text) {
+        try {
+            return LogColumn.parseChecksum(text);
+        } catch (final NumberFormatException e) {
+            malformed = true;
+            return 0;
+        }
+    }
+
+    // returns -1 when the field is empty
+    private long nextOptionalLong() {
+        if (!nextField() || fieldStart == fieldEnd) {
+            return -1;
+        }
+        return nextLongValue();
+    }
+
+    private String nextOptionalSymbol() {
+        if (!nextField() || fieldStart == fieldEnd) {
+            return null;
+        }
+        return symbolTable.intern(data, fieldStart, fieldEnd - fieldStart);
+    }
+
+    private String nextSymbol() {
+        if (!nextField()) {
+            return null;
+        }
+        return symbolTable.intern(data, fieldStart, fieldEnd - fieldStart);
+    }
+
+    private long nextTimestamp() {
+
+        if (!nextField()) {
+            return 0;
+        }
+
+        final long value = parseTimestamp(fieldStart, fieldEnd);
+        if (value != Long.MIN_VALUE) {
+            return value;
+        }
+
+        try {
+            return configuration.getDateFormat().parse(decode(fieldStart, fieldEnd)).getTime();
+        } catch (final ParseException e) {
+            LOGGER.warn(e.getMessage());
+            malformed = true;
+            return 0;
+        }
+    }
+
+    /**
+     * Decodes an annotation and sends it to the listener.
+     *
+     * @param start
+     *            the index of the annotation mark
+     * @param end
+     *            the end of the line
+     */
+    private void parseAnnotation(final int start, final int end) {
+
+        cursor = start + 1;
+        lineEnd = end;
+        malformed = false;
+
+        if (!nextField()) {
+            return;
+        }
+        // the opening quote of the type, if any, was skipped with the comment mark
+        int typeEnd = fieldEnd;
+        if (typeEnd > fieldStart && data[typeEnd - 1] == QUOTE) {
+            typeEnd--;
+        }
+        final String type = decode(fieldStart, typeEnd);
+        final long time = nextTimestamp();
+        final List<String> values = new ArrayList<>();
+        while (cursor <= lineEnd && nextField()) {
+            values.add(decode(fieldStart, fieldEnd));
+        }
+
+        if (malformed) {
+            LOGGER.warn("Unable to parse the log annotation: {}", decode(start, end));
+            return;
+        }
+        annotationListener.annotation(new LogAnnotation(type, time, values));
+    }
+
+    /**
+     * Checks if a comment line is the header of the log or an annotation. The columns of a header are used for the
+     * next lines.
+     */
+    private void parseComment(final int start, final int end) {
+
+        int index = start + 1;
+        while (index < end && (data[index] == ' ' || data[index] == SEPARATOR || data[index] == QUOTE)) {
+            index++;
+        }
+
+        if (index < end && data[index] == ANNOTATION) {
+            if (annotationListener != null) {
+                parseAnnotation(index, end);
+            }
+            return;
+        }
+
+        if (end - index < HEADER_PREFIX.length) {
+            return;
+        }
+        for (int i = 0; i < HEADER_PREFIX.length; i++) {
+            if (data[index + i] != HEADER_PREFIX[i]) {
+                return;
+            }
+        }
+
+        final LogColumn[] header = LogColumn.parseHeader(decode(start + 1, end));
+        if (header != null) {
+            setColumns(header);
+        }
+    }
+
+    private LogEntry parseLine(final int start, final int end) {
+
+        cursor = start;
+        lineEnd = end;
+        malformed = false;
+
+        builder.init();
+        int index = 0;
+        for (; index < columns.length && cursor <= lineEnd; index++) {
+
+            if (columns[index] == null) {
+                nextField();
+                continue;
+            }
+
+            switch (columns[index]) {
+            case DATE:
+                builder.withEventTime(nextTimestamp());
+                break;
+            case TASK_NAME:
+                builder.withTaskName(nextSymbol());
+                break;
+            case THREAD_NAME:
+                builder.withThreadName(nextSymbol());
+                break;
+            case ITERATION:
+                builder.withIteration(nextLong());
+                break;
+            case SQL_LABEL:
+                builder.withSqlLabel(nextSymbol());
+                break;
+            case ROWS:
+                builder.withRows(nextLong());
+                break;
+            case CONNECTION_TIME:
+                builder.withConnectionTime(nextLong());
+                break;
+            case FIRST_ROW_TIME:
+                builder.withFirstRowTime(nextLong());
+                break;
+            case TOTAL_TIME:
+                builder.withTotalTime(nextLong());
+                break;
+            case SQL_STATE:
+                builder.withSqlState(nextOptionalSymbol());
+                break;
+            case ERROR_CODE:
+                builder.withErrorCode(nextInt());
+                break;
+            case ERROR_CLASS:
+                builder.withErrorClass(nextOptionalSymbol());
+                break;
+            case SCHEDULE_LAG:
+                builder.withScheduleLag(nextOptionalLong());
+                break;
+            case CHECKSUM:
+                if (nextField() && fieldStart < fieldEnd) {
+                    builder.withChecksum(parseChecksum(decode(fieldStart, fieldEnd)));
+                }
+                break;
+            case ACQUIRE_TIME:
+            case PREPARE_TIME:
+            case EXECUTE_TIME:
+            case FIRST_FETCH_TIME:
+            case FETCH_TIME:
+            case CLOSE_TIME:
+                builder.withPhaseTime(columns[index].getPhase(), nextOptionalLong());
+                break;
+            default:
+                // the message and the unknown columns are not needed
+                nextField();
+                break;
+            }
+        }
+
+        if (malformed || index < requiredLength) {
+            LOGGER.warn("Unable to parse the log line: {}", decode(start, end));
+            return null;
+        }
+
+        return builder.build();
+    }
+
+    private int parseNumber(final int from, final int length) {
+
+        int value = 0;
+        for (int i = from; i < from + length; i++) {
+            if (!isDigit(data[i])) {
+                return -1;
+            }
+            value = value * 10 + (data[i] - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Decodes a timestamp with the layout <code>yyyy-MM-dd HH:mm:ss[.SSS]</code> in the default time zone.
+     *
+     * @return the timestamp in milliseconds or <code>Long.MIN_VALUE</code> if the text doesn't match the layout
+     */
+    private long parseTimestamp(final int from, final int to) {
+
+        final int baseLength = 19; // yyyy-MM-dd HH:mm:ss
+        if (to - from < baseLength || data[from + 4] != '-' || data[from + 7] != '-' || data[from + 13] != ':'
+                || data[from + 16] != ':') {
+            return Long.MIN_VALUE;
+        }
+
+        final int year = parseNumber(from, 4);
+        final int month = parseNumber(from + 5, 2);
+        final int day = parseNumber(from + 8, 2);
+        final int hour = parseNumber(from + 11, 2);
+        final int minute = parseNumber(from + 14, 2);
+        final int second = parseNumber(from + 17, 2);
+
+        int millis = 0;
+        if (to - from > baseLength) {
+            final int fractionLength = to - from - baseLength - 1;
+            final byte dot = data[from + baseLength];
+            if ((dot != '.' && dot != ',') || fractionLength < 1 || fractionLength > 3) {
+                return Long.MIN_VALUE;
+            }
+            millis = parseNumber(from + baseLength + 1, fractionLength);
+        }
+
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23 || minute < 0
+                || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return Long.MIN_VALUE;
+        }
+
+        final int dayKey = (year * 100 + month) * 100 + day;
+        if (dayKey != cachedDayKey) {
+            try {
+                cachedMidnight = LocalDate.of(year, month, day).toEpochDay() * MILLIS_PER_DAY;
+            } catch (@SuppressWarnings("unused") final DateTimeException e) {
+                return Long.MIN_VALUE;
+            }
+            // the instants of a local day are at most the maximum offset away from its midnight in UTC
+            final Instant dayStart = Instant.ofEpochMilli(cachedMidnight - MAX_OFFSET_MILLIS);
+            final ZoneOffsetTransition transition = zoneRules.nextTransition(dayStart);
+            cachedOffset = zoneRules.getOffset(dayStart).getTotalSeconds() * (long) MILLIS_PER_SECOND;
+            cachedFixedOffset = transition == null
+                    || transition.toEpochSecond() * MILLIS_PER_SECOND >= cachedMidnight + MILLIS_PER_DAY
+                            + MAX_OFFSET_MILLIS;
+            cachedDayKey = dayKey;
+        }
+
+        if (!cachedFixedOffset) {
+            // the offset changes during this day: the calendar resolves the skipped and the repeated times
+            calendar.clear();
+            calendar.set(year, month - 1, day, hour, minute, second);
+            calendar.set(Calendar.MILLISECOND, millis);
+            return calendar.getTimeInMillis();
+        }
+
+        return cachedMidnight - cachedOffset
+                + ((hour * MINUTES_PER_HOUR + minute) * SECONDS_PER_MINUTE + second) * (long) MILLIS_PER_SECOND
+                + millis;
+    }
+}
@@ -15,10 +15,16 @@
  */
 package com.dattack.dbping.log;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.text.ParseException;
 
+import org.apache.commons.lang.StringUtils;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,10 +44,40 @@ public class CSVFileLogReader implements LogReader {
 
     private final CSVReader reader;
     private final CSVConfiguration configuration;
+    private final LogColumn[] columns;
+
+    private static String get(final CSVObject rawObject, final int index) {
+        try {
+            return StringUtils.trimToNull(rawObject.get(index));
+        } catch (final IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the leading comments of the file looking for the header with the columns of the log.
+     */
+    private static LogColumn[] readColumns(final File dataFile) {
+
+        try (BufferedReader input = new BufferedReader(
+                new InputStreamReader(new FileInputStream(dataFile), Charset.defaultCharset()))) {
+            String line;
+            while ((line = input.readLine()) != null && line.startsWith("#")) {
+                final LogColumn[] header = LogColumn.parseHeader(line.substring(1));
+                if (header != null) {
+                    return header;
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.warn(e.getMessage());
+        }
+        return LogColumn.values();
+    }
 
     public CSVFileLogReader(final File dataFile) {
         configuration = new CSVConfigurationFactory().create();
         reader = new CSVReader(configuration, dataFile);
+        columns = readColumns(dataFile);
     }
 
     @Override
@@ -59,25 +95,90 @@ public class CSVFileLogReader implements LogReader {
                 return null;
             }
 
-            int index = 0;
-
             try {
-
-                return new LogEntryBuilder() //
-                        .withEventTime(configuration.getDateFormat().parse(rawObject.get(index++)).getTime()) //
-                        .withTaskName(rawObject.get(index++)) //
-                        .withThreadName(rawObject.get(index++)) //
-                        .withIteration(Long.valueOf(rawObject.get(index++))) //
-                        .withSqlLabel(rawObject.get(index++)) //
-                        .withRows(Long.valueOf(rawObject.get(index++))) //
-                        .withConnectionTime(Long.valueOf(rawObject.get(index++))) //
-                        .withFirstRowTime(Long.valueOf(rawObject.get(index++))) //
-                        .withTotalTime(Long.valueOf(rawObject.get(index++))) //
-                        .build();
-            } catch (final ParseException e) {
+                final LogEntry logEntry = parse(rawObject);
+                if (logEntry != null) {
+                    return logEntry;
+                }
+            } catch (final ParseException | NumberFormatException e) {
                 LOGGER.warn(e.getMessage());
+            }
+        }
+    }
+
+    private LogEntry parse(final CSVObject rawObject) throws ParseException {
+
+        final LogEntryBuilder builder = new LogEntryBuilder();
+        for (int index = 0; index < columns.length; index++) {
+
+            if (columns[index] == null) {
                 continue;
             }
+
+            final String value = get(rawObject, index);
+            if (value == null) {
+                if (columns[index].isRequired()) {
+                    LOGGER.warn("Missing column '{}' in the log line", columns[index].getHeader());
+                    return null;
+                }
+                continue;
+            }
+
+            switch (columns[index]) {
+            case DATE:
+                builder.withEventTime(configuration.getDateFormat().parse(value).getTime());
+                break;
+            case TASK_NAME:
+                builder.withTaskName(value);
+                break;
+            case THREAD_NAME:
+                builder.withThreadName(value);
+                break;
+            case ITERATION:
+                builder.withIteration(Long.valueOf(value));
+                break;
+            case SQL_LABEL:
+                builder.withSqlLabel(value);
+                break;
+            case ROWS:
+                builder.withRows(Long.valueOf(value));
+                break;
+            case CONNECTION_TIME:
+                builder.withConnectionTime(Long.valueOf(value));
+                break;
+            case FIRST_ROW_TIME:
+                builder.withFirstRowTime(Long.valueOf(value));
+                break;
+            case TOTAL_TIME:
+                builder.withTotalTime(Long.valueOf(value));
+                break;
+            case SQL_STATE:
+                builder.withSqlState(value);
+                break;
+            case ERROR_CODE:
+                builder.withErrorCode(Integer.parseInt(value));
+                break;
+            case ERROR_CLASS:
+                builder.withErrorClass(value);
+                break;
+            case SCHEDULE_LAG:
+                builder.withScheduleLag(Long.parseLong(value));
+                break;
+            case CHECKSUM:
+                builder.withChecksum(LogColumn.parseChecksum(value));
+                break;
+            case ACQUIRE_TIME:
+            case PREPARE_TIME:
+            case EXECUTE_TIME:
+            case FIRST_FETCH_TIME:
+            case FETCH_TIME:
+            case CLOSE_TIME:
+                builder.withPhaseTime(columns[index].getPhase(), Long.parseLong(value));
+                break;
+            default:
+                break;
+            }
         }
+        return builder.build();
     }
 }
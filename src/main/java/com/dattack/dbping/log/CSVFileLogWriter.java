@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
@@ -34,6 +35,7 @@ import com.dattack.dbping.beans.SqlCommandVisitor;
 import com.dattack.dbping.beans.SqlScriptBean;
 import com.dattack.dbping.beans.SqlStatementBean;
 import com.dattack.dbping.engine.DataRow;
+import com.dattack.dbping.engine.JdbcPhase;
 import com.dattack.dbping.engine.LogEntry;
 import com.dattack.formats.csv.CSVStringBuilder;
 import com.dattack.jtoolbox.io.IOUtils;
@@ -61,7 +63,7 @@ public class CSVFileLogWriter implements LogWriter {
     private void addDataRowList(final List<DataRow> list) {
         for (int i = 0; i < list.size(); i++) {
             final DataRow row = list.get(i);
-            csvBuilder.comment().append(String.format(" Row %d:\t", i));
+            csvBuilder.comment().append(" Row " + i + ":\t");
             for (final Object obj : row.getData()) {
                 csvBuilder.append(ObjectUtils.toString(obj));
             }
@@ -83,8 +85,33 @@ public class CSVFileLogWriter implements LogWriter {
                     .append(entry.getFirstRowTime()) //
                     .append(entry.getTotalTime());
 
-            if (entry.getException() != null) {
-                csvBuilder.append(normalize(entry.getException().getMessage()));
+            // the optional columns are written up to the last one with a value, the previous ones may be empty
+            final boolean scheduled = entry.getScheduleLag() >= 0;
+            final boolean checksummed = entry.getChecksum() != null;
+            final boolean timed = entry.hasPhaseTimes();
+            final boolean trailing = scheduled || checksummed || timed;
+            if (entry.isFailed()) {
+                csvBuilder.append(StringUtils.trimToEmpty(entry.getSqlState())) //
+                        .append(entry.getErrorCode()) //
+                        .append(entry.getErrorClass());
+                if (entry.getException() != null) {
+                    csvBuilder.append(normalize(StringUtils.trimToEmpty(entry.getException().getMessage())));
+                } else if (trailing) {
+                    csvBuilder.append("");
+                }
+            } else if (trailing) {
+                csvBuilder.append("").append("").append("").append("");
+            }
+            if (trailing) {
+                csvBuilder.append(scheduled ? Long.toString(entry.getScheduleLag()) : "");
+            }
+            if (checksummed || timed) {
+                csvBuilder.append(checksummed ? LogColumn.formatChecksum(entry.getChecksum()) : "");
+            }
+            if (timed) {
+                for (final JdbcPhase phase : JdbcPhase.values()) {
+                    csvBuilder.append(entry.getPhaseTime(phase));
+                }
             }
             csvBuilder.eol();
             addDataRowList(entry.getRowList());
@@ -115,7 +142,9 @@ public class CSVFileLogWriter implements LogWriter {
             }
 
             csvBuilder.comment("SQL Sentences:");
-            for (final SqlCommandBean sentence : header.getPingTaskBean().getSqlStatementList()) {
+            final List<SqlCommandBean> sentenceList = header.getPingTaskBean().getSqlStatementList();
+            for (final SqlCommandBean sentence : sentenceList == null ? Collections.<SqlCommandBean>emptyList()
+                    : sentenceList) {
 
                 sentence.accept(new SqlCommandVisitor() {
 
@@ -139,17 +168,57 @@ public class CSVFileLogWriter implements LogWriter {
                 });
             }
 
+            if (header.getPingTaskBean().getReplay() != null) {
+                csvBuilder.comment(String.format("Replay: %s (speed %s)",
+                        normalize(header.getPingTaskBean().getReplay().getFile()),
+                        header.getPingTaskBean().getReplay().getSpeed()));
+            }
+
+            csvBuilder.comment();
+            for (final LogColumn column : LogColumn.values()) {
+                csvBuilder.append(column.getHeader());
+            }
+            csvBuilder.eol();
+
+            data = csvBuilder.toString();
+            csvBuilder.clear();
+        }
+        return data;
+    }
+
+    private String format(final LogAnnotation annotation) {
+
+        String data = null;
+        synchronized (csvBuilder) {
+
             csvBuilder.comment() //
-                    .append("date") //
-                    .append("task-name") //
-                    .append("thread-name") //
-                    .append("iteration") //
-                    .append("sql-label") //
-                    .append("rows") //
-                    .append("connection-time") //
-                    .append("first-row-time") //
-                    .append("total-time") //
-                    .append("message").eol();
+                    .append(LogAnnotation.PREFIX + annotation.getType()) //
+                    .append(new Date(annotation.getTime()));
+            for (final String value : annotation.getValues()) {
+                csvBuilder.append(normalize(StringUtils.trimToEmpty(value)));
+            }
+            csvBuilder.eol();
+
+            data = csvBuilder.toString();
+            csvBuilder.clear();
+        }
+        return data;
+    }
+
+    private String format(final LogFooter footer) {
+
+        String data = null;
+        synchronized (csvBuilder) {
+
+            csvBuilder.comment();
+            for (final Map.Entry<String, String> entry : footer.getProperties().entrySet()) {
+                csvBuilder.comment(new StringBuilder() //
+                        .append(normalize(entry.getKey())) //
+                        .append(": ") //
+                        .append(normalize(StringUtils.trimToEmpty(entry.getValue()))) //
+                        .toString() //
+                );
+            }
 
             data = csvBuilder.toString();
             csvBuilder.clear();
@@ -179,6 +248,16 @@ public class CSVFileLogWriter implements LogWriter {
         write(format(logHeader));
     }
 
+    @Override
+    public synchronized void write(final LogFooter logFooter) {
+        write(format(logFooter));
+    }
+
+    @Override
+    public void write(final LogAnnotation logAnnotation) {
+        write(format(logAnnotation));
+    }
+
     private void write(final String message) {
 
         FileOutputStream out = null;
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A timestamped record written to a log as a comment line, so the readers that don't know it skip it like any other
+ * comment: <code>#@type&lt;TAB&gt;date&lt;TAB&gt;value...</code>. It carries the events that aren't executions, like
+ * the telemetry of the client.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public class LogAnnotation implements Serializable {
+
+    private static final long serialVersionUID = 3216019563307733853L;
+
+    public static final char PREFIX = '@';
+
+    /**
+     * The telemetry of the client JVM. The first value is the kind of sample: <code>gc</code> (a garbage collection
+     * pause: duration in milliseconds, collector and cause), <code>pause</code> (a stall of the JVM detected by the
+     * sampler: duration in milliseconds) or <code>cpu</code> (process and system CPU load in percent and number of
+     * threads).
+     */
+    public static final String TELEMETRY = "telemetry";
+
+    /**
+     * A change of the configuration of a running task. The values are the property changed, its previous value and
+     * the new one. The properties are <code>threads</code>, <code>executions</code>,
+     * <code>timeBetweenExecutions</code>, <code>thinkTime</code>, <code>weight[label]</code>,
+     * <code>thinkTime[label]</code>, <code>next[label]</code> and <code>enabled[label]</code>.
+     */
+    public static final String CONFIG = "config";
+
+    private final String type;
+    private final long time;
+    private final List<String> values;
+
+    public LogAnnotation(final String type, final long time, final String... values) {
+        this(type, time, Arrays.asList(values));
+    }
+
+    public LogAnnotation(final String type, final long time, final List<String> values) {
+        this.type = type;
+        this.time = time;
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns a value of the annotation.
+     *
+     * @param index
+     *            the position of the value
+     * @return the value or <code>null</code> if the annotation has less values
+     */
+    public String getValue(final int index) {
+        return index < values.size() ? values.get(index) : null;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+/**
+ * Receives the {@link LogAnnotation annotations} found by a reader while it reads the log entries.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public interface LogAnnotationListener {
+
+    /**
+     * Invoked for each annotation, in the order they appear in the log.
+     *
+     * @param annotation
+     *            the annotation
+     */
+    void annotation(LogAnnotation annotation);
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.dattack.dbping.engine.JdbcPhase;
+
+/**
+ * The columns of a log file, in the order they are written. The header comment of the log lists the names of the
+ * columns so the readers can locate them by name: the logs written before a column was added are still readable and
+ * unknown columns are ignored.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public enum LogColumn {
+
+    DATE("date", true), //
+    TASK_NAME("task-name", true), //
+    THREAD_NAME("thread-name", true), //
+    ITERATION("iteration", true), //
+    SQL_LABEL("sql-label", true), //
+    ROWS("rows", true), //
+    CONNECTION_TIME("connection-time", true), //
+    FIRST_ROW_TIME("first-row-time", true), //
+    TOTAL_TIME("total-time", true), //
+    SQL_STATE("sql-state", false), //
+    ERROR_CODE("error-code", false), //
+    ERROR_CLASS("error-class", false), //
+    MESSAGE("message", false), //
+    SCHEDULE_LAG("schedule-lag", false), //
+    CHECKSUM("checksum", false), //
+    ACQUIRE_TIME("acquire-us", JdbcPhase.ACQUIRE), //
+    PREPARE_TIME("prepare-us", JdbcPhase.PREPARE), //
+    EXECUTE_TIME("execute-us", JdbcPhase.EXECUTE), //
+    FIRST_FETCH_TIME("first-fetch-us", JdbcPhase.FIRST_FETCH), //
+    FETCH_TIME("fetch-us", JdbcPhase.FETCH), //
+    CLOSE_TIME("close-us", JdbcPhase.CLOSE);
+
+    private final String header;
+    private final boolean required;
+    private final JdbcPhase phase;
+
+    /**
+     * Parses the header comment of a log file.
+     *
+     * @param text
+     *            the text of the comment, without the comment mark
+     * @return the columns of the log, with <code>null</code> for the unknown ones, or <code>null</code> if the text
+     *         isn't a header
+     */
+    public static LogColumn[] parseHeader(final String text) {
+
+        final List<LogColumn> columnList = new ArrayList<LogColumn>();
+        for (final String token : text.split("\t")) {
+            final String name = StringUtils.remove(token, '"').trim();
+            if (columnList.isEmpty() && name.isEmpty()) {
+                continue;
+            }
+            columnList.add(parse(name));
+        }
+
+        if (columnList.isEmpty() || columnList.get(0) != DATE || !columnList.contains(TASK_NAME)) {
+            return null;
+        }
+        return columnList.toArray(new LogColumn[columnList.size()]);
+    }
+
+    /**
+     * Formats the checksum of a result set as 16 hexadecimal digits.
+     *
+     * @param checksum
+     *            the checksum
+     * @return the text of the checksum
+     */
+    public static String formatChecksum(final long checksum) {
+        final String text = Long.toHexString(checksum);
+        return "0000000000000000".substring(text.length()) + text;
+    }
+
+    /**
+     * Parses the checksum of a result set.
+     *
+     * @param text
+     *            the hexadecimal text of the checksum
+     * @return the checksum
+     * @throws NumberFormatException
+     *             if the text isn't a valid checksum
+     */
+    public static long parseChecksum(final String text) {
+        return Long.parseUnsignedLong(text, 16);
+    }
+
+    /**
+     * Returns the column with the given name in the header.
+     *
+     * @param name
+     *            the name of the column
+     * @return the column or <code>null</code> if the name is unknown
+     */
+    static LogColumn parse(final String name) {
+        for (final LogColumn column : values()) {
+            if (column.header.equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of leading columns that must be present in each line to contain all the required ones.
+     *
+     * @param columns
+     *            the columns of the log
+     * @return the minimum number of columns of a line
+     */
+    public static int requiredLength(final LogColumn[] columns) {
+
+        int length = 0;
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] != null && columns[i].required) {
+                length = i + 1;
+            }
+        }
+        return length;
+    }
+
+    LogColumn(final String header, final boolean required) {
+        this.header = header;
+        this.required = required;
+        this.phase = null;
+    }
+
+    LogColumn(final String header, final JdbcPhase phase) {
+        this.header = header;
+        this.required = false;
+        this.phase = phase;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns the phase whose time is logged in this column, in microseconds.
+     *
+     * @return the phase or <code>null</code> if the column doesn't contain the time of a phase
+     */
+    public JdbcPhase getPhase() {
+        return phase;
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Identifies the first bytes of a log file, so the data computed from them (an index, the checkpoint of a report) is
+ * only used while they don't change. The fingerprint keeps their length and the checksums of their first and last
+ * blocks: a log that was truncated, rotated or rewritten doesn't match, even if it is now longer, while a log that
+ * only had lines appended does.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class LogFingerprint implements Serializable {
+
+    private static final long serialVersionUID = 4629581633279541937L;
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private final long length;
+    private final long headChecksum;
+    private final long tailChecksum;
+
+    private static long checksum(final FileChannel channel, final long offset, final int size) throws IOException {
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException(String.format("Unexpected end of file at offset %d", offset + buffer.position()));
+            }
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, size);
+        return crc.getValue();
+    }
+
+    /**
+     * Computes the fingerprint of the first bytes of a log file.
+     *
+     * @param logFile
+     *            the log file
+     * @param length
+     *            the number of bytes to identify
+     * @return the fingerprint
+     * @throws IOException
+     *             if the file is shorter than the given length or an I/O error occurs
+     */
+    public static LogFingerprint of(final File logFile, final long length) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            final int blockSize = (int) Math.min(length, BLOCK_SIZE);
+            return new LogFingerprint(length, checksum(channel, 0, blockSize),
+                    checksum(channel, length - blockSize, blockSize));
+        }
+    }
+
+    /**
+     * Reads a fingerprint written with {@link #write(DataOutput)}.
+     *
+     * @param input
+     *            the input
+     * @return the fingerprint
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public static LogFingerprint read(final DataInput input) throws IOException {
+        return new LogFingerprint(input.readLong(), input.readLong(), input.readLong());
+    }
+
+    private LogFingerprint(final long length, final long headChecksum, final long tailChecksum) {
+        this.length = length;
+        this.headChecksum = headChecksum;
+        this.tailChecksum = tailChecksum;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Checks that a log file still starts with the bytes of this fingerprint.
+     *
+     * @param logFile
+     *            the log file
+     * @return <code>true</code> if the file starts with the identified bytes
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public boolean matches(final File logFile) throws IOException {
+
+        if (logFile.length() < length) {
+            return false;
+        }
+        final LogFingerprint current = of(logFile, length);
+        return current.headChecksum == headChecksum && current.tailChecksum == tailChecksum;
+    }
+
+    /**
+     * Writes this fingerprint.
+     *
+     * @param output
+     *            the output
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public void write(final DataOutput output) throws IOException {
+        output.writeLong(length);
+        output.writeLong(headChecksum);
+        output.writeLong(tailChecksum);
+    }
+}
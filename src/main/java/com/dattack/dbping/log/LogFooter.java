@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The summary written at the end of a log, as comment lines, when all the threads of a task have finished.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public class LogFooter implements Serializable {
+
+    private static final long serialVersionUID = -2707436913930745391L;
+
+    private final Map<String, String> properties;
+
+    public LogFooter() {
+        this.properties = new LinkedHashMap<>();
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Adds a property to the summary. The properties are written in the order they are added.
+     *
+     * @param key
+     *            the name of the property
+     * @param value
+     *            the value of the property
+     * @return self object
+     */
+    public LogFooter put(final String key, final String value) {
+        properties.put(key, value);
+        return this;
+    }
+}
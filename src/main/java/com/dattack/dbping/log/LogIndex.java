@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dattack.dbping.engine.LogEntry;
+
+/**
+ * Sparse time index of a log file, stored in the sidecar file <code>&lt;log&gt;.idx</code>. The log is split in blocks
+ * of a fixed number of entries and the index keeps the offset of each block together with the minimum and maximum
+ * event time of its entries, so a date range can be located without parsing the whole log. The header of the log
+ * isn't read when the reading starts at a block, so the index also keeps the columns of the lines of each block.
+ * <p>
+ * The index covers the part of the log that existed when it was built; the lines appended later are read
+ * sequentially and are assumed not to be older than the indexed ones. An index whose log no longer starts with the
+ * indexed data (see {@link LogFingerprint}) belongs to a different file and is ignored.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class LogIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogIndex.class);
+
+    public static final int DEFAULT_INTERVAL = 1000;
+
+    private static final String FILE_EXTENSION = ".idx";
+    private static final int MAGIC = 0x44425049; // DBPI
+    private static final int VERSION = 2;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int interval;
+    private final LogFingerprint fingerprint;
+    private final int size;
+    private final long[] offsets;
+    private final long[] minTimes;
+    private final long[] maxTimes;
+
+    // the distinct layouts of the log, the layout of each block and the one at the end of the indexed data
+    private final List<LogColumn[]> layoutList;
+    private final int[] layouts;
+    private final int endLayout;
+
+    // suffixMinTimes[i] is the minimum event time of the blocks i..size-1
+    private final long[] suffixMinTimes;
+
+    /**
+     * Reads a log file and creates its index.
+     *
+     * @param logFile
+     *            the log file
+     * @param interval
+     *            the number of entries of each block
+     * @return the index
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public static LogIndex build(final File logFile, final int interval) throws IOException {
+
+        if (interval <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid index interval: %d", interval));
+        }
+
+        long[] offsets = new long[INITIAL_CAPACITY];
+        long[] minTimes = new long[INITIAL_CAPACITY];
+        long[] maxTimes = new long[INITIAL_CAPACITY];
+        int[] layouts = new int[INITIAL_CAPACITY];
+        final List<LogColumn[]> layoutList = new ArrayList<LogColumn[]>();
+        int size = 0;
+        long entries = 0;
+        long length;
+        int endLayout;
+
+        // the follow mode leaves out the last line when the writer hasn't completed it yet
+        try (CSVFileFastLogReader logReader = new CSVFileFastLogReader(logFile, true)) {
+            while (true) {
+                final long offset = logReader.getPosition();
+                final LogColumn[] layout = entries % interval == 0 ? logReader.getColumns() : null;
+                final LogEntry logEntry = logReader.next();
+                if (logEntry == null) {
+                    break;
+                }
+
+                if (layout != null) {
+                    if (size == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, size * 2);
+                        minTimes = Arrays.copyOf(minTimes, size * 2);
+                        maxTimes = Arrays.copyOf(maxTimes, size * 2);
+                        layouts = Arrays.copyOf(layouts, size * 2);
+                    }
+                    offsets[size] = offset;
+                    minTimes[size] = logEntry.getEventTime();
+                    maxTimes[size] = logEntry.getEventTime();
+                    layouts[size] = indexOf(layoutList, layout);
+                    size++;
+                } else {
+                    minTimes[size - 1] = Math.min(minTimes[size - 1], logEntry.getEventTime());
+                    maxTimes[size - 1] = Math.max(maxTimes[size - 1], logEntry.getEventTime());
+                }
+                entries++;
+            }
+            length = logReader.getPosition();
+            endLayout = indexOf(layoutList, logReader.getColumns());
+        }
+
+        LOGGER.info("Indexed {} entries of {} in {} blocks", entries, logFile, size);
+        return new LogIndex(interval, LogFingerprint.of(logFile, length), size, offsets, minTimes, maxTimes,
+                layoutList, layouts, endLayout);
+    }
+
+    // returns the position of a layout in the list, adding it if it isn't the last one
+    private static int indexOf(final List<LogColumn[]> layoutList, final LogColumn[] layout) {
+
+        if (layoutList.isEmpty() || !Arrays.equals(layoutList.get(layoutList.size() - 1), layout)) {
+            layoutList.add(layout);
+        }
+        return layoutList.size() - 1;
+    }
+
+    /**
+     * Returns the sidecar file that contains the index of a log file.
+     *
+     * @param logFile
+     *            the log file
+     * @return the index file
+     */
+    public static File getIndexFile(final File logFile) {
+        return new File(logFile.getPath() + FILE_EXTENSION);
+    }
+
+    /**
+     * Reads the index of a log file.
+     *
+     * @param logFile
+     *            the log file
+     * @return the index or <code>null</code> if the log file has no valid index
+     */
+    public static LogIndex load(final File logFile) {
+
+        final File indexFile = getIndexFile(logFile);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)))) {
+
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                LOGGER.warn("Unknown index format: {}", indexFile);
+                return null;
+            }
+
+            final int interval = input.readInt();
+            final LogFingerprint fingerprint = LogFingerprint.read(input);
+            if (!fingerprint.matches(logFile)) {
+                LOGGER.warn("Ignoring the index {}: the log file has changed since it was indexed", indexFile);
+                return null;
+            }
+
+            final int layoutCount = input.readInt();
+            final List<LogColumn[]> layoutList = new ArrayList<LogColumn[]>(layoutCount);
+            for (int i = 0; i < layoutCount; i++) {
+                final LogColumn[] layout = new LogColumn[input.readInt()];
+                for (int j = 0; j < layout.length; j++) {
+                    layout[j] = LogColumn.parse(input.readUTF());
+                }
+                layoutList.add(layout);
+            }
+            final int endLayout = input.readInt();
+
+            final int size = input.readInt();
+            final long[] offsets = new long[size];
+            final long[] minTimes = new long[size];
+            final long[] maxTimes = new long[size];
+            final int[] layouts = new int[size];
+            for (int i = 0; i < size; i++) {
+                offsets[i] = input.readLong();
+                minTimes[i] = input.readLong();
+                maxTimes[i] = input.readLong();
+                layouts[i] = input.readInt();
+            }
+            return new LogIndex(interval, fingerprint, size, offsets, minTimes, maxTimes, layoutList, layouts,
+                    endLayout);
+
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to read the index {}: {}", indexFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private LogIndex(final int interval, final LogFingerprint fingerprint, final int size, final long[] offsets,
+            final long[] minTimes, final long[] maxTimes, final List<LogColumn[]> layoutList, final int[] layouts,
+            final int endLayout) {
+        this.interval = interval;
+        this.fingerprint = fingerprint;
+        this.size = size;
+        this.offsets = offsets;
+        this.minTimes = minTimes;
+        this.maxTimes = maxTimes;
+        this.layoutList = layoutList;
+        this.layouts = layouts;
+        this.endLayout = endLayout;
+        this.suffixMinTimes = new long[size];
+        long min = Long.MAX_VALUE;
+        for (int i = size - 1; i >= 0; i--) {
+            min = Math.min(min, minTimes[i]);
+            suffixMinTimes[i] = min;
+        }
+    }
+
+    /**
+     * Returns the offset at which the reading can stop because no later entry has an event time lower than or equal
+     * to the given one.
+     *
+     * @param endTime
+     *            the last event time of interest
+     * @return the end offset or <code>Long.MAX_VALUE</code> if the log must be read until its end
+     */
+    public long getEndOffset(final long endTime) {
+
+        // suffixMinTimes is non-decreasing so the first block entirely after endTime can be searched
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (suffixMinTimes[middle] > endTime) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low < size ? offsets[low] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the columns of the lines at an offset returned by this index.
+     *
+     * @param offset
+     *            the start of a block or the end of the indexed data
+     * @return the columns, to be given to {@link CSVFileFastLogReader#seek(long, LogColumn[])}
+     */
+    public LogColumn[] getColumns(final long offset) {
+
+        final int block = Arrays.binarySearch(offsets, 0, size, offset);
+        if (block >= 0) {
+            return layoutList.get(layouts[block]).clone();
+        }
+        if (offset == getLength()) {
+            return layoutList.get(endLayout).clone();
+        }
+        throw new IllegalArgumentException(String.format("Not an indexed offset: %d", offset));
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public long getLength() {
+        return fingerprint.getLength();
+    }
+
+    /**
+     * Returns the offset at which the reading must begin to find every entry with an event time greater than or
+     * equal to the given one.
+     *
+     * @param startTime
+     *            the first event time of interest
+     * @return the start offset
+     */
+    public long getStartOffset(final long startTime) {
+
+        for (int i = 0; i < size; i++) {
+            if (maxTimes[i] >= startTime) {
+                return offsets[i];
+            }
+        }
+        return getLength();
+    }
+
+    /**
+     * Writes this index to the sidecar file of a log file.
+     *
+     * @param logFile
+     *            the log file
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public void write(final File logFile) throws IOException {
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(getIndexFile(logFile))))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(interval);
+            fingerprint.write(output);
+            output.writeInt(layoutList.size());
+            for (final LogColumn[] layout : layoutList) {
+                output.writeInt(layout.length);
+                for (final LogColumn column : layout) {
+                    output.writeUTF(column == null ? "" : column.getHeader());
+                }
+            }
+            output.writeInt(endLayout);
+            output.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                output.writeLong(offsets[i]);
+                output.writeLong(minTimes[i]);
+                output.writeLong(maxTimes[i]);
+                output.writeInt(layouts[i]);
+            }
+        }
+    }
+}
@@ -31,6 +31,22 @@ public interface LogWriter {
      */
     void write(final LogHeader logHeader);
 
+    /**
+     * Writes the footer to the log.
+     *
+     * @param logFooter
+     *            the footer entity
+     */
+    void write(final LogFooter logFooter);
+
+    /**
+     * Writes an annotation to the log.
+     *
+     * @param logAnnotation
+     *            the annotation
+     */
+    void write(final LogAnnotation logAnnotation);
+
     /**
      * Writes a data to the log.
      *
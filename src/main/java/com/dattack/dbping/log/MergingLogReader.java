@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.dattack.dbping.engine.LogEntry;
+
+/**
+ * Merges several logs, each one ordered by time, in a single stream ordered by time: the shards written by the
+ * threads of a task or the logs of the agents of a distributed execution. The merge keeps in memory only the next
+ * entry of each log, in a heap ordered by event time; the entries with the same time are returned in the order of the
+ * readers.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public class MergingLogReader implements LogReader {
+
+    private final List<LogReader> readerList;
+    private final PriorityQueue<Head> heap;
+    private boolean initialized;
+
+    /**
+     * The next entry of a log.
+     */
+    private static final class Head implements Comparable<Head> {
+
+        private final int readerIndex;
+        private LogEntry entry;
+
+        Head(final int readerIndex, final LogEntry entry) {
+            this.readerIndex = readerIndex;
+            this.entry = entry;
+        }
+
+        @Override
+        public int compareTo(final Head other) {
+            final int result = Long.compare(entry.getEventTime(), other.entry.getEventTime());
+            return result == 0 ? Integer.compare(readerIndex, other.readerIndex) : result;
+        }
+    }
+
+    /**
+     * Creates a reader that merges others. The readers are closed when this one is closed.
+     *
+     * @param readerList
+     *            the readers of the logs to merge
+     */
+    public MergingLogReader(final List<? extends LogReader> readerList) {
+        this.readerList = new ArrayList<LogReader>(readerList);
+        this.heap = new PriorityQueue<Head>(Math.max(1, readerList.size()));
+        this.initialized = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        IOException exception = null;
+        for (final LogReader reader : readerList) {
+            try {
+                reader.close();
+            } catch (final IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    @Override
+    public LogEntry next() throws IOException, ParseException {
+
+        if (!initialized) {
+            for (int i = 0; i < readerList.size(); i++) {
+                final LogEntry entry = readerList.get(i).next();
+                if (entry != null) {
+                    heap.add(new Head(i, entry));
+                }
+            }
+            initialized = true;
+        }
+
+        final Head head = heap.poll();
+        if (head == null) {
+            return null;
+        }
+
+        final LogEntry result = head.entry;
+        head.entry = readerList.get(head.readerIndex).next();
+        if (head.entry != null) {
+            heap.add(head);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dattack.dbping.engine.LogEntry;
+
+/**
+ * Writes the entries of each thread to its own log shard, so the threads of a task don't contend for the same file.
+ * The header, the annotations and the footer are written to the main log and the header is also copied to each shard
+ * so it can be read on its own. The shard of a thread is named after the main log, with the suffix
+ * <code>-shard-N</code> before the extension. The analyzer merges the main log and its shards by time with a
+ * {@link MergingLogReader}.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public class ShardedLogWriter implements LogWriter {
+
+    private final String filename;
+    private final LogWriter mainWriter;
+    private final AtomicInteger shardCounter;
+    private final ThreadLocal<LogWriter> shardWriter;
+    private volatile LogHeader logHeader;
+
+    /**
+     * Inserts a suffix in the name of a file, before its extension.
+     *
+     * @param filename
+     *            the name of the file
+     * @param suffix
+     *            the suffix
+     * @return the new name
+     */
+    public static String addSuffix(final String filename, final String suffix) {
+
+        final int extension = filename.lastIndexOf('.');
+        if (extension <= filename.lastIndexOf(File.separatorChar)) {
+            return filename + suffix;
+        }
+        return filename.substring(0, extension) + suffix + filename.substring(extension);
+    }
+
+    public ShardedLogWriter(final String filename) {
+        this.filename = filename;
+        this.mainWriter = new CSVFileLogWriter(filename);
+        this.shardCounter = new AtomicInteger();
+        this.shardWriter = ThreadLocal.withInitial(this::createShard);
+    }
+
+    private LogWriter createShard() {
+
+        final LogWriter writer = new CSVFileLogWriter(
+                addSuffix(filename, "-shard-" + shardCounter.getAndIncrement()));
+        if (logHeader != null) {
+            writer.write(logHeader);
+        }
+        return writer;
+    }
+
+    @Override
+    public void write(final LogHeader header) {
+        this.logHeader = header;
+        mainWriter.write(header);
+    }
+
+    @Override
+    public void write(final LogFooter logFooter) {
+        mainWriter.write(logFooter);
+    }
+
+    @Override
+    public void write(final LogAnnotation logAnnotation) {
+        mainWriter.write(logAnnotation);
+    }
+
+    @Override
+    public void write(final LogEntry logEntry) {
+        shardWriter.get().write(logEntry);
+    }
+}
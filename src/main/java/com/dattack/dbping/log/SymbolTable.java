@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Small open-addressing table that maps a sequence of bytes to a canonical <code>String</code> instance. The log
+ * files contain a very low number of distinct task names, thread names and labels, so the lookup avoids the creation
+ * of a new <code>String</code> for each field once the symbol has been seen. When the table is full the symbols are
+ * decoded without being stored.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class SymbolTable {
+
+    private static final int DEFAULT_MAX_SYMBOLS = 1024;
+
+    private final Charset charset;
+    private final int maxSymbols;
+    private final byte[][] keys;
+    private final String[] values;
+    private final int[] hashes;
+    private final int mask;
+    private int size;
+
+    private static int hash(final byte[] buffer, final int offset, final int length) {
+        int result = 1;
+        for (int i = offset; i < offset + length; i++) {
+            result = 31 * result + buffer[i];
+        }
+        return result ^ (result >>> 16);
+    }
+
+    private static boolean matches(final byte[] key, final byte[] buffer, final int offset, final int length) {
+
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    SymbolTable(final Charset charset) {
+        this(charset, DEFAULT_MAX_SYMBOLS);
+    }
+
+    SymbolTable(final Charset charset, final int maxSymbols) {
+        this.charset = charset;
+        this.maxSymbols = maxSymbols;
+        // keeps the load factor under 0.5
+        final int capacity = Integer.highestOneBit(Math.max(2, maxSymbols) * 4 - 1);
+        this.keys = new byte[capacity][];
+        this.values = new String[capacity];
+        this.hashes = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Returns the canonical <code>String</code> for the given bytes.
+     *
+     * @param buffer
+     *            the buffer containing the symbol
+     * @param offset
+     *            the offset of the first byte of the symbol
+     * @param length
+     *            the number of bytes of the symbol
+     * @return the canonical <code>String</code> instance
+     */
+    String intern(final byte[] buffer, final int offset, final int length) {
+
+        if (length == 0) {
+            return "";
+        }
+
+        final int hash = hash(buffer, offset, length);
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && matches(keys[slot], buffer, offset, length)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        final String value = new String(buffer, offset, length, charset);
+        if (size < maxSymbols) {
+            keys[slot] = Arrays.copyOfRange(buffer, offset, offset + length);
+            values[slot] = value;
+            hashes[slot] = hash;
+            size++;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.dattack.dbping.log.LogAnnotation;
+import com.dattack.dbping.log.LogAnnotationListener;
+
+/**
+ * Collects the {@link LogAnnotation#TELEMETRY telemetry} of the client found in a log: the periods the client JVM was
+ * paused (garbage collections and stalls) and the maximum CPU load.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class ClientTelemetry implements LogAnnotationListener, Serializable {
+
+    private static final long serialVersionUID = 2915796839208331470L;
+
+    private final List<Pause> pauseList;
+    private boolean sorted;
+    private long maxPauseDuration;
+    private long gcCount;
+    private long gcTime;
+    private long stallCount;
+    private long stallTime;
+    private double maxProcessLoad;
+    private double maxSystemLoad;
+    private int maxThreads;
+
+    /**
+     * A period of time the client JVM was paused.
+     */
+    static final class Pause implements Serializable {
+
+        private static final long serialVersionUID = -2049931457225269958L;
+
+        private final long start;
+        private final long duration;
+        private final String cause;
+
+        Pause(final long start, final long duration, final String cause) {
+            this.start = start;
+            this.duration = duration;
+            this.cause = cause;
+        }
+
+        String getCause() {
+            return cause;
+        }
+
+        long getDuration() {
+            return duration;
+        }
+
+        long getStart() {
+            return start;
+        }
+    }
+
+    /**
+     * A slow execution that overlaps a pause of the client, so its latency was at least partially caused by the
+     * client.
+     */
+    static final class Outlier {
+
+        private final int group;
+        private final long time;
+        private final long duration;
+        private final Pause pause;
+
+        Outlier(final int group, final long time, final long duration, final Pause pause) {
+            this.group = group;
+            this.time = time;
+            this.duration = duration;
+            this.pause = pause;
+        }
+
+        long getDuration() {
+            return duration;
+        }
+
+        int getGroup() {
+            return group;
+        }
+
+        Pause getPause() {
+            return pause;
+        }
+
+        long getTime() {
+            return time;
+        }
+    }
+
+    private static long parseLong(final String value) {
+        try {
+            return value == null ? 0 : Long.parseLong(value.trim());
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static double parseDouble(final String value) {
+        try {
+            return value == null ? -1 : Double.parseDouble(value.trim());
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    ClientTelemetry() {
+        this.pauseList = new ArrayList<>();
+        this.sorted = true;
+        this.maxProcessLoad = -1;
+        this.maxSystemLoad = -1;
+    }
+
+    private void addPause(final Pause pause) {
+        if (!pauseList.isEmpty() && pauseList.get(pauseList.size() - 1).start > pause.start) {
+            sorted = false;
+        }
+        pauseList.add(pause);
+        maxPauseDuration = Math.max(maxPauseDuration, pause.duration);
+    }
+
+    @Override
+    public void annotation(final LogAnnotation annotation) {
+
+        if (!LogAnnotation.TELEMETRY.equals(annotation.getType()) || annotation.getValues().isEmpty()) {
+            return;
+        }
+
+        switch (annotation.getValue(0)) {
+        case "gc":
+            final long gcDuration = parseLong(annotation.getValue(1));
+            gcCount++;
+            gcTime += gcDuration;
+            addPause(new Pause(annotation.getTime(), gcDuration,
+                    String.format("GC: %s (%s)", annotation.getValue(2), annotation.getValue(3))));
+            break;
+        case "pause":
+            final long stallDuration = parseLong(annotation.getValue(1));
+            stallCount++;
+            stallTime += stallDuration;
+            addPause(new Pause(annotation.getTime(), stallDuration, "JVM stall"));
+            break;
+        case "cpu":
+            maxProcessLoad = Math.max(maxProcessLoad, parseDouble(annotation.getValue(1)));
+            maxSystemLoad = Math.max(maxSystemLoad, parseDouble(annotation.getValue(2)));
+            maxThreads = Math.max(maxThreads, (int) parseLong(annotation.getValue(3)));
+            break;
+        default:
+            // unknown sample
+            break;
+        }
+    }
+
+    /**
+     * Looks for a pause of the client that overlaps a period of time.
+     *
+     * @param start
+     *            the beginning of the period
+     * @param end
+     *            the end of the period
+     * @return the longest pause that overlaps the period or <code>null</code> if there isn't any
+     */
+    Pause findPause(final long start, final long end) {
+
+        final List<Pause> pauses = getPauses();
+
+        // the first pause that starts after the end of the period
+        int low = 0;
+        int high = pauses.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (pauses.get(middle).start < end) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        Pause result = null;
+        for (int i = low - 1; i >= 0 && pauses.get(i).start + maxPauseDuration > start; i--) {
+            final Pause pause = pauses.get(i);
+            if (pause.start + pause.duration > start && (result == null || pause.duration > result.duration)) {
+                result = pause;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Looks for the slowest executions of each group, above its 99th percentile, that overlap a pause of the client.
+     *
+     * @param reportStats
+     *            the statistics of the report
+     * @return the executions found, in the order of the groups and the slowest first
+     */
+    List<Outlier> findOutliers(final ReportStats reportStats) {
+
+        final List<Outlier> outlierList = new ArrayList<>();
+        if (pauseList.isEmpty()) {
+            return outlierList;
+        }
+
+        for (final EntryGroup entryGroup : reportStats.getEntryGroups()) {
+            final SlowestEntries slowest = reportStats.getSlowestEntries(entryGroup.getId());
+            if (slowest == null) {
+                continue;
+            }
+            final long threshold = reportStats.getGroupStats(entryGroup.getId()).getSketch().getPercentile(99);
+            for (final long[] entry : slowest.getEntries()) {
+                if (entry[1] <= threshold) {
+                    break;
+                }
+                final Pause pause = findPause(entry[0], entry[0] + entry[1]);
+                if (pause != null) {
+                    outlierList.add(new Outlier(entryGroup.getId(), entry[0], entry[1], pause));
+                }
+            }
+        }
+        return outlierList;
+    }
+
+    /**
+     * Returns the pauses sorted by start time.
+     */
+    List<Pause> getPauses() {
+        if (!sorted) {
+            Collections.sort(pauseList, (o1, o2) -> Long.compare(o1.start, o2.start));
+            sorted = true;
+        }
+        return pauseList;
+    }
+
+    boolean isEmpty() {
+        return pauseList.isEmpty() && maxThreads == 0;
+    }
+
+    void printSummary(final PrintStream out, final ReportStats reportStats, final List<Outlier> outlierList) {
+
+        if (isEmpty()) {
+            return;
+        }
+        out.format("%n%nClient telemetry%n");
+        out.format("GC pauses: %d (total: %d ms)%n", gcCount, gcTime);
+        out.format("JVM stalls: %d (total: %d ms)%n", stallCount, stallTime);
+        out.format("Longest pause: %d ms%n", maxPauseDuration);
+        out.format(Locale.ENGLISH, "Max. CPU load (process, system): %.1f%%, %.1f%%%n", maxProcessLoad,
+                maxSystemLoad);
+        out.format("Max. threads: %d%n", maxThreads);
+
+        if (!outlierList.isEmpty()) {
+            out.format("%nSlow executions during client pauses:%n");
+            for (final Outlier outlier : outlierList) {
+                out.format("%tF %<tT.%<tL  %6d ms  %s  [%s: %d ms]%n", outlier.time, outlier.duration,
+                        reportStats.getEntryGroup(outlier.group).getName(), outlier.pause.cause,
+                        outlier.pause.duration);
+            }
+        }
+    }
+}
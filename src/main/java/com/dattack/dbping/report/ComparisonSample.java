@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.dattack.dbping.engine.LatencySketch;
+
+/**
+ * The values of a metric in one side of a comparison. All the values are added to a {@link LatencySketch} to compute
+ * the percentiles while a uniform random sample of bounded size (reservoir sampling) is kept for the significance
+ * tests. The random generator uses a fixed seed so the same logs always produce the same report.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class ComparisonSample {
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final MetricName metricName;
+    private final LatencySketch sketch;
+    private final double[] reservoir;
+    private final Random random;
+    private long seen;
+
+    ComparisonSample(final MetricName metricName, final int capacity) {
+        this.metricName = metricName;
+        this.sketch = new LatencySketch();
+        this.reservoir = new double[capacity];
+        this.random = new Random(SEED);
+        this.seen = 0;
+    }
+
+    void add(final long value) {
+
+        sketch.add(value);
+        if (seen < reservoir.length) {
+            reservoir[(int) seen] = value;
+        } else {
+            final long index = (long) (random.nextDouble() * (seen + 1));
+            if (index < reservoir.length) {
+                reservoir[(int) index] = value;
+            }
+        }
+        seen++;
+    }
+
+    MetricName getMetricName() {
+        return metricName;
+    }
+
+    /**
+     * Returns a copy of the sampled values.
+     */
+    double[] getSample() {
+        return Arrays.copyOf(reservoir, (int) Math.min(seen, reservoir.length));
+    }
+
+    LatencySketch getSketch() {
+        return sketch;
+    }
+}
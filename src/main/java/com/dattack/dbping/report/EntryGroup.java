@@ -15,11 +15,15 @@
  */
 package com.dattack.dbping.report;
 
+import java.io.Serializable;
+
 /**
  * @author cvarela
  * @since 0.1
  */
-public class EntryGroup {
+public class EntryGroup implements Serializable {
+
+    private static final long serialVersionUID = 7700826903164491000L;
 
     private final int identifier;
     private final MetricName name;
@@ -36,4 +40,16 @@ public class EntryGroup {
     public MetricName getName() {
         return name;
     }
+
+    /**
+     * Checks if this group contains a value derived from the executions of each time bucket (error rate, throughput
+     * or concurrency) instead of latencies.
+     *
+     * @return <code>true</code> for the derived groups
+     */
+    public boolean isDerived() {
+        return MetricName.ERROR_RATE_KEY.equalsIgnoreCase(name.getMetric())
+                || MetricName.THROUGHPUT_KEY.equalsIgnoreCase(name.getMetric())
+                || MetricName.CONCURRENCY_KEY.equalsIgnoreCase(name.getMetric());
+    }
 }
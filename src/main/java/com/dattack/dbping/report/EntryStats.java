@@ -15,31 +15,90 @@
  */
 package com.dattack.dbping.report;
 
+import com.dattack.dbping.engine.LatencySketch;
+
 /**
+ * The statistics of a group of values (a time bucket) of a metric.
+ *
  * @author cvarela
  * @since 0.1
  */
 public class EntryStats {
 
     private final long valueX;
-    private final long valueY;
     private final int group;
+    private final long count;
+    private final long min;
+    private final double mean;
+    private final long max;
+    private final long p50;
+    private final long p90;
+    private final long p99;
 
     public EntryStats(final long valueX, final long valueY, final int group) {
         this.valueX = valueX;
-        this.valueY = valueY;
         this.group = group;
+        this.count = 1;
+        this.min = valueY;
+        this.mean = valueY;
+        this.max = valueY;
+        this.p50 = valueY;
+        this.p90 = valueY;
+        this.p99 = valueY;
+    }
+
+    public EntryStats(final long valueX, final int group, final LatencySketch sketch) {
+        this.valueX = valueX;
+        this.group = group;
+        this.count = sketch.getCount();
+        this.min = sketch.getMin();
+        this.mean = sketch.getMean();
+        this.max = sketch.getMax();
+        this.p50 = sketch.getPercentile(50);
+        this.p90 = sketch.getPercentile(90);
+        this.p99 = sketch.getPercentile(99);
     }
 
     public long getX() {
         return valueX;
     }
 
+    /**
+     * @return the maximum value
+     */
     public long getY() {
-        return valueY;
+        return max;
     }
 
     public int getGroup() {
         return group;
     }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
 }
@@ -15,30 +15,47 @@
  */
 package com.dattack.dbping.report;
 
+import java.io.Serializable;
+
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 
+import com.dattack.dbping.engine.LatencySketch;
+
 /**
  * @author cvarela
  * @since 0.1
  */
-public class GroupStats {
+public class GroupStats implements Serializable {
+
+    private static final long serialVersionUID = 1211074392973860719L;
 
     private final int group;
     private final SummaryStatistics statistics;
-    
+    private final LatencySketch sketch;
+
     public GroupStats(final int group) {
         this.group = group;
         this.statistics = new SummaryStatistics();
+        this.sketch = new LatencySketch();
     }
-    
+
     public int getGroup() {
         return group;
     }
-    
+
     public void addEntry(final EntryStats entryStats) {
-        statistics.addValue(entryStats.getY());
+        addValue(entryStats.getY());
     }
-    
+
+    public void addValue(final long value) {
+        statistics.addValue(value);
+        sketch.add(value);
+    }
+
+    public LatencySketch getSketch() {
+        return sketch;
+    }
+
     public SummaryStatistics getStatistics() {
         return statistics;
     }
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import org.apache.commons.lang.StringEscapeUtils;
+
+/**
+ * Writes a self-contained HTML report: the stylesheet and the chart renderer are embedded in the page and the points
+ * are streamed as <code>&lt;script&gt;</code> blocks while they are computed. The points of each series are buffered
+ * in chunks of fixed size and encoded as two base64 columns of little-endian 32-bit integers, the time deltas from
+ * the start of the chunk and the values, so the memory used doesn't depend on the size of the log.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class HtmlReportWriter implements PointWriter, Closeable {
+
+    private static final String CSS_RESOURCE = "dbping-report.css";
+    private static final String JS_RESOURCE = "dbping-report.js";
+    private static final int CHUNK_SIZE = 1024;
+
+    private final PrintWriter writer;
+    private final List<Chunk> chunkList;
+
+    /**
+     * The points of a series that haven't been written yet.
+     */
+    private static final class Chunk {
+
+        private final ByteBuffer deltas;
+        private final ByteBuffer values;
+        private long baseX;
+        private long lastX;
+        private int size;
+
+        Chunk() {
+            this.deltas = ByteBuffer.allocate(CHUNK_SIZE * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            this.values = ByteBuffer.allocate(CHUNK_SIZE * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            this.size = 0;
+        }
+
+        boolean fits(final long valueX) {
+            return size < CHUNK_SIZE && (size == 0 || valueX - baseX <= Integer.MAX_VALUE && valueX >= lastX);
+        }
+
+        void add(final long valueX, final long valueY) {
+            if (size == 0) {
+                baseX = valueX;
+            }
+            deltas.putInt((int) (valueX - baseX));
+            values.putInt((int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, valueY)));
+            lastX = valueX;
+            size++;
+        }
+    }
+
+    private static String encode(final ByteBuffer buffer) {
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    HtmlReportWriter(final PrintWriter writer) {
+        this.writer = writer;
+        this.chunkList = new ArrayList<Chunk>();
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+    private void copyResource(final String name) throws IOException {
+
+        try (InputStream input = HtmlReportWriter.class.getResourceAsStream(name)) {
+            if (input == null) {
+                throw new FileNotFoundException(String.format("Resource not found: %s", name));
+            }
+            final Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+            final char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) >= 0) {
+                writer.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private void flush(final int series, final Chunk chunk) {
+
+        if (chunk.size == 0) {
+            return;
+        }
+
+        writer.println(String.format("<script>dbping.addChunk(%d,%d,'%s','%s');</script>", series, chunk.baseX,
+                encode(chunk.deltas), encode(chunk.values)));
+        chunk.deltas.clear();
+        chunk.values.clear();
+        chunk.size = 0;
+    }
+
+    @Override
+    public void write(final EntryStats point) {
+
+        final int series = point.getGroup();
+        while (chunkList.size() <= series) {
+            chunkList.add(new Chunk());
+        }
+
+        final Chunk chunk = chunkList.get(series);
+        if (!chunk.fits(point.getX())) {
+            flush(series, chunk);
+        }
+        chunk.add(point.getX(), point.getY());
+    }
+
+    /**
+     * Writes the pending points, the definition of the series and the end of the page.
+     *
+     * @param reportStats
+     *            the statistics of the report
+     * @param telemetry
+     *            the telemetry of the client, drawn as bands over the chart
+     * @param outlierList
+     *            the slow executions that overlap a pause of the client, drawn as markers
+     */
+    void writeFooter(final ReportStats reportStats, final ClientTelemetry telemetry,
+            final List<ClientTelemetry.Outlier> outlierList) {
+
+        for (int series = 0; series < chunkList.size(); series++) {
+            flush(series, chunkList.get(series));
+        }
+
+        writer.println("<script>");
+        for (final EntryGroup entryGroup : reportStats.getEntryGroups()) {
+            for (final Statistic statistic : Statistic.values()) {
+                if (!statistic.appliesTo(entryGroup)) {
+                    continue;
+                }
+                writer.println(String.format("dbping.addSeries(%d,'%s','%s',%s);",
+                        statistic.getSeries(entryGroup.getId()), statistic.getLabel(),
+                        StringEscapeUtils.escapeJavaScript(entryGroup.getName().toString()),
+                        statistic.isSecondaryAxis()));
+            }
+        }
+        for (final ClientTelemetry.Pause pause : telemetry.getPauses()) {
+            writer.println(String.format("dbping.addPause(%d,%d,'%s');", pause.getStart(), pause.getDuration(),
+                    StringEscapeUtils.escapeJavaScript(pause.getCause())));
+        }
+        for (final ClientTelemetry.Outlier outlier : outlierList) {
+            writer.println(String.format("dbping.addOutlier(%d,%d,'%s');", outlier.getTime(),
+                    outlier.getDuration(),
+                    StringEscapeUtils.escapeJavaScript(String.format("%s: %d ms during %s",
+                            reportStats.getEntryGroup(outlier.getGroup()).getName(), outlier.getDuration(),
+                            outlier.getPause().getCause()))));
+        }
+        writer.println("dbping.render();");
+        writer.println("</script>");
+        writer.println("</body>");
+        writer.println("</html>");
+    }
+
+    /**
+     * Writes the beginning of the page, with the embedded stylesheet and renderer.
+     *
+     * @param logFile
+     *            the name of the log file
+     * @throws IOException
+     *             if the embedded resources can't be read
+     */
+    void writeHeader(final String logFile) throws IOException {
+
+        writer.println("<!DOCTYPE HTML>");
+        writer.println("<html>");
+        writer.println("<head>");
+        writer.println("  <title>DBPing</title>");
+        writer.println("  <meta charset='utf-8'>");
+        writer.println("<style>");
+        copyResource(CSS_RESOURCE);
+        writer.println("</style>");
+        writer.println("<script>");
+        copyResource(JS_RESOURCE);
+        writer.println("</script>");
+        writer.println("</head>");
+        writer.println("<body>");
+        writer.println(String.format("<h3>Log file: %s</h3>", StringEscapeUtils.escapeHtml(logFile)));
+        writer.println("<div id='series'>");
+        for (final Statistic statistic : Statistic.values()) {
+            writer.println(String.format(
+                    "  <label><input type='checkbox' checked onchange='dbping.showKind(\"%s\", this.checked)'> "
+                            + "%s</label>",
+                    statistic.getLabel(), statistic.getLabel()));
+        }
+        writer.println("</div>");
+        writer.println("<div id='chart'><canvas id='canvas'></canvas></div>");
+        writer.println("<div id='legend'></div>");
+    }
+}
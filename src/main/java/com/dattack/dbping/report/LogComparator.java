@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest;
+import org.apache.commons.math3.stat.inference.MannWhitneyUTest;
+
+import com.dattack.dbping.engine.LogEntry;
+import com.dattack.dbping.log.CSVFileFastLogReader;
+
+/**
+ * Compares the metrics of two sets of logs, the baseline and the candidate, matching them by task name, SQL label and
+ * metric. For each metric it computes the relative change of the 50th, 90th and 99th percentiles and the p-values of
+ * the Mann-Whitney U and Kolmogorov-Smirnov tests. A metric is a regression when any of these percentiles grows more
+ * than the allowed ratio and at least one test rejects, with the given significance level, that both sets of values
+ * come from the same distribution.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public class LogComparator {
+
+    public static final double DEFAULT_MAX_REGRESSION = 0.1;
+    public static final double DEFAULT_SIGNIFICANCE_LEVEL = 0.05;
+
+    private static final int SAMPLE_SIZE = 10000;
+    private static final int MIN_SAMPLE_SIZE = 20;
+    private static final double[] PERCENTILES = { 50, 90, 99 };
+    private static final String[] METRIC_KEYS = { MetricName.CONNECTION_TIME_KEY, MetricName.FIRST_ROW_TIME_KEY,
+        MetricName.EXECUTION_TIME_KEY };
+
+    private final ReportContext context;
+    private final MetricFilter metricFilter;
+    private final double maxRegression;
+    private final double significanceLevel;
+
+    private enum Verdict {
+        REGRESSION, IMPROVEMENT, UNCHANGED, INSUFFICIENT, MISSING, NEW
+    }
+
+    /**
+     * The comparison of a metric.
+     */
+    private static final class Result {
+
+        private final MetricName metricName;
+        private final ComparisonSample baseline;
+        private final ComparisonSample candidate;
+        private final double[] deltas;
+        private double mannWhitneyP;
+        private double kolmogorovSmirnovP;
+        private Verdict verdict;
+
+        Result(final MetricName metricName, final ComparisonSample baseline, final ComparisonSample candidate) {
+            this.metricName = metricName;
+            this.baseline = baseline;
+            this.candidate = candidate;
+            this.deltas = new double[PERCENTILES.length];
+            this.mannWhitneyP = Double.NaN;
+            this.kolmogorovSmirnovP = Double.NaN;
+        }
+
+        double getMaxDelta() {
+            double max = Double.NEGATIVE_INFINITY;
+            for (final double delta : deltas) {
+                max = Math.max(max, delta);
+            }
+            return max;
+        }
+    }
+
+    private static String getKey(final String taskName, final String sqlLabel, final String metric) {
+        return new StringBuilder() //
+                .append(taskName.toLowerCase(Locale.ENGLISH)).append('\0') //
+                .append(sqlLabel.toLowerCase(Locale.ENGLISH)).append('\0') //
+                .append(metric.toLowerCase(Locale.ENGLISH)) //
+                .toString();
+    }
+
+    private static double relativeDelta(final long baseline, final long candidate) {
+        return (double) (candidate - baseline) / Math.max(1, baseline);
+    }
+
+    /**
+     * Creates a new comparator.
+     *
+     * @param context
+     *            the report context with the metric filters and the value limits
+     * @param maxRegression
+     *            the maximum relative growth allowed for a percentile (e.g. 0.1 for a 10%)
+     * @param significanceLevel
+     *            the significance level of the tests
+     */
+    public LogComparator(final ReportContext context, final double maxRegression, final double significanceLevel) {
+        this.context = context;
+        this.metricFilter = MetricFilter.compile(context.getMetricNameList());
+        this.maxRegression = maxRegression;
+        this.significanceLevel = significanceLevel;
+    }
+
+    private void add(final Map<String, ComparisonSample> sampleMap, final Map<String, ComparisonSample[]> labelCache,
+            final LogEntry logEntry) {
+
+        // only the latencies of the successful executions are compared
+        if (logEntry.isFailed()) {
+            return;
+        }
+
+        final String labelKey = logEntry.getTaskName() + '\0' + logEntry.getSqlLabel();
+        ComparisonSample[] samples = labelCache.get(labelKey);
+        if (samples == null) {
+            samples = new ComparisonSample[METRIC_KEYS.length];
+            for (int i = 0; i < METRIC_KEYS.length; i++) {
+                final MetricName metricName = new MetricName(logEntry.getTaskName(), logEntry.getSqlLabel(),
+                        METRIC_KEYS[i]);
+                if (metricFilter.matches(metricName)) {
+                    final String key = getKey(metricName.getTaskName(), metricName.getSqlLabel(),
+                            metricName.getMetric());
+                    samples[i] = sampleMap.get(key);
+                    if (samples[i] == null) {
+                        samples[i] = new ComparisonSample(metricName, SAMPLE_SIZE);
+                        sampleMap.put(key, samples[i]);
+                    }
+                }
+            }
+            labelCache.put(labelKey, samples);
+        }
+
+        addValue(samples[0], logEntry.getConnectionTime());
+        addValue(samples[1], logEntry.getFirstRowTime());
+        addValue(samples[2], logEntry.getTotalTime());
+    }
+
+    private void addValue(final ComparisonSample sample, final long value) {
+
+        // negative values are the times not measured for the entry
+        if (sample == null || value < 0) {
+            return;
+        }
+
+        long normalizedValue = value;
+        if (context.getMinValue() != null && normalizedValue < context.getMinValue()) {
+            normalizedValue = context.getMinValue();
+        } else if (context.getMaxValue() != null && normalizedValue > context.getMaxValue()) {
+            normalizedValue = context.getMaxValue();
+        }
+        sample.add(normalizedValue);
+    }
+
+    private Result compare(final MetricName metricName, final ComparisonSample baseline,
+            final ComparisonSample candidate) {
+
+        final Result result = new Result(metricName, baseline, candidate);
+        if (baseline == null) {
+            result.verdict = Verdict.NEW;
+            return result;
+        }
+        if (candidate == null) {
+            result.verdict = Verdict.MISSING;
+            return result;
+        }
+
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            result.deltas[i] = relativeDelta(baseline.getSketch().getPercentile(PERCENTILES[i]),
+                    candidate.getSketch().getPercentile(PERCENTILES[i]));
+        }
+
+        final double[] baselineSample = baseline.getSample();
+        final double[] candidateSample = candidate.getSample();
+        if (baselineSample.length < MIN_SAMPLE_SIZE || candidateSample.length < MIN_SAMPLE_SIZE) {
+            result.verdict = Verdict.INSUFFICIENT;
+            return result;
+        }
+
+        result.mannWhitneyP = new MannWhitneyUTest().mannWhitneyUTest(baselineSample, candidateSample);
+        result.kolmogorovSmirnovP = new KolmogorovSmirnovTest().kolmogorovSmirnovTest(baselineSample,
+                candidateSample);
+
+        final boolean significant = result.mannWhitneyP < significanceLevel
+                || result.kolmogorovSmirnovP < significanceLevel;
+        double minDelta = Double.POSITIVE_INFINITY;
+        for (final double delta : result.deltas) {
+            minDelta = Math.min(minDelta, delta);
+        }
+
+        if (significant && result.getMaxDelta() > maxRegression) {
+            result.verdict = Verdict.REGRESSION;
+        } else if (significant && minDelta < -maxRegression) {
+            result.verdict = Verdict.IMPROVEMENT;
+        } else {
+            result.verdict = Verdict.UNCHANGED;
+        }
+        return result;
+    }
+
+    /**
+     * Compares two sets of logs and prints the metrics ranked by their regression.
+     *
+     * @param baselineFiles
+     *            the logs of the baseline
+     * @param candidateFiles
+     *            the logs of the candidate
+     * @param out
+     *            the stream where the report is printed
+     * @return the number of regressions found
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public int execute(final List<File> baselineFiles, final List<File> candidateFiles, final PrintStream out)
+            throws IOException {
+
+        final Map<String, ComparisonSample> baselineMap = load(baselineFiles);
+        final Map<String, ComparisonSample> candidateMap = load(candidateFiles);
+
+        final List<Result> resultList = new ArrayList<Result>();
+        for (final Map.Entry<String, ComparisonSample> entry : baselineMap.entrySet()) {
+            resultList.add(compare(entry.getValue().getMetricName(), entry.getValue(),
+                    candidateMap.get(entry.getKey())));
+        }
+        for (final Map.Entry<String, ComparisonSample> entry : candidateMap.entrySet()) {
+            if (!baselineMap.containsKey(entry.getKey())) {
+                resultList.add(compare(entry.getValue().getMetricName(), null, entry.getValue()));
+            }
+        }
+
+        // regressions first, then the biggest growths
+        Collections.sort(resultList, new Comparator<Result>() {
+
+            @Override
+            public int compare(final Result o1, final Result o2) {
+                if (o1.verdict != o2.verdict
+                        && (o1.verdict == Verdict.REGRESSION || o2.verdict == Verdict.REGRESSION)) {
+                    return o1.verdict == Verdict.REGRESSION ? -1 : 1;
+                }
+                return Double.compare(o2.getMaxDelta(), o1.getMaxDelta());
+            }
+        });
+
+        return print(resultList, out);
+    }
+
+    private Map<String, ComparisonSample> load(final List<File> files) throws IOException {
+
+        final Map<String, ComparisonSample> sampleMap = new LinkedHashMap<String, ComparisonSample>();
+        final Map<String, ComparisonSample[]> labelCache = new HashMap<String, ComparisonSample[]>();
+        for (final File file : files) {
+            try (CSVFileFastLogReader logReader = new CSVFileFastLogReader(file)) {
+                while (true) {
+                    final LogEntry logEntry = logReader.next();
+                    if (logEntry == null) {
+                        break;
+                    }
+                    add(sampleMap, labelCache, logEntry);
+                }
+            }
+        }
+        return sampleMap;
+    }
+
+    private int print(final List<Result> resultList, final PrintStream out) {
+
+        out.format("Maximum regression: %.1f%%, significance level: %s%n%n", maxRegression * 100,
+                significanceLevel);
+        out.format("%4s  %-12s %10s %10s %-28s %-28s %-28s %8s %8s  %s%n", "Rank", "Verdict", "Baseline",
+                "Candidate", "p50", "p90", "p99", "MWU p", "KS p", "Metric");
+
+        int regressions = 0;
+        int rank = 1;
+        for (final Result result : resultList) {
+
+            if (result.verdict == Verdict.REGRESSION) {
+                regressions++;
+            }
+
+            final StringBuilder percentiles = new StringBuilder();
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                if (result.baseline == null || result.candidate == null) {
+                    percentiles.append(String.format("%-28s ", "-"));
+                } else {
+                    percentiles.append(String.format("%-28s ",
+                            String.format("%d -> %d (%+.1f%%)",
+                                    result.baseline.getSketch().getPercentile(PERCENTILES[i]),
+                                    result.candidate.getSketch().getPercentile(PERCENTILES[i]),
+                                    result.deltas[i] * 100)));
+                }
+            }
+
+            out.format("%4d  %-12s %10d %10d %s%8.4f %8.4f  %s%n", rank++, result.verdict,
+                    result.baseline == null ? 0 : result.baseline.getSketch().getCount(),
+                    result.candidate == null ? 0 : result.candidate.getSketch().getCount(), percentiles,
+                    result.mannWhitneyP, result.kolmogorovSmirnovP, result.metricName);
+        }
+
+        out.format("%n%d regression(s) found in %d metric(s)%n", regressions, resultList.size());
+        return regressions;
+    }
+}
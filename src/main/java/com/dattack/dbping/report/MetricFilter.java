@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Compiled form of the metric names used as filters. Each part of a filter (task name, SQL label and metric) is
+ * matched ignoring case; a blank part matches any value and the characters <code>*</code> and <code>?</code> are
+ * wildcards for any sequence of characters and any single character. An empty filter matches every metric.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class MetricFilter implements Serializable {
+
+    private static final long serialVersionUID = 9016975296667221437L;
+
+    private final List<CompiledName> nameList;
+
+    private static final class CompiledName implements Serializable {
+
+        private static final long serialVersionUID = -8746510007440245789L;
+
+        private final Pattern taskName;
+        private final Pattern sqlLabel;
+        private final Pattern metric;
+
+        CompiledName(final MetricName metricName) {
+            this.taskName = compile(metricName.getTaskName());
+            this.sqlLabel = compile(metricName.getSqlLabel());
+            this.metric = compile(metricName.getMetric());
+        }
+
+        boolean matches(final MetricName metricName) {
+            return matches(taskName, metricName.getTaskName()) && matches(sqlLabel, metricName.getSqlLabel())
+                    && matches(metric, metricName.getMetric());
+        }
+
+        private static boolean matches(final Pattern pattern, final String text) {
+            return pattern == null || pattern.matcher(text).matches();
+        }
+    }
+
+    /**
+     * Creates a filter that accepts the metrics matching any of the given names.
+     *
+     * @param metricNameList
+     *            the list of names to match
+     * @return the compiled filter
+     */
+    static MetricFilter compile(final List<MetricName> metricNameList) {
+        return new MetricFilter(metricNameList);
+    }
+
+    // returns null when the text matches any value
+    private static Pattern compile(final String text) {
+
+        if (StringUtils.isBlank(text)) {
+            return null;
+        }
+
+        final StringBuilder regex = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+        for (final char character : text.toCharArray()) {
+            if (character == '*' || character == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(character == '*' ? ".*" : ".");
+            } else {
+                literal.append(character);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    private MetricFilter(final List<MetricName> metricNameList) {
+        this.nameList = new ArrayList<>(metricNameList.size());
+        for (final MetricName metricName : metricNameList) {
+            nameList.add(new CompiledName(metricName));
+        }
+    }
+
+    boolean matches(final MetricName metricName) {
+
+        if (nameList.isEmpty()) {
+            return true;
+        }
+
+        for (final CompiledName name : nameList) {
+            if (name.matches(metricName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
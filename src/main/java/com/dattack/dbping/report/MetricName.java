@@ -15,13 +15,17 @@
  */
 package com.dattack.dbping.report;
 
+import java.io.Serializable;
+
 import org.apache.commons.lang.StringUtils;
 
 /**
  * @author cvarela
  * @since 0.1
  */
-public class MetricName {
+public class MetricName implements Serializable {
+
+    private static final long serialVersionUID = -1818637659920120726L;
 
     private final String taskName;
     private final String sqlLabel;
@@ -31,6 +35,25 @@ public class MetricName {
 
     public static final String FIRST_ROW_TIME_KEY = "First row time";
     public static final String EXECUTION_TIME_KEY = "Total time";
+    public static final String ERROR_RATE_KEY = "Error rate";
+    public static final String THROUGHPUT_KEY = "Throughput";
+    public static final String CONCURRENCY_KEY = "Concurrency";
+
+    /**
+     * The prefix of the metrics with the total time of the failed executions, followed by the exception class.
+     */
+    public static final String FAILED_TIME_KEY = "Failed time";
+
+    /**
+     * The time that the executions of a replayed trace started behind their schedule.
+     */
+    public static final String SCHEDULE_LAG_KEY = "Schedule lag";
+
+    /**
+     * The prefix of the metrics with the time of a phase of the instrumented executions, in microseconds, followed by
+     * the phase.
+     */
+    public static final String PHASE_TIME_KEY = "Phase time";
 
     /**
      * Creates a MetricName from its value.
@@ -82,6 +105,10 @@ public class MetricName {
 
     }
 
+    /**
+     * Compares two metric names ignoring case. A blank part matches any value so this relation isn't transitive: use
+     * the metric names as filters and not as keys of hash-based collections.
+     */
     @Override
     public boolean equals(final Object obj) {
         if (obj == null) {
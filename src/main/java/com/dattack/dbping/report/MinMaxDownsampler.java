@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits the number of points of each group keeping the minimum and the maximum value of a set of time buckets. The
+ * buckets are computed while the points arrive: when a point falls out of the last bucket, the width of the buckets
+ * is doubled and every pair of adjacent buckets is merged. So the memory used by each group is fixed and the spikes
+ * are never lost, whatever the number of points received.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+class MinMaxDownsampler {
+
+    private final int maxBuckets;
+    private final Map<Integer, Series> seriesMap;
+
+    private static final class Series {
+
+        private final int group;
+        private final boolean[] used;
+        private final long[] minX;
+        private final long[] minY;
+        private final long[] maxX;
+        private final long[] maxY;
+        private long origin;
+        private long width;
+        private boolean empty;
+
+        Series(final int group, final int buckets) {
+            this.group = group;
+            this.used = new boolean[buckets];
+            this.minX = new long[buckets];
+            this.minY = new long[buckets];
+            this.maxX = new long[buckets];
+            this.maxY = new long[buckets];
+            this.width = 1;
+            this.empty = true;
+        }
+
+        void add(final long valueX, final long valueY) {
+
+            if (empty) {
+                origin = valueX;
+                empty = false;
+            }
+
+            long index = bucket(valueX);
+            while (index >= used.length) {
+                merge();
+                index = bucket(valueX);
+            }
+
+            final int slot = (int) index;
+            if (!used[slot]) {
+                used[slot] = true;
+                minX[slot] = valueX;
+                minY[slot] = valueY;
+                maxX[slot] = valueX;
+                maxY[slot] = valueY;
+            } else {
+                if (valueY < minY[slot]) {
+                    minX[slot] = valueX;
+                    minY[slot] = valueY;
+                }
+                if (valueY > maxY[slot]) {
+                    maxX[slot] = valueX;
+                    maxY[slot] = valueY;
+                }
+            }
+        }
+
+        private long bucket(final long valueX) {
+            return valueX < origin ? 0 : (valueX - origin) / width;
+        }
+
+        void collect(final List<EntryStats> list) {
+
+            for (int i = 0; i < used.length; i++) {
+                if (!used[i]) {
+                    continue;
+                }
+
+                if (minX[i] == maxX[i]) {
+                    list.add(new EntryStats(maxX[i], maxY[i], group));
+                } else if (minX[i] < maxX[i]) {
+                    list.add(new EntryStats(minX[i], minY[i], group));
+                    list.add(new EntryStats(maxX[i], maxY[i], group));
+                } else {
+                    list.add(new EntryStats(maxX[i], maxY[i], group));
+                    list.add(new EntryStats(minX[i], minY[i], group));
+                }
+            }
+        }
+
+        // doubles the width of the buckets merging each pair of adjacent buckets
+        private void merge() {
+
+            for (int i = 0; i < used.length; i++) {
+
+                final int left = 2 * i;
+                final int right = left + 1;
+                if (left >= used.length) {
+                    used[i] = false;
+                    continue;
+                }
+
+                boolean mergedUsed = used[left];
+                long mergedMinX = minX[left];
+                long mergedMinY = minY[left];
+                long mergedMaxX = maxX[left];
+                long mergedMaxY = maxY[left];
+
+                if (right < used.length && used[right]) {
+                    if (!mergedUsed || minY[right] < mergedMinY) {
+                        mergedMinX = minX[right];
+                        mergedMinY = minY[right];
+                    }
+                    if (!mergedUsed || maxY[right] > mergedMaxY) {
+                        mergedMaxX = maxX[right];
+                        mergedMaxY = maxY[right];
+                    }
+                    mergedUsed = true;
+                }
+
+                used[i] = mergedUsed;
+                minX[i] = mergedMinX;
+                minY[i] = mergedMinY;
+                maxX[i] = mergedMaxX;
+                maxY[i] = mergedMaxY;
+            }
+            width *= 2;
+        }
+    }
+
+    /**
+     * @param maxPoints
+     *            the maximum number of points to keep for each group
+     */
+    MinMaxDownsampler(final int maxPoints) {
+        // each bucket produces two points: the minimum and the maximum value
+        this.maxBuckets = Math.max(1, maxPoints / 2);
+        this.seriesMap = new LinkedHashMap<>();
+    }
+
+    void add(final EntryStats entryStats) {
+
+        Series series = seriesMap.get(entryStats.getGroup());
+        if (series == null) {
+            series = new Series(entryStats.getGroup(), maxBuckets);
+            seriesMap.put(entryStats.getGroup(), series);
+        }
+        series.add(entryStats.getX(), entryStats.getY());
+    }
+
+    /**
+     * @return the points retained for all the groups, sorted by time within each group
+     */
+    List<EntryStats> getEntryStats() {
+
+        final List<EntryStats> list = new ArrayList<>();
+        for (final Series series : seriesMap.values()) {
+            series.collect(list);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+/**
+ * Receives the points of a report, in the order they are computed, and writes them in a specific output format.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+interface PointWriter {
+
+    /**
+     * Writes a point. The group of the point is the identifier of its series.
+     *
+     * @param point
+     *            the point to write
+     */
+    void write(EntryStats point);
+}
@@ -15,16 +15,22 @@
  */
 package com.dattack.dbping.report;
 
+import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * @author cvarela
  * @since 0.1
  */
-public class ReportContext {
+public class ReportContext implements Serializable {
+
+    private static final long serialVersionUID = 5683019647989923802L;
+
+    public static final long DEFAULT_MAX_LATENESS = 1000;
 
     private SimpleDateFormat dateFormat;
     private Date endDate;
@@ -32,11 +38,55 @@ public class ReportContext {
     private Long timeSpan;
     private Long maxValue;
     private Long minValue;
+    private Integer maxPoints;
+    private ReportFormat format;
+    private Long maxLateness;
     private final List<MetricName> metricNameList;
 
     public ReportContext() {
         dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         this.metricNameList = new ArrayList<MetricName>();
+        this.format = ReportFormat.HTML;
+    }
+
+    private static boolean isSameName(final MetricName name, final MetricName other) {
+        return Objects.equals(name.getTaskName(), other.getTaskName())
+                && Objects.equals(name.getSqlLabel(), other.getSqlLabel())
+                && Objects.equals(name.getMetric(), other.getMetric());
+    }
+
+    /**
+     * Checks that other context computes the same statistics from a log: the same date range, time span, value
+     * limits, maximum lateness and metric filters. The options that only change how the statistics are shown may
+     * differ.
+     *
+     * @param other
+     *            the context to compare
+     * @return <code>true</code> if the statistics computed with both contexts are the same
+     */
+    boolean hasSameAnalysis(final ReportContext other) {
+
+        if (!Objects.equals(startDate, other.startDate) || !Objects.equals(endDate, other.endDate)
+                || !Objects.equals(timeSpan, other.timeSpan) || !Objects.equals(maxValue, other.maxValue)
+                || !Objects.equals(minValue, other.minValue) || getMaxLateness() != other.getMaxLateness()
+                || metricNameList.size() != other.metricNameList.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < metricNameList.size(); i++) {
+            if (!isSameName(metricNameList.get(i), other.metricNameList.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public ReportFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(final ReportFormat format) {
+        this.format = format;
     }
 
     public Long getMaxValue() {
@@ -47,6 +97,26 @@ public class ReportContext {
         this.maxValue = maxValue;
     }
 
+    /**
+     * Returns the maximum time, in milliseconds, that a log entry can arrive behind the newest one and still be added
+     * to its time bucket.
+     */
+    public long getMaxLateness() {
+        return maxLateness == null ? DEFAULT_MAX_LATENESS : maxLateness;
+    }
+
+    public void setMaxLateness(final Long maxLateness) {
+        this.maxLateness = maxLateness;
+    }
+
+    public Integer getMaxPoints() {
+        return maxPoints;
+    }
+
+    public void setMaxPoints(final Integer maxPoints) {
+        this.maxPoints = maxPoints;
+    }
+
     public Long getMinValue() {
         return minValue;
     }
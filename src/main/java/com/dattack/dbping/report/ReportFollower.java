@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dattack.dbping.engine.LogEntry;
+import com.dattack.dbping.log.CSVFileFastLogReader;
+import com.dattack.dbping.log.LogColumn;
+import com.dattack.dbping.log.LogFingerprint;
+
+/**
+ * Keeps a log file open and updates its report with the entries appended by a running task. The points are appended
+ * to <code>&lt;log&gt;.data.js</code> as soon as their bucket is closed while <code>&lt;log&gt;.js</code>, that
+ * contains the groups and the time range, is rewritten on each update; the HTML page reloads itself with the same
+ * period. The state of the analysis can be saved to a checkpoint file after each update so that a restarted analyzer
+ * resumes from the last offset read, with the columns of the log at that offset. The checkpoint is discarded, and the
+ * analysis starts over, when the log no longer begins with the data read (it was truncated or rotated) or when the
+ * options of the analysis have changed.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class ReportFollower {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReportFollower.class);
+
+    private final File dataFile;
+    private final ReportContext context;
+    private final long refreshMillis;
+    private final File checkpointFile;
+
+    /**
+     * The state saved in the checkpoint file.
+     */
+    static final class State implements Serializable {
+
+        private static final long serialVersionUID = 3460291174539165728L;
+
+        private final ReportStats reportStats;
+        private long offset;
+        private LogColumn[] columns;
+        private LogFingerprint fingerprint;
+        private long dataLength;
+        private long startDate;
+        private long endDate;
+
+        State(final ReportStats reportStats) {
+            this.reportStats = reportStats;
+            this.offset = 0;
+            this.dataLength = 0;
+            this.startDate = Long.MAX_VALUE;
+            this.endDate = Long.MIN_VALUE;
+        }
+
+        long getOffset() {
+            return offset;
+        }
+
+        ReportStats getReportStats() {
+            return reportStats;
+        }
+    }
+
+    private static void truncate(final File file, final long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+    }
+
+    ReportFollower(final File dataFile, final ReportContext context, final long refreshMillis,
+            final File checkpointFile) {
+        this.dataFile = dataFile.getAbsoluteFile();
+        this.context = context;
+        this.refreshMillis = Math.max(1, refreshMillis);
+        this.checkpointFile = checkpointFile;
+    }
+
+    private void appendItems(final CSVFileFastLogReader logReader, final State state, final File dataJsFile)
+            throws IOException {
+
+        long reportStartDateFilter = -1;
+        long reportEndDateFilter = Long.MAX_VALUE;
+
+        if (context.getStartDate() != null) {
+            reportStartDateFilter = context.getStartDate().getTime();
+        }
+
+        if (context.getEndDate() != null) {
+            reportEndDateFilter = context.getEndDate().getTime();
+        }
+
+        try (PrintWriter writer = new PrintWriter(
+                new OutputStreamWriter(new FileOutputStream(dataJsFile, true), StandardCharsets.UTF_8))) {
+
+            final VisItemWriter itemWriter = new VisItemWriter(context, writer);
+            while (true) {
+                final LogEntry item = logReader.next();
+                if (item == null) {
+                    break;
+                }
+
+                // apply time filters
+                if (item.getEventTime() < reportStartDateFilter || item.getEventTime() > reportEndDateFilter) {
+                    continue;
+                }
+
+                state.startDate = Math.min(state.startDate, item.getEventTime());
+                state.endDate = Math.max(state.endDate, item.getEventTime());
+
+                final List<EntryStats> entryStatsList = state.reportStats.add(item);
+                if (itemWriter.getCount() == 0 && !entryStatsList.isEmpty()) {
+                    writer.print("dataset.add([");
+                }
+                Reporter.addEntryStats(state.reportStats, itemWriter, null, entryStatsList);
+            }
+
+            if (itemWriter.getCount() > 0) {
+                writer.println("]);");
+            }
+        }
+    }
+
+    State loadState() {
+
+        if (checkpointFile != null && checkpointFile.exists()) {
+            try (ObjectInputStream input = new ObjectInputStream(new FileInputStream(checkpointFile))) {
+                final State state = (State) input.readObject();
+                if (state.fingerprint == null || !state.fingerprint.matches(dataFile)) {
+                    LOGGER.warn("The log file {} has changed since the checkpoint {}, starting over", dataFile,
+                            checkpointFile);
+                } else if (!state.reportStats.getContext().hasSameAnalysis(context)) {
+                    LOGGER.warn("The options of the analysis have changed since the checkpoint {}, starting over",
+                            checkpointFile);
+                } else {
+                    state.reportStats.rebind(context);
+                    LOGGER.info("Resuming the analysis of {} from offset {}", dataFile, state.offset);
+                    return state;
+                }
+            } catch (final IOException | ClassNotFoundException | ClassCastException e) {
+                LOGGER.warn("Unable to read the checkpoint file {}: {}", checkpointFile, e.getMessage());
+            }
+        }
+        return new State(new ReportStats(context));
+    }
+
+    /**
+     * Follows the log file until the current thread is interrupted.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    void run() throws IOException {
+
+        final File parent = dataFile.getParentFile();
+        final String jsFilename = dataFile.getName() + ".js";
+        final String dataJsFilename = dataFile.getName() + ".data.js";
+        final File dataJsFile = new File(parent, dataJsFilename);
+
+        final State state = loadState();
+
+        // discards the points written after the last checkpoint
+        truncate(dataJsFile, state.dataLength);
+
+        try (PrintWriter htmlWriter = new PrintWriter(new File(parent, dataFile.getName() + ".html"), "UTF-8")) {
+            Reporter.createHtml(htmlWriter, dataFile.getName(), refreshMillis, jsFilename, dataJsFilename);
+        }
+
+        try (CSVFileFastLogReader logReader = new CSVFileFastLogReader(dataFile, true)) {
+
+            if (state.columns != null) {
+                logReader.seek(state.offset, state.columns);
+            }
+
+            while (!Thread.currentThread().isInterrupted()) {
+
+                appendItems(logReader, state, dataJsFile);
+                state.offset = logReader.getPosition();
+                state.columns = logReader.getColumns();
+                state.fingerprint = LogFingerprint.of(dataFile, state.offset);
+                state.dataLength = dataJsFile.length();
+
+                try (PrintWriter jsWriter = new PrintWriter(new File(parent, jsFilename), "UTF-8")) {
+                    writeJs(jsWriter, state);
+                }
+                saveState(state);
+
+                try {
+                    Thread.sleep(refreshMillis);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void saveState(final State state) throws IOException {
+
+        if (checkpointFile == null) {
+            return;
+        }
+
+        final File tempFile = new File(checkpointFile.getPath() + ".tmp");
+        try (ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream(tempFile))) {
+            output.writeObject(state);
+        }
+        Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeJs(final PrintWriter writer, final State state) {
+
+        writer.println("var dataset = new vis.DataSet();");
+        Reporter.writeGroups(writer, state.reportStats);
+        if (state.startDate <= state.endDate) {
+            Reporter.writeOptions(context, writer, state.startDate, state.endDate);
+        } else {
+            writer.println("var options = {defaultGroup: 'ungrouped',legend: true};");
+        }
+        writer.println("var graph2d;");
+        writer.println("window.onload = function () {");
+        writer.println("  var container = document.getElementById('visualization');");
+        writer.println("  graph2d = new vis.Graph2d(container, dataset, groups, options);");
+        writer.println("};");
+        Reporter.writeShowSeries(writer);
+    }
+}
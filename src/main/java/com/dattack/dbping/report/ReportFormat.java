@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+/**
+ * The output formats of a report.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public enum ReportFormat {
+
+    /**
+     * A single HTML file with the chart renderer and the data embedded, that can be opened without network access.
+     */
+    HTML,
+
+    /**
+     * An HTML page and a Javascript file with the data, drawn with the vis.js library loaded from the Internet.
+     */
+    VIS
+}
@@ -15,92 +15,458 @@
  */
 package com.dattack.dbping.report;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 
+import com.dattack.dbping.engine.JdbcPhase;
+import com.dattack.dbping.engine.LatencySketch;
 import com.dattack.dbping.engine.LogEntry;
 
 /**
  * @author cvarela
  * @since 0.1
  */
-class ReportStats {
+class ReportStats implements Serializable {
 
-    private final Map<MetricName, EntryGroup> groupMap;
-    private final Map<Integer, EntryStats> entryStatsMap;
-    private final Map<Integer, GroupStats> groupStatsMap;
-    private final ReportContext context;
+    private static final long serialVersionUID = -2385021574316931580L;
+
+    private static final int NO_GROUP = -1;
+    private static final int NO_METRIC = -1;
+
+    // the metrics computed for each log entry, in the same order as the group identifiers cached for each label
+    private static final String[] METRIC_KEYS = { MetricName.CONNECTION_TIME_KEY, MetricName.FIRST_ROW_TIME_KEY,
+        MetricName.EXECUTION_TIME_KEY, MetricName.ERROR_RATE_KEY, MetricName.THROUGHPUT_KEY,
+        MetricName.CONCURRENCY_KEY };
+    private static final int CONNECTION_TIME = 0;
+    private static final int FIRST_ROW_TIME = 1;
+    private static final int EXECUTION_TIME = 2;
+    private static final int ERROR_RATE = 3;
+    private static final int THROUGHPUT = 4;
+    private static final int CONCURRENCY = 5;
+
+    // the span of the buckets of the derived metrics when the report doesn't set one
+    private static final long DEFAULT_DERIVED_SPAN = 1000;
+
+    // the number of slowest executions kept for each latency group
+    private static final int SLOWEST_ENTRIES = 10;
+
+    private static final long FAILED = 100;
+    private static final long SUCCEEDED = 0;
+
+    private MetricFilter metricFilter;
+    private final Map<String, Map<String, int[]>> groupCache;
+    private final Map<String, Integer> failedGroupCache;
+    private final Map<String, Integer> lagGroupCache;
+    private final Map<String, int[]> phaseGroupCache;
+    private final Map<String, EntryGroup> groupMap;
+    private final List<EntryGroup> groupList;
+    private final List<Window> windowList;
+    private final List<GroupStats> groupStatsList;
+    private final List<SlowestEntries> slowestList;
+    private ReportContext context;
+    private long startTime;
+    private long endTime;
+    private long nextSweepTime;
+    private long closedTime;
+    private long lateEntries;
+
+    /**
+     * The time buckets of a group that are still open. The entries of a log aren't strictly ordered by time (e.g. a
+     * shared log is written as the executions finish), so a bucket stays open until the watermark, the newest event
+     * time minus the maximum lateness, passes its end.
+     */
+    private static final class Window implements Serializable {
+
+        private static final long serialVersionUID = 7812637190528347160L;
+
+        // the derived metric computed at the end of each bucket (error rate, throughput or concurrency), if any
+        private final int derivedMetric;
+        private final long span;
+        private final TreeMap<Long, LatencySketch> bucketMap;
+
+        Window(final int derivedMetric, final long span) {
+            this.derivedMetric = derivedMetric;
+            this.span = Math.max(1, span);
+            this.bucketMap = new TreeMap<Long, LatencySketch>();
+        }
+    }
+
+    private static int getDerivedMetric(final MetricName metricName) {
+        for (final int metric : new int[] { ERROR_RATE, THROUGHPUT, CONCURRENCY }) {
+            if (METRIC_KEYS[metric].equalsIgnoreCase(metricName.getMetric())) {
+                return metric;
+            }
+        }
+        return NO_METRIC;
+    }
 
     public ReportStats(final ReportContext context) {
         this.context = context;
-        this.groupMap = new HashMap<MetricName, EntryGroup>();
-        this.entryStatsMap = new HashMap<Integer, EntryStats>();
-        this.groupStatsMap = new HashMap<Integer, GroupStats>();
+        this.metricFilter = MetricFilter.compile(context.getMetricNameList());
+        this.groupCache = new HashMap<String, Map<String, int[]>>();
+        this.failedGroupCache = new HashMap<String, Integer>();
+        this.lagGroupCache = new HashMap<String, Integer>();
+        this.phaseGroupCache = new HashMap<String, int[]>();
+        this.groupMap = new HashMap<String, EntryGroup>();
+        this.groupList = new ArrayList<EntryGroup>();
+        this.windowList = new ArrayList<Window>();
+        this.groupStatsList = new ArrayList<GroupStats>();
+        this.slowestList = new ArrayList<SlowestEntries>();
+        this.startTime = Long.MAX_VALUE;
+        this.endTime = Long.MIN_VALUE;
+        this.nextSweepTime = Long.MIN_VALUE;
+        this.closedTime = Long.MIN_VALUE;
+        this.lateEntries = 0;
     }
 
     List<EntryStats> add(final LogEntry logEntry) {
 
-        final long eventTime = normalizeEventTime(logEntry.getEventTime());
+        startTime = Math.min(startTime, logEntry.getEventTime());
+        endTime = Math.max(endTime, logEntry.getEventTime());
 
         final List<EntryStats> list = new ArrayList<EntryStats>();
 
-        // connection time
-        addEntryStats(list,
-                new MetricName(logEntry.getTaskName(), logEntry.getSqlLabel(), MetricName.CONNECTION_TIME_KEY),
-                eventTime, logEntry.getConnectionTime());
-
-        // first row
-        addEntryStats(list,
-                new MetricName(logEntry.getTaskName(), logEntry.getSqlLabel(), MetricName.FIRST_ROW_TIME_KEY),
-                eventTime, logEntry.getFirstRowTime());
-
-        // execution time
-        addEntryStats(list,
-                new MetricName(logEntry.getTaskName(), logEntry.getSqlLabel(), MetricName.EXECUTION_TIME_KEY),
-                eventTime, logEntry.getTotalTime());
+        // the buckets of every group are open from the watermark of the last sweep on, so the entries older than it
+        // are discarded from all their groups (buckets, totals and slowest executions) and the rest are added to all
+        if (logEntry.getEventTime() < closedTime) {
+            lateEntries++;
+        } else {
+            addEntry(logEntry);
+        }
 
+        // the groups are swept once per derived span: a bucket is closed at most a span after the watermark passes it
+        final long watermark = getWatermark();
+        if (watermark >= nextSweepTime) {
+            for (int group = 0; group < windowList.size(); group++) {
+                closeBuckets(list, group, watermark);
+            }
+            closedTime = watermark;
+            nextSweepTime = watermark + getDerivedSpan();
+        }
         return list;
     }
 
-    private void addEntryStats(final List<EntryStats> list, final MetricName metricName, final long valueX,
-            final long valueY) {
+    private void addEntry(final LogEntry logEntry) {
+
+        final long eventTime = normalizeEventTime(logEntry.getEventTime());
+        final long derivedTime = (logEntry.getEventTime() / getDerivedSpan()) * getDerivedSpan();
+        final int[] groups = getGroups(logEntry.getTaskName(), logEntry.getSqlLabel());
 
-        if (context.getMetricNameList().isEmpty() || context.getMetricNameList().contains(metricName)) {
+        if (logEntry.isFailed()) {
+            // the latencies of the failed executions are kept apart, grouped by exception class
+            final int group = getFailedGroup(logEntry.getTaskName(), logEntry.getSqlLabel(),
+                    logEntry.getErrorClass());
+            addEntryStats(group, eventTime, normalizeValue(logEntry.getTotalTime()));
+            addSlowest(group, logEntry);
+        } else {
 
-            final EntryStats entry = process(
-                    new EntryStats(valueX, normalizeValue(valueY), getGroup(metricName).getId()));
-            if (entry != null) {
-                GroupStats groupStats = groupStatsMap.get(entry.getGroup());
-                if (groupStats == null) {
-                    groupStats = new GroupStats(entry.getGroup());
-                    groupStatsMap.put(entry.getGroup(), groupStats);
+            // connection time
+            addEntryStats(groups[CONNECTION_TIME], eventTime, normalizeValue(logEntry.getConnectionTime()));
+
+            // first row, unknown for the entries that aren't a single statement (e.g. the sessions)
+            if (logEntry.getFirstRowTime() >= 0) {
+                addEntryStats(groups[FIRST_ROW_TIME], eventTime, normalizeValue(logEntry.getFirstRowTime()));
+            }
+
+            // execution time
+            addEntryStats(groups[EXECUTION_TIME], eventTime, normalizeValue(logEntry.getTotalTime()));
+            addSlowest(groups[EXECUTION_TIME], logEntry);
+
+            // the time of each phase, only known when the JDBC calls were instrumented
+            if (logEntry.hasPhaseTimes()) {
+                final int[] phaseGroups = getPhaseGroups(logEntry.getTaskName(), logEntry.getSqlLabel());
+                for (final JdbcPhase phase : JdbcPhase.values()) {
+                    addEntryStats(phaseGroups[phase.ordinal()], eventTime, logEntry.getPhaseTime(phase));
                 }
-                groupStats.addEntry(entry);
-                list.add(entry);
             }
         }
+
+        // the lag behind the schedule, only known for the replayed executions
+        if (logEntry.getScheduleLag() >= 0) {
+            addEntryStats(getLagGroup(logEntry.getTaskName(), logEntry.getSqlLabel()), eventTime,
+                    logEntry.getScheduleLag());
+        }
+
+        // error rate
+        addEntryStats(groups[ERROR_RATE], derivedTime, logEntry.isFailed() ? FAILED : SUCCEEDED);
+
+        // throughput: only the number of executions of the bucket is used
+        addEntryStats(groups[THROUGHPUT], derivedTime, 0);
+
+        // concurrency: the time spent by the executions of the bucket divided by its span (Little's law)
+        addEntryStats(groups[CONCURRENCY], derivedTime, logEntry.getTotalTime());
+    }
+
+    /**
+     * Adds a value to the bucket of a group.
+     */
+    private void addEntryStats(final int group, final long valueX, final long value) {
+
+        if (group == NO_GROUP) {
+            return;
+        }
+
+        final Window window = windowList.get(group);
+        if (window.derivedMetric == NO_METRIC) {
+            groupStatsList.get(group).addValue(value);
+        }
+
+        LatencySketch sketch = window.bucketMap.get(valueX);
+        if (sketch == null) {
+            sketch = new LatencySketch();
+            window.bucketMap.put(valueX, sketch);
+        }
+        sketch.add(value);
     }
 
-    List<EntryGroup> getEntryGroups() {
+    private void addSlowest(final int group, final LogEntry logEntry) {
+
+        if (group == NO_GROUP) {
+            return;
+        }
+
+        SlowestEntries slowest = slowestList.get(group);
+        if (slowest == null) {
+            slowest = new SlowestEntries(SLOWEST_ENTRIES);
+            slowestList.set(group, slowest);
+        }
+        slowest.add(logEntry.getEventTime(), logEntry.getTotalTime());
+    }
 
-        final List<EntryGroup> list = new ArrayList<EntryGroup>();
-        list.addAll(groupMap.values());
+    /**
+     * Closes the buckets that are still open. This method must be invoked after the last log entry has been added.
+     *
+     * @return the statistics of the open buckets of each group
+     */
+    List<EntryStats> flush() {
+
+        final List<EntryStats> list = new ArrayList<EntryStats>();
+        for (int group = 0; group < windowList.size(); group++) {
+            closeBuckets(list, group, Long.MAX_VALUE);
+        }
         return list;
     }
 
-    private EntryGroup getGroup(final MetricName key) {
+    /**
+     * Computes the statistics of a bucket. The derived metrics produce a single value per bucket that is also added
+     * to the statistics of the group.
+     */
+    private EntryStats close(final int group, final int derivedMetric, final long valueX,
+            final LatencySketch sketch) {
+
+        if (derivedMetric == NO_METRIC) {
+            return new EntryStats(valueX, group, sketch);
+        }
+
+        final long value;
+        switch (derivedMetric) {
+        case ERROR_RATE:
+            // each execution adds 0 or 100 so the mean is the percentage of failures
+            value = Math.round(sketch.getMean());
+            break;
+        case THROUGHPUT:
+            value = Math.round(sketch.getCount() * 1000D / getDerivedSpan());
+            break;
+        default:
+            value = Math.round(sketch.getMean() * sketch.getCount() / getDerivedSpan());
+            break;
+        }
+        groupStatsList.get(group).addValue(value);
+        return new EntryStats(valueX, value, group);
+    }
+
+    /**
+     * Closes, in time order, the buckets of a group that end before the watermark.
+     */
+    private void closeBuckets(final List<EntryStats> list, final int group, final long watermark) {
+
+        final Window window = windowList.get(group);
+        while (!window.bucketMap.isEmpty()) {
+            final Map.Entry<Long, LatencySketch> bucket = window.bucketMap.firstEntry();
+            if (watermark != Long.MAX_VALUE && bucket.getKey() + window.span > watermark) {
+                break;
+            }
+            window.bucketMap.pollFirstEntry();
+            list.add(close(group, window.derivedMetric, bucket.getKey(), bucket.getValue()));
+        }
+    }
+
+    private long getDerivedSpan() {
+        if (context.getTimeSpan() != null && context.getTimeSpan() > 0) {
+            return context.getTimeSpan();
+        }
+        return DEFAULT_DERIVED_SPAN;
+    }
+
+    /**
+     * Returns the event time of the last log entry added.
+     */
+    long getEndTime() {
+        return endTime;
+    }
+
+    EntryGroup getEntryGroup(final int group) {
+        return groupList.get(group);
+    }
+
+    List<EntryGroup> getEntryGroups() {
+        return new ArrayList<EntryGroup>(groupList);
+    }
+
+    private int getGroup(final MetricName metricName) {
+
+        if (!metricFilter.matches(metricName)) {
+            return NO_GROUP;
+        }
+
+        final String key = new StringBuilder() //
+                .append(metricName.getTaskName().toLowerCase(Locale.ENGLISH)).append('\0') //
+                .append(metricName.getSqlLabel().toLowerCase(Locale.ENGLISH)).append('\0') //
+                .append(metricName.getMetric().toLowerCase(Locale.ENGLISH)) //
+                .toString();
+
         EntryGroup group = groupMap.get(key);
         if (group == null) {
-            group = new EntryGroup(groupMap.size(), key);
+            group = new EntryGroup(groupList.size(), metricName);
             groupMap.put(key, group);
+            groupList.add(group);
+            final int derivedMetric = getDerivedMetric(metricName);
+            windowList.add(new Window(derivedMetric, derivedMetric == NO_METRIC ? getSpan() : getDerivedSpan()));
+            groupStatsList.add(new GroupStats(group.getId()));
+            slowestList.add(null);
+        }
+        return group.getId();
+    }
+
+    private int getFailedGroup(final String taskName, final String sqlLabel, final String errorClass) {
+
+        final String key = new StringBuilder() //
+                .append(taskName).append('\0') //
+                .append(sqlLabel).append('\0') //
+                .append(errorClass) //
+                .toString();
+
+        Integer group = failedGroupCache.get(key);
+        if (group == null) {
+            group = getGroup(new MetricName(taskName, sqlLabel,
+                    String.format("%s (%s)", MetricName.FAILED_TIME_KEY, errorClass)));
+            failedGroupCache.put(key, group);
         }
         return group;
     }
 
+    private int getLagGroup(final String taskName, final String sqlLabel) {
+
+        final String key = taskName + '\0' + sqlLabel;
+        Integer group = lagGroupCache.get(key);
+        if (group == null) {
+            group = getGroup(new MetricName(taskName, sqlLabel, MetricName.SCHEDULE_LAG_KEY));
+            lagGroupCache.put(key, group);
+        }
+        return group;
+    }
+
+    private int[] getPhaseGroups(final String taskName, final String sqlLabel) {
+
+        final String key = taskName + '\0' + sqlLabel;
+        int[] groups = phaseGroupCache.get(key);
+        if (groups == null) {
+            groups = new int[JdbcPhase.values().length];
+            for (final JdbcPhase phase : JdbcPhase.values()) {
+                groups[phase.ordinal()] = getGroup(new MetricName(taskName, sqlLabel,
+                        String.format("%s (%s, us)", MetricName.PHASE_TIME_KEY,
+                                phase.name().toLowerCase(Locale.ENGLISH).replace('_', '-'))));
+            }
+            phaseGroupCache.put(key, groups);
+        }
+        return groups;
+    }
+
+    /**
+     * Returns the group identifiers of the metrics of a label, resolving and caching them the first time the label is
+     * seen.
+     */
+    private int[] getGroups(final String taskName, final String sqlLabel) {
+
+        Map<String, int[]> labelMap = groupCache.get(taskName);
+        if (labelMap == null) {
+            labelMap = new HashMap<String, int[]>();
+            groupCache.put(taskName, labelMap);
+        }
+
+        int[] groups = labelMap.get(sqlLabel);
+        if (groups == null) {
+            groups = new int[METRIC_KEYS.length];
+            for (int i = 0; i < METRIC_KEYS.length; i++) {
+                groups[i] = getGroup(new MetricName(taskName, sqlLabel, METRIC_KEYS[i]));
+            }
+            labelMap.put(sqlLabel, groups);
+        }
+        return groups;
+    }
+
+    ReportContext getContext() {
+        return context;
+    }
+
     public GroupStats getGroupStats(final int group) {
-        return groupStatsMap.get(group);
+        return group < groupStatsList.size() ? groupStatsList.get(group) : null;
+    }
+
+    /**
+     * Returns the slowest executions of a group, only available for the total time of the executions, successful or
+     * failed.
+     *
+     * @return the slowest executions or <code>null</code> if the group doesn't keep them
+     */
+    SlowestEntries getSlowestEntries(final int group) {
+        return group < slowestList.size() ? slowestList.get(group) : null;
+    }
+
+    /**
+     * Returns the number of log entries that arrived later than the maximum lateness of the report, after the buckets
+     * of their time could have been closed, and were left out of the points and the totals of all their groups.
+     */
+    long getLateEntries() {
+        return lateEntries;
+    }
+
+    private long getSpan() {
+        if (context.getTimeSpan() != null && context.getTimeSpan() > 0) {
+            return context.getTimeSpan();
+        }
+        return 1;
+    }
+
+    /**
+     * Returns the event time of the first log entry added.
+     */
+    long getStartTime() {
+        return startTime;
+    }
+
+    private long getWatermark() {
+        return endTime == Long.MIN_VALUE ? Long.MIN_VALUE : endTime - context.getMaxLateness();
+    }
+
+    /**
+     * Replaces the context of these statistics, restored from a checkpoint, by the one of the current analysis.
+     *
+     * @param newContext
+     *            the new context, that must compute the same statistics ({@link ReportContext#hasSameAnalysis})
+     */
+    void rebind(final ReportContext newContext) {
+
+        if (!context.hasSameAnalysis(newContext)) {
+            throw new IllegalArgumentException("The new context computes different statistics");
+        }
+        this.context = newContext;
+        this.metricFilter = MetricFilter.compile(newContext.getMetricNameList());
     }
 
     private long normalizeEventTime(final long eventTime) {
@@ -120,22 +486,4 @@ class ReportStats {
         }
         return normalizedValue;
     }
-
-    private EntryStats process(final EntryStats entryStats) {
-
-        final EntryStats previousEntryStats = entryStatsMap.get(entryStats.getGroup());
-        if (previousEntryStats == null) {
-            // it's a new metric
-            entryStatsMap.put(entryStats.getGroup(), entryStats);
-        } else if (previousEntryStats.getX() < entryStats.getX()) {
-            // it's a new X value so returns the previous one
-            entryStatsMap.put(entryStats.getGroup(), entryStats);
-            return previousEntryStats;
-
-        } else if (previousEntryStats.getX() == entryStats.getX() && previousEntryStats.getY() < entryStats.getY()) {
-            // update with MAX value
-            entryStatsMap.put(entryStats.getGroup(), entryStats);
-        }
-        return null;
-    }
 }
@@ -18,11 +18,17 @@ package com.dattack.dbping.report;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.dattack.dbping.engine.LogEntry;
-import com.dattack.dbping.log.CSVFileLogReader;
+import com.dattack.dbping.log.CSVFileFastLogReader;
+import com.dattack.dbping.log.LogIndex;
+import com.dattack.dbping.log.LogReader;
+import com.dattack.dbping.log.MergingLogReader;
 
 /**
  * @author cvarela
@@ -30,7 +36,20 @@ import com.dattack.dbping.log.CSVFileLogReader;
  */
 public class Reporter {
 
-    private static void createHtml(final PrintWriter writer, final String jsFile, final String logFile) {
+    /**
+     * Writes the HTML page that draws the report.
+     *
+     * @param writer
+     *            the output writer
+     * @param logFile
+     *            the name of the log file
+     * @param refreshMillis
+     *            the period of time between reloads of the page, or zero to disable them
+     * @param jsFiles
+     *            the Javascript files to load, in order
+     */
+    static void createHtml(final PrintWriter writer, final String logFile, final long refreshMillis,
+            final String... jsFiles) {
 
         writer.println("<!DOCTYPE HTML>");
         writer.println("<html>");
@@ -38,6 +57,10 @@ public class Reporter {
         writer.println("  <title>DBPing</title>");
         writer.println("  <meta content='text/html;charset=utf-8' http-equiv='Content-Type'>");
         writer.println("  <meta content='utf-8' http-equiv='encoding'>");
+        if (refreshMillis > 0) {
+            writer.println(String.format("  <meta http-equiv='refresh' content='%d'>",
+                    Math.max(1, TimeUnit.MILLISECONDS.toSeconds(refreshMillis))));
+        }
         writer.println(
                 "  <link rel='stylesheet' href='https://maxcdn.bootstrapcdn.com/bootstrap/3.3.2/css/bootstrap.min.css'>");
         writer.println(
@@ -50,23 +73,76 @@ public class Reporter {
         writer.println("<body>");
         writer.println(String.format("<h3>Log file: %s</h3>", logFile));
         writer.println("<br />");
+        writer.println("<div id='series'>");
+        for (final Statistic statistic : Statistic.values()) {
+            writer.println(String.format(
+                    "  <label><input type='checkbox' checked onchange='showSeries(\"%s\", this.checked)'> %s</label>",
+                    statistic.getLabel(), statistic.getLabel()));
+        }
+        writer.println("</div>");
         writer.println("<div id='visualization'></div>");
-        writer.println(String.format("<script src='%s'></script>", jsFile));
+        for (final String jsFile : jsFiles) {
+            writer.println(String.format("<script src='%s'></script>", jsFile));
+        }
         writer.println("</body>");
         writer.println("</html>");
     }
 
-    private static void createJs(final ReportContext context, final PrintWriter writer,
-            final CSVFileLogReader logReader) throws IOException {
+    /**
+     * Restricts the reading to the date range of the report when the log file has an index.
+     */
+    private static void applyIndex(final File dataFile, final ReportContext context,
+            final CSVFileFastLogReader logReader) throws IOException {
 
-        final ReportStats reportStats = new ReportStats(context);
+        if (context.getStartDate() == null && context.getEndDate() == null) {
+            return;
+        }
+
+        final LogIndex index = LogIndex.load(dataFile);
+        if (index == null) {
+            return;
+        }
+
+        if (context.getStartDate() != null) {
+            final long offset = index.getStartOffset(context.getStartDate().getTime());
+            logReader.seek(offset, index.getColumns(offset));
+        }
+
+        if (context.getEndDate() != null) {
+            logReader.setLimit(index.getEndOffset(context.getEndDate().getTime()));
+        }
+    }
+
+    private static void createJs(final ReportContext context, final PrintWriter writer, final LogReader logReader)
+            throws IOException {
 
         writer.println("var items = [");
+        final ReportStats reportStats = writePoints(context, logReader, new VisItemWriter(context, writer));
+        writer.println("];");
+        printSummary(reportStats);
+        writeGroups(writer, reportStats);
 
-        int items = 0;
+        writer.println("var container = document.getElementById('visualization');");
+        writer.println("var dataset = new vis.DataSet(items);");
+        writeOptions(context, writer, reportStats.getStartTime(), reportStats.getEndTime());
+        writer.println("var graph2d = new vis.Graph2d(container, dataset, groups, options);");
+        writeShowSeries(writer);
+    }
 
-        long startDate = Long.MAX_VALUE;
-        long endDate = Long.MIN_VALUE;
+    /**
+     * Reads the log entries, computes the statistics of each time bucket and sends their points to a writer.
+     *
+     * @return the statistics of the report
+     */
+    private static ReportStats writePoints(final ReportContext context, final LogReader logReader,
+            final PointWriter pointWriter) throws IOException {
+
+        final ReportStats reportStats = new ReportStats(context);
+
+        MinMaxDownsampler downsampler = null;
+        if (context.getMaxPoints() != null) {
+            downsampler = new MinMaxDownsampler(context.getMaxPoints());
+        }
 
         long reportStartDateFilter = -1;
         long reportEndDateFilter = Long.MAX_VALUE;
@@ -80,7 +156,7 @@ public class Reporter {
         }
 
         while (true) {
-            final LogEntry item = logReader.next();
+            final LogEntry item = next(logReader);
             if (item == null) {
                 break;
             }
@@ -90,25 +166,56 @@ public class Reporter {
                 continue;
             }
 
-            startDate = Math.min(startDate, item.getEventTime());
-            endDate = Math.max(endDate, item.getEventTime());
+            addEntryStats(reportStats, pointWriter, downsampler, reportStats.add(item));
+        }
+
+        addEntryStats(reportStats, pointWriter, downsampler, reportStats.flush());
+
+        if (downsampler != null) {
+            for (final EntryStats entryStats : downsampler.getEntryStats()) {
+                pointWriter.write(entryStats);
+            }
+        }
+        return reportStats;
+    }
+
+    private static LogEntry next(final LogReader logReader) throws IOException {
+        try {
+            return logReader.next();
+        } catch (final ParseException e) {
+            throw new IOException(e);
+        }
+    }
 
-            final List<EntryStats> entryStatsList = reportStats.add(item);
+    /**
+     * Adds a point for each statistic of the given buckets.
+     */
+    static void addEntryStats(final ReportStats reportStats, final PointWriter pointWriter,
+            final MinMaxDownsampler downsampler, final List<EntryStats> entryStatsList) {
 
-            for (final EntryStats entryStats : entryStatsList) {
-                final String line = String.format("{x: '%s', y: %d, group: %d}",
-                        context.getDateFormat().format(new Date(entryStats.getX())), entryStats.getY(),
-                        entryStats.getGroup());
-                if (items > 0) {
-                    writer.print(",");
+        for (final EntryStats entryStats : entryStatsList) {
+            final EntryGroup entryGroup = reportStats.getEntryGroup(entryStats.getGroup());
+            for (final Statistic statistic : Statistic.values()) {
+                if (!statistic.appliesTo(entryGroup)) {
+                    continue;
+                }
+                final EntryStats point = new EntryStats(entryStats.getX(), statistic.getValue(entryStats),
+                        statistic.getSeries(entryStats.getGroup()));
+                if (downsampler == null) {
+                    pointWriter.write(point);
+                } else {
+                    downsampler.add(point);
                 }
-                writer.print(line);
-                items++;
             }
         }
+    }
 
-        writer.println("];");
-        writer.println("var groups = new vis.DataSet();");
+    static void printSummary(final ReportStats reportStats) {
+
+        if (reportStats.getLateEntries() > 0) {
+            System.out.format("%n%nLate entries discarded: %d (use a greater maximum lateness to include them)%n",
+                    reportStats.getLateEntries());
+        }
 
         for (final EntryGroup entryGroup : reportStats.getEntryGroups()) {
 
@@ -120,19 +227,43 @@ public class Reporter {
                 System.out.format("Max. value: %s%n", groupStats.getStatistics().getMax());
                 System.out.format("Mean: %s%n", groupStats.getStatistics().getMean());
                 System.out.format("Standard deviation: %s%n", groupStats.getStatistics().getStandardDeviation());
+                System.out.format("Percentiles (50, 90, 99): %d, %d, %d%n", groupStats.getSketch().getPercentile(50),
+                        groupStats.getSketch().getPercentile(90), groupStats.getSketch().getPercentile(99));
             }
-            writer.println(
-                    String.format("groups.add({id: '%d', content: '%s', options: {drawPoints: {style: 'circle'}}});",
-                            entryGroup.getId(), entryGroup.getName()));
+        }
+    }
+
+    static void writeGroups(final PrintWriter writer, final ReportStats reportStats) {
 
+        writer.println("var groups = new vis.DataSet();");
+
+        for (final EntryGroup entryGroup : reportStats.getEntryGroups()) {
+            for (final Statistic statistic : Statistic.values()) {
+                if (!statistic.appliesTo(entryGroup)) {
+                    continue;
+                }
+                writer.println(String.format(
+                        "groups.add({id: '%d', kind: '%s', content: '%s [%s]', "
+                                + "options: {drawPoints: {style: 'circle'}, yAxisOrientation: '%s'}});",
+                        statistic.getSeries(entryGroup.getId()), statistic.getLabel(), entryGroup.getName(),
+                        statistic.getLabel(), statistic.isSecondaryAxis() ? "right" : "left"));
+            }
         }
+    }
 
-        writer.println("var container = document.getElementById('visualization');");
-        writer.println("var dataset = new vis.DataSet(items);");
+    static void writeOptions(final ReportContext context, final PrintWriter writer, final long startDate,
+            final long endDate) {
         writer.println(String.format("var options = {defaultGroup: 'ungrouped',legend: true,start: '%s',end: '%s'};",
                 context.getDateFormat().format(new Date(startDate)), //
                 context.getDateFormat().format(new Date(endDate))));
-        writer.println("var graph2d = new vis.Graph2d(container, dataset, groups, options);");
+    }
+
+    static void writeShowSeries(final PrintWriter writer) {
+        writer.println("function showSeries(kind, visible) {");
+        writer.println("  groups.forEach(function (group) {");
+        writer.println("    if (group.kind === kind) { groups.update({id: group.id, visible: visible}); }");
+        writer.println("  });");
+        writer.println("}");
     }
 
     /**
@@ -147,19 +278,104 @@ public class Reporter {
      */
     public static void execute(final File dataFile, final ReportContext context) throws IOException {
 
-        try (CSVFileLogReader logReader = new CSVFileLogReader(dataFile)) {
+        try (CSVFileFastLogReader logReader = new CSVFileFastLogReader(dataFile)) {
+
+            applyIndex(dataFile, context, logReader);
+            final ClientTelemetry telemetry = new ClientTelemetry();
+            logReader.setAnnotationListener(telemetry);
+            report(dataFile.getParent(), dataFile.getName(), logReader, telemetry, context);
+        }
+    }
+
+    /**
+     * Merges several log files by time and generates a single report, named after the first file with the suffix
+     * <code>.merged</code>. Only the next entry of each file is kept in memory.
+     *
+     * @param dataFiles
+     *            the input files: the shards of a task or the logs of several agents
+     * @param context
+     *            the report context
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public static void execute(final List<File> dataFiles, final ReportContext context) throws IOException {
+
+        if (dataFiles.size() == 1) {
+            execute(dataFiles.get(0), context);
+            return;
+        }
 
-            // Javascript file
-            final String jsFilename = dataFile.getName() + ".js";
-            try (PrintWriter jsWriter = new PrintWriter(new File(dataFile.getParent(), jsFilename), "UTF-8")) {
-                createJs(context, jsWriter, logReader);
+        final ClientTelemetry telemetry = new ClientTelemetry();
+        final List<CSVFileFastLogReader> readerList = new ArrayList<CSVFileFastLogReader>();
+        try {
+            for (final File dataFile : dataFiles) {
+                final CSVFileFastLogReader reader = new CSVFileFastLogReader(dataFile);
+                readerList.add(reader);
+                applyIndex(dataFile, context, reader);
+                reader.setAnnotationListener(telemetry);
             }
+        } catch (final IOException e) {
+            try {
+                new MergingLogReader(readerList).close();
+            } catch (final IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+
+        final File firstFile = dataFiles.get(0);
+        try (MergingLogReader logReader = new MergingLogReader(readerList)) {
+            report(firstFile.getParent(), firstFile.getName() + ".merged", logReader, telemetry, context);
+        }
+    }
+
+    private static void report(final String directory, final String name, final LogReader logReader,
+            final ClientTelemetry telemetry, final ReportContext context) throws IOException {
 
-            // HTML file
-            final String htmlFilename = dataFile.getName() + ".html";
-            try (PrintWriter htmlWriter = new PrintWriter(new File(dataFile.getParent(), htmlFilename), "UTF-8")) {
-                createHtml(htmlWriter, jsFilename, dataFile.getName());
+        if (context.getFormat() == ReportFormat.HTML) {
+            final File htmlFile = new File(directory, name + ".html");
+            try (HtmlReportWriter htmlWriter = new HtmlReportWriter(new PrintWriter(htmlFile, "UTF-8"))) {
+                htmlWriter.writeHeader(name);
+                final ReportStats reportStats = writePoints(context, logReader, htmlWriter);
+                final List<ClientTelemetry.Outlier> outlierList = telemetry.findOutliers(reportStats);
+                printSummary(reportStats);
+                telemetry.printSummary(System.out, reportStats, outlierList);
+                htmlWriter.writeFooter(reportStats, telemetry, outlierList);
             }
+            return;
+        }
+
+        // Javascript file
+        final String jsFilename = name + ".js";
+        try (PrintWriter jsWriter = new PrintWriter(new File(directory, jsFilename), "UTF-8")) {
+            createJs(context, jsWriter, logReader);
+        }
+
+        // HTML file
+        final String htmlFilename = name + ".html";
+        try (PrintWriter htmlWriter = new PrintWriter(new File(directory, htmlFilename), "UTF-8")) {
+            createHtml(htmlWriter, name, 0, jsFilename);
         }
     }
+
+    /**
+     * Follows the growth of a log file, updating the HTML report periodically until the thread is interrupted. The
+     * report always uses the {@link ReportFormat#VIS} format.
+     *
+     * @param dataFile
+     *            the input file
+     * @param context
+     *            the report context
+     * @param refreshMillis
+     *            the period of time between updates of the report
+     * @param checkpointFile
+     *            the file used to save the state of the analysis so it can be resumed after a restart, or
+     *            <code>null</code> to disable the checkpoints
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public static void follow(final File dataFile, final ReportContext context, final long refreshMillis,
+            final File checkpointFile) throws IOException {
+        new ReportFollower(dataFile, context, refreshMillis, checkpointFile).run();
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the slowest executions of a group: the time they started and their duration. The capacity is small, so a
+ * plain array is cheaper than a heap and the value needed to enter is cached to discard most executions with a single
+ * comparison.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class SlowestEntries implements Serializable {
+
+    private static final long serialVersionUID = -5815021431520922374L;
+
+    private final long[] times;
+    private final long[] durations;
+    private int size;
+    private int minIndex;
+
+    SlowestEntries(final int capacity) {
+        this.times = new long[capacity];
+        this.durations = new long[capacity];
+        this.size = 0;
+        this.minIndex = 0;
+    }
+
+    void add(final long time, final long duration) {
+
+        if (size < durations.length) {
+            times[size] = time;
+            durations[size] = duration;
+            size++;
+        } else if (duration > durations[minIndex]) {
+            times[minIndex] = time;
+            durations[minIndex] = duration;
+        } else {
+            return;
+        }
+
+        if (size == durations.length) {
+            minIndex = 0;
+            for (int i = 1; i < size; i++) {
+                if (durations[i] < durations[minIndex]) {
+                    minIndex = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the executions, the slowest first.
+     *
+     * @return a list of pairs <code>{ start time, duration }</code>
+     */
+    List<long[]> getEntries() {
+
+        final List<long[]> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new long[] { times[i], durations[i] });
+        }
+        Collections.sort(list, (o1, o2) -> Long.compare(o2[1], o1[1]));
+        return list;
+    }
+}
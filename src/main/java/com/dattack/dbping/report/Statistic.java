@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+/**
+ * The series drawn in the report for each metric. The latency groups draw the percentiles, the maximum and the number
+ * of executions while each derived group draws only its own value.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+enum Statistic {
+
+    P50("p50", false, null) {
+        @Override
+        long getValue(final EntryStats entryStats) {
+            return entryStats.getP50();
+        }
+    },
+    P99("p99", false, null) {
+        @Override
+        long getValue(final EntryStats entryStats) {
+            return entryStats.getP99();
+        }
+    },
+    MAX("max", false, null) {
+        @Override
+        long getValue(final EntryStats entryStats) {
+            return entryStats.getMax();
+        }
+    },
+    EXECUTIONS("executions", true, null) {
+        @Override
+        long getValue(final EntryStats entryStats) {
+            return entryStats.getCount();
+        }
+    },
+    ERROR_RATE("error %", true, MetricName.ERROR_RATE_KEY) {
+        @Override
+        long getValue(final EntryStats entryStats) {
+            return entryStats.getY();
+        }
+    },
+    THROUGHPUT("exec/s", true, MetricName.THROUGHPUT_KEY) {
+        @Override
+        long getValue(final EntryStats entryStats) {
+            return entryStats.getY();
+        }
+    },
+    CONCURRENCY("in-flight", true, MetricName.CONCURRENCY_KEY) {
+        @Override
+        long getValue(final EntryStats entryStats) {
+            return entryStats.getY();
+        }
+    };
+
+    private final String label;
+    private final boolean secondaryAxis;
+    private final String metricKey;
+
+    Statistic(final String label, final boolean secondaryAxis, final String metricKey) {
+        this.label = label;
+        this.secondaryAxis = secondaryAxis;
+        this.metricKey = metricKey;
+    }
+
+    /**
+     * Checks if this statistic is drawn for a group.
+     *
+     * @param entryGroup
+     *            the group
+     * @return <code>true</code> if the group has a series for this statistic
+     */
+    boolean appliesTo(final EntryGroup entryGroup) {
+        if (metricKey == null) {
+            return !entryGroup.isDerived();
+        }
+        return metricKey.equalsIgnoreCase(entryGroup.getName().getMetric());
+    }
+
+    /**
+     * Returns the identifier of the series that draws this statistic for a group.
+     *
+     * @param group
+     *            the group identifier
+     * @return the series identifier
+     */
+    int getSeries(final int group) {
+        return group * values().length + ordinal();
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    abstract long getValue(final EntryStats entryStats);
+
+    boolean isSecondaryAxis() {
+        return secondaryAxis;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import java.io.PrintWriter;
+import java.util.Date;
+
+/**
+ * Writes the points as a comma-separated list of vis.js items.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class VisItemWriter implements PointWriter {
+
+    private final ReportContext context;
+    private final PrintWriter writer;
+    private int count;
+
+    VisItemWriter(final ReportContext context, final PrintWriter writer) {
+        this.context = context;
+        this.writer = writer;
+        this.count = 0;
+    }
+
+    /**
+     * Returns the number of items written.
+     */
+    int getCount() {
+        return count;
+    }
+
+    @Override
+    public void write(final EntryStats point) {
+
+        if (count > 0) {
+            writer.print(",");
+        }
+        writer.print(String.format("{x: '%s', y: %d, group: %d}",
+                context.getDateFormat().format(new Date(point.getX())), point.getY(), point.getGroup()));
+        count++;
+    }
+}
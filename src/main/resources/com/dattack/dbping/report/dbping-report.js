@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Minimal line chart renderer embedded in the DBPing reports. The points of each series arrive in chunks of two
+ * base64 columns of little-endian 32-bit integers: the time deltas from the start of the chunk and the values.
+ * Drag on the chart to zoom in and double-click to reset the zoom. The pauses of the client are drawn as grey bands
+ * and the slow executions that overlap them as red markers.
+ */
+var dbping = (function () {
+
+    var PALETTE = ['#1f77b4', '#ff7f0e', '#2ca02c', '#d62728', '#9467bd', '#8c564b', '#e377c2', '#7f7f7f',
+        '#bcbd22', '#17becf'];
+    var DASHES = [[], [6, 3], [2, 2], [8, 3, 2, 3]];
+    var MARGIN = {top: 10, right: 70, bottom: 40, left: 70};
+    var HEIGHT = 500;
+
+    var series = {};
+    var seriesList = [];
+    var hiddenKinds = {};
+    var kinds = [];
+    var names = [];
+    var pauses = [];
+    var outliers = [];
+    var fullRange = null;
+    var viewRange = null;
+    var canvas, context, dragStart = null, dragEnd = null;
+
+    function decode(text) {
+        var binary = atob(text);
+        var view = new DataView(new ArrayBuffer(binary.length));
+        for (var i = 0; i < binary.length; i++) {
+            view.setUint8(i, binary.charCodeAt(i));
+        }
+        var result = new Array(binary.length / 4);
+        for (var j = 0; j < result.length; j++) {
+            result[j] = view.getInt32(j * 4, true);
+        }
+        return result;
+    }
+
+    function getSeries(id) {
+        if (!series[id]) {
+            series[id] = {id: id, x: [], y: [], visible: true};
+        }
+        return series[id];
+    }
+
+    function addChunk(id, baseX, deltas, values) {
+        var target = getSeries(id);
+        var dx = decode(deltas);
+        var dy = decode(values);
+        for (var i = 0; i < dx.length; i++) {
+            target.x.push(baseX + dx[i]);
+            target.y.push(dy[i]);
+        }
+    }
+
+    function addPause(start, duration, label) {
+        pauses.push({start: start, duration: Math.max(1, duration), label: label});
+    }
+
+    function addOutlier(x, y, label) {
+        outliers.push({x: x, y: y, label: label});
+    }
+
+    function addSeries(id, kind, name, secondary) {
+        var target = getSeries(id);
+        target.kind = kind;
+        target.name = name;
+        target.secondary = secondary;
+        if (kinds.indexOf(kind) < 0) {
+            kinds.push(kind);
+        }
+        if (names.indexOf(name) < 0) {
+            names.push(name);
+        }
+        target.color = PALETTE[names.indexOf(name) % PALETTE.length];
+        target.dash = DASHES[kinds.indexOf(kind) % DASHES.length];
+        seriesList.push(target);
+    }
+
+    function isVisible(target) {
+        return target.visible && !hiddenKinds[target.kind] && target.x.length > 0;
+    }
+
+    function pad(value, length) {
+        var text = String(value);
+        while (text.length < length) {
+            text = '0' + text;
+        }
+        return text;
+    }
+
+    function formatDate(time) {
+        var date = new Date(time);
+        return date.getFullYear() + '-' + pad(date.getMonth() + 1, 2) + '-' + pad(date.getDate(), 2) + ' '
+            + pad(date.getHours(), 2) + ':' + pad(date.getMinutes(), 2) + ':' + pad(date.getSeconds(), 2);
+    }
+
+    function niceStep(range, ticks) {
+        var raw = range / ticks;
+        var magnitude = Math.pow(10, Math.floor(Math.log(raw) / Math.LN10));
+        var normalized = raw / magnitude;
+        return (normalized < 1.5 ? 1 : normalized < 3 ? 2 : normalized < 7 ? 5 : 10) * magnitude;
+    }
+
+    function valueRange(secondary) {
+        var max = 0;
+        seriesList.forEach(function (target) {
+            if (!isVisible(target) || target.secondary !== secondary) {
+                return;
+            }
+            for (var i = 0; i < target.x.length; i++) {
+                if (target.x[i] >= viewRange[0] && target.x[i] <= viewRange[1]) {
+                    max = Math.max(max, target.y[i]);
+                }
+            }
+        });
+        return max > 0 ? max * 1.05 : 1;
+    }
+
+    function draw() {
+        var width = canvas.width, height = canvas.height;
+        var plotWidth = width - MARGIN.left - MARGIN.right;
+        var plotHeight = height - MARGIN.top - MARGIN.bottom;
+        context.clearRect(0, 0, width, height);
+        if (!viewRange) {
+            return;
+        }
+
+        var span = Math.max(1, viewRange[1] - viewRange[0]);
+        var maxY = [valueRange(false), valueRange(true)];
+        var toX = function (x) {
+            return MARGIN.left + (x - viewRange[0]) / span * plotWidth;
+        };
+        var toY = function (y, secondary) {
+            return MARGIN.top + plotHeight - y / maxY[secondary ? 1 : 0] * plotHeight;
+        };
+
+        // axes
+        context.strokeStyle = '#999';
+        context.fillStyle = '#333';
+        context.font = '11px sans-serif';
+        context.lineWidth = 1;
+        context.setLineDash([]);
+        context.strokeRect(MARGIN.left, MARGIN.top, plotWidth, plotHeight);
+
+        context.textAlign = 'right';
+        var step = niceStep(maxY[0], 8);
+        for (var y = 0; y <= maxY[0]; y += step) {
+            context.fillText(String(y), MARGIN.left - 5, toY(y, false) + 4);
+        }
+        context.textAlign = 'left';
+        step = niceStep(maxY[1], 8);
+        for (y = 0; y <= maxY[1]; y += step) {
+            context.fillText(String(y), width - MARGIN.right + 5, toY(y, true) + 4);
+        }
+        context.textAlign = 'center';
+        var ticks = Math.max(2, Math.floor(plotWidth / 180));
+        for (var t = 0; t <= ticks; t++) {
+            var time = viewRange[0] + span * t / ticks;
+            context.fillText(formatDate(time), toX(time), height - MARGIN.bottom + 16);
+        }
+
+        // series
+        context.save();
+        context.beginPath();
+        context.rect(MARGIN.left, MARGIN.top, plotWidth, plotHeight);
+        context.clip();
+        context.fillStyle = 'rgba(128, 128, 128, 0.3)';
+        pauses.forEach(function (pause) {
+            var left = toX(pause.start);
+            context.fillRect(left, MARGIN.top, Math.max(1, toX(pause.start + pause.duration) - left), plotHeight);
+        });
+        seriesList.forEach(function (target) {
+            if (!isVisible(target)) {
+                return;
+            }
+            context.strokeStyle = target.color;
+            context.setLineDash(target.dash);
+            context.beginPath();
+            for (var i = 0; i < target.x.length; i++) {
+                var px = toX(target.x[i]), py = toY(target.y[i], target.secondary);
+                if (i === 0) {
+                    context.moveTo(px, py);
+                } else {
+                    context.lineTo(px, py);
+                }
+            }
+            context.stroke();
+        });
+        context.strokeStyle = '#d62728';
+        context.setLineDash([]);
+        outliers.forEach(function (outlier) {
+            context.beginPath();
+            context.arc(toX(outlier.x), toY(Math.min(outlier.y, maxY[0]), false), 5, 0, 2 * Math.PI);
+            context.stroke();
+        });
+        context.restore();
+
+        if (dragStart !== null && dragEnd !== null) {
+            context.fillStyle = 'rgba(100, 100, 255, 0.2)';
+            context.fillRect(Math.min(dragStart, dragEnd), MARGIN.top, Math.abs(dragEnd - dragStart), plotHeight);
+        }
+    }
+
+    function resize() {
+        canvas.width = canvas.parentNode.clientWidth;
+        canvas.height = HEIGHT;
+        draw();
+    }
+
+    function toTime(pixel) {
+        var plotWidth = canvas.width - MARGIN.left - MARGIN.right;
+        return viewRange[0] + (pixel - MARGIN.left) / plotWidth * (viewRange[1] - viewRange[0]);
+    }
+
+    function writeLegend() {
+        var legend = document.getElementById('legend');
+        seriesList.forEach(function (target) {
+            if (target.x.length === 0) {
+                return;
+            }
+            var label = document.createElement('label');
+            var checkbox = document.createElement('input');
+            checkbox.type = 'checkbox';
+            checkbox.checked = true;
+            checkbox.onchange = function () {
+                target.visible = checkbox.checked;
+                draw();
+            };
+            var swatch = document.createElement('span');
+            swatch.className = 'swatch';
+            swatch.style.backgroundColor = target.color;
+            label.appendChild(checkbox);
+            label.appendChild(swatch);
+            label.appendChild(document.createTextNode(target.name + ' [' + target.kind + ']'));
+            legend.appendChild(label);
+        });
+        outliers.forEach(function (outlier) {
+            var line = document.createElement('div');
+            line.className = 'outlier';
+            line.appendChild(document.createTextNode(formatDate(outlier.x) + ' ' + outlier.label));
+            legend.appendChild(line);
+        });
+    }
+
+    function render() {
+        seriesList.forEach(function (target) {
+            if (target.x.length > 0) {
+                var min = target.x[0], max = target.x[target.x.length - 1];
+                fullRange = fullRange ? [Math.min(fullRange[0], min), Math.max(fullRange[1], max)] : [min, max];
+            }
+        });
+        viewRange = fullRange;
+
+        canvas = document.getElementById('canvas');
+        context = canvas.getContext('2d');
+        canvas.onmousedown = function (event) {
+            dragStart = event.offsetX;
+        };
+        canvas.onmousemove = function (event) {
+            if (dragStart !== null) {
+                dragEnd = event.offsetX;
+                draw();
+            }
+        };
+        canvas.onmouseup = function (event) {
+            if (dragStart !== null && Math.abs(event.offsetX - dragStart) > 5) {
+                var start = toTime(Math.min(dragStart, event.offsetX));
+                var end = toTime(Math.max(dragStart, event.offsetX));
+                viewRange = [start, end];
+            }
+            dragStart = null;
+            dragEnd = null;
+            draw();
+        };
+        canvas.ondblclick = function () {
+            viewRange = fullRange;
+            draw();
+        };
+        window.addEventListener('resize', resize);
+        writeLegend();
+        resize();
+    }
+
+    function showKind(kind, visible) {
+        hiddenKinds[kind] = !visible;
+        draw();
+    }
+
+    return {addChunk: addChunk, addOutlier: addOutlier, addPause: addPause, addSeries: addSeries, render: render,
+        showKind: showKind};
+})();
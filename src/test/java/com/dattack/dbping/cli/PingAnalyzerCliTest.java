@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.commons.cli.ParseException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dattack.dbping.report.ReportContext;
+
+/**
+ * Checks that the comparison of logs refuses the invalid thresholds and the empty sets of data files.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class PingAnalyzerCliTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static void assertInvalidThresholds(final String maxRegression, final String alpha) {
+        try {
+            PingAnalyzerCli.createComparator(new ReportContext(), maxRegression, alpha);
+            fail(String.format("A ParseException was expected (max_regression: %s, alpha: %s)", maxRegression,
+                    alpha));
+        } catch (final ParseException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testValidThresholds() throws ParseException {
+        assertNotNull(PingAnalyzerCli.createComparator(new ReportContext(), null, null));
+        assertNotNull(PingAnalyzerCli.createComparator(new ReportContext(), "0", "0.01"));
+        assertNotNull(PingAnalyzerCli.createComparator(new ReportContext(), " 25.5 ", "0.999"));
+    }
+
+    @Test
+    public void testInvalidThresholds() {
+        assertInvalidThresholds("ten", null);
+        assertInvalidThresholds("-5", null);
+        assertInvalidThresholds("NaN", null);
+        assertInvalidThresholds("Infinity", null);
+        assertInvalidThresholds(null, "five");
+        assertInvalidThresholds(null, "0");
+        assertInvalidThresholds(null, "1");
+        assertInvalidThresholds(null, "-0.05");
+        assertInvalidThresholds(null, "5");
+        assertInvalidThresholds(null, "NaN");
+    }
+
+    @Test
+    public void testDataFiles() throws Exception {
+
+        final File directory = folder.newFolder("baseline");
+        new File(directory, "a.log").createNewFile();
+        new File(directory, "b.txt").createNewFile();
+        final File file = folder.newFile("c.log");
+
+        assertEquals(Arrays.asList(new File(directory, "a.log"), file),
+                PingAnalyzerCli.listDataFiles("baseline", new String[] { directory.getPath(), file.getPath() }));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testEmptyDirectory() throws Exception {
+        PingAnalyzerCli.listDataFiles("candidate", new String[] { folder.newFolder("candidate").getPath() });
+    }
+
+    @Test(expected = ParseException.class)
+    public void testNoPaths() throws Exception {
+        PingAnalyzerCli.listDataFiles("candidate", null);
+    }
+}
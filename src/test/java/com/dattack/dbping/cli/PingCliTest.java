@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dattack.dbping.beans.DbpingParser;
+import com.dattack.dbping.engine.PingEngine;
+import com.dattack.dbping.engine.SloAssertion;
+import com.dattack.dbping.engine.SloReport;
+
+/**
+ * Checks the exit status computed from the assertions of a run against the stub driver.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class PingCliTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final PrintStream out = new PrintStream(new ByteArrayOutputStream());
+
+    private PingEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+
+        final File configuration = folder.newFile("assert.xml");
+        try (PrintWriter writer = new PrintWriter(configuration, "UTF-8")) {
+            writer.format("<dbping>%n");
+            writer.format("  <task name=\"assert\" threads=\"2\" executions=\"5\" timeBetweenExecutions=\"0\" "
+                    + "datasource=\"jdbc/stub-zero\">%n");
+            writer.format("    <query label=\"q1\">SELECT 1</query>%n");
+            writer.format("    <log-file>%s</log-file>%n", new File(folder.getRoot(), "assert.log"));
+            writer.format("  </task>%n");
+            writer.format("</dbping>%n");
+        }
+
+        engine = new PingEngine(0, 0, false, false);
+        engine.execute(DbpingParser.parse(configuration), null, null);
+        engine.awaitTermination();
+    }
+
+    private int report(final String... assertions) throws IOException {
+
+        final List<SloAssertion> assertionList = new ArrayList<>();
+        for (final String assertion : assertions) {
+            assertionList.add(SloAssertion.parse(assertion));
+        }
+
+        return PingCli.report(engine.checkAssertions(assertionList), null, out);
+    }
+
+    @Test
+    public void testWithoutAssertions() throws IOException {
+        assertEquals(0, PingCli.report(engine.checkAssertions(Collections.<SloAssertion>emptyList()), null, out));
+    }
+
+    @Test
+    public void testPassed() throws IOException {
+        assertEquals(0, report("assert:executions >= 10", "*:q1:errors < 1"));
+    }
+
+    @Test
+    public void testFailed() throws IOException {
+        assertTrue(report("assert:executions >= 10", "assert:executions > 10") != 0);
+    }
+
+    @Test
+    public void testTaskNotRun() throws IOException {
+        assertTrue(report("other:errors < 1") != 0);
+    }
+
+    @Test
+    public void testJUnitReport() throws IOException {
+
+        final File junitFile = new File(folder.getRoot(), "assert-junit.xml");
+        final SloReport report = engine.checkAssertions(
+                Collections.singletonList(SloAssertion.parse("assert:errors > 0")));
+        assertTrue(PingCli.report(report, junitFile.getPath(), out) != 0);
+        assertTrue(junitFile.isFile());
+    }
+}
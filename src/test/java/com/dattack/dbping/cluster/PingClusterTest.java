@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dattack.dbping.beans.DbpingBean;
+import com.dattack.dbping.beans.DbpingParser;
+
+/**
+ * Runs a task in two agents listening on the loopback interface.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class PingClusterTest {
+
+    private static final String TOKEN = "test-token";
+    private static final int THREADS = 5;
+    private static final int EXECUTIONS = 4;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<ServerSocket> serverSocketList = new ArrayList<>();
+    private final List<InetSocketAddress> agentList = new ArrayList<>();
+
+    private DbpingBean dbpingBean;
+
+    @Before
+    public void setUp() throws Exception {
+
+        final File configuration = folder.newFile("cluster.xml");
+        try (PrintWriter writer = new PrintWriter(configuration, "UTF-8")) {
+            writer.format("<dbping>%n");
+            writer.format("  <task name=\"cluster\" threads=\"%d\" executions=\"%d\" timeBetweenExecutions=\"0\" "
+                    + "datasource=\"jdbc/stub-zero\">%n", THREADS, EXECUTIONS);
+            writer.format("    <query label=\"q1\">SELECT 1</query>%n");
+            writer.format("    <log-file>%s</log-file>%n", new File(folder.getRoot(), "cluster.log"));
+            writer.format("  </task>%n");
+            writer.format("</dbping>%n");
+        }
+        dbpingBean = DbpingParser.parse(configuration);
+
+        for (int i = 0; i < 2; i++) {
+            final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            serverSocketList.add(serverSocket);
+            agentList.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort()));
+
+            final PingAgent agent = new PingAgent(null, 0, TOKEN, 0, 0);
+            final Thread thread = new Thread(() -> agent.serve(serverSocket), "agent-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (final ServerSocket serverSocket : serverSocketList) {
+            serverSocket.close();
+        }
+    }
+
+    @Test
+    public void testThreadShares() {
+
+        for (int threads = 0; threads <= 2 * THREADS; threads++) {
+            for (int agents = 1; agents <= 4; agents++) {
+                int sum = 0;
+                for (int i = 0; i < agents; i++) {
+                    sum += new AgentAssignment(dbpingBean, null, i, agents).getThreads(threads);
+                }
+                assertEquals(threads, sum);
+            }
+        }
+    }
+
+    @Test
+    public void testMergedResults() throws IOException {
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final int failures;
+        try (PrintStream out = new PrintStream(buffer, true, "UTF-8")) {
+            failures = new PingController(agentList, TOKEN).execute(dbpingBean, null, out);
+        }
+        assertEquals(0, failures);
+
+        long agentExecutions = 0;
+        long totalExecutions = -1;
+        for (final String line : new String(buffer.toByteArray(), StandardCharsets.UTF_8).split("\\R")) {
+            final String[] tokens = line.trim().split("\\s+");
+            if (tokens[0].startsWith("agent-")) {
+                agentExecutions += Long.parseLong(tokens[1]);
+            } else if ("Total".equals(tokens[0])) {
+                totalExecutions = Long.parseLong(tokens[1]);
+            }
+        }
+        assertEquals(THREADS * EXECUTIONS, agentExecutions);
+        assertEquals(THREADS * EXECUTIONS, totalExecutions);
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidToken() throws IOException {
+        new PingController(agentList, "other-token").execute(dbpingBean, null, System.out);
+    }
+
+    @Test
+    public void testClassNotAllowed() throws Exception {
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(buffer)) {
+            output.writeObject(new Date());
+        }
+        try (AgentObjectInputStream input =
+                new AgentObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            input.readObject();
+            fail("java.util.Date isn't part of the agent protocol");
+        } catch (@SuppressWarnings("unused") final InvalidClassException e) {
+            // expected
+        }
+    }
+}
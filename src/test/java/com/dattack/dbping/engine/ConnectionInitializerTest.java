@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sql.PooledConnection;
+
+import org.junit.Test;
+
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.log.LogAnnotation;
+import com.dattack.dbping.log.LogFooter;
+import com.dattack.dbping.log.LogHeader;
+import com.dattack.dbping.log.LogWriter;
+import com.dattack.dbping.stub.StubDriver;
+
+/**
+ * Tests that the initialization runs once per physical connection when a pool wraps each borrowed connection.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class ConnectionInitializerTest {
+
+    private static final int PHYSICAL_CONNECTIONS = 2;
+    private static final int BORROWS = 20;
+
+    /**
+     * The connections of DBCP: the innermost delegate is null when the pool doesn't allow the access to it.
+     */
+    public interface DelegatingConnection extends Connection {
+
+        Connection getInnermostDelegate();
+    }
+
+    /**
+     * The kinds of wrappers returned by the pools.
+     */
+    private enum Pool {
+        TOMCAT, DBCP, DBCP_NO_ACCESS, HIKARI
+    }
+
+    /**
+     * A pool of physical connections of the stub driver that returns a new wrapper each time a connection is
+     * borrowed; the wrappers unwrap to themselves, as the per-borrow proxies of the pools do.
+     */
+    private static final class PooledDataSource {
+
+        private final Pool pool;
+        private final List<Connection> physicalConnections;
+        private int borrowed;
+
+        PooledDataSource(final Pool pool) throws SQLException {
+            this.pool = pool;
+            this.physicalConnections = new ArrayList<>();
+            for (int i = 0; i < PHYSICAL_CONNECTIONS; i++) {
+                physicalConnections.add(new StubDriver().connect(StubDriver.URL_PREFIX, new Properties()));
+            }
+        }
+
+        Connection getConnection() {
+
+            final Connection physicalConnection = physicalConnections.get(borrowed++ % physicalConnections.size());
+            final InvocationHandler handler = (proxy, method, args) -> {
+                switch (method.getName()) {
+                case "close":
+                    return null;
+                case "isWrapperFor":
+                    return pool != Pool.HIKARI || ((Class<?>) args[0]).isInstance(physicalConnection);
+                case "unwrap":
+                    return pool == Pool.HIKARI ? physicalConnection : proxy;
+                case "getConnection":
+                    return physicalConnection;
+                case "getInnermostDelegate":
+                    return pool == Pool.DBCP ? physicalConnection : null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    try {
+                        return method.invoke(physicalConnection, args);
+                    } catch (final InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            };
+
+            final Class<?>[] types;
+            switch (pool) {
+            case TOMCAT:
+                types = new Class<?>[] { Connection.class, PooledConnection.class };
+                break;
+            case DBCP:
+            case DBCP_NO_ACCESS:
+                types = new Class<?>[] { DelegatingConnection.class };
+                break;
+            default:
+                types = new Class<?>[] { Connection.class };
+                break;
+            }
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), types, handler);
+        }
+
+        Connection getPhysicalConnection(final int index) {
+            return physicalConnections.get(index);
+        }
+    }
+
+    /**
+     * Collects the initialization entries.
+     */
+    private static final class EntryCollector implements LogWriter {
+
+        private final List<LogEntry> entries = Collections.synchronizedList(new ArrayList<LogEntry>());
+
+        @Override
+        public void write(final LogHeader logHeader) {
+            // ignored
+        }
+
+        @Override
+        public void write(final LogFooter logFooter) {
+            // ignored
+        }
+
+        @Override
+        public void write(final LogAnnotation logAnnotation) {
+            // ignored
+        }
+
+        @Override
+        public void write(final LogEntry logEntry) {
+            entries.add(logEntry);
+        }
+    }
+
+    private static int borrow(final Pool pool) throws SQLException {
+
+        final PingTaskBean configuration = new PingTaskBean() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public List<String> getConnectionInitList() {
+                return Arrays.asList("ALTER SESSION SET NLS_SORT = BINARY", " ");
+            }
+        };
+
+        final ConnectionInitializer initializer = new ConnectionInitializer(configuration);
+        final PooledDataSource dataSource = new PooledDataSource(pool);
+        final EntryCollector logWriter = new EntryCollector();
+        for (int i = 0; i < BORROWS; i++) {
+            try (Connection connection = dataSource.getConnection()) {
+                initializer.initialize(connection, new LogEntry.LogEntryBuilder(), logWriter);
+            }
+            // the released wrappers mustn't take the initialized connections with them
+            System.gc();
+        }
+
+        for (int i = 0; i < PHYSICAL_CONNECTIONS; i++) {
+            try (Connection connection = dataSource.getConnection()) {
+                assertSame(dataSource.getPhysicalConnection((BORROWS + i) % PHYSICAL_CONNECTIONS),
+                        ConnectionInitializer.getPhysicalConnection(connection));
+            }
+        }
+
+        for (final LogEntry entry : logWriter.entries) {
+            assertEquals(ConnectionInitializer.INIT_LABEL, entry.getSqlLabel());
+            assertEquals(1, entry.getRows());
+        }
+        return logWriter.entries.size();
+    }
+
+    @Test
+    public void testTomcatPool() throws SQLException {
+        assertEquals(PHYSICAL_CONNECTIONS, borrow(Pool.TOMCAT));
+    }
+
+    @Test
+    public void testDbcpPool() throws SQLException {
+        assertEquals(PHYSICAL_CONNECTIONS, borrow(Pool.DBCP));
+    }
+
+    @Test
+    public void testHikariPool() throws SQLException {
+        assertEquals(PHYSICAL_CONNECTIONS, borrow(Pool.HIKARI));
+    }
+
+    @Test
+    public void testUnidentifiedPhysicalConnection() throws SQLException {
+
+        // without access to the underlying connection each borrow is initialized
+        final PooledDataSource dataSource = new PooledDataSource(Pool.DBCP_NO_ACCESS);
+        final Connection connection = dataSource.getConnection();
+        assertSame(connection, ConnectionInitializer.getPhysicalConnection(connection));
+    }
+
+    @Test
+    public void testPhysicalConnection() throws SQLException {
+
+        final Connection connection = new StubDriver().connect(StubDriver.URL_PREFIX, new Properties());
+        assertSame(connection, ConnectionInitializer.getPhysicalConnection(connection));
+    }
+}
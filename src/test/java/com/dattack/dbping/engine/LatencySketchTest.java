@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the buckets of the latency histogram and the error of its percentiles.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class LatencySketchTest {
+
+    private static final double MAX_RELATIVE_ERROR = 0.032;
+
+    /**
+     * Returns the estimation of a value from the middle of three: the percentile is the midpoint of the bucket of the
+     * value and the other two values are the bounds, so they don't clamp it.
+     */
+    private static long estimate(final long value) {
+        final LatencySketch sketch = new LatencySketch();
+        sketch.add(0);
+        sketch.add(value);
+        sketch.add(Long.MAX_VALUE);
+        return sketch.getPercentile(50);
+    }
+
+    private static LatencySketch sketchOf(final long... values) {
+        final LatencySketch sketch = new LatencySketch();
+        for (final long value : values) {
+            sketch.add(value);
+        }
+        return sketch;
+    }
+
+    private static void assertSameValues(final LatencySketch expected, final LatencySketch actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getSum(), actual.getSum());
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+        for (final double percentile : new double[] { 0, 10, 50, 90, 99, 100 }) {
+            assertEquals(expected.getPercentile(percentile), actual.getPercentile(percentile));
+        }
+    }
+
+    private static int serializedSize(final LatencySketch sketch) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream stream = new ObjectOutputStream(out)) {
+            stream.writeObject(sketch);
+        }
+        return out.size();
+    }
+
+    private static long exactPercentile(final long[] sortedValues, final double percentile) {
+        final int rank = Math.max(1, (int) Math.ceil(percentile / 100 * sortedValues.length));
+        return sortedValues[rank - 1];
+    }
+
+    @Test
+    public void testEmpty() {
+
+        final LatencySketch sketch = new LatencySketch();
+        assertEquals(0, sketch.getCount());
+        assertEquals(0, sketch.getSum());
+        assertEquals(0, sketch.getMin());
+        assertEquals(0, sketch.getMax());
+        assertEquals(0, sketch.getMean(), 0);
+        assertEquals(0, sketch.getPercentile(50));
+        assertEquals(0, sketch.getPercentile(100));
+
+        sketch.merge(new LatencySketch());
+        assertEquals(0, sketch.getCount());
+    }
+
+    @Test
+    public void testZero() {
+
+        final LatencySketch sketch = new LatencySketch();
+        sketch.add(0);
+        sketch.add(0);
+        assertEquals(2, sketch.getCount());
+        assertEquals(0, sketch.getMin());
+        assertEquals(0, sketch.getMax());
+        assertEquals(0, sketch.getPercentile(0));
+        assertEquals(0, sketch.getPercentile(50));
+        assertEquals(0, sketch.getPercentile(100));
+    }
+
+    @Test
+    public void testNegativeAsZero() {
+
+        final LatencySketch sketch = new LatencySketch();
+        sketch.add(-5);
+        assertEquals(0, sketch.getMin());
+        assertEquals(0, sketch.getSum());
+    }
+
+    @Test
+    public void testExactBuckets() {
+        // the values lower than 64 have buckets of width one
+        for (long value = 0; value < 64; value++) {
+            assertEquals(value, estimate(value));
+        }
+    }
+
+    @Test
+    public void testBucketIndex() {
+
+        // 64 to 127: buckets of width 2
+        assertEquals(64, estimate(64));
+        assertEquals(64, estimate(65));
+        assertEquals(66, estimate(66));
+        assertEquals(126, estimate(127));
+
+        // 128 to 255: buckets of width 4, the midpoint is rounded down
+        assertEquals(129, estimate(128));
+        assertEquals(129, estimate(131));
+        assertEquals(133, estimate(132));
+
+        // 992 to 1007: a bucket of width 16
+        assertEquals(999, estimate(992));
+        assertEquals(999, estimate(1000));
+        assertEquals(999, estimate(1007));
+        assertEquals(1015, estimate(1008));
+    }
+
+    @Test
+    public void testMaxBucket() {
+
+        final long lowerBound = 63L << 57;
+        final long estimation = estimate(Long.MAX_VALUE - 1);
+        assertTrue(estimation >= lowerBound);
+        assertTrue(estimation <= Long.MAX_VALUE);
+        assertEquals(estimation, estimate(lowerBound));
+
+        final LatencySketch sketch = new LatencySketch();
+        sketch.add(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, sketch.getMax());
+        assertEquals(Long.MAX_VALUE, sketch.getPercentile(99.9));
+    }
+
+    @Test
+    public void testPercentileErrorBound() {
+
+        final Random random = new Random(0);
+        final long[] values = new long[100000];
+        final LatencySketch sketch = new LatencySketch();
+        for (int i = 0; i < values.length; i++) {
+            // log-normal latencies around 20 ms with a long tail
+            values[i] = (long) Math.exp(3 + random.nextGaussian() * 1.5);
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values[0], sketch.getMin());
+        assertEquals(values[values.length - 1], sketch.getMax());
+        for (final double percentile : new double[] { 1, 10, 25, 50, 75, 90, 95, 99, 99.9, 99.99 }) {
+            final long exact = exactPercentile(values, percentile);
+            final long estimation = sketch.getPercentile(percentile);
+            assertTrue(String.format("p%s: %d instead of %d", percentile, estimation, exact),
+                    Math.abs(estimation - exact) <= exact * MAX_RELATIVE_ERROR);
+        }
+        assertEquals(values[values.length - 1], sketch.getPercentile(100));
+    }
+
+    @Test
+    public void testMerge() {
+
+        final LatencySketch first = new LatencySketch();
+        final LatencySketch second = new LatencySketch();
+        final LatencySketch all = new LatencySketch();
+        for (long value = 1; value <= 1000; value++) {
+            (value % 2 == 0 ? first : second).add(value * value);
+            all.add(value * value);
+        }
+        // the second sketch has grown more buckets than the first one
+        second.add(1L << 40);
+        all.add(1L << 40);
+
+        first.merge(second);
+        assertEquals(all.getCount(), first.getCount());
+        assertEquals(all.getSum(), first.getSum());
+        assertEquals(all.getMin(), first.getMin());
+        assertEquals(all.getMax(), first.getMax());
+        for (final double percentile : new double[] { 0, 50, 90, 99, 100 }) {
+            assertEquals(all.getPercentile(percentile), first.getPercentile(percentile));
+        }
+    }
+
+    @Test
+    public void testSingleValue() throws IOException {
+
+        final LatencySketch sketch = sketchOf(1234567, 1234567, 1234567);
+        assertEquals(3, sketch.getCount());
+        assertEquals(1234567, sketch.getPercentile(0));
+        assertEquals(1234567, sketch.getPercentile(50));
+        assertEquals(1234567, sketch.getPercentile(100));
+
+        // no buckets are allocated while all the values are the same
+        assertTrue(serializedSize(sketch) < serializedSize(sketchOf(1234567, 1234568)) / 4);
+    }
+
+    @Test
+    public void testSecondValue() {
+
+        final LatencySketch sketch = sketchOf(500, 500, 500, 10);
+        assertEquals(4, sketch.getCount());
+        assertEquals(10, sketch.getPercentile(25));
+        assertEquals(estimate(500), sketch.getPercentile(50));
+        assertEquals(500, sketch.getPercentile(100));
+
+        // the buckets grow with the values
+        sketch.add(1L << 40);
+        sketch.add(3);
+        assertSameValues(sketchOf(500, 500, 500, 10, 1L << 40, 3), sketch);
+    }
+
+    @Test
+    public void testMergeSingleValues() {
+
+        final LatencySketch same = sketchOf(7, 7);
+        same.merge(sketchOf(7));
+        assertSameValues(sketchOf(7, 7, 7), same);
+
+        final LatencySketch distinct = sketchOf(7, 7);
+        distinct.merge(sketchOf(300, 300));
+        assertSameValues(sketchOf(7, 7, 300, 300), distinct);
+
+        final LatencySketch intoMany = sketchOf(1, 2, 3);
+        intoMany.merge(sketchOf(2000, 2000));
+        assertSameValues(sketchOf(1, 2, 3, 2000, 2000), intoMany);
+
+        final LatencySketch fromMany = sketchOf(2000, 2000);
+        fromMany.merge(sketchOf(1, 2, 3));
+        assertSameValues(sketchOf(1, 2, 3, 2000, 2000), fromMany);
+
+        final LatencySketch empty = new LatencySketch();
+        empty.merge(sketchOf(1, 2, 3));
+        assertSameValues(sketchOf(1, 2, 3), empty);
+    }
+
+    @Test
+    public void testClear() {
+
+        final LatencySketch sketch = sketchOf(5, 6, 70000);
+        sketch.clear();
+        assertEquals(0, sketch.getCount());
+        assertEquals(0, sketch.getPercentile(50));
+
+        sketch.add(9);
+        sketch.add(9);
+        assertSameValues(sketchOf(9, 9), sketch);
+    }
+}
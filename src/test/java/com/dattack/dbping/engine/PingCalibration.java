@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.dattack.dbping.beans.DbpingBean;
+import com.dattack.dbping.beans.DbpingParser;
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.log.CSVFileFastLogReader;
+import com.dattack.dbping.log.CSVFileLogWriter;
+import com.dattack.dbping.log.LogWriter;
+import com.dattack.dbping.stub.InjectedLatency;
+import com.dattack.jtoolbox.exceptions.DattackParserException;
+import com.dattack.jtoolbox.jdbc.JNDIDataSource;
+
+/**
+ * Measures the overhead of dbping: runs a task against the stub driver with several numbers of threads and compares
+ * the latencies logged with the latencies injected by the driver. A task without injected latencies measures the
+ * throughput ceiling of the engine. Example, with the test classpath:
+ *
+ * <pre>
+ * java com.dattack.dbping.engine.PingCalibration -f src/test/resources/stub-test.xml -t stub_fixed -n 1,4,16
+ * </pre>
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class PingCalibration {
+
+    private static final String FILE_OPTION = "f";
+    private static final String LONG_FILE_OPTION = "file";
+    private static final String TASK_NAME_OPTION = "t";
+    private static final String LONG_TASK_NAME_OPTION = "task";
+    private static final String THREADS_OPTION = "n";
+    private static final String LONG_THREADS_OPTION = "threads";
+
+    private static final String DEFAULT_THREADS = "1,2,4,8,16";
+
+    private static Options createOptions() {
+
+        final Options options = new Options();
+
+        options.addOption(Option.builder(FILE_OPTION) //
+                .required(true) //
+                .longOpt(LONG_FILE_OPTION) //
+                .hasArg(true) //
+                .argName("DBPING_FILE") //
+                .desc("the path of the file containing the DBPing configuration") //
+                .build());
+
+        options.addOption(Option.builder(TASK_NAME_OPTION) //
+                .required(false) //
+                .longOpt(LONG_TASK_NAME_OPTION) //
+                .hasArg(true) //
+                .argName("TASK_NAME") //
+                .desc("the name of the task to execute (default: the first task)") //
+                .build());
+
+        options.addOption(Option.builder(THREADS_OPTION) //
+                .required(false) //
+                .longOpt(LONG_THREADS_OPTION) //
+                .hasArg(true) //
+                .argName("THREADS") //
+                .desc("the comma-separated numbers of threads to use (default: " + DEFAULT_THREADS + ")") //
+                .build());
+
+        return options;
+    }
+
+    private static PingTaskBean findTask(final DbpingBean dbpingBean, final String taskName) {
+
+        for (final PingTaskBean pingTaskBean : dbpingBean.getTaskList()) {
+            if (taskName == null || taskName.equals(pingTaskBean.getName())) {
+                return pingTaskBean;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Task not found: %s", taskName));
+    }
+
+    /**
+     * The <code>main</code> method.
+     *
+     * @param args
+     *            the program arguments
+     */
+    public static void main(final String[] args) {
+
+        final Options options = createOptions();
+
+        try {
+            final CommandLineParser parser = new DefaultParser();
+            final CommandLine cmd = parser.parse(options, args);
+
+            final PingTaskBean pingTaskBean = findTask(
+                    DbpingParser.parse(new File(cmd.getOptionValue(FILE_OPTION))),
+                    cmd.getOptionValue(TASK_NAME_OPTION));
+
+            final PingCalibration calibration = new PingCalibration(pingTaskBean);
+            calibration.printHeader();
+            for (final String threads : cmd.getOptionValue(THREADS_OPTION, DEFAULT_THREADS).split(",")) {
+                calibration.execute(Integer.parseInt(threads.trim()));
+            }
+
+        } catch (@SuppressWarnings("unused") final ParseException e) {
+            final HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp("PingCalibration", options, true);
+        } catch (final DattackParserException | IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final PingTaskBean pingTaskBean;
+    private final DataSource dataSource;
+    private final SqlCommandProvider sentenceProvider;
+
+    private PingCalibration(final PingTaskBean pingTaskBean) {
+        this.pingTaskBean = pingTaskBean;
+        this.dataSource = new JNDIDataSource(pingTaskBean.getDatasource());
+        this.sentenceProvider = new SqlCommandRoundRobinProvider();
+        this.sentenceProvider.setSentences(pingTaskBean.getSqlStatementList());
+    }
+
+    private void execute(final int threads) throws IOException, InterruptedException {
+
+        final File logFile = File.createTempFile("dbping-calibration", ".log");
+        try {
+            final LogWriter logWriter = new CSVFileLogWriter(logFile.getPath());
+            final TaskMetrics taskMetrics = new TaskMetrics(pingTaskBean.getName(), threads);
+
+            InjectedLatency.reset();
+            final long start = System.nanoTime();
+            final Thread[] threadArray = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                threadArray[i] = new Thread(
+                        new PingJob(pingTaskBean, dataSource, sentenceProvider, logWriter, taskMetrics),
+                        pingTaskBean.getName() + "@Thread-" + i);
+                threadArray[i].start();
+            }
+            for (final Thread thread : threadArray) {
+                thread.join();
+            }
+            final long elapsedNanos = System.nanoTime() - start;
+
+            printResult(threads, elapsedNanos, read(logFile), taskMetrics);
+        } finally {
+            if (!logFile.delete()) {
+                logFile.deleteOnExit();
+            }
+        }
+    }
+
+    private static LatencySketch read(final File logFile) throws IOException {
+
+        final LatencySketch sketch = new LatencySketch();
+        try (CSVFileFastLogReader logReader = new CSVFileFastLogReader(logFile)) {
+            for (LogEntry logEntry = logReader.next(); logEntry != null; logEntry = logReader.next()) {
+                sketch.add(logEntry.getTotalTime());
+            }
+        }
+        return sketch;
+    }
+
+    private void printHeader() {
+        System.out.format("Task: %s (datasource: %s)%n", pingTaskBean.getName(), pingTaskBean.getDatasource());
+        System.out.format("%8s %12s %14s %14s %14s %14s %14s %14s%n", "Threads", "Executions", "Throughput/s",
+                "Injected (ms)", "Measured (ms)", "Overhead (ms)", "Measured p99", "Self (us)");
+    }
+
+    private static void printResult(final int threads, final long elapsedNanos, final LatencySketch measured,
+            final TaskMetrics taskMetrics) {
+
+        final long executions = InjectedLatency.getExecutions();
+        final double injectedMillis = executions == 0 ? 0
+                : (double) InjectedLatency.getInjectedNanos() / executions / TimeUnit.MILLISECONDS.toNanos(1);
+        final double throughput = measured.getCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+
+        // the time spent by dbping in its own bookkeeping, as measured by the engine
+        final double selfMicros = taskMetrics.getOverheadNanos() / 1000D / Math.max(1, taskMetrics.getExecutions());
+
+        System.out.format("%8d %12d %14.1f %14.3f %14.3f %14.3f %14d %14.2f%n", threads, measured.getCount(),
+                throughput, injectedMillis, measured.getMean(), measured.getMean() - injectedMillis,
+                measured.getPercentile(99), selfMicros);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dattack.dbping.beans.DbpingParser;
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.log.LogAnnotation;
+import com.dattack.dbping.log.LogFooter;
+import com.dattack.dbping.log.LogHeader;
+import com.dattack.dbping.log.LogWriter;
+import com.dattack.dbping.stub.StubDriver;
+import com.dattack.jtoolbox.exceptions.DattackParserException;
+
+/**
+ * Tests that resizing a task doesn't run more executions than configured nor writes the summary twice.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class RunningTaskTest {
+
+    private static final int THREADS = 2;
+    private static final int EXECUTIONS = 20;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Counts the entries and the summaries written by a task.
+     */
+    private static final class LogCounter implements LogWriter {
+
+        private final AtomicInteger entries = new AtomicInteger();
+        private final AtomicInteger footers = new AtomicInteger();
+
+        @Override
+        public void write(final LogHeader logHeader) {
+            // ignored
+        }
+
+        @Override
+        public void write(final LogFooter logFooter) {
+            footers.incrementAndGet();
+        }
+
+        @Override
+        public void write(final LogAnnotation logAnnotation) {
+            // ignored
+        }
+
+        @Override
+        public void write(final LogEntry logEntry) {
+            entries.incrementAndGet();
+        }
+    }
+
+    private static DataSource createDataSource() {
+
+        final StubDriver driver = new StubDriver();
+        return (DataSource) Proxy.newProxyInstance(RunningTaskTest.class.getClassLoader(),
+                new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+                    if ("getConnection".equals(method.getName())) {
+                        return driver.connect(StubDriver.URL_PREFIX, new Properties());
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private PingTaskBean createTask(final int timeBetweenExecutions) throws IOException, DattackParserException {
+
+        final File file = folder.newFile("dbping.xml");
+        Files.write(file.toPath(), String.format("<dbping>%n" //
+                + "    <task name=\"stub\" threads=\"%d\" executions=\"%d\" timeBetweenExecutions=\"%d\">%n" //
+                + "        <query label=\"query\">SELECT * FROM stub</query>%n" //
+                + "    </task>%n" //
+                + "</dbping>%n", THREADS, EXECUTIONS, timeBetweenExecutions).getBytes(StandardCharsets.UTF_8));
+        return DbpingParser.parse(file).getTaskList().get(0);
+    }
+
+    private static RunningTask start(final PingTaskBean configuration, final LogWriter logWriter) {
+
+        final SqlCommandProvider provider = new SqlCommandRoundRobinProvider();
+        provider.setSentences(configuration.getSqlStatementList());
+        final RunningTask task = new RunningTask(configuration, createDataSource(), provider, logWriter,
+                new TaskMetrics(configuration.getName(), 0));
+        task.start();
+        return task;
+    }
+
+    @Test
+    public void testFinishedTaskNotRestarted() throws Exception {
+
+        final PingTaskBean configuration = createTask(0);
+        final LogCounter logWriter = new LogCounter();
+        final RunningTask task = start(configuration, logWriter);
+        task.join();
+
+        task.apply(configuration.withThreads(THREADS + 1));
+        task.join();
+
+        assertEquals(THREADS * EXECUTIONS, logWriter.entries.get());
+        assertEquals(1, logWriter.footers.get());
+    }
+
+    @Test
+    public void testRemovedJobResumed() throws Exception {
+
+        final PingTaskBean configuration = createTask(5);
+        final LogCounter logWriter = new LogCounter();
+        final RunningTask task = start(configuration, logWriter);
+        Thread.sleep(20);
+
+        // the job added resumes the executions of the job removed
+        task.apply(configuration.withThreads(THREADS - 1));
+        task.apply(configuration);
+        task.join();
+
+        assertEquals(THREADS * EXECUTIONS, logWriter.entries.get());
+        assertEquals(1, logWriter.footers.get());
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the grammar of the performance assertions and their evaluation.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class SloAssertionTest {
+
+    private static final String TASK = "sales";
+    private static final String LABEL = "login";
+
+    private TaskMetrics taskMetrics;
+
+    /**
+     * Records four executions of 15 ms, one of them failed, spread over three seconds.
+     */
+    @Before
+    public void setUp() {
+
+        taskMetrics = new TaskMetrics(TASK, 1);
+        final LogEntry.LogEntryBuilder builder = new LogEntry.LogEntryBuilder();
+        for (int i = 0; i < 4; i++) {
+            builder.withTaskName(TASK).withSqlLabel(LABEL).withEventTime(1000L * i).withConnectionTime(2)
+                    .withFirstRowTime(10).withTotalTime(15);
+            if (i == 3) {
+                builder.withEventTime(2985).withException(new SQLException("failed"));
+            }
+            taskMetrics.record(builder.build());
+        }
+    }
+
+    private boolean passes(final String text) {
+        final SloAssertion.Result result = SloAssertion.parse(text).evaluate(taskMetrics);
+        assertEquals(TASK, result.getTaskName());
+        return result.isPassed();
+    }
+
+    @Test
+    public void testParse() {
+
+        final SloAssertion assertion = SloAssertion.parse("sales:login:p99(total) < 20ms");
+        assertEquals(TASK, assertion.getTaskName());
+        assertEquals(LABEL, assertion.getLabel());
+        assertEquals("p99(total) < 20ms", assertion.getExpression());
+
+        final SloAssertion anyTask = SloAssertion.parse("*:errors < 1");
+        assertNull(anyTask.getTaskName());
+        assertNull(anyTask.getLabel());
+    }
+
+    @Test
+    public void testParseLabelWithSeparator() {
+
+        final SloAssertion assertion = SloAssertion.parse("sales:db:login:mean(total) < 20ms");
+        assertEquals(TASK, assertion.getTaskName());
+        assertEquals("db:login", assertion.getLabel());
+        assertEquals("mean(total) < 20ms", assertion.getExpression());
+        assertEquals("sales:db:login:mean(total) < 20ms", assertion.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseWithoutTask() {
+        SloAssertion.parse("p99(total) < 20ms");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseWithoutExpression() {
+        SloAssertion.parse("sales:login:");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStatistic() {
+        SloAssertion.parse("sales:avg(total) < 20ms");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownLatency() {
+        SloAssertion.parse("sales:p99(commit) < 20ms");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentileOverHundred() {
+        SloAssertion.parse("sales:p100.1(total) < 20ms");
+    }
+
+    @Test
+    public void testHundredthPercentile() {
+        assertTrue(passes("sales:p100(total) <= 15ms"));
+    }
+
+    @Test
+    public void testLatencyUnits() {
+
+        assertTrue(passes("sales:max(total) < 20"));
+        assertTrue(passes("sales:max(total) < 20ms"));
+        assertTrue(passes("sales:max(total) < 15001us"));
+        assertFalse(passes("sales:max(total) < 14999us"));
+        assertTrue(passes("sales:max(total) < 0.016s"));
+        assertFalse(passes("sales:max(total) < 0.015s"));
+        assertTrue(passes("sales:min(connection) >= 2ms"));
+        assertTrue(passes("sales:login:mean(firstRow) <= 10ms"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLatencyUnit() {
+        SloAssertion.parse("sales:p99(total) < 20%");
+    }
+
+    @Test
+    public void testErrorRate() {
+
+        assertTrue(passes("sales:errorRate <= 0.25"));
+        assertFalse(passes("sales:errorRate < 0.25"));
+        assertTrue(passes("sales:errorRate <= 25%"));
+        assertFalse(passes("sales:errorRate < 25%"));
+        assertTrue(passes("sales:errors <= 1"));
+        assertTrue(passes("sales:executions >= 4"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCountUnit() {
+        SloAssertion.parse("sales:errors < 1%");
+    }
+
+    @Test
+    public void testThroughput() {
+
+        // 4 executions in 3 seconds
+        assertTrue(passes("sales:throughput > 1.3"));
+        assertTrue(passes("sales:throughput > 1.3/s"));
+        assertFalse(passes("sales:throughput > 1.4/s"));
+        assertTrue(passes("sales:throughput > 79/min"));
+        assertFalse(passes("sales:throughput > 81/min"));
+    }
+
+    @Test
+    public void testUnknownLabel() {
+
+        final SloAssertion.Result result = SloAssertion.parse("sales:logout:errors < 1").evaluate(taskMetrics);
+        assertTrue(Double.isNaN(result.getActual()));
+        assertFalse(result.isPassed());
+    }
+
+    @Test
+    public void testTaskNotRun() {
+
+        final SloAssertion assertion = SloAssertion.parse("billing:errors < 1");
+        final SloAssertion.Result result = assertion.missing(assertion.getTaskName());
+        assertEquals("billing", result.getTaskName());
+        assertTrue(Double.isNaN(result.getActual()));
+        assertFalse(result.isPassed());
+        assertEquals("no data", assertion.format(result.getActual()));
+
+        final SloAssertion.Result empty = assertion.evaluate(new TaskMetrics("billing", 1));
+        assertFalse(empty.isPassed());
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dattack.dbping.engine.LogEntry;
+
+/**
+ * Tests the decoding of the timestamps of the log, which the reader does arithmetically in the default time zone.
+ * The results must be those of <code>SimpleDateFormat</code>, also on the days the offset of the zone changes.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class CSVFileFastLogReaderTest {
+
+    private static final String HEADER = "#\tdate\ttask-name\tthread-name\titeration\tsql-label\trows"
+            + "\tconnection-time\tfirst-row-time\ttotal-time";
+    private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss.SSS";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private TimeZone defaultTimeZone;
+
+    @Before
+    public void setUp() {
+        defaultTimeZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    private static long epochMillis(final String zone, final int year, final int month, final int day,
+            final int hour, final int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute).atZone(ZoneId.of(zone)).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Writes a log with an entry for each timestamp and reads their event times in a time zone.
+     */
+    private long[] read(final String zone, final String... timestamps) throws IOException {
+
+        TimeZone.setDefault(TimeZone.getTimeZone(zone));
+
+        final File file = folder.newFile();
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.println(HEADER);
+            for (int i = 0; i < timestamps.length; i++) {
+                writer.format("%s\ttask\ttask@Thread-0\t%d\tq1\t1\t0\t1\t2%n", timestamps[i], i);
+            }
+        }
+
+        final long[] result = new long[timestamps.length];
+        try (CSVFileFastLogReader reader = new CSVFileFastLogReader(file)) {
+            for (int i = 0; i < result.length; i++) {
+                final LogEntry logEntry = reader.next();
+                assertEquals(i, logEntry.getIteration());
+                result[i] = logEntry.getEventTime();
+            }
+            assertNull(reader.next());
+        }
+        return result;
+    }
+
+    /**
+     * Checks that the reader decodes the timestamps like <code>SimpleDateFormat</code> in a time zone.
+     */
+    private void assertSameAsDateFormat(final String zone, final String... timestamps) throws Exception {
+
+        final long[] values = read(zone, timestamps);
+        final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN);
+        dateFormat.setTimeZone(TimeZone.getTimeZone(zone));
+        for (int i = 0; i < timestamps.length; i++) {
+            final String text = timestamps[i].length() == 19 ? timestamps[i] + ".000" : timestamps[i];
+            assertEquals(timestamps[i] + " in " + zone, dateFormat.parse(text).getTime(), values[i]);
+        }
+    }
+
+    @Test
+    public void testUtc() throws IOException {
+
+        final long[] values = read("UTC", "1970-01-01 00:00:00.000", "2016-02-29 23:59:59.999",
+                "2016-03-01 00:00:00");
+        assertEquals(0, values[0]);
+        assertEquals(epochMillis("UTC", 2016, 3, 1, 0, 0) - 1, values[1]);
+        assertEquals(epochMillis("UTC", 2016, 3, 1, 0, 0), values[2]);
+    }
+
+    @Test
+    public void testFixedOffset() throws Exception {
+
+        final long[] values = read("Asia/Kolkata", "2016-06-15 10:30:00.250");
+        assertEquals(epochMillis("Asia/Kolkata", 2016, 6, 15, 10, 30) + 250, values[0]);
+        assertSameAsDateFormat("Asia/Kolkata", "2016-01-01 00:00:00.000", "2016-12-31 23:59:59.999");
+        assertSameAsDateFormat("GMT-03:30", "2016-01-01 00:00:00.000", "2016-07-01 12:00:00.000");
+    }
+
+    @Test
+    public void testSummerAndWinterTime() throws Exception {
+
+        final long[] values = read("Europe/Madrid", "2016-01-15 10:00:00.000", "2016-07-15 10:00:00.000");
+        assertEquals(epochMillis("UTC", 2016, 1, 15, 9, 0), values[0]);
+        assertEquals(epochMillis("UTC", 2016, 7, 15, 8, 0), values[1]);
+    }
+
+    @Test
+    public void testSpringForward() throws Exception {
+
+        // the clocks went from 02:00 to 03:00 on 2016-03-27 in Madrid
+        final long[] values = read("Europe/Madrid", "2016-03-27 00:30:00.000", "2016-03-27 01:59:59.999",
+                "2016-03-27 03:00:00.000", "2016-03-27 23:00:00.000");
+        assertEquals(epochMillis("UTC", 2016, 3, 26, 23, 30), values[0]);
+        assertEquals(epochMillis("UTC", 2016, 3, 27, 1, 0) - 1, values[1]);
+        assertEquals(epochMillis("UTC", 2016, 3, 27, 1, 0), values[2]);
+        assertEquals(epochMillis("UTC", 2016, 3, 27, 21, 0), values[3]);
+
+        // a time skipped by the change
+        assertSameAsDateFormat("Europe/Madrid", "2016-03-27 02:30:00.000");
+    }
+
+    @Test
+    public void testFallBack() throws Exception {
+
+        // the clocks went from 03:00 back to 02:00 on 2016-10-30 in Madrid
+        final long[] values = read("Europe/Madrid", "2016-10-30 01:30:00.000", "2016-10-30 03:30:00.000");
+        assertEquals(epochMillis("UTC", 2016, 10, 29, 23, 30), values[0]);
+        assertEquals(epochMillis("UTC", 2016, 10, 30, 2, 30), values[1]);
+
+        // a time repeated by the change
+        assertSameAsDateFormat("Europe/Madrid", "2016-10-30 02:30:00.000");
+    }
+
+    @Test
+    public void testChangeAtMidnight() throws Exception {
+
+        // the clocks went from 00:00 to 01:00 on 2016-10-16 in Sao Paulo
+        final long[] values = read("America/Sao_Paulo", "2016-10-16 01:30:00.000", "2016-10-16 12:00:00.000");
+        assertEquals(epochMillis("UTC", 2016, 10, 16, 3, 30), values[0]);
+        assertEquals(epochMillis("UTC", 2016, 10, 16, 14, 0), values[1]);
+        assertSameAsDateFormat("America/Sao_Paulo", "2016-10-15 23:59:59.999", "2016-10-16 00:30:00.000",
+                "2016-10-17 00:00:00.000");
+    }
+
+    @Test
+    public void testHalfHourChange() throws Exception {
+        // Lord Howe Island moves its clocks half an hour
+        assertSameAsDateFormat("Australia/Lord_Howe", "2016-04-03 01:45:00.000", "2016-04-03 02:15:00.000",
+                "2016-10-02 02:15:00.000", "2016-10-02 02:45:00.000", "2016-10-02 12:00:00.000");
+    }
+
+    @Test
+    public void testConsecutiveDays() throws Exception {
+
+        final String[] timestamps = new String[24 * 10];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = String.format("2016-03-%02d %02d:17:00.000", 22 + i / 24, i % 24);
+        }
+        assertSameAsDateFormat("Europe/Madrid", timestamps);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dattack.dbping.beans.PingTaskBean;
+import com.dattack.dbping.engine.LogEntry;
+import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+
+/**
+ * Tests the summary written at the end of a log.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class LogFooterTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPropertiesInOrder() {
+
+        final LogFooter logFooter = new LogFooter();
+        assertSame(logFooter, logFooter.put("executions", "10"));
+        logFooter.put("errors", "0").put("execution time", "1.000 ms").put("errors", "2");
+
+        assertEquals(Arrays.asList("executions", "errors", "execution time"),
+                new ArrayList<>(logFooter.getProperties().keySet()));
+        assertEquals("2", logFooter.getProperties().get("errors"));
+    }
+
+    @Test
+    public void testFooterSkippedByReader() throws Exception {
+
+        final File file = folder.newFile();
+        final CSVFileLogWriter logWriter = new CSVFileLogWriter(file.getPath());
+        final LogEntryBuilder builder = new LogEntryBuilder();
+
+        logWriter.write(new LogHeader(new PingTaskBean()));
+        logWriter.write(builder.init().withEventTime(1000).withTaskName("task").withIteration(0).withSqlLabel("q1")
+                .withTotalTime(5).build());
+        logWriter.write(new LogFooter().put("executions", "1").put("errors", "0"));
+        logWriter.write(builder.init().withEventTime(2000).withTaskName("task").withIteration(1).withSqlLabel("q1")
+                .withTotalTime(7).build());
+
+        try (CSVFileFastLogReader reader = new CSVFileFastLogReader(file)) {
+            final LogEntry first = reader.next();
+            assertEquals(1000, first.getEventTime());
+            assertEquals(5, first.getTotalTime());
+            final LogEntry second = reader.next();
+            assertEquals(2000, second.getEventTime());
+            assertEquals(1, second.getIteration());
+            assertEquals(7, second.getTotalTime());
+            assertNull(reader.next());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dattack.dbping.engine.LogEntry;
+
+/**
+ * Tests the time index of a log: the reading from a block with the columns of the log and the detection of the logs
+ * that changed after being indexed.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class LogIndexTest {
+
+    private static final String BASE_HEADER = "#\tdate\ttask-name\tthread-name\titeration\tsql-label\trows"
+            + "\tconnection-time\tfirst-row-time\ttotal-time";
+    // a log written before the error columns were added
+    private static final String LAG_HEADER = BASE_HEADER + "\tschedule-lag";
+    private static final String ERROR_HEADER = BASE_HEADER + "\tsql-state\terror-code\terror-class\tmessage"
+            + "\tschedule-lag";
+
+    private static final long START_TIME = 1500000000000L;
+    private static final int INTERVAL = 10;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Appends a header and the entries <code>from</code> to <code>to - 1</code>.
+     */
+    private static void append(final File file, final String header, final int from, final int to)
+            throws IOException {
+
+        try (PrintWriter writer = new PrintWriter(
+                new OutputStreamWriter(new FileOutputStream(file, true), Charset.defaultCharset()))) {
+            writer.println(header);
+        }
+        appendEntries(file, header, from, to);
+    }
+
+    /**
+     * Appends the entries <code>from</code> to <code>to - 1</code>, one per second, with the iteration as schedule
+     * lag, in the layout of the given header.
+     */
+    private static void appendEntries(final File file, final String header, final int from, final int to)
+            throws IOException {
+
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        try (PrintWriter writer = new PrintWriter(
+                new OutputStreamWriter(new FileOutputStream(file, true), Charset.defaultCharset()))) {
+            final String errorFields = ERROR_HEADER.equals(header) ? "\t\t\t\t" : "";
+            for (int i = from; i < to; i++) {
+                writer.format("%s\ttask\ttask@Thread-0\t%d\tq1\t1\t0\t1\t2%s\t%d%n",
+                        dateFormat.format(new Date(START_TIME + i * 1000L)), i, errorFields, i);
+            }
+        }
+    }
+
+    private static LogEntry seek(final File file, final LogIndex index, final int iteration) throws Exception {
+
+        try (CSVFileFastLogReader reader = new CSVFileFastLogReader(file)) {
+            final long offset = index.getStartOffset(START_TIME + iteration * 1000L);
+            reader.seek(offset, index.getColumns(offset));
+            return reader.next();
+        }
+    }
+
+    @Test
+    public void testSeekWithColumns() throws Exception {
+
+        final File file = folder.newFile("test.log");
+        append(file, LAG_HEADER, 0, 50);
+        LogIndex.build(file, INTERVAL).write(file);
+
+        final LogIndex index = LogIndex.load(file);
+        assertNotNull(index);
+        final LogEntry logEntry = seek(file, index, 25);
+        assertEquals(20, logEntry.getIteration());
+        assertEquals(20, logEntry.getScheduleLag());
+        assertNull(logEntry.getSqlState());
+    }
+
+    @Test
+    public void testSeveralHeaders() throws Exception {
+
+        final File file = folder.newFile("test.log");
+        append(file, LAG_HEADER, 0, 30);
+        append(file, ERROR_HEADER, 30, 60);
+
+        final LogIndex index = LogIndex.build(file, INTERVAL);
+        assertEquals(10, seek(file, index, 15).getScheduleLag());
+        assertEquals(40, seek(file, index, 45).getScheduleLag());
+        assertEquals(LogColumn.SCHEDULE_LAG, index.getColumns(index.getLength())[13]);
+
+        // no entries after the start time: the reading begins at the end of the indexed data
+        final LogColumn[] columns = index.getColumns(index.getStartOffset(START_TIME + 3600000L));
+        try (CSVFileFastLogReader reader = new CSVFileFastLogReader(file)) {
+            reader.next();
+            reader.seek(index.getLength(), columns);
+            assertNull(reader.next());
+            appendEntries(file, ERROR_HEADER, 60, 61);
+            assertEquals(60, reader.next().getScheduleLag());
+            assertArrayEquals(columns, reader.getColumns());
+        }
+    }
+
+    @Test
+    public void testAppendedLog() throws Exception {
+
+        final File file = folder.newFile("test.log");
+        append(file, LAG_HEADER, 0, 50);
+        LogIndex.build(file, INTERVAL).write(file);
+
+        appendEntries(file, LAG_HEADER, 50, 60);
+        assertNotNull(LogIndex.load(file));
+    }
+
+    @Test
+    public void testRewrittenLog() throws Exception {
+
+        final File file = folder.newFile("test.log");
+        append(file, LAG_HEADER, 0, 50);
+        LogIndex.build(file, INTERVAL).write(file);
+
+        // a new log, longer than the indexed one
+        file.delete();
+        append(file, LAG_HEADER, 5, 100);
+        assertNull(LogIndex.load(file));
+    }
+
+    @Test
+    public void testTruncatedLog() throws Exception {
+
+        final File file = folder.newFile("test.log");
+        append(file, LAG_HEADER, 0, 50);
+        LogIndex.build(file, INTERVAL).write(file);
+
+        file.delete();
+        append(file, LAG_HEADER, 0, 20);
+        assertNull(LogIndex.load(file));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dattack.dbping.engine.LogEntry;
+import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+
+/**
+ * Tests the merge of several logs, each one ordered by time, in a single stream ordered by time.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class MergingLogReaderTest {
+
+    /**
+     * A log in memory. The label of the entries is the name of the log followed by the position of the entry.
+     */
+    private static final class ListLogReader implements LogReader {
+
+        private final Iterator<LogEntry> iterator;
+        private IOException closeException;
+        private boolean closed;
+
+        ListLogReader(final String name, final long... eventTimes) {
+            final List<LogEntry> entryList = new ArrayList<>();
+            final LogEntryBuilder builder = new LogEntryBuilder();
+            for (int i = 0; i < eventTimes.length; i++) {
+                entryList.add(builder.init() //
+                        .withEventTime(eventTimes[i]) //
+                        .withSqlLabel(name + i) //
+                        .withTotalTime(1) //
+                        .build());
+            }
+            this.iterator = entryList.iterator();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            if (closeException != null) {
+                throw closeException;
+            }
+        }
+
+        @Override
+        public LogEntry next() {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+    }
+
+    private static List<String> readLabels(final LogReader reader) throws Exception {
+
+        final List<String> labelList = new ArrayList<>();
+        long lastEventTime = Long.MIN_VALUE;
+        LogEntry entry;
+        while ((entry = reader.next()) != null) {
+            assertTrue(entry.getEventTime() >= lastEventTime);
+            lastEventTime = entry.getEventTime();
+            labelList.add(entry.getSqlLabel());
+        }
+        assertNull(reader.next());
+        return labelList;
+    }
+
+    @Test
+    public void testOrderedByTime() throws Exception {
+
+        final MergingLogReader reader = new MergingLogReader(Arrays.asList( //
+                new ListLogReader("a", 10, 40, 70), //
+                new ListLogReader("b", 20, 50), //
+                new ListLogReader("c", 5, 30, 60, 80, 90)));
+
+        assertEquals(Arrays.asList("c0", "a0", "b0", "c1", "a1", "b1", "c2", "a2", "c3", "c4"), readLabels(reader));
+    }
+
+    @Test
+    public void testEqualTimesInReaderOrder() throws Exception {
+
+        final MergingLogReader reader = new MergingLogReader(Arrays.asList( //
+                new ListLogReader("a", 10, 10, 20), //
+                new ListLogReader("b", 10, 20, 20), //
+                new ListLogReader("c", 10, 20)));
+
+        assertEquals(Arrays.asList("a0", "a1", "b0", "c0", "a2", "b1", "b2", "c1"), readLabels(reader));
+    }
+
+    @Test
+    public void testEmptyReaders() throws Exception {
+
+        assertNull(new MergingLogReader(Collections.<LogReader> emptyList()).next());
+
+        final MergingLogReader reader = new MergingLogReader(Arrays.asList( //
+                new ListLogReader("a"), //
+                new ListLogReader("b", 1, 2), //
+                new ListLogReader("c")));
+        assertEquals(Arrays.asList("b0", "b1"), readLabels(reader));
+    }
+
+    @Test
+    public void testSingleReader() throws Exception {
+        final MergingLogReader reader = new MergingLogReader(Arrays.asList(new ListLogReader("a", 3, 1, 2)));
+        assertEquals(3, reader.next().getEventTime());
+        assertEquals(1, reader.next().getEventTime());
+        assertEquals(2, reader.next().getEventTime());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testCloseAllReaders() throws Exception {
+
+        final ListLogReader first = new ListLogReader("a", 1);
+        final ListLogReader second = new ListLogReader("b", 1);
+        final ListLogReader third = new ListLogReader("c", 1);
+        first.closeException = new IOException("first");
+        third.closeException = new IOException("third");
+
+        try {
+            new MergingLogReader(Arrays.asList(first, second, third)).close();
+            fail("An IOException was expected");
+        } catch (final IOException e) {
+            assertSame(first.closeException, e);
+            assertEquals(1, e.getSuppressed().length);
+            assertSame(third.closeException, e.getSuppressed()[0]);
+        }
+        assertTrue(first.closed);
+        assertTrue(second.closed);
+        assertTrue(third.closed);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests the matching of the metric names used as filters.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class MetricFilterTest {
+
+    private static MetricFilter filter(final MetricName... metricNames) {
+        return MetricFilter.compile(Arrays.asList(metricNames));
+    }
+
+    private static MetricName name(final String taskName, final String sqlLabel, final String metric) {
+        return new MetricName(taskName, sqlLabel, metric);
+    }
+
+    @Test
+    public void testEmptyFilter() {
+        final MetricFilter filter = MetricFilter.compile(Collections.<MetricName> emptyList());
+        assertTrue(filter.matches(name("task", "q1", MetricName.EXECUTION_TIME_KEY)));
+    }
+
+    @Test
+    public void testExactNameIgnoringCase() {
+
+        final MetricFilter filter = filter(name("Task", "Q1", MetricName.EXECUTION_TIME_KEY));
+        assertTrue(filter.matches(name("task", "q1", "total time")));
+        assertFalse(filter.matches(name("task", "q2", MetricName.EXECUTION_TIME_KEY)));
+        assertFalse(filter.matches(name("task", "q1", MetricName.CONNECTION_TIME_KEY)));
+        assertFalse(filter.matches(name("task2", "q1", MetricName.EXECUTION_TIME_KEY)));
+    }
+
+    @Test
+    public void testBlankPartMatchesAnything() {
+
+        final MetricFilter filter = filter(name("", "q1", " "));
+        assertTrue(filter.matches(name("task", "q1", MetricName.EXECUTION_TIME_KEY)));
+        assertTrue(filter.matches(name("other", "q1", MetricName.THROUGHPUT_KEY)));
+        assertFalse(filter.matches(name("task", "q2", MetricName.EXECUTION_TIME_KEY)));
+    }
+
+    @Test
+    public void testWildcards() {
+
+        final MetricFilter filter = filter(name("task*", "q?", "*time"));
+        assertTrue(filter.matches(name("task", "q1", MetricName.EXECUTION_TIME_KEY)));
+        assertTrue(filter.matches(name("task-b", "q2", MetricName.FIRST_ROW_TIME_KEY)));
+        assertFalse(filter.matches(name("a-task", "q1", MetricName.EXECUTION_TIME_KEY)));
+        assertFalse(filter.matches(name("task", "q10", MetricName.EXECUTION_TIME_KEY)));
+        assertFalse(filter.matches(name("task", "q1", MetricName.ERROR_RATE_KEY)));
+    }
+
+    @Test
+    public void testRegexCharactersAreLiterals() {
+
+        final MetricFilter filter = filter(name("task.a", "q(1)", "*"));
+        assertTrue(filter.matches(name("task.a", "q(1)", MetricName.EXECUTION_TIME_KEY)));
+        assertFalse(filter.matches(name("taskXa", "q(1)", MetricName.EXECUTION_TIME_KEY)));
+        assertFalse(filter.matches(name("task.a", "q1", MetricName.EXECUTION_TIME_KEY)));
+    }
+
+    @Test
+    public void testAnyOfSeveralNames() {
+
+        final MetricFilter filter = filter(name("a", "q1", ""), name("b", "q2", ""));
+        assertTrue(filter.matches(name("a", "q1", MetricName.EXECUTION_TIME_KEY)));
+        assertTrue(filter.matches(name("b", "q2", MetricName.EXECUTION_TIME_KEY)));
+        assertFalse(filter.matches(name("a", "q2", MetricName.EXECUTION_TIME_KEY)));
+    }
+}
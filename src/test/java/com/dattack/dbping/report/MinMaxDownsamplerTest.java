@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the reduction of the points of each group to the extremes of a fixed number of buckets.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class MinMaxDownsamplerTest {
+
+    private static final int MAX_POINTS = 100;
+
+    private static List<EntryStats> getGroup(final List<EntryStats> list, final int group) {
+        final List<EntryStats> result = new ArrayList<>();
+        for (final EntryStats entryStats : list) {
+            if (entryStats.getGroup() == group) {
+                result.add(entryStats);
+            }
+        }
+        return result;
+    }
+
+    private static boolean contains(final List<EntryStats> list, final long valueX, final long valueY) {
+        for (final EntryStats entryStats : list) {
+            if (entryStats.getX() == valueX && entryStats.getY() == valueY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertSorted(final List<EntryStats> list) {
+        for (int i = 1; i < list.size(); i++) {
+            assertTrue(list.get(i - 1).getX() <= list.get(i).getX());
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(new MinMaxDownsampler(MAX_POINTS).getEntryStats().isEmpty());
+    }
+
+    @Test
+    public void testFewPoints() {
+
+        final MinMaxDownsampler downsampler = new MinMaxDownsampler(MAX_POINTS);
+        for (int i = 0; i < MAX_POINTS / 2; i++) {
+            downsampler.add(new EntryStats(1000 + i, i % 7, 0));
+        }
+
+        final List<EntryStats> list = downsampler.getEntryStats();
+        assertEquals(MAX_POINTS / 2, list.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(1000 + i, list.get(i).getX());
+            assertEquals(i % 7, list.get(i).getY());
+        }
+    }
+
+    @Test
+    public void testKeepsExtremes() {
+
+        final int points = 100000;
+        final int spikeX = 43210;
+        final int dipX = 777;
+        final int lastX = points - 1;
+
+        final MinMaxDownsampler downsampler = new MinMaxDownsampler(MAX_POINTS);
+        final Random random = new Random(0);
+        for (int i = 0; i < points; i++) {
+            long valueY = 100 + random.nextInt(50);
+            if (i == spikeX) {
+                valueY = 1000000;
+            } else if (i == dipX) {
+                valueY = 1;
+            } else if (i == lastX) {
+                valueY = 999999;
+            }
+            downsampler.add(new EntryStats(i * 10L, valueY, 0));
+        }
+
+        final List<EntryStats> list = downsampler.getEntryStats();
+        assertTrue(list.size() <= MAX_POINTS);
+        assertTrue(list.size() >= MAX_POINTS / 2);
+        assertSorted(list);
+        assertTrue(contains(list, spikeX * 10L, 1000000));
+        assertTrue(contains(list, dipX * 10L, 1));
+        assertTrue(contains(list, lastX * 10L, 999999));
+    }
+
+    @Test
+    public void testSpikesInAdjacentBuckets() {
+
+        // every value is an extreme of its bucket before the buckets are merged
+        final MinMaxDownsampler downsampler = new MinMaxDownsampler(4);
+        final long[] values = { 5, 1, 9, 3, 7, 2, 8, 4 };
+        for (int i = 0; i < values.length; i++) {
+            downsampler.add(new EntryStats(i, values[i], 0));
+        }
+
+        final List<EntryStats> list = downsampler.getEntryStats();
+        assertEquals(4, list.size());
+        assertSorted(list);
+        assertTrue(contains(list, 1, 1));
+        assertTrue(contains(list, 2, 9));
+        assertTrue(contains(list, 5, 2));
+        assertTrue(contains(list, 6, 8));
+    }
+
+    @Test
+    public void testGroupsAreIndependent() {
+
+        final MinMaxDownsampler downsampler = new MinMaxDownsampler(MAX_POINTS);
+        for (int i = 0; i < 10000; i++) {
+            downsampler.add(new EntryStats(i, i == 5000 ? 1000 : 10, 0));
+            if (i < 10) {
+                downsampler.add(new EntryStats(i, i, 1));
+            }
+        }
+
+        final List<EntryStats> list = downsampler.getEntryStats();
+        final List<EntryStats> first = getGroup(list, 0);
+        final List<EntryStats> second = getGroup(list, 1);
+        assertTrue(first.size() <= MAX_POINTS);
+        assertTrue(contains(first, 5000, 1000));
+        assertEquals(10, second.size());
+        assertSorted(second);
+    }
+
+    @Test
+    public void testPointBeforeOrigin() {
+
+        final MinMaxDownsampler downsampler = new MinMaxDownsampler(MAX_POINTS);
+        downsampler.add(new EntryStats(100, 10, 0));
+        downsampler.add(new EntryStats(50, 20, 0));
+
+        final List<EntryStats> list = downsampler.getEntryStats();
+        assertEquals(2, list.size());
+        assertSorted(list);
+        assertTrue(contains(list, 100, 10));
+        assertTrue(contains(list, 50, 20));
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the resumption of a followed log from its checkpoint.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class ReportFollowerTest {
+
+    // a log written before the error columns were added
+    private static final String HEADER = "#\tdate\ttask-name\tthread-name\titeration\tsql-label\trows"
+            + "\tconnection-time\tfirst-row-time\ttotal-time\tschedule-lag";
+
+    private static final long START_TIME = 1500000000000L;
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File logFile;
+    private File checkpointFile;
+
+    @Before
+    public void setUp() throws IOException {
+        logFile = new File(folder.getRoot(), "test.log");
+        checkpointFile = new File(folder.getRoot(), "test.checkpoint");
+    }
+
+    /**
+     * Appends the entries <code>from</code> to <code>to - 1</code>, one per second, with the iteration as schedule
+     * lag.
+     */
+    private void append(final boolean header, final int from, final int to) throws IOException {
+
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        try (PrintWriter writer = new PrintWriter(
+                new OutputStreamWriter(new FileOutputStream(logFile, true), Charset.defaultCharset()))) {
+            if (header) {
+                writer.println(HEADER);
+            }
+            for (int i = from; i < to; i++) {
+                writer.format("%s\ttask\ttask@Thread-0\t%d\tq1\t1\t0\t1\t2\t%d%n",
+                        dateFormat.format(new Date(START_TIME + i * 1000L)), i, i);
+            }
+        }
+    }
+
+    /**
+     * Follows the log until the checkpoint covers all of it.
+     */
+    private ReportFollower.State follow(final ReportContext context) throws Exception {
+
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    new ReportFollower(logFile, context, 10, checkpointFile).run();
+                } catch (final IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        thread.start();
+
+        final ReportFollower reader = new ReportFollower(logFile, context, 10, checkpointFile);
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                final ReportFollower.State state = reader.loadState();
+                if (state.getOffset() == logFile.length()) {
+                    return state;
+                }
+                Thread.sleep(10);
+            }
+            throw new AssertionError("The follower didn't read the whole log");
+        } finally {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    private static long getCount(final ReportFollower.State state, final String metric) {
+
+        for (final EntryGroup group : state.getReportStats().getEntryGroups()) {
+            if (group.getName().getMetric().equals(metric)) {
+                return state.getReportStats().getGroupStats(group.getId()).getSketch().getCount();
+            }
+        }
+        return 0;
+    }
+
+    @Test
+    public void testResumeWithColumns() throws Exception {
+
+        append(true, 0, 20);
+        follow(new ReportContext());
+
+        append(false, 20, 30);
+        final ReportFollower.State state = follow(new ReportContext());
+        assertEquals(30, getCount(state, MetricName.EXECUTION_TIME_KEY));
+        assertEquals(30, getCount(state, MetricName.SCHEDULE_LAG_KEY));
+    }
+
+    @Test
+    public void testRotatedLog() throws Exception {
+
+        append(true, 0, 20);
+        follow(new ReportContext());
+
+        // a new log, longer than the one read
+        assertTrue(logFile.delete());
+        append(true, 100, 140);
+        final ReportFollower.State state = follow(new ReportContext());
+        assertEquals(40, getCount(state, MetricName.EXECUTION_TIME_KEY));
+        assertEquals(40, getCount(state, MetricName.SCHEDULE_LAG_KEY));
+    }
+
+    @Test
+    public void testChangedOptions() throws Exception {
+
+        append(true, 0, 20);
+        follow(new ReportContext());
+
+        // a different span: the analysis starts over
+        final ReportContext spanContext = new ReportContext();
+        spanContext.setTimeSpan(1000L);
+        append(false, 20, 25);
+        ReportFollower.State state = follow(spanContext);
+        assertEquals(25, getCount(state, MetricName.EXECUTION_TIME_KEY));
+
+        // only the way the points are shown changes: the analysis resumes with the new context
+        final ReportContext pointsContext = new ReportContext();
+        pointsContext.setTimeSpan(1000L);
+        pointsContext.setMaxPoints(10);
+        append(false, 25, 30);
+        state = follow(pointsContext);
+        assertEquals(30, getCount(state, MetricName.EXECUTION_TIME_KEY));
+        assertSame(pointsContext, state.getReportStats().getContext());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.report;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dattack.dbping.engine.LogEntry;
+import com.dattack.dbping.engine.LogEntry.LogEntryBuilder;
+
+/**
+ * Tests that the entries written behind the watermark are left out of all their groups, so the totals, the points
+ * and the number of late entries agree.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class ReportStatsTest {
+
+    private final LogEntryBuilder builder = new LogEntryBuilder();
+    private final List<EntryStats> entryStatsList = new ArrayList<>();
+    private ReportStats reportStats;
+
+    @Before
+    public void setUp() {
+        final ReportContext context = new ReportContext();
+        context.setMaxLateness(100L);
+        reportStats = new ReportStats(context);
+    }
+
+    private void add(final long eventTime) {
+        final LogEntry logEntry = builder.init() //
+                .withEventTime(eventTime) //
+                .withTaskName("task") //
+                .withSqlLabel("q1") //
+                .withTotalTime(5) //
+                .build();
+        entryStatsList.addAll(reportStats.add(logEntry));
+    }
+
+    private int getGroup(final String metric) {
+        for (final EntryGroup group : reportStats.getEntryGroups()) {
+            if (group.getName().getMetric().equals(metric)) {
+                return group.getId();
+            }
+        }
+        throw new AssertionError("Unknown metric: " + metric);
+    }
+
+    /**
+     * Returns the number of executions in the points of the throughput, one per second.
+     */
+    private long getThroughputCount() {
+
+        final int group = getGroup(MetricName.THROUGHPUT_KEY);
+        long count = 0;
+        for (final EntryStats entryStats : entryStatsList) {
+            if (entryStats.getGroup() == group) {
+                count += entryStats.getY();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of executions in the points of a latency.
+     */
+    private long getLatencyCount(final String metric) {
+
+        final int group = getGroup(metric);
+        long count = 0;
+        for (final EntryStats entryStats : entryStatsList) {
+            if (entryStats.getGroup() == group) {
+                count += entryStats.getCount();
+            }
+        }
+        assertEquals(count, reportStats.getGroupStats(group).getSketch().getCount());
+        return count;
+    }
+
+    @Test
+    public void testOrderedEntries() {
+
+        for (long time = 0; time < 5000; time += 10) {
+            add(time);
+        }
+        entryStatsList.addAll(reportStats.flush());
+
+        assertEquals(0, reportStats.getLateEntries());
+        assertEquals(500, getLatencyCount(MetricName.EXECUTION_TIME_KEY));
+        assertEquals(500, getThroughputCount());
+    }
+
+    @Test
+    public void testLateEntries() {
+
+        for (long time = 0; time <= 1000; time += 10) {
+            add(time);
+        }
+
+        // the latency buckets of 850 were closed by the sweep at 1000 (watermark 900) but its throughput bucket,
+        // [0, 1000), wasn't: the entry is late for all its groups
+        add(850);
+        // within the lateness: accepted by all its groups
+        add(950);
+
+        for (long time = 1010; time < 3000; time += 10) {
+            add(time);
+        }
+        // behind a later sweep
+        add(1500);
+        entryStatsList.addAll(reportStats.flush());
+
+        assertEquals(2, reportStats.getLateEntries());
+        assertEquals(301, getLatencyCount(MetricName.EXECUTION_TIME_KEY));
+        assertEquals(301, getLatencyCount(MetricName.FIRST_ROW_TIME_KEY));
+        assertEquals(301, getThroughputCount());
+    }
+}
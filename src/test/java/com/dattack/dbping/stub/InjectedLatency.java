@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.stub;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Injects the simulated latencies and keeps the totals of the time really injected, so the latencies reported by
+ * dbping can be compared with them.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class InjectedLatency {
+
+    private static final LongAdder EXECUTIONS = new LongAdder();
+    private static final LongAdder INJECTED_NANOS = new LongAdder();
+
+    /**
+     * Blocks the current thread for the given time and adds the time elapsed to the total.
+     *
+     * @param millis
+     *            the time to block, in milliseconds
+     */
+    static void inject(final double millis) {
+
+        if (millis <= 0) {
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final long deadline = start + (long) (millis * TimeUnit.MILLISECONDS.toNanos(1));
+        for (long now = start; now < deadline; now = System.nanoTime()) {
+            LockSupport.parkNanos(deadline - now);
+        }
+        INJECTED_NANOS.add(System.nanoTime() - start);
+    }
+
+    static void executed() {
+        EXECUTIONS.increment();
+    }
+
+    /**
+     * Returns the number of statements executed since the last reset.
+     */
+    public static long getExecutions() {
+        return EXECUTIONS.sum();
+    }
+
+    /**
+     * Returns the time injected since the last reset, in nanoseconds.
+     */
+    public static long getInjectedNanos() {
+        return INJECTED_NANOS.sum();
+    }
+
+    public static void reset() {
+        EXECUTIONS.reset();
+        INJECTED_NANOS.reset();
+    }
+
+    private InjectedLatency() {
+        // static class
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.stub;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A distribution of simulated latencies, in milliseconds. The supported distributions are written as
+ * <code>fixed(value)</code> (or just the value), <code>uniform(min, max)</code> and
+ * <code>lognormal(median, sigma)</code>.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public abstract class LatencyDistribution {
+
+    private static final Pattern PATTERN = Pattern.compile("\\s*(\\w+)\\s*\\(([^)]*)\\)\\s*");
+
+    public static final LatencyDistribution ZERO = fixed(0);
+
+    /**
+     * Parses the definition of a distribution.
+     *
+     * @param text
+     *            the definition of the distribution
+     * @return the distribution
+     * @throws IllegalArgumentException
+     *             if the definition isn't valid
+     */
+    public static LatencyDistribution parse(final String text) {
+
+        final Matcher matcher = PATTERN.matcher(text);
+        if (!matcher.matches()) {
+            return fixed(parseValue(text, text));
+        }
+
+        final String[] args = matcher.group(2).split(",");
+        switch (matcher.group(1).toLowerCase(Locale.ENGLISH)) {
+        case "fixed":
+            checkArgs(text, args, 1);
+            return fixed(parseValue(text, args[0]));
+        case "uniform":
+            checkArgs(text, args, 2);
+            return uniform(parseValue(text, args[0]), parseValue(text, args[1]));
+        case "lognormal":
+            checkArgs(text, args, 2);
+            return lognormal(parseValue(text, args[0]), parseValue(text, args[1]));
+        default:
+            throw new IllegalArgumentException(String.format("Unknown distribution: %s", text));
+        }
+    }
+
+    private static void checkArgs(final String text, final String[] args, final int count) {
+        if (args.length != count) {
+            throw new IllegalArgumentException(
+                    String.format("Wrong number of arguments (expected %d): %s", count, text));
+        }
+    }
+
+    private static double parseValue(final String text, final String value) {
+
+        try {
+            final double result = Double.parseDouble(value.trim());
+            if (result < 0) {
+                throw new IllegalArgumentException(String.format("Negative latency: %s", text));
+            }
+            return result;
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid distribution: %s", text), e);
+        }
+    }
+
+    public static LatencyDistribution fixed(final double value) {
+        return new LatencyDistribution(String.format(Locale.ENGLISH, "fixed(%s)", value)) {
+
+            @Override
+            public double sample(final Random random) {
+                return value;
+            }
+        };
+    }
+
+    public static LatencyDistribution uniform(final double min, final double max) {
+        return new LatencyDistribution(String.format(Locale.ENGLISH, "uniform(%s, %s)", min, max)) {
+
+            @Override
+            public double sample(final Random random) {
+                return min + random.nextDouble() * (max - min);
+            }
+        };
+    }
+
+    /**
+     * Creates a log-normal distribution, the usual shape of the response times of a database: most values are close
+     * to the median and a few are much higher.
+     *
+     * @param median
+     *            the median of the distribution
+     * @param sigma
+     *            the standard deviation of the logarithm of the values
+     * @return the distribution
+     */
+    public static LatencyDistribution lognormal(final double median, final double sigma) {
+        final double mu = Math.log(Math.max(median, Double.MIN_VALUE));
+        return new LatencyDistribution(String.format(Locale.ENGLISH, "lognormal(%s, %s)", median, sigma)) {
+
+            @Override
+            public double sample(final Random random) {
+                return median == 0 ? 0 : Math.exp(mu + sigma * random.nextGaussian());
+            }
+        };
+    }
+
+    private final String description;
+
+    private LatencyDistribution(final String description) {
+        this.description = description;
+    }
+
+    /**
+     * Draws a latency from this distribution.
+     *
+     * @param random
+     *            the random number generator
+     * @return the latency in milliseconds
+     */
+    public abstract double sample(Random random);
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.stub;
+
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * The latencies simulated by a stub connection. They are read from the parameters of the URL, separated by
+ * semicolons, and from the connection properties:
+ * <ul>
+ * <li><code>connect</code>: the distribution of the time to open a connection.</li>
+ * <li><code>execute</code>: the distribution of the execution time of a statement.</li>
+ * <li><code>row</code>: the distribution of the time to fetch each row.</li>
+ * <li><code>rows</code>: the number of rows returned by each query.</li>
+ * <li><code>stall-probability</code> and <code>stall</code>: the probability of a stall of an execution and the
+ * distribution of its duration.</li>
+ * </ul>
+ * Example: <code>jdbc:dbping-stub:connect=fixed(1);execute=lognormal(5,0.5);rows=10;stall-probability=0.01;
+ * stall=uniform(200,500)</code>.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+final class StubConfiguration {
+
+    private static final int DEFAULT_ROWS = 10;
+
+    private LatencyDistribution connect;
+    private LatencyDistribution execute;
+    private LatencyDistribution row;
+    private LatencyDistribution stall;
+    private double stallProbability;
+    private int rows;
+
+    static StubConfiguration parse(final String parameters, final Properties info) throws SQLException {
+
+        final Properties properties = new Properties();
+        if (info != null) {
+            properties.putAll(info);
+        }
+        for (final String parameter : parameters.split(";")) {
+            final int index = parameter.indexOf('=');
+            if (index > 0) {
+                properties.setProperty(parameter.substring(0, index).trim(), parameter.substring(index + 1).trim());
+            }
+        }
+
+        try {
+            final StubConfiguration configuration = new StubConfiguration();
+            configuration.connect = parseDistribution(properties.getProperty("connect"));
+            configuration.execute = parseDistribution(properties.getProperty("execute"));
+            configuration.row = parseDistribution(properties.getProperty("row"));
+            configuration.stall = parseDistribution(properties.getProperty("stall"));
+            configuration.stallProbability = Double.parseDouble(properties.getProperty("stall-probability", "0"));
+            configuration.rows = Integer.parseInt(properties.getProperty("rows", Integer.toString(DEFAULT_ROWS)));
+            return configuration;
+        } catch (final IllegalArgumentException e) {
+            throw new SQLException(String.format("Invalid stub URL parameters: %s", parameters), e);
+        }
+    }
+
+    private static LatencyDistribution parseDistribution(final String text) {
+        return text == null ? LatencyDistribution.ZERO : LatencyDistribution.parse(text);
+    }
+
+    private StubConfiguration() {
+        // use the parse method
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    void injectConnect(final Random random) {
+        InjectedLatency.inject(connect.sample(random));
+    }
+
+    void injectExecute(final Random random) {
+        double millis = execute.sample(random);
+        if (stallProbability > 0 && random.nextDouble() < stallProbability) {
+            millis += stall.sample(random);
+        }
+        InjectedLatency.inject(millis);
+    }
+
+    void injectRow(final Random random) {
+        InjectedLatency.inject(row.sample(random));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("connect: %s, execute: %s, row: %s, rows: %d, stall: %s (probability: %s)", connect,
+                execute, row, rows, stall, stallProbability);
+    }
+}
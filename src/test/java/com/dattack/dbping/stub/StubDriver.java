@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.stub;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * A JDBC driver that doesn't connect to any database: it simulates the latencies of the connections, the executions
+ * and the fetch of each row drawn from the distributions set in the URL (see {@link StubConfiguration}). The queries
+ * (the statements starting with <code>SELECT</code> or <code>WITH</code>) return a fixed number of rows with three
+ * columns and the rest of statements update no rows.
+ * <p>
+ * The driver is registered through <code>META-INF/services/java.sql.Driver</code> so it can be used from a JNDI
+ * <code>.properties</code> file like any other driver:
+ *
+ * <pre>
+ * type=javax.sql.DataSource
+ * driverClassName=com.dattack.dbping.stub.StubDriver
+ * url=jdbc:dbping-stub:connect=fixed(1);execute=lognormal(5,0.5);rows=10
+ * </pre>
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+public final class StubDriver implements Driver {
+
+    public static final String URL_PREFIX = "jdbc:dbping-stub:";
+
+    private static final int COLUMNS = 3;
+
+    static {
+        try {
+            DriverManager.registerDriver(new StubDriver());
+        } catch (final SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static boolean isQuery(final String sql) {
+        final String text = sql.trim().toUpperCase(Locale.ENGLISH);
+        return text.startsWith("SELECT") || text.startsWith("WITH");
+    }
+
+    /**
+     * The connections: each statement executed simulates its latency.
+     */
+    private static final class ConnectionHandler extends StubHandler {
+
+        private final StubConfiguration configuration;
+
+        ConnectionHandler(final StubConfiguration configuration) {
+            super(Connection.class);
+            this.configuration = configuration;
+        }
+
+        @Override
+        Object handle(final Method method, final Object[] args) throws SQLException {
+
+            switch (method.getName()) {
+            case "createStatement":
+                return StubHandler.newProxy(Statement.class, new StatementHandler(configuration, null));
+            case "prepareStatement":
+                return StubHandler.newProxy(PreparedStatement.class,
+                        new StatementHandler(configuration, (String) args[0]));
+            case "getAutoCommit":
+            case "isValid":
+                return true;
+            case "isReadOnly":
+                return false;
+            case "getTransactionIsolation":
+                return Connection.TRANSACTION_NONE;
+            case "commit":
+            case "rollback":
+                return null;
+            default:
+                return super.handle(method, args);
+            }
+        }
+    }
+
+    /**
+     * The statements and prepared statements.
+     */
+    private static final class StatementHandler extends StubHandler {
+
+        private final StubConfiguration configuration;
+        private final String preparedSql;
+        private ResultSet resultSet;
+        private int updateCount;
+
+        StatementHandler(final StubConfiguration configuration, final String preparedSql) {
+            super(Statement.class);
+            this.configuration = configuration;
+            this.preparedSql = preparedSql;
+            this.updateCount = -1;
+        }
+
+        private boolean execute(final String sql) {
+
+            configuration.injectExecute(ThreadLocalRandom.current());
+            InjectedLatency.executed();
+            if (isQuery(sql)) {
+                resultSet = StubHandler.newProxy(ResultSet.class, new ResultSetHandler(configuration));
+                updateCount = -1;
+                return true;
+            }
+            resultSet = null;
+            updateCount = 0;
+            return false;
+        }
+
+        @Override
+        Object handle(final Method method, final Object[] args) throws SQLException {
+
+            final String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                    : preparedSql;
+
+            switch (method.getName()) {
+            case "execute":
+                return execute(sql);
+            case "executeQuery":
+                execute(sql);
+                return resultSet;
+            case "executeUpdate":
+                execute(sql);
+                return Math.max(0, updateCount);
+            case "getResultSet":
+                return resultSet;
+            case "getUpdateCount":
+                return updateCount;
+            case "getMoreResults":
+                resultSet = null;
+                updateCount = -1;
+                return false;
+            default:
+                return super.handle(method, args);
+            }
+        }
+    }
+
+    /**
+     * The results of a query: each row fetched simulates its latency.
+     */
+    private static final class ResultSetHandler extends StubHandler {
+
+        private final StubConfiguration configuration;
+        private int row;
+
+        ResultSetHandler(final StubConfiguration configuration) {
+            super(ResultSet.class);
+            this.configuration = configuration;
+            this.row = 0;
+        }
+
+        private Object getValue(final int column) throws SQLException {
+
+            if (row < 1 || row > configuration.getRows()) {
+                throw new SQLException("The cursor isn't on a row");
+            }
+            switch (column) {
+            case 1:
+                return row;
+            case 2:
+                return "row-" + row;
+            case 3:
+                return row * 1.5;
+            default:
+                throw new SQLException(String.format("Invalid column index: %d", column));
+            }
+        }
+
+        @Override
+        Object handle(final Method method, final Object[] args) throws SQLException {
+
+            switch (method.getName()) {
+            case "next":
+                if (row < configuration.getRows()) {
+                    configuration.injectRow(ThreadLocalRandom.current());
+                    row++;
+                    return true;
+                }
+                row = configuration.getRows() + 1;
+                return false;
+            case "getObject":
+                if (args[0] instanceof Integer) {
+                    return getValue((Integer) args[0]);
+                }
+                return super.handle(method, args);
+            case "getString":
+                if (args[0] instanceof Integer) {
+                    return String.valueOf(getValue((Integer) args[0]));
+                }
+                return super.handle(method, args);
+            case "wasNull":
+                return false;
+            case "getMetaData":
+                return StubHandler.newProxy(ResultSetMetaData.class, new MetaDataHandler());
+            default:
+                return super.handle(method, args);
+            }
+        }
+    }
+
+    /**
+     * The description of the three columns of the results.
+     */
+    private static final class MetaDataHandler extends StubHandler {
+
+        private static final String[] NAMES = { "ID", "NAME", "VALUE" };
+        private static final int[] TYPES = { Types.INTEGER, Types.VARCHAR, Types.DOUBLE };
+
+        MetaDataHandler() {
+            super(ResultSetMetaData.class);
+        }
+
+        @Override
+        Object handle(final Method method, final Object[] args) throws SQLException {
+
+            switch (method.getName()) {
+            case "getColumnCount":
+                return COLUMNS;
+            case "getColumnName":
+            case "getColumnLabel":
+                return NAMES[(Integer) args[0] - 1];
+            case "getColumnType":
+                return TYPES[(Integer) args[0] - 1];
+            default:
+                return super.handle(method, args);
+            }
+        }
+    }
+
+    @Override
+    public boolean acceptsURL(final String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    @Override
+    public Connection connect(final String url, final Properties info) throws SQLException {
+
+        if (!acceptsURL(url)) {
+            return null;
+        }
+
+        final StubConfiguration configuration = StubConfiguration.parse(url.substring(URL_PREFIX.length()), info);
+        configuration.injectConnect(ThreadLocalRandom.current());
+        return StubHandler.newProxy(Connection.class, new ConnectionHandler(configuration));
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 0;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 2;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(final String url, final Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.dbping.stub;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+/**
+ * The base of the dynamic proxies that implement the JDBC interfaces of the stub driver. It handles the methods
+ * common to all of them (<code>close</code>, <code>isClosed</code>, <code>unwrap</code>, ...), ignores the setters and
+ * rejects the rest of unsupported methods.
+ *
+ * @author cvarela
+ * @since 0.2
+ */
+abstract class StubHandler implements InvocationHandler {
+
+    private final Class<?> type;
+    private boolean closed;
+
+    @SuppressWarnings("unchecked")
+    static <T> T newProxy(final Class<T> type, final StubHandler handler) {
+        return (T) Proxy.newProxyInstance(StubHandler.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    StubHandler(final Class<?> type) {
+        this.type = type;
+        this.closed = false;
+    }
+
+    /**
+     * Handles the methods specific to each interface.
+     *
+     * @param method
+     *            the method invoked
+     * @param args
+     *            the arguments of the method
+     * @return the result of the method
+     * @throws SQLException
+     *             if the method isn't supported
+     */
+    Object handle(final Method method, final Object[] args) throws SQLException {
+
+        if (method.getName().startsWith("set") && method.getReturnType() == Void.TYPE) {
+            return null;
+        }
+        throw new SQLFeatureNotSupportedException(
+                String.format("Unsupported method: %s.%s", type.getSimpleName(), method.getName()));
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+
+        switch (method.getName()) {
+        case "close":
+            closed = true;
+            return null;
+        case "isClosed":
+            return closed;
+        case "equals":
+            return proxy == args[0];
+        case "hashCode":
+            return System.identityHashCode(proxy);
+        case "toString":
+            return String.format("Stub%s@%x", type.getSimpleName(), System.identityHashCode(proxy));
+        case "isWrapperFor":
+            return false;
+        case "unwrap":
+            throw new SQLException(String.format("Not a wrapper for %s", args[0]));
+        case "getWarnings":
+            return null;
+        case "clearWarnings":
+            return null;
+        default:
+            if (closed) {
+                throw new SQLException(String.format("%s closed", type.getSimpleName()));
+            }
+            return handle(method, args);
+        }
+    }
+}